@@ -52,7 +52,10 @@ public class Configuration {
   public static final String GLOBAL_RESOURCES_DICT_SENTIMENT = "global.resources.dict.sentiment";
   public static final String GLOBAL_RESOURCES_DICT_SENTIMENT_SENTIWORDNET_PATH = "global.resources.dict.sentiment.sentiwordnet.path";
   public static final String GLOBAL_RESOURCES_DICT_SLANG = "global.resources.dict.slang";
+  public static final String GLOBAL_RESOURCES_DICT_MAPPED_DIR = "global.resources.dict.mapped.dir";
   public static final String GLOBAL_RESOURCES_DICT_WORDNET_PATH = "global.resources.dict.wordnet.path";
+  public static final String GLOBAL_RESOURCES_DICT_WORDNET_SNAPSHOT_PATH = "global.resources.dict.wordnet.snapshot.path";
+  public static final String GLOBAL_RESOURCES_POSTAGGER_ARK_MODEL_BINARY_PATH = "global.resources.postagger.ark.model.binary.path";
 
   public static final Map CONFIG = readConfig();
 
@@ -193,4 +196,50 @@ public class Configuration {
     return (String) CONFIG.get(GLOBAL_RESOURCES_DICT_WORDNET_PATH);
   }
 
+  /**
+   * Returns the WordNet snapshot file, the default file name contains the
+   * fingerprint of the dictionary archive.
+   */
+  public static File getWordNetSnapshot(long fingerprint) {
+    String snapshotPath = (String) CONFIG
+        .get(GLOBAL_RESOURCES_DICT_WORDNET_SNAPSHOT_PATH);
+    if (snapshotPath == null) {
+      // shared by all workers of a host
+      snapshotPath = TEMP_DIR_PATH + File.separator + "wn3.1.dict-"
+          + Long.toHexString(fingerprint) + ".snapshot";
+    }
+    return new File(snapshotPath);
+  }
+
+  /**
+   * Returns the memory-mapped dictionary file of the given name and
+   * fingerprint, different configs use different files.
+   */
+  public static File getMappedDictionary(String name, long fingerprint) {
+    String mappedDir = (String) CONFIG.get(GLOBAL_RESOURCES_DICT_MAPPED_DIR);
+    if (mappedDir == null) {
+      // shared by all workers of a host
+      mappedDir = TEMP_DIR_PATH;
+    }
+    return new File(mappedDir, name + "-" + Long.toHexString(fingerprint)
+        + ".dict");
+  }
+
+  /**
+   * Returns the binary ARK model file, the default file name contains the
+   * fingerprint of the text model.
+   */
+  public static File getArkTaggerModelBinary(String textModelPath,
+      long fingerprint) {
+    String binaryPath = (String) CONFIG
+        .get(GLOBAL_RESOURCES_POSTAGGER_ARK_MODEL_BINARY_PATH);
+    if (binaryPath == null) {
+      // shared by all workers of a host
+      binaryPath = TEMP_DIR_PATH + File.separator
+          + new File(textModelPath).getName() + "-"
+          + Long.toHexString(fingerprint) + ".bin";
+    }
+    return new File(binaryPath);
+  }
+
 }
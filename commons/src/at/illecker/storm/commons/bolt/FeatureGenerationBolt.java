@@ -18,12 +18,14 @@ package at.illecker.storm.commons.bolt;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
 import at.illecker.storm.commons.Dataset;
+import at.illecker.storm.commons.metric.TokenCacheMetric;
 import at.illecker.storm.commons.svm.featurevector.CombinedFeatureVectorGenerator;
 import at.illecker.storm.commons.svm.featurevector.FeatureVectorGenerator;
 import at.illecker.storm.commons.tfidf.TfIdfNormalization;
@@ -31,6 +33,7 @@ import at.illecker.storm.commons.tfidf.TfType;
 import at.illecker.storm.commons.tfidf.TweetTfIdf;
 import at.illecker.storm.commons.tweet.FeaturedTweet;
 import at.illecker.storm.commons.util.io.SerializationUtils;
+import at.illecker.storm.commons.wordnet.WordNet;
 import backtype.storm.task.TopologyContext;
 import backtype.storm.topology.BasicOutputCollector;
 import backtype.storm.topology.OutputFieldsDeclarer;
@@ -43,9 +46,14 @@ import cmu.arktweetnlp.Tagger.TaggedToken;
 public class FeatureGenerationBolt extends BaseBasicBolt {
   public static final String ID = "feature-generation-bolt";
   public static final String CONF_LOGGING = ID + ".logging";
+  public static final String CONF_METRIC_LOGGING_INTERVALL = ID
+      + ".metric.logging.intervall";
   private static final long serialVersionUID = 8704674836362723368L;
   private static final Logger LOG = LoggerFactory
       .getLogger(FeatureGenerationBolt.class);
+  // the stem caches of WordNet are shared by all executors of a worker
+  private static final AtomicBoolean STEM_CACHE_METRIC_REGISTERED = new AtomicBoolean(
+      false);
   private boolean m_logging = false;
   private Dataset m_dataset;
   private FeatureVectorGenerator m_fvg = null;
@@ -82,6 +90,15 @@ public class FeatureGenerationBolt extends BaseBasicBolt {
       LOG.error("TaggedTweets could not be found! File is missing: "
           + m_dataset.getTrainDataSerializationFile());
     }
+
+    // Stem cache metric, registered only once per worker
+    if ((config.get(CONF_METRIC_LOGGING_INTERVALL) != null)
+        && (WordNet.getInstance().getStemCaches() != null)
+        && (STEM_CACHE_METRIC_REGISTERED.compareAndSet(false, true))) {
+      context.registerMetric("stem_cache", new TokenCacheMetric(WordNet
+          .getInstance().getStemCaches()), ((Number) config
+          .get(CONF_METRIC_LOGGING_INTERVALL)).intValue());
+    }
   }
 
   @Override
@@ -16,15 +16,20 @@
  */
 package at.illecker.storm.commons.bolt;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
-import at.illecker.storm.commons.util.io.SerializationUtils;
+import at.illecker.storm.commons.metric.TokenCacheMetric;
+import at.illecker.storm.commons.postagger.ArkPOSTaggerSession;
+import at.illecker.storm.commons.postagger.ArkTaggerModel;
+import at.illecker.storm.commons.postagger.TaggedTokensCache;
 import backtype.storm.task.TopologyContext;
 import backtype.storm.topology.BasicOutputCollector;
 import backtype.storm.topology.OutputFieldsDeclarer;
@@ -33,22 +38,28 @@ import backtype.storm.tuple.Fields;
 import backtype.storm.tuple.Tuple;
 import backtype.storm.tuple.Values;
 import cmu.arktweetnlp.Tagger.TaggedToken;
-import cmu.arktweetnlp.impl.Model;
-import cmu.arktweetnlp.impl.ModelSentence;
-import cmu.arktweetnlp.impl.Sentence;
-import cmu.arktweetnlp.impl.features.FeatureExtractor;
 
 public class POSTaggerBolt extends BaseBasicBolt {
   public static final String ID = "pos-tagger-bolt";
   public static final String CONF_LOGGING = ID + ".logging";
   public static final String CONF_MODEL = ID + ".model";
+  public static final String CONF_SEQUENCE_CACHE_ENABLED = ID
+      + ".sequencecache.enabled";
+  public static final String CONF_SEQUENCE_CACHE_SIZE_MB = ID
+      + ".sequencecache.size.mb";
+  public static final String CONF_METRIC_LOGGING_INTERVALL = ID
+      + ".metric.logging.intervall";
   private static final long serialVersionUID = 8389930087364663504L;
   private static final Logger LOG = LoggerFactory
       .getLogger(POSTaggerBolt.class);
+  // the sequence cache is shared by all executors of a worker
+  private static TaggedTokensCache SEQUENCE_CACHE;
+  private static final AtomicBoolean SEQUENCE_CACHE_METRIC_REGISTERED = new AtomicBoolean(
+      false);
   private boolean m_logging = false;
 
-  private Model m_model;
-  private FeatureExtractor m_featureExtractor;
+  private ArkPOSTaggerSession m_session;
+  private TaggedTokensCache m_sequenceCache;
 
   @Override
   public void declareOutputFields(OutputFieldsDeclarer declarer) {
@@ -64,15 +75,44 @@ public class POSTaggerBolt extends BaseBasicBolt {
     } else {
       m_logging = false;
     }
-    // Load ARK POS Tagger
+    // Load ARK POS Tagger, the model is shared by all executors of a worker
     String taggingModel = Configuration
         .get("global.resources.postagger.ark.model.path");
-    LOG.info("Load ARK POS Tagger model: " + taggingModel + "_model.ser");
-    m_model = SerializationUtils.deserialize(taggingModel + "_model.ser");
-    LOG.info("Load ARK POS Tagger featureExtractor : " + taggingModel
-        + "_featureExtractor.ser");
-    m_featureExtractor = SerializationUtils.deserialize(taggingModel
-        + "_featureExtractor.ser");
+    LOG.info("Load ARK POS Tagger model: " + taggingModel);
+    try {
+      m_session = ArkTaggerModel.get(taggingModel).createSession();
+    } catch (IOException e) {
+      throw new RuntimeException("ARK POS Tagger model could not be loaded: "
+          + taggingModel, e);
+    }
+
+    // Optional sequence cache for repeated tweets, e.g. retweets
+    if ((config.get(CONF_SEQUENCE_CACHE_ENABLED) != null)
+        && ((Boolean) config.get(CONF_SEQUENCE_CACHE_ENABLED))) {
+      int sizeMb = 64;
+      if (config.get(CONF_SEQUENCE_CACHE_SIZE_MB) != null) {
+        sizeMb = ((Number) config.get(CONF_SEQUENCE_CACHE_SIZE_MB)).intValue();
+      }
+      m_sequenceCache = getSequenceCache(sizeMb);
+    } else {
+      m_sequenceCache = null;
+    }
+
+    // Sequence cache metric, registered only once per worker
+    if ((config.get(CONF_METRIC_LOGGING_INTERVALL) != null)
+        && (m_sequenceCache != null)
+        && (SEQUENCE_CACHE_METRIC_REGISTERED.compareAndSet(false, true))) {
+      context.registerMetric("sequence_cache", new TokenCacheMetric(
+          m_sequenceCache),
+          ((Number) config.get(CONF_METRIC_LOGGING_INTERVALL)).intValue());
+    }
+  }
+
+  private static synchronized TaggedTokensCache getSequenceCache(int sizeMb) {
+    if (SEQUENCE_CACHE == null) {
+      SEQUENCE_CACHE = TaggedTokensCache.create(sizeMb);
+    }
+    return SEQUENCE_CACHE;
   }
 
   @Override
@@ -81,7 +121,15 @@ public class POSTaggerBolt extends BaseBasicBolt {
         .getValueByField("preprocessedTokens");
 
     // POS Tagging
-    List<TaggedToken> taggedTokens = tag(preprocessedTokens);
+    List<TaggedToken> taggedTokens = new ArrayList<TaggedToken>(
+        preprocessedTokens.size());
+    if ((m_sequenceCache == null)
+        || (!m_sequenceCache.get(preprocessedTokens, taggedTokens))) {
+      m_session.tag(preprocessedTokens, taggedTokens);
+      if (m_sequenceCache != null) {
+        m_sequenceCache.put(preprocessedTokens, taggedTokens);
+      }
+    }
 
     if (m_logging) {
       LOG.info("Tweet: " + taggedTokens);
@@ -90,20 +138,4 @@ public class POSTaggerBolt extends BaseBasicBolt {
     // Emit new tuples
     collector.emit(new Values(taggedTokens));
   }
-
-  private List<TaggedToken> tag(List<String> tokens) {
-    Sentence sentence = new Sentence();
-    sentence.tokens = tokens;
-    ModelSentence ms = new ModelSentence(sentence.T());
-    m_featureExtractor.computeFeatures(sentence, ms);
-    m_model.greedyDecode(ms, false);
-
-    List<TaggedToken> taggedTokens = new ArrayList<TaggedToken>();
-    for (int t = 0; t < sentence.T(); t++) {
-      TaggedToken tt = new TaggedToken(tokens.get(t),
-          m_model.labelVocab.name(ms.labels[t]));
-      taggedTokens.add(tt);
-    }
-    return taggedTokens;
-  }
 }
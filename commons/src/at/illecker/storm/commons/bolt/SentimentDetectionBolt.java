@@ -22,6 +22,7 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.illecker.storm.commons.dict.SentimentAccumulator;
 import at.illecker.storm.commons.dict.SentimentDictionary;
 import at.illecker.storm.commons.dict.SentimentResult;
 import backtype.storm.task.OutputCollector;
@@ -40,6 +41,7 @@ public class SentimentDetectionBolt extends BaseRichBolt {
   private boolean m_logging = false;
   private OutputCollector m_collector;
   private SentimentDictionary m_sentimentDict;
+  private SentimentAccumulator m_sentimentAccumulator;
 
   public void declareOutputFields(OutputFieldsDeclarer declarer) {
     // no output tuples
@@ -55,6 +57,7 @@ public class SentimentDetectionBolt extends BaseRichBolt {
       m_logging = false;
     }
     m_sentimentDict = SentimentDictionary.getInstance();
+    m_sentimentAccumulator = m_sentimentDict.createAccumulator();
   }
 
   public void cleanup() {
@@ -69,15 +72,17 @@ public class SentimentDetectionBolt extends BaseRichBolt {
         .getValueByField("taggedTokens");
 
     // Calculate sentiment
-    Map<Integer, SentimentResult> tweetSentiments = m_sentimentDict
-        .getSentenceSentimentFromTaggedToken(taggedTokens);
-
+    SentimentAccumulator tweetSentiments = m_sentimentAccumulator;
     double totalSentimentScore = Double.MIN_VALUE;
-    if (tweetSentiments != null) {
-      for (SentimentResult tweetSentiment : tweetSentiments.values()) {
-        totalSentimentScore += tweetSentiment.getAvgSum();
+    if (m_sentimentDict.getSentenceSentimentFromTaggedToken(taggedTokens,
+        tweetSentiments)) {
+      int mask = tweetSentiments.getMask();
+      while (mask != 0) {
+        int wordList = Integer.numberOfTrailingZeros(mask);
+        mask &= mask - 1;
+        totalSentimentScore += tweetSentiments.getAvgSum(wordList);
       }
-      totalSentimentScore /= tweetSentiments.size();
+      totalSentimentScore /= Integer.bitCount(tweetSentiments.getMask());
     }
 
     if (m_logging) {
@@ -24,9 +24,10 @@ import java.util.regex.Matcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import at.illecker.storm.commons.util.HtmlUtils;
+import at.illecker.storm.commons.tokenizer.TokenScanner;
+import at.illecker.storm.commons.tokenizer.Tokenizer;
 import at.illecker.storm.commons.util.RegexUtils;
-import at.illecker.storm.commons.util.UnicodeUtils;
+import at.illecker.storm.commons.util.TextNormalizer;
 import backtype.storm.task.TopologyContext;
 import backtype.storm.topology.BasicOutputCollector;
 import backtype.storm.topology.OutputFieldsDeclarer;
@@ -38,10 +39,13 @@ import backtype.storm.tuple.Values;
 public class TokenizerBolt extends BaseBasicBolt {
   public static final String ID = "tokenizer-bolt";
   public static final String CONF_LOGGING = ID + ".logging";
+  public static final String CONF_TYPE = ID + ".type";
   private static final long serialVersionUID = 7134328814020366549L;
   private static final Logger LOG = LoggerFactory
       .getLogger(TokenizerBolt.class);
   private boolean m_logging = false;
+  private Tokenizer.Type m_type = Tokenizer.Type.SCANNER_TOKENIZER;
+  private TextNormalizer m_normalizer;
 
   @Override
   public void declareOutputFields(OutputFieldsDeclarer declarer) {
@@ -57,6 +61,13 @@ public class TokenizerBolt extends BaseBasicBolt {
     } else {
       m_logging = false;
     }
+    // Optional set tokenizer type (REGEX_TOKENIZER or SCANNER_TOKENIZER)
+    if (config.get(CONF_TYPE) != null) {
+      m_type = Tokenizer.Type.valueOf((String) config.get(CONF_TYPE));
+    } else {
+      m_type = Tokenizer.Type.SCANNER_TOKENIZER;
+    }
+    m_normalizer = new TextNormalizer();
   }
 
   @Override
@@ -64,23 +75,19 @@ public class TokenizerBolt extends BaseBasicBolt {
     String text = tuple.getStringByField("text");
 
     // Step 1) Trim text
-    text = text.trim();
-
     // Step 2) Replace Unicode symbols \u0000
-    if (UnicodeUtils.containsUnicode(text)) {
-      text = UnicodeUtils.replaceUnicodeSymbols(text);
-    }
-
     // Step 3) Replace HTML symbols &#[0-9];
-    if (HtmlUtils.containsHtml(text)) {
-      text = HtmlUtils.replaceHtmlSymbols(text);
-    }
+    text = m_normalizer.normalize(text);
 
     // Step 4) Tokenize
     List<String> tokens = new ArrayList<String>();
-    Matcher m = RegexUtils.TOKENIZER_PATTERN.matcher(text);
-    while (m.find()) {
-      tokens.add(m.group());
+    if (m_type == Tokenizer.Type.SCANNER_TOKENIZER) {
+      TokenScanner.tokenize(text, tokens);
+    } else {
+      Matcher m = RegexUtils.TOKENIZER_PATTERN.matcher(text);
+      while (m.find()) {
+        tokens.add(m.group());
+      }
     }
 
     if (m_logging) {
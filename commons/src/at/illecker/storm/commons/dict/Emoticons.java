@@ -16,26 +16,24 @@
  */
 package at.illecker.storm.commons.dict;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.util.RegexAutomaton;
 import at.illecker.storm.commons.util.io.FileUtils;
 
 public class Emoticons {
   private static final Logger LOG = LoggerFactory.getLogger(Emoticons.class);
   private static final Emoticons INSTANCE = new Emoticons();
 
-  private Set<String> m_emoticons = null;
-  private List<Pattern> m_emoticonPatterns = null;
+  // literals and regex patterns compiled into one automaton
+  private RegexAutomaton m_emoticons = new RegexAutomaton(
+      RegexAutomaton.Mode.MATCHES);
 
   private Emoticons() {
     List<Map> emoticonFiles = Configuration.getEmoticons();
@@ -47,20 +45,21 @@ public class Emoticons {
 
       if (containsRegex) {
         LOG.info("Loaded Emoticons including regex patterns from: " + file);
-        if (m_emoticonPatterns == null) {
-          m_emoticonPatterns = new ArrayList<Pattern>();
-        }
         for (String emoticon : emoticons) {
-          m_emoticonPatterns.add(Pattern.compile("^" + emoticon + "$"));
+          m_emoticons.addPattern("^" + emoticon + "$");
         }
       } else {
         LOG.info("Loaded Emoticons from: " + file);
-        if (m_emoticons == null) {
-          m_emoticons = new HashSet<String>();
+        for (String emoticon : emoticons) {
+          m_emoticons.addLiteral(emoticon);
         }
-        m_emoticons.addAll(emoticons);
       }
     }
+    if (m_emoticons.getFallbackPatternCount() > 0) {
+      LOG.info(m_emoticons.getFallbackPatternCount() + " of "
+          + m_emoticons.getPatternCount()
+          + " emoticon patterns are not supported by the automaton");
+    }
   }
 
   public static Emoticons getInstance() {
@@ -68,21 +67,7 @@ public class Emoticons {
   }
 
   public boolean isEmoticon(String str) {
-    str = str.toLowerCase();
-    boolean result = false;
-    if (m_emoticons != null) {
-      result = m_emoticons.contains(str);
-    }
-
-    if ((result == false) && (m_emoticonPatterns != null)) {
-      for (Pattern emoticon : m_emoticonPatterns) {
-        Matcher m = emoticon.matcher(str);
-        if (m.matches()) {
-          return true;
-        }
-      }
-    }
-    return result;
+    return m_emoticons.acceptsLowerCase(str);
   }
 
   public static void main(String[] args) {
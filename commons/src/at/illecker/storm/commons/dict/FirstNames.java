@@ -16,29 +16,29 @@
  */
 package at.illecker.storm.commons.dict;
 
+import java.util.HashSet;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.util.PerfectHashSet;
 import at.illecker.storm.commons.util.io.FileUtils;
 
 public class FirstNames {
   private static final Logger LOG = LoggerFactory.getLogger(FirstNames.class);
   private static final FirstNames INSTANCE = new FirstNames();
 
-  private Set<String> m_firstNames = null;
+  private PerfectHashSet m_firstNames;
 
   private FirstNames() {
+    Set<String> values = new HashSet<String>();
     for (String file : Configuration.getFirstNames()) {
       LOG.info("Load FirstNames from: " + file);
-      if (m_firstNames == null) {
-        m_firstNames = FileUtils.readFile(file, true);
-      } else {
-        m_firstNames.addAll(FileUtils.readFile(file, true));
-      }
+      values.addAll(FileUtils.readFile(file, true));
     }
+    m_firstNames = new PerfectHashSet(values);
   }
 
   public static FirstNames getInstance() {
@@ -46,7 +46,14 @@ public class FirstNames {
   }
 
   public boolean isFirstName(String value) {
-    return m_firstNames.contains(value.toLowerCase());
+    return m_firstNames.containsLowerCase(value);
+  }
+
+  /**
+   * Same as isFirstName(new String(text, offset, length))
+   */
+  public boolean isFirstName(char[] text, int offset, int length) {
+    return m_firstNames.containsLowerCase(text, offset, length);
   }
 
   public static void main(String[] args) {
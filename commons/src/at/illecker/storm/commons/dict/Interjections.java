@@ -16,18 +16,17 @@
  */
 package at.illecker.storm.commons.dict;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.util.PerfectHashSet;
+import at.illecker.storm.commons.util.RegexAutomaton;
 import at.illecker.storm.commons.util.io.FileUtils;
 
 public class Interjections {
@@ -35,10 +34,13 @@ public class Interjections {
       .getLogger(Interjections.class);
   private static final Interjections INSTANCE = new Interjections();
 
-  private Set<String> m_interjections = null;
-  private List<Pattern> m_interjectionPatterns = null;
+  private PerfectHashSet m_literals;
+  // regex patterns compiled into one automaton
+  private RegexAutomaton m_interjections = new RegexAutomaton(
+      RegexAutomaton.Mode.FIND);
 
   private Interjections() {
+    Set<String> literals = new HashSet<String>();
     List<Map> interjectionFiles = Configuration.getInterjections();
     for (Map interjectionEntry : interjectionFiles) {
       String file = (String) interjectionEntry.get("path");
@@ -48,20 +50,20 @@ public class Interjections {
 
       if (containsRegex) {
         LOG.info("Loaded Interjections including regex patterns from: " + file);
-        if (m_interjectionPatterns == null) {
-          m_interjectionPatterns = new ArrayList<Pattern>();
-        }
         for (String interjection : interjections) {
-          m_interjectionPatterns.add(Pattern.compile("^" + interjection + "$"));
+          m_interjections.addPattern("^" + interjection + "$");
         }
       } else {
         LOG.info("Loaded Interjections from: " + file);
-        if (m_interjections == null) {
-          m_interjections = new HashSet<String>();
-        }
-        m_interjections.addAll(interjections);
+        literals.addAll(interjections);
       }
     }
+    m_literals = new PerfectHashSet(literals);
+    if (m_interjections.getFallbackPatternCount() > 0) {
+      LOG.info(m_interjections.getFallbackPatternCount() + " of "
+          + m_interjections.getPatternCount()
+          + " interjection patterns are not supported by the automaton");
+    }
   }
 
   public static Interjections getInstance() {
@@ -69,22 +71,11 @@ public class Interjections {
   }
 
   public boolean isInterjection(String value) {
-    value = value.toLowerCase();
-    boolean result = false;
-    if (m_interjections != null) {
-      result = m_interjections.contains(value);
-    }
-
-    if ((result == false) && (m_interjectionPatterns != null)) {
-      for (Pattern interjection : m_interjectionPatterns) {
-        Matcher m = interjection.matcher(value);
-        if (m.find()) {
-          return true;
-        }
-      }
+    if (m_literals.containsLowerCase(value)) {
+      return true;
     }
-
-    return result;
+    return (m_interjections.getPatternCount() > 0)
+        && (m_interjections.acceptsLowerCase(value));
   }
 
   public static void main(String[] args) {
@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.dict;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable index over all enabled sentiment word lists.
+ *
+ * One hash lookup returns a Record with a bitmask of the word lists which
+ * contain the word and their scores packed in the order of the set bits.
+ * The word lists are numbered like in SentimentDictionary, first the plain
+ * word lists and then the word lists with wildcards. Words which are not in
+ * the index are looked up in a prefix trie of the wildcard entries, whose
+ * records already contain the longest match of every word list.
+ */
+public class LexiconIndex {
+  public static final int MAX_WORD_LISTS = 32;
+
+  private final int m_wordListCount;
+  private final Map<String, Record> m_records;
+  private final PrefixTrie<Record> m_wildcards;
+  private final Map<String, Record> m_wildcardRecords;
+
+  /**
+   * Word list scores of a single word.
+   */
+  public static final class Record {
+    private final int m_mask;
+    private final double[] m_scores;
+
+    Record(int mask, double[] scores) {
+      m_mask = mask;
+      m_scores = scores;
+    }
+
+    /**
+     * Returns the bitmask of the word lists containing the word, bit i is set
+     * for word list i.
+     */
+    public int getMask() {
+      return m_mask;
+    }
+
+    /**
+     * Returns the scores in the order of the set bits of the mask. The array
+     * is shared and must not be modified.
+     */
+    public double[] getScores() {
+      return m_scores;
+    }
+
+    public boolean contains(int wordList) {
+      return (m_mask & (1 << wordList)) != 0;
+    }
+
+    public double getScore(int wordList) {
+      return m_scores[Integer.bitCount(m_mask & ((1 << wordList) - 1))];
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("{");
+      int mask = m_mask;
+      for (int i = 0; mask != 0; i++) {
+        int wordList = Integer.numberOfTrailingZeros(mask);
+        mask &= mask - 1;
+        if (i > 0) {
+          sb.append(", ");
+        }
+        sb.append(wordList).append('=').append(m_scores[i]);
+      }
+      return sb.append('}').toString();
+    }
+  }
+
+  public LexiconIndex(List<Map<String, Double>> wordLists,
+      List<WordListMap<Double>> wordListMaps) {
+    m_wordListCount = wordLists.size() + wordListMaps.size();
+    if (m_wordListCount > MAX_WORD_LISTS) {
+      throw new IllegalArgumentException("At most " + MAX_WORD_LISTS
+          + " word lists are supported: " + m_wordListCount);
+    }
+
+    // collect the scores per word and word list
+    Map<String, double[]> scores = new HashMap<String, double[]>();
+    for (int i = 0; i < wordLists.size(); i++) {
+      for (Map.Entry<String, Double> entry : wordLists.get(i).entrySet()) {
+        scores(scores, entry.getKey())[i] = entry.getValue();
+      }
+    }
+
+    // wildcard entries "prefix*" of the word lists including regex
+    Map<String, double[]> prefixScores = new HashMap<String, double[]>();
+    int wordListMapOffset = wordLists.size();
+    for (int i = 0; i < wordListMaps.size(); i++) {
+      int wordList = i + wordListMapOffset;
+      for (Map.Entry<String, Double> entry : wordListMaps.get(i).entrySet()) {
+        String key = entry.getKey();
+        scores(scores, key)[wordList] = entry.getValue();
+        if (key.endsWith("*")) {
+          String prefix = key.substring(0, key.length() - 1);
+          scores(prefixScores, prefix)[wordList] = entry.getValue();
+        }
+      }
+    }
+
+    // every prefix inherits the scores of its longest matching prefixes
+    Map<String, double[]> inheritedScores = new HashMap<String, double[]>();
+    for (Map.Entry<String, double[]> entry : prefixScores.entrySet()) {
+      String prefix = entry.getKey();
+      double[] wordScores = entry.getValue().clone();
+      for (int length = prefix.length() - 1; length >= 0; length--) {
+        double[] parentScores = prefixScores.get(prefix.substring(0, length));
+        if (parentScores != null) {
+          inherit(wordScores, parentScores);
+        }
+      }
+      inheritedScores.put(prefix, wordScores);
+    }
+
+    // words use the longest wildcard match of word lists without the word
+    if (!inheritedScores.isEmpty()) {
+      for (Map.Entry<String, double[]> entry : scores.entrySet()) {
+        String word = entry.getKey();
+        for (int length = word.length(); length >= 0; length--) {
+          double[] prefixScore = inheritedScores.get(word.substring(0, length));
+          if (prefixScore != null) {
+            inherit(entry.getValue(), prefixScore);
+            break;
+          }
+        }
+      }
+    }
+
+    // pack the scores
+    m_records = new HashMap<String, Record>(
+        (int) (scores.size() / 0.75f) + 1);
+    for (Map.Entry<String, double[]> entry : scores.entrySet()) {
+      m_records.put(entry.getKey(), pack(entry.getValue()));
+    }
+    Map<String, Record> prefixRecords = new HashMap<String, Record>();
+    for (Map.Entry<String, double[]> entry : inheritedScores.entrySet()) {
+      prefixRecords.put(entry.getKey(), pack(entry.getValue()));
+    }
+    m_wildcards = new PrefixTrie<Record>(prefixRecords);
+    m_wildcardRecords = prefixRecords;
+  }
+
+  private static void inherit(double[] wordScores, double[] parentScores) {
+    for (int i = 0; i < wordScores.length; i++) {
+      if (Double.isNaN(wordScores[i])) {
+        wordScores[i] = parentScores[i];
+      }
+    }
+  }
+
+  private Record pack(double[] wordScores) {
+    int mask = 0;
+    int count = 0;
+    for (int i = 0; i < m_wordListCount; i++) {
+      if (!Double.isNaN(wordScores[i])) {
+        mask |= 1 << i;
+        count++;
+      }
+    }
+    double[] packedScores = new double[count];
+    for (int i = 0, j = 0; i < m_wordListCount; i++) {
+      if (!Double.isNaN(wordScores[i])) {
+        packedScores[j++] = wordScores[i];
+      }
+    }
+    return new Record(mask, packedScores);
+  }
+
+  private double[] scores(Map<String, double[]> scores, String word) {
+    double[] wordScores = scores.get(word);
+    if (wordScores == null) {
+      wordScores = new double[m_wordListCount];
+      for (int i = 0; i < wordScores.length; i++) {
+        // NaN marks word lists without the word
+        wordScores[i] = Double.NaN;
+      }
+      scores.put(word, wordScores);
+    }
+    return wordScores;
+  }
+
+  /**
+   * Returns the scores of all word lists containing the word or null.
+   */
+  public Record get(String word) {
+    Record record = m_records.get(word);
+    if (record == null) {
+      record = m_wildcards.longestMatch(word);
+    }
+    return record;
+  }
+
+  /**
+   * Returns all words of the index without the wildcard prefixes.
+   */
+  public Set<String> getWords() {
+    return Collections.unmodifiableSet(m_records.keySet());
+  }
+
+  /**
+   * Returns the prefixes of all wildcard entries "prefix*".
+   */
+  public Set<String> getWildcardPrefixes() {
+    return Collections.unmodifiableSet(m_wildcardRecords.keySet());
+  }
+
+  public Map<String, Record> getRecords() {
+    return Collections.unmodifiableMap(m_records);
+  }
+
+  /**
+   * Returns the records of the wildcard prefixes including the longest
+   * matches of shorter prefixes.
+   */
+  public Map<String, Record> getWildcardRecords() {
+    return Collections.unmodifiableMap(m_wildcardRecords);
+  }
+
+  public int getWordListCount() {
+    return m_wordListCount;
+  }
+
+  public int size() {
+    return m_records.size();
+  }
+}
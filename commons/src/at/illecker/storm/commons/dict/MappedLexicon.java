@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.dict;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import at.illecker.storm.commons.util.io.MappedDictionary;
+import edu.mit.jwi.item.POS;
+
+/**
+ * Memory-mapped form of the LexiconIndex and its StemExpansion, shared by
+ * all worker JVMs of a host.
+ *
+ * A lookup returns the position of a record or -1. A record consists of the
+ * int bitmask of the word lists followed by the scores in the order of the
+ * set bits.
+ */
+public class MappedLexicon {
+  private static final int INFO = 0;
+  private static final int WORDS = 1;
+  private static final int WILDCARDS = 2;
+  // stem tables of the POS NOUN, VERB, ADJECTIVE, ADVERB and of null
+  private static final int STEMS = 3;
+  private static final int TABLES = STEMS + POS.values().length + 1;
+
+  private static final String WORD_LIST_COUNT = "wordListCount";
+  private static final String STEM_EXPANSION = "stemExpansion";
+
+  private final MappedDictionary m_dictionary;
+  private final int m_wordListCount;
+  private final boolean m_hasStems;
+
+  public MappedLexicon(MappedDictionary dictionary) throws IOException {
+    if (dictionary.getTableCount() != TABLES) {
+      throw new IOException("Unknown lexicon format");
+    }
+    m_dictionary = dictionary;
+    m_wordListCount = dictionary.getInt(dictionary.find(INFO,
+        WORD_LIST_COUNT));
+    m_hasStems = dictionary.getInt(dictionary.find(INFO, STEM_EXPANSION)) != 0;
+  }
+
+  /**
+   * Writes the index and the optional stem expansion to a lexicon file.
+   */
+  public static void write(LexiconIndex lexiconIndex,
+      StemExpansion stemExpansion, File file, long fingerprint)
+      throws IOException {
+    MappedDictionary.Writer writer = new MappedDictionary.Writer(TABLES);
+    writer.put(INFO, WORD_LIST_COUNT).writeInt(
+        lexiconIndex.getWordListCount());
+    writer.put(INFO, STEM_EXPANSION).writeInt((stemExpansion != null) ? 1 : 0);
+    writeRecords(writer, WORDS, lexiconIndex.getRecords());
+    writeRecords(writer, WILDCARDS, lexiconIndex.getWildcardRecords());
+    if (stemExpansion != null) {
+      POS[] posTags = POS.values();
+      for (int i = 0; i <= posTags.length; i++) {
+        writeRecords(writer, STEMS + i,
+            stemExpansion.getRecords((i < posTags.length) ? posTags[i] : null));
+      }
+    }
+    writer.write(file, fingerprint);
+  }
+
+  private static void writeRecords(MappedDictionary.Writer writer,
+      int table, Map<String, LexiconIndex.Record> records) {
+    for (Map.Entry<String, LexiconIndex.Record> entry : records.entrySet()) {
+      LexiconIndex.Record record = entry.getValue();
+      writer.put(table, entry.getKey()).writeInt(record.getMask());
+      for (double score : record.getScores()) {
+        writer.writeDouble(score);
+      }
+    }
+  }
+
+  public int getWordListCount() {
+    return m_wordListCount;
+  }
+
+  /**
+   * Returns true if the stems of inflected words are precomputed.
+   */
+  public boolean hasStems() {
+    return m_hasStems;
+  }
+
+  /**
+   * Returns the record of the word or of the longest wildcard matching the
+   * word or -1.
+   */
+  public int find(String word) {
+    int record = m_dictionary.find(WORDS, word);
+    if (record < 0) {
+      record = m_dictionary.findLongestPrefix(WILDCARDS, word);
+    }
+    return record;
+  }
+
+  /**
+   * Returns the record of the first stem of the word or -1, see
+   * StemExpansion.get.
+   */
+  public int findStem(String word, POS posTag) {
+    return m_dictionary.find(STEMS
+        + ((posTag != null) ? posTag.ordinal() : POS.values().length), word);
+  }
+
+  public int getMask(int record) {
+    return m_dictionary.getInt(record);
+  }
+
+  /**
+   * Returns the i-th score of the record, it belongs to the i-th set bit of
+   * the mask.
+   */
+  public double getScore(int record, int i) {
+    return m_dictionary.getDouble(record + 4 + 8 * i);
+  }
+
+  /**
+   * Copies a record to the heap.
+   */
+  public LexiconIndex.Record getRecord(int record) {
+    if (record < 0) {
+      return null;
+    }
+    int mask = getMask(record);
+    double[] scores = new double[Integer.bitCount(mask)];
+    for (int i = 0; i < scores.length; i++) {
+      scores[i] = getScore(record, i);
+    }
+    return new LexiconIndex.Record(mask, scores);
+  }
+
+  public int size() {
+    return m_dictionary.size(WORDS);
+  }
+
+  public int getStemCount() {
+    int size = 0;
+    for (int i = STEMS; i < TABLES; i++) {
+      size += m_dictionary.size(i);
+    }
+    return size;
+  }
+
+  public Iterable<String> getWords() {
+    return m_dictionary.getKeys(WORDS);
+  }
+}
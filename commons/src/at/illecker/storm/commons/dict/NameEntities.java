@@ -16,29 +16,29 @@
  */
 package at.illecker.storm.commons.dict;
 
+import java.util.HashSet;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.util.PerfectHashSet;
 import at.illecker.storm.commons.util.io.FileUtils;
 
 public class NameEntities {
   private static final Logger LOG = LoggerFactory.getLogger(NameEntities.class);
   private static final NameEntities INSTANCE = new NameEntities();
 
-  private Set<String> m_nameEntities = null;
+  private PerfectHashSet m_nameEntities;
 
   private NameEntities() {
+    Set<String> values = new HashSet<String>();
     for (String file : Configuration.getNameEntities()) {
       LOG.info("Load NameEntities from: " + file);
-      if (m_nameEntities == null) {
-        m_nameEntities = FileUtils.readFile(file);
-      } else {
-        m_nameEntities.addAll(FileUtils.readFile(file));
-      }
+      values.addAll(FileUtils.readFile(file));
     }
+    m_nameEntities = new PerfectHashSet(values);
   }
 
   public static NameEntities getInstance() {
@@ -46,7 +46,14 @@ public class NameEntities {
   }
 
   public boolean isNameEntity(String value) {
-    return m_nameEntities.contains(value.toLowerCase());
+    return m_nameEntities.containsLowerCase(value);
+  }
+
+  /**
+   * Same as isNameEntity(new String(text, offset, length))
+   */
+  public boolean isNameEntity(char[] text, int offset, int length) {
+    return m_nameEntities.containsLowerCase(text, offset, length);
   }
 
   public static void main(String[] args) {
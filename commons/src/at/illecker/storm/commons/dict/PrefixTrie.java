@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.dict;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable prefix trie which returns the value of the longest prefix of a
+ * key in O(key length) without allocations.
+ *
+ * The nodes are stored in breadth-first order in flat arrays, the children of
+ * a node are sorted by their char and found by binary search.
+ */
+public class PrefixTrie<V> {
+  // offset of the first child edge of a node
+  private final int[] m_childOffsets;
+  // number of child edges of a node
+  private final int[] m_childCounts;
+  private final char[] m_edgeChars;
+  private final int[] m_edgeTargets;
+  private final Object[] m_values;
+
+  private static final class Node {
+    final TreeMap<Character, Node> children = new TreeMap<Character, Node>();
+    Object value;
+  }
+
+  public PrefixTrie(Map<String, ? extends V> prefixes) {
+    // build a temporary pointer based trie
+    Node root = new Node();
+    int nodeCount = 1;
+    for (Map.Entry<String, ? extends V> entry : prefixes.entrySet()) {
+      Node node = root;
+      String prefix = entry.getKey();
+      for (int i = 0; i < prefix.length(); i++) {
+        Character c = prefix.charAt(i);
+        Node child = node.children.get(c);
+        if (child == null) {
+          child = new Node();
+          node.children.put(c, child);
+          nodeCount++;
+        }
+        node = child;
+      }
+      node.value = entry.getValue();
+    }
+
+    // flatten nodes in breadth-first order
+    m_childOffsets = new int[nodeCount];
+    m_childCounts = new int[nodeCount];
+    m_edgeChars = new char[nodeCount - 1];
+    m_edgeTargets = new int[nodeCount - 1];
+    m_values = new Object[nodeCount];
+    List<Node> queue = new ArrayList<Node>(nodeCount);
+    queue.add(root);
+    for (int i = 0; i < queue.size(); i++) {
+      Node node = queue.get(i);
+      m_values[i] = node.value;
+      m_childOffsets[i] = queue.size() - 1;
+      m_childCounts[i] = node.children.size();
+      for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+        m_edgeChars[queue.size() - 1] = child.getKey();
+        m_edgeTargets[queue.size() - 1] = queue.size();
+        queue.add(child.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the value of the longest prefix of the key including the key
+   * itself or null.
+   */
+  @SuppressWarnings("unchecked")
+  public V longestMatch(CharSequence key) {
+    int node = 0;
+    Object result = m_values[0];
+    for (int i = 0; i < key.length(); i++) {
+      node = child(node, key.charAt(i));
+      if (node < 0) {
+        break;
+      }
+      if (m_values[node] != null) {
+        result = m_values[node];
+      }
+    }
+    return (V) result;
+  }
+
+  private int child(int node, char c) {
+    int low = m_childOffsets[node];
+    int high = low + m_childCounts[node] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char midChar = m_edgeChars[mid];
+      if (midChar < c) {
+        low = mid + 1;
+      } else if (midChar > c) {
+        high = mid - 1;
+      } else {
+        return m_edgeTargets[mid];
+      }
+    }
+    return -1;
+  }
+
+  public int getNodeCount() {
+    return m_values.length;
+  }
+}
@@ -0,0 +1,433 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.dict;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reusable accumulator of the sentiment statistics of all word lists.
+ *
+ * The statistics are stored in one double[] with a word list x stats layout,
+ * the stats of a word list are in the order of the sentiment feature vector.
+ * An instance is reset per tweet and must not be shared between threads.
+ */
+public class SentimentAccumulator {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(SentimentAccumulator.class);
+  public static final int POS_COUNT = 0;
+  public static final int NEUTRAL_COUNT = 1;
+  public static final int NEG_COUNT = 2;
+  public static final int SUM = 3;
+  public static final int COUNT = 4;
+  public static final int MAX_POS = 5;
+  public static final int MAX_NEG = 6;
+  public static final int STATS = 7;
+
+  private final int m_wordListCount;
+  private final double[] m_stats;
+  // bit i is set if word list i has a score
+  private int m_mask;
+  // individual scores per word list, only if enabled
+  private final double[][] m_scores;
+  // bit i is set if the scores of word list i are incomplete
+  private int m_incompleteScores;
+
+  public SentimentAccumulator(int wordListCount) {
+    this(wordListCount, false);
+  }
+
+  public SentimentAccumulator(int wordListCount, boolean keepScores) {
+    if (wordListCount > LexiconIndex.MAX_WORD_LISTS) {
+      throw new IllegalArgumentException("At most "
+          + LexiconIndex.MAX_WORD_LISTS + " word lists are supported: "
+          + wordListCount);
+    }
+    m_wordListCount = wordListCount;
+    m_stats = new double[wordListCount * STATS];
+    if (keepScores) {
+      m_scores = new double[wordListCount][8];
+    } else {
+      m_scores = null;
+    }
+    for (int i = 0; i < wordListCount; i++) {
+      clear(i);
+    }
+    m_mask = 0;
+  }
+
+  /**
+   * Clears the statistics of all word lists with scores.
+   */
+  public void reset() {
+    int mask = m_mask;
+    while (mask != 0) {
+      int wordList = Integer.numberOfTrailingZeros(mask);
+      mask &= mask - 1;
+      clear(wordList);
+    }
+    m_mask = 0;
+    m_incompleteScores = 0;
+  }
+
+  private void clear(int wordList) {
+    int offset = wordList * STATS;
+    Arrays.fill(m_stats, offset, offset + STATS, 0);
+    // NaN marks a missing max value
+    m_stats[offset + MAX_POS] = Double.NaN;
+    m_stats[offset + MAX_NEG] = Double.NaN;
+  }
+
+  public void addScore(int wordList, double score) {
+    int offset = wordList * STATS;
+    if ((m_scores != null) && (!hasIncompleteScores(wordList))) {
+      int count = (int) m_stats[offset + COUNT];
+      double[] scores = m_scores[wordList];
+      if (count == scores.length) {
+        scores = Arrays.copyOf(scores, count * 2);
+        m_scores[wordList] = scores;
+      }
+      scores[count] = score;
+    }
+    m_mask |= 1 << wordList;
+    m_stats[offset + SUM] += score;
+    m_stats[offset + COUNT]++;
+
+    // update negative positive neutral counts
+    // and max values
+    if (score < SentimentResult.NEGATIVE_THRESHOLD) { // NEGATIVE
+      m_stats[offset + NEG_COUNT]++;
+      double maxNeg = m_stats[offset + MAX_NEG];
+      if ((Double.isNaN(maxNeg)) || (score < maxNeg)) { // MAX_NEG_SCORE
+        m_stats[offset + MAX_NEG] = score;
+      }
+    } else if (score > SentimentResult.POSITIVE_THRESHOLD) { // POSITIVE
+      m_stats[offset + POS_COUNT]++;
+      double maxPos = m_stats[offset + MAX_POS];
+      if ((Double.isNaN(maxPos)) || (score > maxPos)) { // MAX_POS_SCORE
+        m_stats[offset + MAX_POS] = score;
+      }
+    } else if ((score >= SentimentResult.NEGATIVE_THRESHOLD)
+        && (score <= SentimentResult.POSITIVE_THRESHOLD)) { // NEUTRAL
+      m_stats[offset + NEUTRAL_COUNT]++;
+    }
+  }
+
+  /**
+   * Adds the scores of all word lists of a lexicon record.
+   */
+  public void addScores(LexiconIndex.Record record) {
+    double[] scores = record.getScores();
+    int mask = record.getMask();
+    for (int i = 0; mask != 0; i++) {
+      addScore(Integer.numberOfTrailingZeros(mask), scores[i]);
+      mask &= mask - 1;
+    }
+  }
+
+  /**
+   * Adds the scores of all word lists of a mapped lexicon record.
+   */
+  public void addScores(MappedLexicon lexicon, int record) {
+    int mask = lexicon.getMask(record);
+    for (int i = 0; mask != 0; i++) {
+      addScore(Integer.numberOfTrailingZeros(mask), lexicon.getScore(record, i));
+      mask &= mask - 1;
+    }
+  }
+
+  /**
+   * Merges the statistics of another accumulator e.g., of a partial result.
+   * The scores of a word list are incomplete if the other accumulator does
+   * not keep them.
+   */
+  public void add(SentimentAccumulator other) {
+    int mask = other.m_mask;
+    while (mask != 0) {
+      int wordList = Integer.numberOfTrailingZeros(mask);
+      mask &= mask - 1;
+      int offset = wordList * STATS;
+      if (m_scores != null) {
+        if ((other.m_scores != null)
+            && (!other.hasIncompleteScores(wordList))) {
+          for (int i = 0; i < other.getCount(wordList); i++) {
+            addScore(wordList, other.m_scores[wordList][i]);
+          }
+          continue;
+        }
+        m_incompleteScores |= 1 << wordList;
+      }
+      m_mask |= 1 << wordList;
+      m_stats[offset + POS_COUNT] += other.m_stats[offset + POS_COUNT];
+      m_stats[offset + NEUTRAL_COUNT] += other.m_stats[offset + NEUTRAL_COUNT];
+      m_stats[offset + NEG_COUNT] += other.m_stats[offset + NEG_COUNT];
+      m_stats[offset + SUM] += other.m_stats[offset + SUM];
+      m_stats[offset + COUNT] += other.m_stats[offset + COUNT];
+
+      double maxPos = m_stats[offset + MAX_POS];
+      double otherMaxPos = other.m_stats[offset + MAX_POS];
+      if ((Double.isNaN(maxPos)) || (otherMaxPos > maxPos)) { // MAX_POS_SCORE
+        m_stats[offset + MAX_POS] = otherMaxPos;
+      }
+
+      double maxNeg = m_stats[offset + MAX_NEG];
+      double otherMaxNeg = other.m_stats[offset + MAX_NEG];
+      if ((Double.isNaN(maxNeg)) || (otherMaxNeg < maxNeg)) { // MAX_NEG_SCORE
+        m_stats[offset + MAX_NEG] = otherMaxNeg;
+      }
+    }
+  }
+
+  public int getWordListCount() {
+    return m_wordListCount;
+  }
+
+  /**
+   * Returns the bitmask of the word lists with scores.
+   */
+  public int getMask() {
+    return m_mask;
+  }
+
+  public boolean isEmpty() {
+    return m_mask == 0;
+  }
+
+  public boolean contains(int wordList) {
+    return (m_mask & (1 << wordList)) != 0;
+  }
+
+  /**
+   * Returns a stat of a word list, missing max values are NaN.
+   */
+  public double get(int wordList, int stat) {
+    return m_stats[wordList * STATS + stat];
+  }
+
+  public int getPosCount(int wordList) {
+    return (int) m_stats[wordList * STATS + POS_COUNT];
+  }
+
+  public int getNeutralCount(int wordList) {
+    return (int) m_stats[wordList * STATS + NEUTRAL_COUNT];
+  }
+
+  public int getNegCount(int wordList) {
+    return (int) m_stats[wordList * STATS + NEG_COUNT];
+  }
+
+  public double getSum(int wordList) {
+    return m_stats[wordList * STATS + SUM];
+  }
+
+  public int getCount(int wordList) {
+    return (int) m_stats[wordList * STATS + COUNT];
+  }
+
+  public double getAvgSum(int wordList) {
+    return getSum(wordList) / getCount(wordList);
+  }
+
+  private boolean hasIncompleteScores(int wordList) {
+    return (m_incompleteScores & (1 << wordList)) != 0;
+  }
+
+  /**
+   * Returns the individual scores of a word list if they are kept, null if
+   * they are incomplete.
+   */
+  public double[] getScores(int wordList) {
+    if (m_scores == null) {
+      throw new IllegalStateException("Scores are not kept");
+    }
+    if (hasIncompleteScores(wordList)) {
+      return null;
+    }
+    return Arrays.copyOf(m_scores[wordList], getCount(wordList));
+  }
+
+  /**
+   * Returns a SentimentResult per word list with scores or null.
+   */
+  public Map<Integer, SentimentResult> toSentimentResults() {
+    if (m_mask == 0) {
+      return null;
+    }
+    Map<Integer, SentimentResult> sentimentResults = new HashMap<Integer, SentimentResult>();
+    int mask = m_mask;
+    while (mask != 0) {
+      int wordList = Integer.numberOfTrailingZeros(mask);
+      mask &= mask - 1;
+      int offset = wordList * STATS;
+      double maxPos = m_stats[offset + MAX_POS];
+      double maxNeg = m_stats[offset + MAX_NEG];
+      sentimentResults.put(wordList, new SentimentResult(
+          getPosCount(wordList), getNeutralCount(wordList),
+          getNegCount(wordList), getSum(wordList), getCount(wordList),
+          Double.isNaN(maxPos) ? null : maxPos, Double.isNaN(maxNeg) ? null
+              : maxNeg, (m_scores != null) ? getScores(wordList) : null));
+    }
+    return sentimentResults;
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(toSentimentResults());
+  }
+
+  private static boolean equals(Map<Integer, SentimentResult> expected,
+      Map<Integer, SentimentResult> actual) {
+    if ((actual == null) || (expected.size() != actual.size())) {
+      return expected.isEmpty() && (actual == null);
+    }
+    for (Map.Entry<Integer, SentimentResult> entry : expected.entrySet()) {
+      SentimentResult e = entry.getValue();
+      SentimentResult a = actual.get(entry.getKey());
+      // the sum depends on the order of the scores
+      if ((a == null) || (e.getPosCount() != a.getPosCount())
+          || (e.getNeutralCount() != a.getNeutralCount())
+          || (e.getNegCount() != a.getNegCount())
+          || (e.getCount() != a.getCount())
+          || (Math.abs(e.getSum() - a.getSum()) > 1e-9)
+          || (!String.valueOf(e.getMaxPos()).equals(
+              String.valueOf(a.getMaxPos())))
+          || (!String.valueOf(e.getMaxNeg()).equals(
+              String.valueOf(a.getMaxNeg())))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public static void main(String[] args) {
+    int wordListCount = 7;
+    Random rand = new Random(42);
+    SentimentAccumulator accumulator = new SentimentAccumulator(wordListCount);
+    SentimentAccumulator partial = new SentimentAccumulator(wordListCount);
+    int errors = 0;
+    for (int tweet = 0; tweet < 10000; tweet++) {
+      // expected results of the whole tweet and of its merged halves
+      Map<Integer, SentimentResult> expected = new HashMap<Integer, SentimentResult>();
+      Map<Integer, SentimentResult> merged = new HashMap<Integer, SentimentResult>();
+      accumulator.reset();
+      partial.reset();
+      int words = rand.nextInt(20);
+      for (int i = 0; i < words; i++) {
+        int wordList = rand.nextInt(wordListCount);
+        double score = rand.nextDouble();
+        if (i % 2 == 0) {
+          accumulator.addScore(wordList, score);
+        } else {
+          partial.addScore(wordList, score);
+        }
+        if (!expected.containsKey(wordList)) {
+          expected.put(wordList, new SentimentResult());
+          merged.put(wordList, new SentimentResult());
+        }
+        expected.get(wordList).addScore(score);
+        if (i % 2 == 0) {
+          merged.get(wordList).addScore(score);
+        }
+      }
+      // merge the odd words as a partial result
+      accumulator.add(partial);
+      Map<Integer, SentimentResult> partialResults = partial
+          .toSentimentResults();
+      if (partialResults != null) {
+        for (Map.Entry<Integer, SentimentResult> entry : partialResults
+            .entrySet()) {
+          merged.get(entry.getKey()).add(entry.getValue());
+        }
+      }
+
+      Map<Integer, SentimentResult> actual = accumulator.toSentimentResults();
+      if ((!equals(expected, actual)) || (!equals(expected, merged))) {
+        errors++;
+      }
+    }
+    LOG.info("SentimentAccumulator test finished with " + errors + " errors");
+    testMixedScores();
+  }
+
+  /**
+   * Merges partial results without scores into an accumulator which keeps
+   * scores and checks the statistics and the incomplete scores.
+   */
+  private static void testMixedScores() {
+    int wordListCount = 7;
+    Random rand = new Random(42);
+    SentimentAccumulator accumulator = new SentimentAccumulator(
+        wordListCount, true);
+    SentimentAccumulator partial = new SentimentAccumulator(wordListCount);
+    int errors = 0;
+    for (int tweet = 0; tweet < 10000; tweet++) {
+      Map<Integer, SentimentResult> expected = new HashMap<Integer, SentimentResult>();
+      accumulator.reset();
+      partial.reset();
+      int words = rand.nextInt(20);
+      for (int i = 0; i < words; i++) {
+        int wordList = rand.nextInt(wordListCount);
+        double score = rand.nextDouble();
+        if (i % 2 == 0) {
+          accumulator.addScore(wordList, score);
+        } else {
+          partial.addScore(wordList, score);
+        }
+        if (!expected.containsKey(wordList)) {
+          expected.put(wordList, new SentimentResult(true));
+        }
+        expected.get(wordList).addScore(score);
+      }
+      accumulator.add(partial);
+      // scores after the merge, also of word lists with incomplete scores
+      for (int i = 0; i < words / 2; i++) {
+        int wordList = rand.nextInt(wordListCount);
+        double score = rand.nextDouble();
+        accumulator.addScore(wordList, score);
+        if (!expected.containsKey(wordList)) {
+          expected.put(wordList, new SentimentResult(true));
+        }
+        expected.get(wordList).addScore(score);
+      }
+
+      Map<Integer, SentimentResult> actual = accumulator.toSentimentResults();
+      if (!equals(expected, actual)) {
+        errors++;
+        continue;
+      }
+      if (actual == null) {
+        continue;
+      }
+      for (Map.Entry<Integer, SentimentResult> entry : actual.entrySet()) {
+        int wordList = entry.getKey();
+        double[] expectedScores = partial.contains(wordList) ? null
+            : expected.get(wordList).getScores();
+        if (!Arrays.equals(expectedScores, accumulator.getScores(wordList))
+            || !Arrays.equals(expectedScores, entry.getValue().getScores())) {
+          errors++;
+        }
+      }
+    }
+    LOG.info("SentimentAccumulator mixed scores test finished with " + errors
+        + " errors");
+  }
+}
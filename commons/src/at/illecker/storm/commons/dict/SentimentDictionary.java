@@ -16,10 +16,15 @@
  */
 package at.illecker.storm.commons.dict;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +38,7 @@ import at.illecker.storm.commons.tokenizer.Tokenizer;
 import at.illecker.storm.commons.tweet.Tweet;
 import at.illecker.storm.commons.util.StringUtils;
 import at.illecker.storm.commons.util.io.FileUtils;
+import at.illecker.storm.commons.util.io.MappedDictionary;
 import at.illecker.storm.commons.wordnet.POSTag;
 import at.illecker.storm.commons.wordnet.WordNet;
 import cmu.arktweetnlp.Tagger.TaggedToken;
@@ -44,20 +50,49 @@ public class SentimentDictionary {
       .getLogger(SentimentDictionary.class);
   private static final boolean LOGGING = Configuration.get(
       "commons.sentimentdictionary.logging", false);
+  private static final boolean STEM_EXPANSION = Configuration.get(
+      "commons.sentimentdictionary.stemexpansion", true);
   private static final SentimentDictionary INSTANCE = new SentimentDictionary();
 
   private WordNet m_wordnet;
-  private List<Map<String, Double>> m_wordLists = null;
-  private List<WordListMap<Double>> m_wordListMaps = null;
+  private MappedLexicon m_lexicon;
 
   private SentimentDictionary() {
     m_wordnet = WordNet.getInstance();
-    m_wordLists = new ArrayList<Map<String, Double>>();
-    m_wordListMaps = new ArrayList<WordListMap<Double>>();
 
-    List<Map> wordLists = Configuration.getSentimentWordlists();
-    for (Map wordListEntry : wordLists) {
-      String file = (String) wordListEntry.get("path");
+    List<Map> wordListEntries = Configuration.getSentimentWordlists();
+    List<String> files = new ArrayList<String>();
+    for (Map wordListEntry : wordListEntries) {
+      files.add((String) wordListEntry.get("path"));
+    }
+    if (STEM_EXPANSION) {
+      files.add(Configuration.getWordNetDict());
+    }
+    long fingerprint = MappedDictionary.fingerprint(wordListEntries
+        + " stemExpansion: " + STEM_EXPANSION, files);
+    File file = Configuration.getMappedDictionary("sentiment", fingerprint);
+
+    try {
+      MappedDictionary dictionary = MappedDictionary.read(file, fingerprint);
+      if (dictionary == null) {
+        // one-time build step, later starts only map the lexicon
+        writeLexicon(wordListEntries, file, fingerprint);
+        dictionary = MappedDictionary.read(file);
+      }
+      m_lexicon = new MappedLexicon(dictionary);
+      LOG.info("Mapped lexicon " + file + " with " + m_lexicon.size()
+          + " words and " + m_lexicon.getStemCount() + " stem entries");
+    } catch (IOException e) {
+      throw new RuntimeException("Lexicon " + file + " could not be loaded", e);
+    }
+  }
+
+  private void writeLexicon(List<Map> wordListEntries, File file,
+      long fingerprint) throws IOException {
+    List<Map<String, Double>> wordLists = new ArrayList<Map<String, Double>>();
+    List<WordListMap<Double>> wordListMaps = new ArrayList<WordListMap<Double>>();
+    for (Map wordListEntry : wordListEntries) {
+      String path = (String) wordListEntry.get("path");
       String separator = (String) wordListEntry.get("delimiter");
       boolean containsPOSTags = (Boolean) wordListEntry.get("containsPOSTags");
       boolean containsRegex = (Boolean) wordListEntry.get("containsRegex");
@@ -67,16 +102,36 @@ public class SentimentDictionary {
       boolean isEnabled = (Boolean) wordListEntry.get("enabled");
       if (isEnabled) {
         if (containsRegex) {
-          LOG.info("Load WordListMap including Regex from: " + file);
-          m_wordListMaps.add(FileUtils.readWordListMap(file, separator,
+          LOG.info("Load WordListMap including Regex from: " + path);
+          wordListMaps.add(FileUtils.readWordListMap(path, separator,
               containsPOSTags, featureScaling, minValue, maxValue));
         } else {
-          LOG.info("Load WordList from: " + file);
-          m_wordLists.add(FileUtils.readFile(file, separator, containsPOSTags,
+          LOG.info("Load WordList from: " + path);
+          wordLists.add(FileUtils.readFile(path, separator, containsPOSTags,
               featureScaling, minValue, maxValue));
         }
       }
     }
+
+    // merge all word lists into one index
+    long startTime = System.currentTimeMillis();
+    LexiconIndex lexiconIndex = new LexiconIndex(wordLists, wordListMaps);
+    LOG.info("Build LexiconIndex with " + lexiconIndex.size()
+        + " words after " + (System.currentTimeMillis() - startTime) + " ms");
+
+    // precompute the stems of the inflected lexicon words
+    StemExpansion stemExpansion = null;
+    if (STEM_EXPANSION) {
+      startTime = System.currentTimeMillis();
+      stemExpansion = new StemExpansion(lexiconIndex, m_wordnet);
+      LOG.info("Expanded " + stemExpansion.getCandidateCount()
+          + " inflections to " + stemExpansion.size()
+          + " (word, POS) stem entries using "
+          + (stemExpansion.getBytes() / 1024) + " KB after "
+          + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    MappedLexicon.write(lexiconIndex, stemExpansion, file, fingerprint);
   }
 
   public static SentimentDictionary getInstance() {
@@ -92,38 +147,60 @@ public class SentimentDictionary {
    * @return Returns the number of word lists used by the sentiment dictionary
    */
   public int getSentimentWordListCount() {
-    return m_wordLists.size() + m_wordListMaps.size();
+    return m_lexicon.getWordListCount();
   }
 
   public Map<Integer, Double> getWordSentiments(String word) {
+    LexiconIndex.Record record = getWordRecord(word);
+    if (record == null) {
+      return null;
+    }
     Map<Integer, Double> sentimentScores = new HashMap<Integer, Double>();
-
-    // 1) check wordLists
-    for (int i = 0; i < m_wordLists.size(); i++) {
-      Double sentimentScore = m_wordLists.get(i).get(word);
-      if (sentimentScore != null) {
-        sentimentScores.put(i, sentimentScore);
-      }
+    double[] scores = record.getScores();
+    int mask = record.getMask();
+    for (int i = 0; mask != 0; i++) {
+      sentimentScores.put(Integer.numberOfTrailingZeros(mask), scores[i]);
+      mask &= mask - 1;
     }
+    return sentimentScores;
+  }
 
-    // 2) check wordListMaps including regex
-    int wordListMapOffset = m_wordLists.size();
-    for (int i = 0; i < m_wordListMaps.size(); i++) {
-      Double sentimentScore = m_wordListMaps.get(i).matchKey(word);
-      if (sentimentScore != null) {
-        sentimentScores.put(i + wordListMapOffset, sentimentScore);
-      }
-    }
+  /**
+   * Returns the scores of all word lists containing the word or null.
+   */
+  public LexiconIndex.Record getWordRecord(String word) {
+    return m_lexicon.getRecord(getWordEntry(word));
+  }
 
+  private int getWordEntry(String word) {
+    int record = m_lexicon.find(word);
     if (LOGGING) {
-      LOG.info("getWordSentiment('" + word + "'): " + sentimentScores);
+      LOG.info("getWordSentiment('" + word + "'): "
+          + m_lexicon.getRecord(record));
     }
+    return record;
+  }
 
-    return (sentimentScores.size() > 0) ? sentimentScores : null;
+  private int getStemEntry(String word, POS posTag) {
+    if (LOGGING) {
+      LOG.info("findStems for (" + word + "," + posTag + ")");
+    }
+    List<String> stemmedWords = m_wordnet.findStems(word, posTag);
+    for (String stemmedWord : stemmedWords) {
+      if (!stemmedWord.equals(word)) {
+        int sentimentScores = getWordEntry(stemmedWord);
+        if (sentimentScores >= 0) {
+          return sentimentScores;
+        }
+      }
+    }
+    return -1;
   }
 
-  private Map<Integer, Double> getWordSentiment(String word, String tag,
-      boolean usePTB) {
+  /**
+   * Returns the position of the lexicon record of the word or -1.
+   */
+  private int getWordSentiment(String word, String tag, boolean usePTB) {
     // convert tag to POS (NOUN, VERB, ADJECTIVE, ADVERB)
     POS posTag;
     if (usePTB) {
@@ -144,10 +221,10 @@ public class SentimentDictionary {
       }
     } else if ((!wordIsEmoticon) && StringUtils.consitsOfPunctuations(word)) {
       // ignore all punctuations except emoticons
-      return null;
+      return -1;
     } else if (StringUtils.consitsOfUnderscores(word)) {
       // ignore tokens with one or more underscores
-      return null;
+      return -1;
     }
 
     // if word is not an emoticon then toLowerCase
@@ -155,94 +232,90 @@ public class SentimentDictionary {
       word = word.toLowerCase();
     }
 
-    Map<Integer, Double> sentimentScores = getWordSentiments(word);
-    // use word stemming if sentimentScore is null
-    if (sentimentScores == null) {
-      if (LOGGING) {
-        LOG.info("findStems for (" + word + "," + posTag + ")");
-      }
-      List<String> stemmedWords = m_wordnet.findStems(word, posTag);
-      for (String stemmedWord : stemmedWords) {
-        if (!stemmedWord.equals(word)) {
-          sentimentScores = getWordSentiments(stemmedWord);
-        }
-        if (sentimentScores != null) {
-          break;
-        }
-      }
+    int sentimentScores = getWordEntry(word);
+    if ((sentimentScores < 0) && (m_lexicon.hasStems())
+        && (StemExpansion.isPrecomputed(word))) {
+      // stems of inflected words are precomputed
+      sentimentScores = m_lexicon.findStem(word, posTag);
+    } else if (sentimentScores < 0) {
+      // use word stemming if sentimentScore is null
+      sentimentScores = getStemEntry(word, posTag);
     }
 
     if (LOGGING) {
       LOG.info("getWordSentimentWithStemming('" + word + "'\'" + posTag
-          + "'): " + sentimentScores);
+          + "'): " + m_lexicon.getRecord(sentimentScores));
     }
     return sentimentScores;
   }
 
-  public Map<Integer, SentimentResult> getSentenceSentimentFromTaggedWord(
-      List<TaggedWord> sentence) {
-    Map<Integer, SentimentResult> sentenceSentiments = new HashMap<Integer, SentimentResult>();
+  /**
+   * Returns a new accumulator for the word lists of this dictionary.
+   */
+  public SentimentAccumulator createAccumulator() {
+    return new SentimentAccumulator(m_lexicon.getWordListCount());
+  }
+
+  /**
+   * Resets the accumulator and adds the scores of the sentence.
+   * 
+   * @return Returns false if no word has a sentiment score
+   */
+  public boolean getSentenceSentimentFromTaggedWord(List<TaggedWord> sentence,
+      SentimentAccumulator sentenceSentiments) {
+    sentenceSentiments.reset();
     if (LOGGING) {
       LOG.info("TaggedSentence: " + sentence.toString());
     }
     for (TaggedWord word : sentence) {
-      Map<Integer, Double> wordSentiments = getWordSentiment(word.word(),
+      int wordSentiments = getWordSentiment(word.word(),
           word.tag(), true);
-      if (wordSentiments != null) {
-        for (Map.Entry<Integer, Double> wordSentiment : wordSentiments
-            .entrySet()) {
-
-          int key = wordSentiment.getKey();
-          double sentimentScore = wordSentiment.getValue();
-
-          SentimentResult sentimentResult = sentenceSentiments.get(key);
-          if (sentimentResult == null) {
-            sentimentResult = new SentimentResult();
-          }
-          // add score value
-          sentimentResult.addScore(sentimentScore);
-          // update sentimentResult
-          sentenceSentiments.put(key, sentimentResult);
-        }
+      if (wordSentiments >= 0) {
+        sentenceSentiments.addScores(m_lexicon, wordSentiments);
       }
     }
     if (LOGGING) {
       LOG.info("Sentiment: " + sentenceSentiments);
     }
-    return (sentenceSentiments.size() > 0) ? sentenceSentiments : null;
+    return !sentenceSentiments.isEmpty();
   }
 
-  public Map<Integer, SentimentResult> getSentenceSentimentFromTaggedToken(
-      List<TaggedToken> sentence) {
-    Map<Integer, SentimentResult> sentenceSentiments = new HashMap<Integer, SentimentResult>();
+  /**
+   * Resets the accumulator and adds the scores of the sentence.
+   * 
+   * @return Returns false if no token has a sentiment score
+   */
+  public boolean getSentenceSentimentFromTaggedToken(
+      List<TaggedToken> sentence, SentimentAccumulator sentenceSentiments) {
+    sentenceSentiments.reset();
     if (LOGGING) {
       LOG.info("TaggedSentence: " + sentence.toString());
     }
     for (TaggedToken word : sentence) {
-      Map<Integer, Double> wordSentiments = getWordSentiment(word.token,
+      int wordSentiments = getWordSentiment(word.token,
           word.tag, false);
-      if (wordSentiments != null) {
-        for (Map.Entry<Integer, Double> wordSentiment : wordSentiments
-            .entrySet()) {
-
-          int key = wordSentiment.getKey();
-          double sentimentScore = wordSentiment.getValue();
-
-          SentimentResult sentimentResult = sentenceSentiments.get(key);
-          if (sentimentResult == null) {
-            sentimentResult = new SentimentResult();
-          }
-          // add score value
-          sentimentResult.addScore(sentimentScore);
-          // update sentimentResult
-          sentenceSentiments.put(key, sentimentResult);
-        }
+      if (wordSentiments >= 0) {
+        sentenceSentiments.addScores(m_lexicon, wordSentiments);
       }
     }
     if (LOGGING) {
       LOG.info("Sentiment: " + sentenceSentiments);
     }
-    return (sentenceSentiments.size() > 0) ? sentenceSentiments : null;
+    return !sentenceSentiments.isEmpty();
+  }
+
+  public Map<Integer, SentimentResult> getSentenceSentimentFromTaggedWord(
+      List<TaggedWord> sentence) {
+    SentimentAccumulator sentenceSentiments = createAccumulator();
+    getSentenceSentimentFromTaggedWord(sentence, sentenceSentiments);
+    return sentenceSentiments.toSentimentResults();
+  }
+
+  public Map<Integer, SentimentResult> getSentenceSentimentFromTaggedToken(
+      List<TaggedToken> sentence) {
+    SentimentAccumulator sentenceSentiments = createAccumulator();
+    getSentenceSentimentFromTaggedToken(sentence, sentenceSentiments);
+    return sentenceSentiments.toSentimentResults();
   }
 
   public List<Map<Integer, SentimentResult>> getSentimentFromTaggedWords(
@@ -263,6 +336,125 @@ public class SentimentDictionary {
     return tweetSentiments;
   }
 
+  /**
+   * Compares the LexiconIndex against lookups in the separate word lists.
+   */
+  private void testLexiconIndex(List<List<String>> tokenizedTweets) {
+    List<Map<String, Double>> wordLists = new ArrayList<Map<String, Double>>();
+    List<WordListMap<Double>> wordListMaps = new ArrayList<WordListMap<Double>>();
+    for (Map wordListEntry : Configuration.getSentimentWordlists()) {
+      if ((Boolean) wordListEntry.get("enabled")) {
+        String file = (String) wordListEntry.get("path");
+        String separator = (String) wordListEntry.get("delimiter");
+        boolean containsPOSTags = (Boolean) wordListEntry
+            .get("containsPOSTags");
+        boolean featureScaling = (Boolean) wordListEntry.get("featureScaling");
+        double minValue = (Double) wordListEntry.get("minValue");
+        double maxValue = (Double) wordListEntry.get("maxValue");
+        if ((Boolean) wordListEntry.get("containsRegex")) {
+          wordListMaps.add(FileUtils.readWordListMap(file, separator,
+              containsPOSTags, featureScaling, minValue, maxValue));
+        } else {
+          wordLists.add(FileUtils.readFile(file, separator, containsPOSTags,
+              featureScaling, minValue, maxValue));
+        }
+      }
+    }
+
+    // check all words of the word lists and tweets
+    Set<String> words = new HashSet<String>();
+    for (Map<String, Double> wordList : wordLists) {
+      words.addAll(wordList.keySet());
+    }
+    for (WordListMap<Double> wordListMap : wordListMaps) {
+      for (String word : wordListMap.keySet()) {
+        words.add(word);
+        words.add(word.substring(0, word.length() - 1));
+        words.add(word + "s");
+      }
+    }
+    for (List<String> tokens : tokenizedTweets) {
+      for (String token : tokens) {
+        words.add(token.toLowerCase());
+      }
+    }
+
+    int errors = 0;
+    for (String word : words) {
+      Map<Integer, Double> expected = new HashMap<Integer, Double>();
+      for (int i = 0; i < wordLists.size(); i++) {
+        Double sentimentScore = wordLists.get(i).get(word);
+        if (sentimentScore != null) {
+          expected.put(i, sentimentScore);
+        }
+      }
+      for (int i = 0; i < wordListMaps.size(); i++) {
+        Double sentimentScore = wordListMaps.get(i).matchKey(word);
+        if (sentimentScore != null) {
+          expected.put(i + wordLists.size(), sentimentScore);
+        }
+      }
+      Map<Integer, Double> actual = getWordSentiments(word);
+      if ((expected.isEmpty()) ? (actual != null) : (!expected.equals(actual))) {
+        LOG.error("LexiconIndex mismatch for '" + word + "' expected: "
+            + expected + " actual: " + actual);
+        errors++;
+      }
+    }
+    LOG.info("LexiconIndex checked " + words.size() + " words with " + errors
+        + " errors");
+  }
+
+  /**
+   * Compares the precomputed stems against the runtime stemming.
+   */
+  private void testStemExpansion(List<List<String>> tokenizedTweets) {
+    if (!m_lexicon.hasStems()) {
+      return;
+    }
+    Set<String> words = new HashSet<String>();
+    for (List<String> tokens : tokenizedTweets) {
+      for (String token : tokens) {
+        words.add(token.toLowerCase());
+      }
+    }
+    for (String word : m_lexicon.getWords()) {
+      words.add(word + "s");
+      words.add(word + "es");
+      words.add(word + "ed");
+      words.add(word + "ing");
+      words.add(word + "er");
+      words.add(word + "est");
+    }
+
+    int stemmedWords = 0;
+    int errors = 0;
+    List<POS> posTags = new ArrayList<POS>(Arrays.asList(POS.values()));
+    posTags.add(null);
+    for (String word : words) {
+      if ((!StemExpansion.isPrecomputed(word)) || (m_lexicon.find(word) >= 0)) {
+        continue;
+      }
+      for (POS posTag : posTags) {
+        String expected = String.valueOf(m_lexicon.getRecord(getStemEntry(
+            word, posTag)));
+        String actual = String.valueOf(m_lexicon.getRecord(m_lexicon
+            .findStem(word, posTag)));
+        if (!expected.equals("null")) {
+          stemmedWords++;
+        }
+        if (!expected.equals(actual)) {
+          LOG.error("StemExpansion mismatch for (" + word + "," + posTag
+              + ") expected: " + expected + " actual: " + actual);
+          errors++;
+        }
+      }
+    }
+    LOG.info("StemExpansion checked " + words.size() + " words with "
+        + stemmedWords + " stemmed (word, POS) pairs and " + errors
+        + " errors");
+  }
+
   public static void main(String[] args) {
     boolean debugOutput = true;
     boolean extendedTest = true;
@@ -283,6 +475,9 @@ public class SentimentDictionary {
     // Tokenize
     List<List<String>> tokenizedTweets = Tokenizer.tokenizeTweets(tweets);
 
+    sentimentWordLists.testLexiconIndex(tokenizedTweets);
+    sentimentWordLists.testStemExpansion(tokenizedTweets);
+
     // Preprocess only
     long startTime = System.currentTimeMillis();
     List<List<String>> preprocessedTweets = preprocessor
@@ -16,8 +16,7 @@
  */
 package at.illecker.storm.commons.dict;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class SentimentResult {
   public static final double NEGATIVE_THRESHOLD = 0.45; // < 0.45
@@ -26,18 +25,37 @@ public class SentimentResult {
   private int m_neutralCount;
   private int m_negCount;
   private double m_sum;
+  private int m_count;
   private Double m_maxPos;
   private Double m_maxNeg;
-  private List<Double> m_scores;
+  // individual scores are only kept on demand
+  private double[] m_scores;
 
   public SentimentResult() {
+    this(false);
+  }
+
+  public SentimentResult(boolean keepScores) {
     this.m_posCount = 0;
     this.m_neutralCount = 0;
     this.m_negCount = 0;
     this.m_sum = 0;
+    this.m_count = 0;
     this.m_maxPos = null;
     this.m_maxNeg = null;
-    this.m_scores = new ArrayList<Double>();
+    this.m_scores = keepScores ? new double[8] : null;
+  }
+
+  SentimentResult(int posCount, int neutralCount, int negCount, double sum,
+      int count, Double maxPos, Double maxNeg, double[] scores) {
+    this.m_posCount = posCount;
+    this.m_neutralCount = neutralCount;
+    this.m_negCount = negCount;
+    this.m_sum = sum;
+    this.m_count = count;
+    this.m_maxPos = maxPos;
+    this.m_maxNeg = maxNeg;
+    this.m_scores = scores;
   }
 
   public int getPosCount() {
@@ -45,7 +63,7 @@ public class SentimentResult {
   }
 
   public double getAvgPosCount() {
-    return m_posCount / (double) m_scores.size();
+    return m_posCount / (double) m_count;
   }
 
   public int getNeutralCount() {
@@ -53,7 +71,7 @@ public class SentimentResult {
   }
 
   public double getAvgNeutralCount() {
-    return m_neutralCount / (double) m_scores.size();
+    return m_neutralCount / (double) m_count;
   }
 
   public int getNegCount() {
@@ -61,7 +79,7 @@ public class SentimentResult {
   }
 
   public double getAvgNegCount() {
-    return m_negCount / (double) m_scores.size();
+    return m_negCount / (double) m_count;
   }
 
   public double getSum() {
@@ -69,11 +87,11 @@ public class SentimentResult {
   }
 
   public double getAvgSum() {
-    return m_sum / (double) m_scores.size();
+    return m_sum / (double) m_count;
   }
 
   public int getCount() {
-    return m_scores.size();
+    return m_count;
   }
 
   public Double getMaxPos() {
@@ -84,8 +102,21 @@ public class SentimentResult {
     return m_maxNeg;
   }
 
+  /**
+   * Returns the individual scores or null if they are not kept.
+   */
+  public double[] getScores() {
+    return (m_scores != null) ? Arrays.copyOf(m_scores, m_count) : null;
+  }
+
   public void addScore(double score) {
-    this.m_scores.add(score);
+    if (m_scores != null) {
+      if (m_count == m_scores.length) {
+        m_scores = Arrays.copyOf(m_scores, Math.max(8, m_count * 2));
+      }
+      m_scores[m_count] = score;
+    }
+    this.m_count++;
     this.m_sum += score;
 
     // update negative positive neutral counts
@@ -107,11 +138,24 @@ public class SentimentResult {
   }
 
   public void add(SentimentResult sentimentResult) {
+    if ((m_scores != null) && (sentimentResult.m_scores != null)) {
+      int count = m_count + sentimentResult.m_count;
+      if (count > m_scores.length) {
+        m_scores = Arrays.copyOf(m_scores, Math.max(count, m_count * 2));
+      }
+      System.arraycopy(sentimentResult.m_scores, 0, m_scores, m_count,
+          sentimentResult.m_count);
+    } else {
+      // scores are incomplete
+      m_scores = null;
+    }
+
     this.m_posCount += sentimentResult.getPosCount();
     this.m_neutralCount += sentimentResult.getNeutralCount();
     this.m_negCount += sentimentResult.getNegCount();
 
     this.m_sum += sentimentResult.getSum();
+    this.m_count += sentimentResult.getCount();
 
     Double maxPos = sentimentResult.getMaxPos();
     if ((maxPos != null) && ((m_maxPos == null) || (maxPos > m_maxPos))) { // MAX_POS_SCORE
@@ -119,18 +163,17 @@ public class SentimentResult {
     }
 
     Double maxNeg = sentimentResult.getMaxNeg();
-    if ((maxNeg != null) && ((m_maxNeg == null) || (maxNeg < m_maxNeg))) { // MAX_POS_SCORE
-      m_maxNeg = maxPos;
+    if ((maxNeg != null) && ((m_maxNeg == null) || (maxNeg < m_maxNeg))) { // MAX_NEG_SCORE
+      m_maxNeg = maxNeg;
     }
-
-    this.m_scores.addAll(sentimentResult.m_scores);
   }
 
   @Override
   public String toString() {
     return "SentimentResult [posCount=" + m_posCount + ", neutralCount="
         + m_neutralCount + ", negCount=" + m_negCount + ", sum=" + m_sum
-        + ", count=" + m_scores.size() + ", maxPos=" + m_maxPos + ", maxNeg="
-        + m_maxNeg + ", scores=" + m_scores.toString() + "]";
+        + ", count=" + m_count + ", maxPos=" + m_maxPos + ", maxNeg="
+        + m_maxNeg + ((m_scores != null) ? ", scores="
+        + Arrays.toString(getScores()) : "") + "]";
   }
 }
@@ -16,40 +16,73 @@
  */
 package at.illecker.storm.commons.dict;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
 import at.illecker.storm.commons.util.io.FileUtils;
+import at.illecker.storm.commons.util.io.MappedDictionary;
 
 public class SlangCorrection {
   private static final Logger LOG = LoggerFactory
       .getLogger(SlangCorrection.class);
   private static final SlangCorrection INSTANCE = new SlangCorrection();
+  private static final int SLANG = 0;
 
-  private Map<String, String[]> m_slangWordList = new HashMap<String, String[]>();
+  private MappedDictionary m_slangWordList;
 
   private SlangCorrection() {
     List<Map> slangWordLists = Configuration.getSlangWordlists();
+    List<String> files = new ArrayList<String>();
     for (Map slangWordListEntry : slangWordLists) {
-      String file = (String) slangWordListEntry.get("path");
+      files.add((String) slangWordListEntry.get("path"));
+    }
+    long fingerprint = MappedDictionary.fingerprint(slangWordLists, files);
+    File file = Configuration.getMappedDictionary("slang", fingerprint);
+
+    try {
+      m_slangWordList = MappedDictionary.read(file, fingerprint);
+      if (m_slangWordList == null) {
+        writeSlangWordLists(slangWordLists, file, fingerprint);
+        m_slangWordList = MappedDictionary.read(file);
+      }
+      LOG.info("Mapped SlangLookupTable " + file + " with "
+          + m_slangWordList.size(SLANG) + " entries");
+    } catch (IOException e) {
+      throw new RuntimeException("SlangLookupTable " + file
+          + " could not be loaded", e);
+    }
+  }
+
+  private static void writeSlangWordLists(List<Map> slangWordLists,
+      File file, long fingerprint) throws IOException {
+    MappedDictionary.Writer writer = new MappedDictionary.Writer(1);
+    Set<String> slangWords = new HashSet<String>();
+    for (Map slangWordListEntry : slangWordLists) {
+      String path = (String) slangWordListEntry.get("path");
       String separator = (String) slangWordListEntry.get("delimiter");
       boolean isEnabled = (Boolean) slangWordListEntry.get("enabled");
       if (isEnabled) {
-        LOG.info("Load SlangLookupTable from: " + file);
-        Map<String, String> slangWordList = FileUtils.readFile(file, separator);
+        LOG.info("Load SlangLookupTable from: " + path);
+        Map<String, String> slangWordList = FileUtils.readFile(path, separator);
         for (Map.Entry<String, String> entry : slangWordList.entrySet()) {
-          if (!m_slangWordList.containsKey(entry.getKey())) {
-            m_slangWordList.put(entry.getKey(), entry.getValue().split(" "));
+          // the first word list containing a word wins
+          if (slangWords.add(entry.getKey())) {
+            writer.put(SLANG, entry.getKey()).writeString(entry.getValue());
           }
         }
       }
     }
+    writer.write(file, fingerprint);
   }
 
   public static SlangCorrection getInstance() {
@@ -58,8 +91,23 @@ public class SlangCorrection {
 
   public String[] getCorrection(String token) {
     // LOG.info("getCorrection('" + token + "'): "
-    // + Arrays.toString(m_slangWordList.get(token)));
-    return m_slangWordList.get(token);
+    // + Arrays.toString(getCorrection(m_slangWordList.find(SLANG, token))));
+    return getCorrection(m_slangWordList.find(SLANG, token));
+  }
+
+  /**
+   * Same as getCorrection(new String(text, offset, length).toLowerCase())
+   */
+  public String[] getCorrectionLowerCase(char[] text, int offset, int length) {
+    return getCorrection(m_slangWordList.findLowerCase(SLANG, text, offset,
+        length));
+  }
+
+  private String[] getCorrection(int position) {
+    if (position < 0) {
+      return null;
+    }
+    return m_slangWordList.getString(position).split(" ");
   }
 
   public static void main(String[] args) {
@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.dict;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import at.illecker.storm.commons.wordnet.WordNet;
+import edu.mit.jwi.item.POS;
+import edu.mit.jwi.morph.SimpleStemmer;
+import edu.mit.jwi.morph.StemmingRule;
+
+/**
+ * Precomputed stemming of the LexiconIndex. For every POS it maps the
+ * inflections of the lexicon words to the record of their first stem found
+ * in the lexicon, which is the result of the runtime stemming fallback.
+ *
+ * Candidate inflections are the stemming rules applied in reverse to the
+ * lexicon words and wildcard prefixes plus the WordNet exception entries.
+ * Each candidate is verified with the stemmer. Words which the stemmer
+ * normalizes (upper case, non ASCII and collocations) are not precomputed,
+ * see isPrecomputed.
+ */
+public class StemExpansion {
+  // nouns ending with "ful" are stemmed without the "ful"
+  private static final String SUFFIX_FUL = "ful";
+  private static final int ENTRY_BYTES = 48;
+  private static final int STRING_BYTES = 40;
+
+  // stem records of the POS NOUN, VERB, ADJECTIVE, ADVERB and of null
+  private final Map<String, LexiconIndex.Record>[] m_records;
+  private final int m_candidateCount;
+
+  @SuppressWarnings("unchecked")
+  public StemExpansion(LexiconIndex lexiconIndex, WordNet wordnet) {
+    // stems which have a record, wildcard prefixes may end within the
+    // ending of a stemming rule
+    Set<String> stems = new HashSet<String>(lexiconIndex.getWords());
+    Set<String> tails = new HashSet<String>();
+    for (List<StemmingRule> rules : SimpleStemmer.ruleMap.values()) {
+      for (StemmingRule rule : rules) {
+        String ending = rule.getEnding() + SUFFIX_FUL;
+        for (int i = 0; i <= ending.length(); i++) {
+          tails.add(ending.substring(i));
+        }
+      }
+    }
+    for (String prefix : lexiconIndex.getWildcardPrefixes()) {
+      for (String tail : tails) {
+        stems.add(prefix + tail);
+      }
+    }
+
+    // inflections of the stems
+    Set<String> candidates = wordnet.getExceptionSurfaceForms();
+    for (String stem : stems) {
+      for (List<StemmingRule> rules : SimpleStemmer.ruleMap.values()) {
+        for (StemmingRule rule : rules) {
+          String ending = rule.getEnding();
+          if (stem.endsWith(ending)) {
+            candidates.add(stem.substring(0, stem.length() - ending.length())
+                + rule.getSuffix());
+          }
+          if (stem.endsWith(ending + SUFFIX_FUL)) {
+            candidates.add(stem.substring(0,
+                stem.length() - ending.length() - SUFFIX_FUL.length())
+                + rule.getSuffix() + SUFFIX_FUL);
+          }
+        }
+      }
+    }
+    m_candidateCount = candidates.size();
+
+    POS[] posTags = POS.values();
+    m_records = new Map[posTags.length + 1];
+    for (int i = 0; i < m_records.length; i++) {
+      m_records[i] = new HashMap<String, LexiconIndex.Record>();
+    }
+    for (String candidate : candidates) {
+      if ((!isPrecomputed(candidate))
+          || (lexiconIndex.get(candidate) != null)) {
+        continue;
+      }
+      for (int i = 0; i < m_records.length; i++) {
+        POS posTag = (i < posTags.length) ? posTags[i] : null;
+        // same order as the runtime stemming
+        for (String stem : wordnet.findStems(candidate, posTag)) {
+          if (!stem.equals(candidate)) {
+            LexiconIndex.Record record = lexiconIndex.get(stem);
+            if (record != null) {
+              m_records[i].put(candidate, record);
+              break;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns true if the stem record of the word is precomputed. This is the
+   * case for non-empty lower case ASCII words without underscores.
+   */
+  public static boolean isPrecomputed(String word) {
+    int length = word.length();
+    if (length == 0) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = word.charAt(i);
+      if ((c <= ' ') || (c >= 0x80) || (c == '_')
+          || ((c >= 'A') && (c <= 'Z'))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the record of the first stem of the word in the lexicon or null.
+   * The word has to be precomputed and must not be in the lexicon itself.
+   */
+  public LexiconIndex.Record get(String word, POS posTag) {
+    return m_records[(posTag != null) ? posTag.ordinal() : m_records.length - 1]
+        .get(word);
+  }
+
+  public Map<String, LexiconIndex.Record> getRecords(POS posTag) {
+    return Collections.unmodifiableMap(m_records[(posTag != null) ? posTag
+        .ordinal() : m_records.length - 1]);
+  }
+
+  public int getCandidateCount() {
+    return m_candidateCount;
+  }
+
+  public int size() {
+    int size = 0;
+    for (Map<String, LexiconIndex.Record> records : m_records) {
+      size += records.size();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the estimated heap size in bytes, the records are shared with the
+   * LexiconIndex.
+   */
+  public long getBytes() {
+    // the keys are shared between the maps of the POS
+    Set<String> words = new HashSet<String>();
+    long bytes = 0;
+    for (Map<String, LexiconIndex.Record> records : m_records) {
+      // table slots and entries
+      bytes += records.size() * (ENTRY_BYTES + 8L);
+      words.addAll(records.keySet());
+    }
+    for (String word : words) {
+      bytes += STRING_BYTES + 2L * word.length();
+    }
+    return bytes;
+  }
+}
@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.util.PerfectHashSet;
 import at.illecker.storm.commons.util.io.FileUtils;
 
 public class StopWords {
@@ -47,18 +48,19 @@ public class StopWords {
   private static final Logger LOG = LoggerFactory.getLogger(StopWords.class);
   private static final StopWords INSTANCE = new StopWords();
 
-  private Set<String> m_stopwords = null;
+  private PerfectHashSet m_stopwords = null;
 
   private StopWords() {
-    m_stopwords = Sets.newHashSet(STOP_WORDS);
+    Set<String> stopWords = Sets.newHashSet(STOP_WORDS);
 
     List<String> files = Configuration.getStopWords();
     if (files != null) {
       for (String file : files) {
         LOG.info("Load StopWords from: " + file);
-        m_stopwords.addAll(FileUtils.readFile(file));
+        stopWords.addAll(FileUtils.readFile(file));
       }
     }
+    m_stopwords = new PerfectHashSet(stopWords);
   }
 
   public static StopWords getInstance() {
@@ -66,7 +68,7 @@ public class StopWords {
   }
 
   public boolean isStopWord(String value) {
-    return m_stopwords.contains(value.toLowerCase());
+    return m_stopwords.containsLowerCase(value);
   }
 
   public static void main(String[] args) {
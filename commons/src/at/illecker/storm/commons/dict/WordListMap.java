@@ -16,66 +16,79 @@
  */
 package at.illecker.storm.commons.dict;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TreeMap;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+/**
+ * Word list with wildcard entries, a key "word*" matches all words starting
+ * with "word".
+ */
 public class WordListMap<V> extends TreeMap<String, V> {
   private static final long serialVersionUID = -8666890032266194333L;
-  private static final Logger LOG = LoggerFactory.getLogger(WordListMap.class);
 
-  private List<String> m_startStrings = new ArrayList<String>();
-  private boolean m_startStringsIsSorted = false;
+  // trie of the wildcard entries, rebuilt after a wildcard entry was added
+  private transient volatile PrefixTrie<V> m_wildcards = null;
 
   @Override
   public V put(String key, V value) {
     if (key.endsWith("*")) {
-      String startString = key.substring(0, key.length() - 1);
-      // LOG.info("Add startStrings: '" + key + "' startingWith: '" +
-      // startString + "'");
-      m_startStrings.add(startString);
-      m_startStringsIsSorted = false;
+      m_wildcards = null;
     }
     return super.put(key, value);
   }
 
-  private String searchForMatchingKey(String key) {
-    if (!m_startStringsIsSorted) {
-      Collections.sort(m_startStrings);
-      m_startStringsIsSorted = true;
+  @Override
+  public void putAll(Map<? extends String, ? extends V> map) {
+    m_wildcards = null;
+    super.putAll(map);
+  }
+
+  @Override
+  public V remove(Object key) {
+    if ((key instanceof String) && (((String) key).endsWith("*"))) {
+      m_wildcards = null;
     }
-    // Comparator checks if a key starts with given key string
-    Comparator<String> startsWithComparator = new Comparator<String>() {
-      public int compare(String currentItem, String key) {
-        if (key.startsWith(currentItem)) {
-          return 0;
+    return super.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    m_wildcards = null;
+    super.clear();
+  }
+
+  /**
+   * Builds the trie of the wildcard entries, should be called after loading.
+   */
+  public synchronized PrefixTrie<V> build() {
+    PrefixTrie<V> wildcards = m_wildcards;
+    if (wildcards == null) {
+      Map<String, V> prefixes = new HashMap<String, V>();
+      for (Map.Entry<String, V> entry : entrySet()) {
+        String key = entry.getKey();
+        if (key.endsWith("*")) {
+          prefixes.put(key.substring(0, key.length() - 1), entry.getValue());
         }
-        return currentItem.compareTo(key);
       }
-    };
-
-    // binarySearch in sorted list
-    int index = Collections.binarySearch(m_startStrings, key,
-        startsWithComparator);
-    if (index >= 0) {
-      return m_startStrings.get(index);
+      wildcards = new PrefixTrie<V>(prefixes);
+      m_wildcards = wildcards;
     }
-    return null;
+    return wildcards;
   }
 
+  /**
+   * Returns the value of the key or of the longest wildcard entry matching
+   * the key.
+   */
   public V matchKey(String key) {
     V result = super.get(key);
     if (result == null) {
-      String matchingKey = searchForMatchingKey(key);
-      if (matchingKey != null) {
-        // LOG.info("Found match: " + key + "*" + " for " + key);
-        result = super.get(key + "*");
+      PrefixTrie<V> wildcards = m_wildcards;
+      if (wildcards == null) {
+        wildcards = build();
       }
+      result = wildcards.longestMatch(key);
     }
     return result;
   }
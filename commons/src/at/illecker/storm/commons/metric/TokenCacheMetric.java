@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.metric;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import backtype.storm.metric.api.IMetric;
+
+/**
+ * Reports hits, misses, hit rate and evictions of one or more caches since
+ * the last report and their current size.
+ */
+public class TokenCacheMetric implements IMetric {
+  private final CacheStatistics[] m_caches;
+  private long m_lastHits = 0;
+  private long m_lastMisses = 0;
+  private long m_lastEvictions = 0;
+
+  public TokenCacheMetric(CacheStatistics... caches) {
+    m_caches = caches;
+  }
+
+  @Override
+  public Object getValueAndReset() {
+    long hits = 0;
+    long misses = 0;
+    long evictions = 0;
+    int size = 0;
+    for (CacheStatistics cache : m_caches) {
+      hits += cache.getHitCount();
+      misses += cache.getMissCount();
+      evictions += cache.getEvictionCount();
+      size += cache.size();
+    }
+
+    long intervalHits = hits - m_lastHits;
+    long intervalMisses = misses - m_lastMisses;
+    long lookups = intervalHits + intervalMisses;
+
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("hits", intervalHits);
+    values.put("misses", intervalMisses);
+    values.put("hitRate", (lookups > 0) ? intervalHits / (double) lookups
+        : 0.0);
+    values.put("evictions", evictions - m_lastEvictions);
+    values.put("size", size);
+
+    m_lastHits = hits;
+    m_lastMisses = misses;
+    m_lastEvictions = evictions;
+    return values;
+  }
+}
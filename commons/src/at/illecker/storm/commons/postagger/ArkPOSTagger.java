@@ -16,8 +16,8 @@
  */
 package at.illecker.storm.commons.postagger;
 
-import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,9 +27,10 @@ import org.slf4j.LoggerFactory;
 import at.illecker.storm.commons.Configuration;
 import at.illecker.storm.commons.Dataset;
 import at.illecker.storm.commons.preprocessor.Preprocessor;
+import at.illecker.storm.commons.preprocessor.TokenCache;
 import at.illecker.storm.commons.tokenizer.Tokenizer;
 import at.illecker.storm.commons.tweet.Tweet;
-import at.illecker.storm.commons.util.io.SerializationUtils;
+import at.illecker.storm.commons.util.ParallelUtils;
 import cmu.arktweetnlp.Tagger.TaggedToken;
 import cmu.arktweetnlp.impl.Model;
 import cmu.arktweetnlp.impl.ModelSentence;
@@ -40,26 +41,36 @@ public class ArkPOSTagger {
   private static final Logger LOG = LoggerFactory.getLogger(ArkPOSTagger.class);
   private static final boolean LOGGING = Configuration.get(
       "commons.postagger.logging", false);
+  private static final int SEQUENCE_CACHE_SIZE_MB = Configuration.get(
+      "commons.postagger.ark.sequencecache.size.mb", 0);
   private static final ArkPOSTagger INSTANCE = new ArkPOSTagger();
-  String m_taggingModel;
   private Model m_model;
   private FeatureExtractor m_featureExtractor;
+  // observation features of tokens shared by the sessions of all threads
+  private TokenCache<ArkPOSTaggerSession.TokenFeatures> m_featureCache;
+  // tags of whole token sequences, e.g. of retweets
+  private TaggedTokensCache m_sequenceCache;
+  private final ThreadLocal<ArkPOSTaggerSession> m_sessions = new ThreadLocal<ArkPOSTaggerSession>() {
+    @Override
+    protected ArkPOSTaggerSession initialValue() {
+      return new ArkPOSTaggerSession(m_model, m_featureExtractor,
+          m_featureCache);
+    }
+  };
 
   private ArkPOSTagger() {
     // Load ARK POS Tagger
     try {
-      m_taggingModel = Configuration
-          .get("global.resources.postagger.ark.model.path");
-      LOG.info("Load ARK POS Tagger with model: " + m_taggingModel);
-      // TODO absolute path needed for resource
-      if ((Configuration.RUNNING_WITHIN_JAR)
-          && (!m_taggingModel.startsWith("/"))) {
-        m_taggingModel = "/" + m_taggingModel;
-      }
-      m_model = Model.loadModelFromText(m_taggingModel);
-      m_featureExtractor = new FeatureExtractor(m_model, false);
+      LOG.info("Load ARK POS Tagger with model: "
+          + Configuration.get("global.resources.postagger.ark.model.path"));
+      ArkTaggerModel model = ArkTaggerModel.get();
+      m_model = model.getModel();
+      m_featureExtractor = model.getFeatureExtractor();
+      m_featureCache = model.getFeatureCache();
+      m_sequenceCache = TaggedTokensCache.create(SEQUENCE_CACHE_SIZE_MB);
     } catch (IOException e) {
-      LOG.error("IOException: " + e.getMessage());
+      throw new RuntimeException("ARK POS Tagger model could not be loaded",
+          e);
     }
   }
 
@@ -75,7 +86,48 @@ public class ArkPOSTagger {
     return taggedTweets;
   }
 
+  /**
+   * Tags the tweets in parallel, the order of the tweets is preserved. The
+   * vocabularies of the loaded model are locked, decoding only reads them.
+   */
+  public List<List<TaggedToken>> tagTweetsParallel(List<List<String>> tweets) {
+    return ParallelUtils.map(tweets,
+        new ParallelUtils.Task<List<String>, List<TaggedToken>>() {
+          @Override
+          public List<TaggedToken> apply(List<String> tweet) {
+            return tag(tweet);
+          }
+        });
+  }
+
   public List<TaggedToken> tag(List<String> tokens) {
+    List<TaggedToken> taggedTokens = new ArrayList<TaggedToken>(tokens.size());
+    tag(tokens, taggedTokens);
+    return taggedTokens;
+  }
+
+  /**
+   * Tags the tokens with the session of the current thread and appends the
+   * tagged tokens to taggedTokens. Token sequences which were already tagged
+   * are taken from the optional sequence cache, it returns copies of the
+   * cached tagged tokens.
+   */
+  public void tag(List<String> tokens, List<TaggedToken> taggedTokens) {
+    if (m_sequenceCache == null) {
+      m_sessions.get().tag(tokens, taggedTokens);
+    } else if (!m_sequenceCache.get(tokens, taggedTokens)) {
+      int start = taggedTokens.size();
+      m_sessions.get().tag(tokens, taggedTokens);
+      m_sequenceCache.put(tokens,
+          taggedTokens.subList(start, taggedTokens.size()));
+    }
+  }
+
+  public TaggedTokensCache getSequenceCache() {
+    return m_sequenceCache;
+  }
+
+  private List<TaggedToken> tagWithoutSession(List<String> tokens) {
     Sentence sentence = new Sentence();
     sentence.tokens = tokens;
     ModelSentence ms = new ModelSentence(sentence.T());
@@ -91,18 +143,125 @@ public class ArkPOSTagger {
     return taggedTokens;
   }
 
-  public void serializeModel() {
-    SerializationUtils.serialize(m_model, m_taggingModel + "_model.ser");
+  /**
+   * Compares the allocated bytes per tweet of tagging with and without a
+   * reused session and checks that both produce the same tags.
+   */
+  private void allocationBenchmark(List<List<String>> tweets) {
+    com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+        .getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    int rounds = 10;
+    List<TaggedToken> taggedTokens = new ArrayList<TaggedToken>();
+
+    // warm up both variants and compare their tags
+    int diffs = 0;
+    for (List<String> tweet : tweets) {
+      taggedTokens.clear();
+      m_sessions.get().tag(tweet, taggedTokens);
+      List<TaggedToken> expected = tagWithoutSession(tweet);
+      for (int t = 0; t < tweet.size(); t++) {
+        if (!expected.get(t).tag.equals(taggedTokens.get(t).tag)) {
+          diffs++;
+        }
+      }
+    }
+
+    long bytes = threadMXBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < rounds; i++) {
+      for (List<String> tweet : tweets) {
+        tagWithoutSession(tweet);
+      }
+    }
+    long bytesWithoutSession = threadMXBean.getThreadAllocatedBytes(threadId)
+        - bytes;
+
+    bytes = threadMXBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < rounds; i++) {
+      for (List<String> tweet : tweets) {
+        taggedTokens.clear();
+        m_sessions.get().tag(tweet, taggedTokens);
+      }
+    }
+    long bytesWithSession = threadMXBean.getThreadAllocatedBytes(threadId)
+        - bytes;
+
+    int count = rounds * tweets.size();
+    LOG.info("Allocated bytes per tweet without session: "
+        + (bytesWithoutSession / count) + " with session: "
+        + (bytesWithSession / count) + " tag differences: " + diffs);
+  }
+
+  /**
+   * Compares the tags of session tagging with the cached token features and
+   * of uncached ARK tagging over the SemEval2013 tweets.
+   */
+  private void testFeatureCache() {
+    Dataset dataset = Configuration.getDataSetSemEval2013();
+    List<Tweet> tweets = new ArrayList<Tweet>(dataset.getTrainTweets(true));
+    tweets.addAll(dataset.getTestTweets());
+    Preprocessor preprocessor = Preprocessor.getInstance();
+
+    int tokenCount = 0;
+    int diffs = 0;
+    List<TaggedToken> taggedTokens = new ArrayList<TaggedToken>();
+    for (Tweet tweet : tweets) {
+      List<String> tokens = preprocessor.preprocess(Tokenizer.tokenize(tweet
+          .getText()));
+      if (tokens.isEmpty()) {
+        continue;
+      }
+      taggedTokens.clear();
+      m_sessions.get().tag(tokens, taggedTokens);
+      List<TaggedToken> expected = tagWithoutSession(tokens);
+      for (int t = 0; t < tokens.size(); t++) {
+        if (!expected.get(t).tag.equals(taggedTokens.get(t).tag)) {
+          diffs++;
+        }
+      }
+      tokenCount += tokens.size();
+    }
+    LOG.info("Feature cache test: tweets: " + tweets.size() + " tokens: "
+        + tokenCount + " tag differences: " + diffs);
+    if (m_featureCache != null) {
+      LOG.info("Feature cache hits: " + m_featureCache.getHitCount()
+          + " misses: " + m_featureCache.getMissCount());
+    }
   }
 
-  public void serializeFeatureExtractor() {
-    SerializationUtils.serialize(m_featureExtractor, m_taggingModel
-        + "_featureExtractor.ser");
+  /**
+   * Tags the tweets twice through the sequence cache and compares the tags
+   * with uncached ARK tagging.
+   */
+  private void testSequenceCache(List<List<String>> tweets) {
+    if (m_sequenceCache == null) {
+      return;
+    }
+    int diffs = 0;
+    List<TaggedToken> taggedTokens = new ArrayList<TaggedToken>();
+    for (int i = 0; i < 2; i++) {
+      for (List<String> tweet : tweets) {
+        if (tweet.isEmpty()) {
+          continue;
+        }
+        taggedTokens.clear();
+        tag(tweet, taggedTokens);
+        List<TaggedToken> expected = tagWithoutSession(tweet);
+        for (int t = 0; t < tweet.size(); t++) {
+          if (!expected.get(t).tag.equals(taggedTokens.get(t).tag)) {
+            diffs++;
+          }
+        }
+      }
+    }
+    LOG.info("Sequence cache test: hit ratio: "
+        + m_sequenceCache.getHitRatio() + " entries: "
+        + m_sequenceCache.size() + " bytes: " + m_sequenceCache.getBytes()
+        + " tag differences: " + diffs);
   }
 
   public static void main(String[] args) {
     boolean extendedTest = false;
-    boolean useSerialization = true;
 
     // load tweets
     List<Tweet> tweets = null;
@@ -125,12 +284,8 @@ public class ArkPOSTagger {
     Preprocessor preprocessor = Preprocessor.getInstance();
     ArkPOSTagger posTagger = ArkPOSTagger.getInstance();
 
-    if (useSerialization) {
-      posTagger.serializeModel();
-      posTagger.serializeFeatureExtractor();
-    }
-
     // process tweets
+    List<List<String>> preprocessedTweets = new ArrayList<List<String>>();
     long startTime = System.currentTimeMillis();
     for (Tweet tweet : tweets) {
       // Tokenize
@@ -138,6 +293,7 @@ public class ArkPOSTagger {
 
       // Preprocess
       List<String> preprocessedTokens = preprocessor.preprocess(tokens);
+      preprocessedTweets.add(preprocessedTokens);
 
       // POS Tagging
       List<TaggedToken> taggedTokens = posTagger.tag(preprocessedTokens);
@@ -149,6 +305,10 @@ public class ArkPOSTagger {
     LOG.info("POSTagger finished after " + elapsedTime + " ms");
     LOG.info("Total tweets: " + tweets.size());
     LOG.info((elapsedTime / (double) tweets.size()) + " ms per Tweet");
+
+    posTagger.allocationBenchmark(preprocessedTweets);
+    posTagger.testFeatureCache();
+    posTagger.testSequenceCache(preprocessedTweets);
   }
 
 }
@@ -0,0 +1,362 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.postagger;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.illecker.storm.commons.preprocessor.TokenCache;
+import cmu.arktweetnlp.Tagger.TaggedToken;
+import cmu.arktweetnlp.impl.Model;
+import cmu.arktweetnlp.impl.ModelSentence;
+import cmu.arktweetnlp.impl.Sentence;
+import cmu.arktweetnlp.impl.features.FeatureExtractor;
+import cmu.arktweetnlp.impl.features.FeatureExtractor.FeatureExtractorInterface;
+import cmu.arktweetnlp.impl.features.FeatureExtractor.PositionFeaturePairs;
+import edu.stanford.nlp.util.Pair;
+
+/**
+ * Tagging session of the ARK POS Tagger, which reuses its sentence, feature
+ * and decode buffers across calls. The buffers grow to the longest tweet seen
+ * so far. A session must only be used by one thread at a time, the model, the
+ * feature extractor and the token feature cache can be shared by several
+ * sessions.
+ * 
+ * The observation features of the token-local extractors are looked up in the
+ * token feature cache, only the context-dependent extractors run on each
+ * sentence. The features of each position keep the order of
+ * FeatureExtractor.computeFeatures, so the scores and tags are identical to
+ * uncached tagging.
+ */
+public class ArkPOSTaggerSession {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(ArkPOSTaggerSession.class);
+  // extractors of ARK 0.3.2 whose features at position t only depend on the
+  // token at t and are only added at t
+  private static final Set<String> TOKEN_LOCAL_EXTRACTORS = new HashSet<String>(
+      Arrays.asList(
+          "cmu.arktweetnlp.impl.features.WordListFeatures$MetaphonePOSDict",
+          "cmu.arktweetnlp.impl.features.MiscFeatures$NgramSuffix",
+          "cmu.arktweetnlp.impl.features.MiscFeatures$NgramPrefix",
+          "cmu.arktweetnlp.impl.features.MiscFeatures$WordformFeatures",
+          "cmu.arktweetnlp.impl.features.MiscFeatures$SimpleOrthFeatures",
+          "cmu.arktweetnlp.impl.features.WordListFeatures$Listofnames"));
+
+  private final Model m_model;
+  private final FeatureExtractor m_featureExtractor;
+  // extractors of m_featureExtractor or null if they are not accessible
+  private final List<FeatureExtractorInterface> m_extractors;
+  private final boolean[] m_tokenLocal;
+  private final TokenCache<TokenFeatures> m_cache;
+  private final PositionFeaturePairs m_pairs = new PositionFeaturePairs();
+  private final Sentence m_sentence = new Sentence();
+  private final ModelSentence m_modelSentence = new ModelSentence(0);
+  private final double[] m_labelScores;
+
+  // observation features and labels per position
+  private TokenFeatures[] m_tokenFeatures = new TokenFeatures[0];
+  private int[][] m_featureIds = new int[0][];
+  private double[][] m_featureValues = new double[0][];
+  private int[] m_featureCounts = new int[0];
+  private int[] m_labels = new int[0];
+
+  /**
+   * Observation feature ids and values of a token, grouped by token-local
+   * extractor.
+   */
+  public static final class TokenFeatures {
+    private final int[] m_ids;
+    private final double[] m_values;
+    private final int[] m_ends;
+
+    private TokenFeatures(int[] ids, double[] values, int[] ends) {
+      m_ids = ids;
+      m_values = values;
+      m_ends = ends;
+    }
+  }
+
+  /**
+   * Creates a token feature cache or returns null if size is 0.
+   */
+  public static TokenCache<TokenFeatures> createCache(int size) {
+    return (size > 0) ? new TokenCache<TokenFeatures>(size) : null;
+  }
+
+  public ArkPOSTaggerSession(Model model, FeatureExtractor featureExtractor) {
+    this(model, featureExtractor, null);
+  }
+
+  /**
+   * @param cache token feature cache or null to extract all features of each
+   *          sentence
+   */
+  public ArkPOSTaggerSession(Model model, FeatureExtractor featureExtractor,
+      TokenCache<TokenFeatures> cache) {
+    m_model = model;
+    m_featureExtractor = featureExtractor;
+    m_extractors = (featureExtractor.isTrainingTime) ? null
+        : getExtractors(featureExtractor);
+    if (m_extractors != null) {
+      m_tokenLocal = new boolean[m_extractors.size()];
+      for (int i = 0; i < m_tokenLocal.length; i++) {
+        m_tokenLocal[i] = TOKEN_LOCAL_EXTRACTORS.contains(m_extractors.get(i)
+            .getClass().getName());
+      }
+    } else {
+      m_tokenLocal = null;
+    }
+    m_cache = (m_extractors != null) ? cache : null;
+    m_labelScores = new double[model.numLabels];
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<FeatureExtractorInterface> getExtractors(
+      FeatureExtractor featureExtractor) {
+    try {
+      Field field = FeatureExtractor.class
+          .getDeclaredField("allFeatureExtractors");
+      field.setAccessible(true);
+      return (List<FeatureExtractorInterface>) field.get(featureExtractor);
+    } catch (NoSuchFieldException e) {
+      LOG.error("NoSuchFieldException: " + e.getMessage());
+    } catch (IllegalAccessException e) {
+      LOG.error("IllegalAccessException: " + e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Tags the tokens and appends the tagged tokens to taggedTokens.
+   */
+  public void tag(List<String> tokens, List<TaggedToken> taggedTokens) {
+    int T = tokens.size();
+    if (T == 0) {
+      return;
+    }
+    reset(T);
+    if (m_extractors != null) {
+      computeFeatures(tokens);
+    } else {
+      computeFeaturesWithModelSentence(tokens);
+    }
+    greedyDecode(T);
+
+    for (int t = 0; t < T; t++) {
+      taggedTokens.add(new TaggedToken(tokens.get(t), m_model.labelVocab
+          .name(m_labels[t])));
+    }
+  }
+
+  private void reset(int T) {
+    if (m_labels.length < T) {
+      int capacity = Math.max(T, 2 * m_labels.length);
+      m_labels = new int[capacity];
+      m_featureCounts = new int[capacity];
+      m_tokenFeatures = new TokenFeatures[capacity];
+      int[][] featureIds = new int[capacity][];
+      double[][] featureValues = new double[capacity][];
+      for (int t = 0; t < capacity; t++) {
+        if (t < m_featureIds.length) {
+          featureIds[t] = m_featureIds[t];
+          featureValues[t] = m_featureValues[t];
+        } else {
+          featureIds[t] = new int[64];
+          featureValues[t] = new double[64];
+        }
+      }
+      m_featureIds = featureIds;
+      m_featureValues = featureValues;
+    }
+    Arrays.fill(m_featureCounts, 0, T, 0);
+  }
+
+  private void addFeature(int t, int id, double value) {
+    int count = m_featureCounts[t];
+    if (count == m_featureIds[t].length) {
+      m_featureIds[t] = Arrays.copyOf(m_featureIds[t], 2 * count);
+      m_featureValues[t] = Arrays.copyOf(m_featureValues[t], 2 * count);
+    }
+    m_featureIds[t][count] = id;
+    m_featureValues[t][count] = value;
+    m_featureCounts[t] = count + 1;
+  }
+
+  /**
+   * Same features and order as FeatureExtractor.computeFeatures, the
+   * extractors are applied one after another and unknown features are
+   * dropped.
+   */
+  private void computeFeatures(List<String> tokens) {
+    int T = tokens.size();
+    if (m_cache != null) {
+      for (int t = 0; t < T; t++) {
+        m_tokenFeatures[t] = getTokenFeatures(tokens.get(t));
+      }
+    }
+
+    int local = 0;
+    for (int i = 0; i < m_extractors.size(); i++) {
+      if ((m_cache != null) && (m_tokenLocal[i])) {
+        for (int t = 0; t < T; t++) {
+          TokenFeatures features = m_tokenFeatures[t];
+          int start = (local > 0) ? features.m_ends[local - 1] : 0;
+          for (int j = start; j < features.m_ends[local]; j++) {
+            addFeature(t, features.m_ids[j], features.m_values[j]);
+          }
+        }
+        local++;
+      } else {
+        clearPairs();
+        m_extractors.get(i).addFeatures(tokens, m_pairs);
+        for (int j = 0; j < m_pairs.size(); j++) {
+          int id = m_model.featureVocab.num(m_pairs.featureNames.get(j));
+          if (id != -1) {
+            addFeature(m_pairs.labelIndexes.get(j), id, m_pairs.featureValues
+                .get(j));
+          }
+        }
+      }
+    }
+    clearPairs();
+    if (m_cache != null) {
+      Arrays.fill(m_tokenFeatures, 0, T, null);
+    }
+  }
+
+  private TokenFeatures getTokenFeatures(String token) {
+    TokenFeatures features = m_cache.get(token);
+    if (features == null) {
+      clearPairs();
+      List<String> tokens = Collections.singletonList(token);
+      int[] ends = new int[m_tokenLocal.length];
+      int local = 0;
+      for (int i = 0; i < m_extractors.size(); i++) {
+        if (m_tokenLocal[i]) {
+          m_extractors.get(i).addFeatures(tokens, m_pairs);
+          ends[local++] = m_pairs.size();
+        }
+      }
+      int[] ids = new int[m_pairs.size()];
+      double[] values = new double[m_pairs.size()];
+      int count = 0;
+      int start = 0;
+      for (int l = 0; l < local; l++) {
+        for (int j = start; j < ends[l]; j++) {
+          int id = m_model.featureVocab.num(m_pairs.featureNames.get(j));
+          if (id != -1) {
+            ids[count] = id;
+            values[count] = m_pairs.featureValues.get(j);
+            count++;
+          }
+        }
+        start = ends[l];
+        ends[l] = count;
+      }
+      clearPairs();
+      features = new TokenFeatures(Arrays.copyOf(ids, count), Arrays.copyOf(
+          values, count), Arrays.copyOf(ends, local));
+      m_cache.put(token, features);
+    }
+    return features;
+  }
+
+  private void clearPairs() {
+    m_pairs.labelIndexes.clear();
+    m_pairs.featureNames.clear();
+    m_pairs.featureValues.clear();
+  }
+
+  private void computeFeaturesWithModelSentence(List<String> tokens) {
+    int T = tokens.size();
+    ModelSentence ms = m_modelSentence;
+    ArrayList<ArrayList<Pair<Integer, Double>>> features = ms.observationFeatures;
+    for (int t = 0; t < T; t++) {
+      if (t < features.size()) {
+        features.get(t).clear();
+      } else {
+        features.add(new ArrayList<Pair<Integer, Double>>());
+      }
+    }
+    if (ms.labels.length < T) {
+      ms.labels = new int[m_labels.length];
+      ms.edgeFeatures = new int[m_labels.length];
+    }
+    ms.T = T;
+    m_sentence.tokens = tokens;
+    m_featureExtractor.computeFeatures(m_sentence, ms);
+    m_sentence.tokens = null;
+
+    for (int t = 0; t < T; t++) {
+      ArrayList<Pair<Integer, Double>> featuresOfToken = features.get(t);
+      for (int i = 0; i < featuresOfToken.size(); i++) {
+        Pair<Integer, Double> feature = featuresOfToken.get(i);
+        addFeature(t, feature.first, feature.second);
+      }
+    }
+  }
+
+  /**
+   * Same computation as Model.greedyDecode without confidences, but with a
+   * reused score buffer.
+   */
+  private void greedyDecode(int T) {
+    double[] scores = m_labelScores;
+    int numLabels = m_model.numLabels;
+    double[] biasCoefs = m_model.biasCoefs;
+    double[][] observationFeatureCoefs = m_model.observationFeatureCoefs;
+
+    int previousLabel = m_model.startMarker();
+    for (int t = 0; t < T; t++) {
+      double[] edgeCoefs = m_model.edgeCoefs[previousLabel];
+      int[] featureIds = m_featureIds[t];
+      double[] featureValues = m_featureValues[t];
+      int featureCount = m_featureCounts[t];
+      for (int k = 0; k < numLabels; k++) {
+        double score = 0;
+        score += biasCoefs[k];
+        score += edgeCoefs[k];
+        for (int i = 0; i < featureCount; i++) {
+          score += observationFeatureCoefs[featureIds[i]][k]
+              * featureValues[i];
+        }
+        scores[k] = score;
+      }
+
+      // first label with the highest score
+      int label = 0;
+      double maxScore = Double.NEGATIVE_INFINITY;
+      for (int k = 0; k < numLabels; k++) {
+        if (scores[k] > maxScore) {
+          maxScore = scores[k];
+          label = k;
+        }
+      }
+      m_labels[t] = label;
+      previousLabel = label;
+    }
+  }
+
+}
@@ -0,0 +1,330 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.postagger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.preprocessor.TokenCache;
+import at.illecker.storm.commons.util.io.MappedDictionary;
+import cmu.arktweetnlp.impl.Model;
+import cmu.arktweetnlp.impl.Vocabulary;
+import cmu.arktweetnlp.impl.features.FeatureExtractor;
+
+/**
+ * ARK POS tagger model loaded from a compact binary file and shared by all
+ * taggers of a JVM.
+ *
+ * The binary file contains the label and feature vocabularies as string
+ * tables followed by the edge, bias and observation feature weights as
+ * 8-byte aligned double arrays. It is memory-mapped and read with bulk
+ * copies, which is much faster than parsing the text model or Java
+ * deserialization. The header stores the fingerprint of the text model, the
+ * binary file is rebuilt from the text model if it does not exist, is stale
+ * or unreadable.
+ */
+public class ArkTaggerModel {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(ArkTaggerModel.class);
+  private static final int MAGIC = 0x41524B31; // "ARK1"
+  private static final int FORMAT_VERSION = 2;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int FEATURE_CACHE_SIZE = Configuration.get(
+      "commons.postagger.ark.featurecache.size", 100000);
+  // loaded models per text model path
+  private static final Map<String, ArkTaggerModel> MODELS = new HashMap<String, ArkTaggerModel>();
+
+  private final Model m_model;
+  private final FeatureExtractor m_featureExtractor;
+  // observation features of tokens shared by all sessions of the model
+  private final TokenCache<ArkPOSTaggerSession.TokenFeatures> m_featureCache;
+
+  private ArkTaggerModel(Model model) throws IOException {
+    m_model = model;
+    m_featureExtractor = new FeatureExtractor(model, false);
+    m_featureCache = ArkPOSTaggerSession.createCache(FEATURE_CACHE_SIZE);
+  }
+
+  /**
+   * Returns the configured ARK model, it is loaded only once per JVM.
+   */
+  public static ArkTaggerModel get() throws IOException {
+    String textModelPath = Configuration
+        .get("global.resources.postagger.ark.model.path");
+    return get(textModelPath);
+  }
+
+  /**
+   * Returns the model of the text model path, it is loaded only once per JVM.
+   */
+  public static synchronized ArkTaggerModel get(String textModelPath)
+      throws IOException {
+    ArkTaggerModel model = MODELS.get(textModelPath);
+    if (model == null) {
+      model = new ArkTaggerModel(load(textModelPath));
+      MODELS.put(textModelPath, model);
+    }
+    return model;
+  }
+
+  public Model getModel() {
+    return m_model;
+  }
+
+  public FeatureExtractor getFeatureExtractor() {
+    return m_featureExtractor;
+  }
+
+  public TokenCache<ArkPOSTaggerSession.TokenFeatures> getFeatureCache() {
+    return m_featureCache;
+  }
+
+  /**
+   * Creates a new session using the shared model and feature cache. Sessions
+   * are not thread-safe, every thread needs its own.
+   */
+  public ArkPOSTaggerSession createSession() {
+    return new ArkPOSTaggerSession(m_model, m_featureExtractor,
+        m_featureCache);
+  }
+
+  private static Model load(String textModelPath) throws IOException {
+    long fingerprint = fingerprint(textModelPath);
+    File binaryFile = Configuration.getArkTaggerModelBinary(textModelPath,
+        fingerprint);
+    long startTime = System.currentTimeMillis();
+    Model model = null;
+    if (binaryFile.isFile()) {
+      try {
+        model = read(binaryFile, fingerprint);
+        if (model == null) {
+          LOG.info("Binary ARK POS Tagger model " + binaryFile + " is stale");
+        }
+      } catch (IOException e) {
+        LOG.error("Binary ARK POS Tagger model " + binaryFile
+            + " is unreadable: " + e.getMessage());
+      }
+    }
+    if (model == null) {
+      // one-time build step, later starts only map the binary model
+      LOG.info("Build binary ARK POS Tagger model " + binaryFile + " from "
+          + textModelPath);
+      write(loadText(textModelPath), binaryFile, fingerprint);
+      startTime = System.currentTimeMillis();
+      model = read(binaryFile, fingerprint);
+      if (model == null) {
+        throw new IOException("Binary ARK POS Tagger model " + binaryFile
+            + " does not match " + textModelPath);
+      }
+    }
+    LOG.info("Loaded binary ARK POS Tagger model " + binaryFile + " in "
+        + (System.currentTimeMillis() - startTime) + " ms");
+    return model;
+  }
+
+  /**
+   * Returns the fingerprint of the text model file or resource.
+   */
+  public static long fingerprint(String textModelPath) {
+    return MappedDictionary.fingerprint("ArkTaggerModel " + FORMAT_VERSION,
+        Collections.singletonList(textModelPath));
+  }
+
+  public static Model loadText(String textModelPath) throws IOException {
+    // TODO absolute path needed for resource
+    if ((Configuration.RUNNING_WITHIN_JAR) && (!textModelPath.startsWith("/"))) {
+      textModelPath = "/" + textModelPath;
+    }
+    return Model.loadModelFromText(textModelPath);
+  }
+
+  /**
+   * Reads the binary model, returns null if it was built from another text
+   * model.
+   */
+  public static Model read(File file, long fingerprint) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      MappedByteBuffer buffer = raf.getChannel().map(
+          FileChannel.MapMode.READ_ONLY, 0, raf.length());
+      if ((buffer.getInt() != MAGIC) || (buffer.getInt() != FORMAT_VERSION)) {
+        throw new IOException("Unknown ARK model format: " + file);
+      }
+      if (buffer.getLong() != fingerprint) {
+        return null;
+      }
+      int numLabels = buffer.getInt();
+      int numFeatures = buffer.getInt();
+
+      Model model = new Model();
+      readVocabulary(buffer, model.labelVocab, numLabels);
+      model.numLabels = numLabels;
+      readVocabulary(buffer, model.featureVocab, numFeatures);
+      model.allocateCoefs(numLabels, numFeatures);
+
+      // weights are 8-byte aligned
+      buffer.position((buffer.position() + 7) & ~7);
+      DoubleBuffer weights = buffer.asDoubleBuffer();
+      for (double[] edgeCoefs : model.edgeCoefs) {
+        weights.get(edgeCoefs);
+      }
+      weights.get(model.biasCoefs);
+      for (double[] observationFeatureCoefs : model.observationFeatureCoefs) {
+        weights.get(observationFeatureCoefs);
+      }
+      return model;
+    } finally {
+      // the mapping stays valid after the channel is closed
+      raf.close();
+    }
+  }
+
+  private static void readVocabulary(ByteBuffer buffer, Vocabulary vocab,
+      int size) {
+    byte[] bytes = new byte[64];
+    for (int i = 0; i < size; i++) {
+      int length = buffer.getShort() & 0xffff;
+      if (length > bytes.length) {
+        bytes = new byte[Math.max(length, bytes.length * 2)];
+      }
+      buffer.get(bytes, 0, length);
+      vocab.num(new String(bytes, 0, length, UTF8));
+    }
+    vocab.lock();
+  }
+
+  public static void write(Model model, File file, long fingerprint)
+      throws IOException {
+    File tmpFile = File.createTempFile(file.getName(), ".tmp", file
+        .getAbsoluteFile().getParentFile());
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(tmpFile), 1 << 16));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(fingerprint);
+      out.writeInt(model.labelVocab.size());
+      out.writeInt(model.featureVocab.size());
+      writeVocabulary(out, model.labelVocab);
+      writeVocabulary(out, model.featureVocab);
+      while ((out.size() & 7) != 0) {
+        out.writeByte(0);
+      }
+      for (double[] edgeCoefs : model.edgeCoefs) {
+        writeDoubles(out, edgeCoefs);
+      }
+      writeDoubles(out, model.biasCoefs);
+      for (double[] observationFeatureCoefs : model.observationFeatureCoefs) {
+        writeDoubles(out, observationFeatureCoefs);
+      }
+    } finally {
+      out.close();
+    }
+    if (!tmpFile.renameTo(file)) {
+      tmpFile.delete();
+      throw new IOException("Could not rename " + tmpFile + " to " + file);
+    }
+    LOG.info("Wrote binary ARK POS Tagger model " + file + " ("
+        + file.length() + " bytes)");
+  }
+
+  private static void writeVocabulary(DataOutputStream out, Vocabulary vocab)
+      throws IOException {
+    for (int i = 0; i < vocab.size(); i++) {
+      byte[] bytes = vocab.name(i).getBytes(UTF8);
+      if (bytes.length > 0xffff) {
+        throw new IOException("Vocabulary entry too long: " + vocab.name(i));
+      }
+      out.writeShort(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static void writeDoubles(DataOutputStream out, double[] values)
+      throws IOException {
+    for (double value : values) {
+      out.writeLong(Double.doubleToRawLongBits(value));
+    }
+  }
+
+  /**
+   * Returns true if both models have the same vocabularies and weights.
+   */
+  public static boolean equals(Model m1, Model m2) {
+    if ((m1.numLabels != m2.numLabels)
+        || (m1.labelVocab.size() != m2.labelVocab.size())
+        || (m1.featureVocab.size() != m2.featureVocab.size())) {
+      return false;
+    }
+    for (int i = 0; i < m1.labelVocab.size(); i++) {
+      if (!m1.labelVocab.name(i).equals(m2.labelVocab.name(i))) {
+        return false;
+      }
+    }
+    for (int i = 0; i < m1.featureVocab.size(); i++) {
+      if (!m1.featureVocab.name(i).equals(m2.featureVocab.name(i))) {
+        return false;
+      }
+    }
+    return (Arrays.equals(m1.biasCoefs, m2.biasCoefs))
+        && (Arrays.deepEquals(m1.edgeCoefs, m2.edgeCoefs))
+        && (Arrays.deepEquals(m1.observationFeatureCoefs,
+            m2.observationFeatureCoefs));
+  }
+
+  public static void main(String[] args) throws IOException {
+    String textModelPath = Configuration
+        .get("global.resources.postagger.ark.model.path");
+
+    long startTime = System.currentTimeMillis();
+    Model textModel = loadText(textModelPath);
+    LOG.info("Loaded text model in "
+        + (System.currentTimeMillis() - startTime) + " ms");
+
+    startTime = System.currentTimeMillis();
+    ArkTaggerModel model = get(textModelPath);
+    LOG.info("Loaded shared model in "
+        + (System.currentTimeMillis() - startTime) + " ms");
+
+    startTime = System.currentTimeMillis();
+    ArkTaggerModel sharedModel = get(textModelPath);
+    LOG.info("Loaded shared model again in "
+        + (System.currentTimeMillis() - startTime) + " ms, same instance: "
+        + (model == sharedModel));
+
+    LOG.info("Binary model equals text model: "
+        + equals(textModel, model.getModel()));
+  }
+
+}
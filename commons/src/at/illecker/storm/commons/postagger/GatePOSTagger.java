@@ -18,6 +18,13 @@ package at.illecker.storm.commons.postagger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,17 +34,23 @@ import at.illecker.storm.commons.Dataset;
 import at.illecker.storm.commons.preprocessor.Preprocessor;
 import at.illecker.storm.commons.tokenizer.Tokenizer;
 import at.illecker.storm.commons.tweet.Tweet;
+import at.illecker.storm.commons.util.ParallelUtils;
 import edu.stanford.nlp.ling.TaggedWord;
 import edu.stanford.nlp.tagger.maxent.MaxentTagger;
 import edu.stanford.nlp.tagger.maxent.TaggerConfig;
+import edu.stanford.nlp.tagger.maxent.TestSentence;
 
 public class GatePOSTagger {
   private static final Logger LOG = LoggerFactory
       .getLogger(GatePOSTagger.class);
   private static final boolean LOGGING = Configuration.get(
       "commons.postagger.logging", false);
+  private static final int POOL_SIZE = Configuration.get(
+      "commons.postagger.gate.pool.size", ParallelUtils.PARALLELISM);
   private static final GatePOSTagger INSTANCE = new GatePOSTagger();
   private MaxentTagger m_posTagger;
+  // tagging states of m_posTagger, each is used by one thread at a time
+  private BlockingQueue<TestSentence> m_pool;
 
   private GatePOSTagger() {
     // Load Stanford POS Tagger with GATE model
@@ -46,25 +59,132 @@ public class GatePOSTagger {
     LOG.info("Load Stanford POS Tagger with model: " + taggingModel);
     TaggerConfig posTaggerConf = new TaggerConfig("-model", taggingModel);
     m_posTagger = new MaxentTagger(taggingModel, posTaggerConf, false);
+
+    // the mutable state of a sentence is kept in a TestSentence, which can
+    // be reused, testPool checks concurrent tagging against a separate tagger
+    int poolSize = Math.max(1, POOL_SIZE);
+    m_pool = new ArrayBlockingQueue<TestSentence>(poolSize);
+    for (int i = 0; i < poolSize; i++) {
+      m_pool.add(new TestSentence(m_posTagger));
+    }
+    LOG.info("Stanford POS Tagger pool size: " + poolSize);
   }
 
   public static GatePOSTagger getInstance() {
     return INSTANCE;
   }
 
+  /**
+   * Tags the tweets spread across the taggers of the pool, the order of the
+   * tweets is preserved. A tagger is taken from the pool per tweet.
+   */
   public List<List<TaggedWord>> tagTweets(List<List<TaggedWord>> tweets) {
-    List<List<TaggedWord>> taggedTweets = new ArrayList<List<TaggedWord>>();
+    return tagTweetsParallel(tweets);
+  }
+
+  /**
+   * Tags the tweets in parallel, the order of the tweets is preserved. The
+   * tweets are spread across the taggers of the pool, threads wait for a
+   * free tagger if all are in use.
+   */
+  public List<List<TaggedWord>> tagTweetsParallel(List<List<TaggedWord>> tweets) {
+    return ParallelUtils.map(tweets,
+        new ParallelUtils.Task<List<TaggedWord>, List<TaggedWord>>() {
+          @Override
+          public List<TaggedWord> apply(List<TaggedWord> tweet) {
+            return tag(tweet);
+          }
+        });
+  }
+
+  public List<TaggedWord> tag(List<TaggedWord> pretaggedTokens) {
+    TestSentence tagger = acquire();
+    try {
+      return tagger.tagSentence(pretaggedTokens, true);
+    } finally {
+      release(tagger);
+    }
+  }
+
+  private TestSentence acquire() {
+    try {
+      return m_pool.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for a tagger", e);
+    }
+  }
+
+  private void release(TestSentence tagger) {
+    m_pool.add(tagger);
+  }
+
+  /**
+   * Tags the tweets concurrently by several threads through the pool and
+   * compares the tags with a separately loaded MaxentTagger, which tags the
+   * tweets on a single thread.
+   */
+  private void testPool(final List<List<TaggedWord>> tweets)
+      throws InterruptedException, ExecutionException {
+    String taggingModel = Configuration
+        .get("global.resources.postagger.gate.model.path");
+    MaxentTagger reference = new MaxentTagger(taggingModel, new TaggerConfig(
+        "-model", taggingModel), false);
+    List<List<TaggedWord>> expected = new ArrayList<List<TaggedWord>>(
+        tweets.size());
     for (List<TaggedWord> tweet : tweets) {
-      taggedTweets.add(tag(tweet));
+      expected.add(reference.tagSentence(tweet, true));
+    }
+
+    int threads = Math.max(2, m_pool.size());
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<List<List<TaggedWord>>>> futures = new ArrayList<Future<List<List<TaggedWord>>>>();
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < threads; i++) {
+      futures.add(executor.submit(new Callable<List<List<TaggedWord>>>() {
+        @Override
+        public List<List<TaggedWord>> call() {
+          return tagTweets(tweets);
+        }
+      }));
+    }
+
+    int diffs = 0;
+    try {
+      for (Future<List<List<TaggedWord>>> future : futures) {
+        List<List<TaggedWord>> taggedTweets = future.get();
+        for (int i = 0; i < tweets.size(); i++) {
+          diffs += countTagDifferences(expected.get(i), taggedTweets.get(i));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+    long elapsedTime = System.currentTimeMillis() - startTime;
+    LOG.info("Concurrent pooled tagging by " + threads
+        + " threads finished after " + elapsedTime + " ms, tag differences: "
+        + diffs);
+    if (diffs > 0) {
+      throw new IllegalStateException(
+          "Concurrent pooled tagging differs from a separate tagger");
     }
-    return taggedTweets;
   }
 
-  public List<TaggedWord> tag(List<TaggedWord> pretaggedTokens) {
-    return m_posTagger.tagSentence(pretaggedTokens, true);
+  private static int countTagDifferences(List<TaggedWord> expected,
+      List<TaggedWord> tagged) {
+    if (expected.size() != tagged.size()) {
+      return Math.max(expected.size(), tagged.size());
+    }
+    int diffs = 0;
+    for (int i = 0; i < expected.size(); i++) {
+      if (!expected.get(i).tag().equals(tagged.get(i).tag())) {
+        diffs++;
+      }
+    }
+    return diffs;
   }
 
-  public static void main(String[] args) {
+  public static void main(String[] args) throws Exception {
     boolean extendedTest = true;
 
     // load tweets
@@ -89,6 +209,7 @@ public class GatePOSTagger {
     GatePOSTagger posTagger = GatePOSTagger.getInstance();
 
     // process tweets
+    List<List<TaggedWord>> preprocessedTweets = new ArrayList<List<TaggedWord>>();
     long startTime = System.currentTimeMillis();
     for (Tweet tweet : tweets) {
       // Tokenize
@@ -97,6 +218,7 @@ public class GatePOSTagger {
       // Preprocess
       List<TaggedWord> preprocessedTokens = preprocessor
           .preprocessAndTag(tokens);
+      preprocessedTweets.add(preprocessedTokens);
 
       // POS Tagging
       List<TaggedWord> taggedTokens = posTagger.tag(preprocessedTokens);
@@ -108,6 +230,8 @@ public class GatePOSTagger {
     LOG.info("POSTagger finished after " + elapsedTime + " ms");
     LOG.info("Total tweets: " + tweets.size());
     LOG.info((elapsedTime / (double) tweets.size()) + " ms per Tweet");
+
+    posTagger.testPool(preprocessedTweets);
   }
 
 }
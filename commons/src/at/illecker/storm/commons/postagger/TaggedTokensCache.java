@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.postagger;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import at.illecker.storm.commons.metric.CacheStatistics;
+import cmu.arktweetnlp.Tagger.TaggedToken;
+
+/**
+ * Bounded, thread-safe LRU cache of the tags of whole token sequences.
+ *
+ * Retweets and spam repeat the same preprocessed tokens, a hit skips the
+ * feature extraction and decoding of the whole sequence. The sequences are
+ * looked up by a 64-bit content hash and verified against the cached tokens.
+ * The cache is bounded by the estimated heap size of the cached entries.
+ * The fields of a TaggedToken are mutable, the cache therefore stores and
+ * returns copies and never shares its instances with the callers.
+ */
+public class TaggedTokensCache implements CacheStatistics {
+  // estimated heap bytes of the map entry, key, value and token array
+  private static final int ENTRY_BYTES = 128;
+  // estimated heap bytes of a TaggedToken and its token String without chars
+  private static final int TOKEN_BYTES = 72;
+
+  private final long m_maxBytes;
+  private final LinkedHashMap<Long, TaggedToken[]> m_entries;
+  private long m_bytes = 0;
+  private long m_hits = 0;
+  private long m_misses = 0;
+  private long m_evictions = 0;
+
+  public TaggedTokensCache(long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes must be positive: "
+          + maxBytes);
+    }
+    m_maxBytes = maxBytes;
+    m_entries = new LinkedHashMap<Long, TaggedToken[]>(1024, 0.75f, true);
+  }
+
+  /**
+   * Returns a new cache of maxMegaBytes or null if maxMegaBytes is 0.
+   */
+  public static TaggedTokensCache create(int maxMegaBytes) {
+    return (maxMegaBytes > 0) ? new TaggedTokensCache(
+        maxMegaBytes * 1024L * 1024L) : null;
+  }
+
+  /**
+   * Appends copies of the cached tagged tokens of tokens to taggedTokens and
+   * returns true, or returns false if tokens are not cached.
+   */
+  public boolean get(List<String> tokens, List<TaggedToken> taggedTokens) {
+    TaggedToken[] cached;
+    synchronized (this) {
+      cached = m_entries.get(hash(tokens));
+      if ((cached == null) || (!matches(cached, tokens))) {
+        m_misses++;
+        return false;
+      }
+      m_hits++;
+    }
+    for (TaggedToken taggedToken : cached) {
+      taggedTokens.add(new TaggedToken(taggedToken.token, taggedToken.tag));
+    }
+    return true;
+  }
+
+  /**
+   * Caches copies of the tagged tokens of tokens.
+   */
+  public void put(List<String> tokens, List<TaggedToken> taggedTokens) {
+    TaggedToken[] entry = new TaggedToken[taggedTokens.size()];
+    for (int i = 0; i < entry.length; i++) {
+      TaggedToken taggedToken = taggedTokens.get(i);
+      entry[i] = new TaggedToken(taggedToken.token, taggedToken.tag);
+    }
+    long bytes = bytes(entry);
+    if (bytes > m_maxBytes) {
+      return;
+    }
+    synchronized (this) {
+      TaggedToken[] previous = m_entries.put(hash(tokens), entry);
+      if (previous != null) {
+        m_bytes -= bytes(previous);
+      }
+      m_bytes += bytes;
+      // evict the least recently used entries
+      Iterator<TaggedToken[]> it = m_entries.values().iterator();
+      while (m_bytes > m_maxBytes) {
+        m_bytes -= bytes(it.next());
+        it.remove();
+        m_evictions++;
+      }
+    }
+  }
+
+  private static boolean matches(TaggedToken[] cached, List<String> tokens) {
+    if (cached.length != tokens.size()) {
+      return false;
+    }
+    for (int i = 0; i < cached.length; i++) {
+      if (!cached[i].token.equals(tokens.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long hash(List<String> tokens) {
+    long h = tokens.size();
+    for (String token : tokens) {
+      // the hash of a String is cached by the String
+      h = (h ^ token.hashCode()) * 0x9E3779B97F4A7C15L;
+      h ^= (h >>> 29);
+    }
+    return h;
+  }
+
+  private static long bytes(TaggedToken[] entry) {
+    long bytes = ENTRY_BYTES + 4L * entry.length;
+    for (TaggedToken taggedToken : entry) {
+      bytes += TOKEN_BYTES + 2L * taggedToken.token.length();
+    }
+    return bytes;
+  }
+
+  public long getMaxBytes() {
+    return m_maxBytes;
+  }
+
+  public synchronized long getBytes() {
+    return m_bytes;
+  }
+
+  @Override
+  public synchronized int size() {
+    return m_entries.size();
+  }
+
+  @Override
+  public synchronized long getHitCount() {
+    return m_hits;
+  }
+
+  @Override
+  public synchronized long getMissCount() {
+    return m_misses;
+  }
+
+  @Override
+  public synchronized long getEvictionCount() {
+    return m_evictions;
+  }
+
+  public synchronized double getHitRatio() {
+    long lookups = m_hits + m_misses;
+    return (lookups > 0) ? m_hits / (double) lookups : 0.0;
+  }
+
+  public synchronized void clear() {
+    m_entries.clear();
+    m_bytes = 0;
+  }
+}
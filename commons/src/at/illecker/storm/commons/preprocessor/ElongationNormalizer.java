@@ -0,0 +1,269 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.preprocessor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+import at.illecker.storm.commons.util.RegexUtils;
+import at.illecker.storm.commons.wordnet.WordNet;
+
+/**
+ * Removes elongations like "suuuper" by looking up the dictionary form.
+ *
+ * Each run of three or more equal chars may be shortened to 1..n chars. The
+ * candidates are ordered by the lengths of the runs from the last run to the
+ * first, longer runs first, and the first candidate found in the vocabulary
+ * is returned. If there is none, every run is collapsed to one char.
+ *
+ * The vocabulary is a trie of the reversed WordNet surface forms, so all
+ * candidates are checked in one walk from the end of the token.
+ */
+public class ElongationNormalizer {
+  private static final boolean ASCII_LOWER_CASE = !Arrays.asList("tr",
+      "az").contains(Locale.getDefault().getLanguage());
+  // max number of dictionary lookups for tokens which are not in the trie
+  private static final int MAX_CANDIDATES = 1024;
+
+  private final WordNet m_wordnet;
+  // reversed vocabulary trie, children are linked as siblings
+  private int[] m_firstChild;
+  private int[] m_nextSibling;
+  private char[] m_label;
+  private BitSet m_terminal;
+  private int m_size = 0;
+
+  public ElongationNormalizer(WordNet wordnet) {
+    m_wordnet = wordnet;
+    Set<String> surfaceForms = wordnet.getSurfaceForms();
+    if (surfaceForms != null) {
+      int capacity = 1024;
+      m_firstChild = new int[capacity];
+      m_nextSibling = new int[capacity];
+      m_label = new char[capacity];
+      m_terminal = new BitSet();
+      addNode('\0'); // root
+      for (String surfaceForm : surfaceForms) {
+        int node = 0;
+        for (int i = surfaceForm.length() - 1; i >= 0; i--) {
+          node = addChild(node, surfaceForm.charAt(i));
+        }
+        m_terminal.set(node);
+      }
+    }
+  }
+
+  private int addNode(char label) {
+    if (m_size == m_label.length) {
+      int capacity = m_size * 2;
+      m_firstChild = Arrays.copyOf(m_firstChild, capacity);
+      m_nextSibling = Arrays.copyOf(m_nextSibling, capacity);
+      m_label = Arrays.copyOf(m_label, capacity);
+    }
+    m_firstChild[m_size] = -1;
+    m_nextSibling[m_size] = -1;
+    m_label[m_size] = label;
+    return m_size++;
+  }
+
+  private int addChild(int node, char label) {
+    int child = child(node, label);
+    if (child < 0) {
+      child = addNode(label);
+      m_nextSibling[child] = m_firstChild[node];
+      m_firstChild[node] = child;
+    }
+    return child;
+  }
+
+  private int child(int node, char label) {
+    for (int child = m_firstChild[node]; child >= 0; child = m_nextSibling[child]) {
+      if (m_label[child] == label) {
+        return child;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the token without elongations, the token itself if it contains
+   * no run of three or more equal chars.
+   */
+  public String normalize(String token) {
+    if ((m_label != null) && (isTrieToken(token))) {
+      return normalizeWithTrie(token);
+    }
+    return normalizeWithDictionary(token);
+  }
+
+  /**
+   * Returns true if the lookup of the token in WordNet is the lookup of its
+   * lower case chars in the surface forms.
+   */
+  private static boolean isTrieToken(String token) {
+    for (int i = 0; i < token.length(); i++) {
+      char c = token.charAt(i);
+      if ((c <= ' ') || (c >= 0x7f) || (c == '_')
+          || ((!ASCII_LOWER_CASE) && (c >= 'A') && (c <= 'Z'))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String normalizeWithTrie(String token) {
+    // split token into runs of equal chars
+    int length = token.length();
+    int[] runStarts = new int[length];
+    int[] runLengths = new int[length];
+    int runs = 0;
+    boolean isElongated = false;
+    for (int i = 0; i < length;) {
+      int start = i;
+      char c = token.charAt(i);
+      while ((i < length) && (token.charAt(i) == c)) {
+        i++;
+      }
+      runStarts[runs] = start;
+      runLengths[runs] = i - start;
+      isElongated |= runLengths[runs] >= 3;
+      runs++;
+    }
+    if (!isElongated) {
+      return token;
+    }
+
+    int[] lengths = new int[runs];
+    if (!walk(token, runStarts, runLengths, runs - 1, 0, lengths)) {
+      // no dictionary form, collapse all elongations
+      for (int i = 0; i < runs; i++) {
+        lengths[i] = (runLengths[i] >= 3) ? 1 : runLengths[i];
+      }
+    }
+
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < runs; i++) {
+      for (int j = 0; j < lengths[i]; j++) {
+        sb.append(token.charAt(runStarts[i]));
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Walks the reversed trie from node over the runs up to run, trying the
+   * longest lengths first. Returns true and sets lengths if a surface form
+   * has been reached.
+   */
+  private boolean walk(String token, int[] runStarts, int[] runLengths,
+      int run, int node, int[] lengths) {
+    if (run < 0) {
+      return m_terminal.get(node);
+    }
+    char c = toLowerCase(token.charAt(runStarts[run]));
+    int runLength = runLengths[run];
+
+    // follow the run as far as the trie allows
+    int[] nodes = new int[runLength + 1];
+    nodes[0] = node;
+    int reachable = 0;
+    while ((reachable < runLength)
+        && ((nodes[reachable + 1] = child(nodes[reachable], c)) >= 0)) {
+      reachable++;
+    }
+
+    int minLength = (runLength >= 3) ? 1 : runLength;
+    for (int length = reachable; length >= minLength; length--) {
+      if (walk(token, runStarts, runLengths, run - 1, nodes[length], lengths)) {
+        lengths[run] = length;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static char toLowerCase(char c) {
+    return ((c >= 'A') && (c <= 'Z')) ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  /**
+   * Checks the candidates in the same order with WordNet.contains, used for
+   * tokens with chars which are normalized differently by WordNet.
+   */
+  private String normalizeWithDictionary(String token) {
+    List<int[]> runs = new ArrayList<int[]>();
+    Matcher m = RegexUtils.THREE_OR_MORE_REPEATING_CHARS_PATTERN.matcher(token);
+    while (m.find()) {
+      // start, end and length of the repeated char
+      runs.add(new int[] { m.start(), m.end(), m.end(1) - m.start(1) });
+    }
+    if (runs.isEmpty()) {
+      return token;
+    }
+
+    int[] counts = new int[runs.size()];
+    int[] candidates = new int[1];
+    String dictionaryForm = search(token, runs, runs.size() - 1, counts,
+        candidates);
+    if (dictionaryForm != null) {
+      return dictionaryForm;
+    }
+    // no dictionary form, collapse all elongations
+    return m.replaceAll("$1");
+  }
+
+  private String search(String token, List<int[]> runs, int run,
+      int[] counts, int[] candidates) {
+    if (run < 0) {
+      if (++candidates[0] > MAX_CANDIDATES) {
+        return null;
+      }
+      String candidate = candidate(token, runs, counts);
+      return m_wordnet.contains(candidate) ? candidate : null;
+    }
+    int[] r = runs.get(run);
+    for (int count = (r[1] - r[0]) / r[2]; (count >= 1)
+        && (candidates[0] <= MAX_CANDIDATES); count--) {
+      counts[run] = count;
+      String dictionaryForm = search(token, runs, run - 1, counts, candidates);
+      if (dictionaryForm != null) {
+        return dictionaryForm;
+      }
+    }
+    return null;
+  }
+
+  private static String candidate(String token, List<int[]> runs, int[] counts) {
+    StringBuilder sb = new StringBuilder(token.length());
+    int pos = 0;
+    for (int i = 0; i < runs.size(); i++) {
+      int[] r = runs.get(i);
+      sb.append(token, pos, r[0]);
+      for (int j = 0; j < counts[i]; j++) {
+        sb.append(token, r[0], r[0] + r[2]);
+      }
+      pos = r[1];
+    }
+    sb.append(token, pos, token.length());
+    return sb.toString();
+  }
+}
@@ -18,7 +18,6 @@ package at.illecker.storm.commons.preprocessor;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Matcher;
 
@@ -31,8 +30,11 @@ import at.illecker.storm.commons.dict.FirstNames;
 import at.illecker.storm.commons.dict.Interjections;
 import at.illecker.storm.commons.dict.NameEntities;
 import at.illecker.storm.commons.dict.SlangCorrection;
+import at.illecker.storm.commons.tokenizer.TokenClass;
+import at.illecker.storm.commons.tokenizer.TokenSpans;
 import at.illecker.storm.commons.tokenizer.Tokenizer;
 import at.illecker.storm.commons.tweet.Tweet;
+import at.illecker.storm.commons.util.ParallelUtils;
 import at.illecker.storm.commons.util.RegexUtils;
 import at.illecker.storm.commons.util.StringUtils;
 import at.illecker.storm.commons.wordnet.WordNet;
@@ -43,16 +45,31 @@ public class Preprocessor {
   private static final boolean LOGGING = Configuration.get(
       "commons.preprocessor.logging", false);
   private static final Preprocessor INSTANCE = new Preprocessor();
+  private static final ThreadLocal<TokenSpans> TOKEN_SPANS = new ThreadLocal<TokenSpans>() {
+    @Override
+    protected TokenSpans initialValue() {
+      return new TokenSpans();
+    }
+  };
 
+  private TokenCache<CachedToken> m_cache;
   private WordNet m_wordnet;
+  private ElongationNormalizer m_elongationNormalizer;
   private SlangCorrection m_slangCorrection;
   private FirstNames m_firstNames;
   private NameEntities m_nameEntities;
   private Interjections m_interjections;
 
   private Preprocessor() {
+    // JVM-wide token cache, shared by all executors of a worker
+    int cacheSize = Configuration.get("commons.preprocessor.cache.size",
+        100000);
+    if (cacheSize > 0) {
+      m_cache = new TokenCache<CachedToken>(cacheSize);
+    }
     // Load WordNet
     m_wordnet = WordNet.getInstance();
+    m_elongationNormalizer = new ElongationNormalizer(m_wordnet);
     // Load Slang correction
     m_slangCorrection = SlangCorrection.getInstance();
     // Load FirstNames
@@ -67,238 +84,327 @@ public class Preprocessor {
     return INSTANCE;
   }
 
+  /**
+   * Returns the token cache or null if it is disabled.
+   */
+  public TokenCache<?> getCache() {
+    return m_cache;
+  }
+
   public List<String> preprocess(List<String> tokens) {
-    // tail recursion
-    return preprocessAccumulator(new LinkedList<String>(tokens), false,
-        new ArrayList<String>());
+    List<String> processedTokens = new ArrayList<String>(tokens.size());
+    preprocess(tokenSpans(tokens), processedTokens);
+    return processedTokens;
   }
 
   public List<TaggedWord> preprocessAndTag(List<String> tokens) {
-    // tail recursion
-    return preprocessAccumulator(new LinkedList<String>(tokens), true,
-        new ArrayList<TaggedWord>());
+    List<TaggedWord> processedTokens = new ArrayList<TaggedWord>(
+        tokens.size());
+    preprocessAndTag(tokenSpans(tokens), processedTokens);
+    return processedTokens;
+  }
+
+  public List<String> preprocess(TokenSpans tokens) {
+    List<String> processedTokens = new ArrayList<String>(tokens.size());
+    preprocess(tokens, processedTokens);
+    return processedTokens;
   }
 
-  @SuppressWarnings("unchecked")
-  private <T> List<T> preprocessAccumulator(LinkedList<String> tokens,
-      boolean pretag, List<T> processedTokens) {
+  public List<TaggedWord> preprocessAndTag(TokenSpans tokens) {
+    List<TaggedWord> processedTokens = new ArrayList<TaggedWord>(
+        tokens.size());
+    preprocessAndTag(tokens, processedTokens);
+    return processedTokens;
+  }
+
+  /**
+   * Preprocesses the given tokens and appends the results to processedTokens.
+   */
+  public void preprocess(TokenSpans tokens, List<String> processedTokens) {
+    for (int i = 0; i < tokens.size(); i++) {
+      preprocessToken(tokens, i, processedTokens, null);
+    }
+  }
 
-    if (tokens.isEmpty()) {
-      return processedTokens;
+  /**
+   * Preprocesses and pretags the given tokens and appends the results to
+   * processedTokens.
+   */
+  public void preprocessAndTag(TokenSpans tokens,
+      List<TaggedWord> processedTokens) {
+    for (int i = 0; i < tokens.size(); i++) {
+      preprocessToken(tokens, i, null, processedTokens);
+    }
+  }
+
+  private static TokenSpans tokenSpans(List<String> tokens) {
+    TokenSpans tokenSpans = TOKEN_SPANS.get();
+    tokenSpans.reset(tokens);
+    return tokenSpans;
+  }
+
+  /**
+   * Preprocesses the token at index of the given spans. Results are added to
+   * processedTokens or, if it is null, pretagged to taggedTokens.
+   */
+  private void preprocessToken(TokenSpans tokens, int index,
+      List<String> processedTokens, List<TaggedWord> taggedTokens) {
+    if (m_cache == null) {
+      processToken(tokens, index, processedTokens, taggedTokens);
+      return;
+    }
+
+    // the result only depends on the token itself, the lookup works on the
+    // char range and the key String is only created for a new entry
+    char[] text = tokens.getText();
+    int offset = tokens.getOffset(index);
+    int length = tokens.getLength(index);
+    CachedToken cachedToken = m_cache.get(text, offset, length);
+    if ((cachedToken != null)
+        && ((processedTokens != null) || (cachedToken.tags != null))) {
+      cachedToken.addTo(processedTokens, taggedTokens);
+      return;
+    }
+
+    if (processedTokens != null) {
+      int start = processedTokens.size();
+      processToken(tokens, index, processedTokens, taggedTokens);
+      m_cache.put(text, offset, length, new CachedToken(processedTokens
+          .subList(start, processedTokens.size())));
     } else {
-      // remove token from queue
-      String token = tokens.removeFirst();
-
-      // identify token
-      boolean tokenContainsPunctuation = StringUtils
-          .consitsOfPunctuations(token);
-      boolean tokenIsEmoticon = StringUtils.isEmoticon(token);
-      boolean tokenIsURL = StringUtils.isURL(token);
-      boolean tokenIsNumeric = StringUtils.isNumeric(token);
-
-      // Step 1) Unify Emoticons remove repeating chars
-      if ((tokenIsEmoticon) && (!tokenIsURL) && (!tokenIsNumeric)) {
-        Matcher m = RegexUtils.TWO_OR_MORE_REPEATING_CHARS_PATTERN
-            .matcher(token);
-        if (m.find()) {
-          boolean isSpecialEmoticon = m.group(1).equals("^");
-          String reducedToken = m.replaceAll("$1");
-          if (isSpecialEmoticon) { // keep ^^
-            reducedToken += "^";
-          }
-          // else {
-          // TODO
-          // Preprocess token again if there are recursive patterns in it
-          // e.g., :):):) -> :):) -> :) Not possible because of Tokenizer
-          // tokens.add(0, reducedToken);
-          // }
-          if (LOGGING) {
-            LOG.info("Unify Emoticon from '" + token + "' to '" + reducedToken
-                + "'");
-          }
+      int start = taggedTokens.size();
+      processToken(tokens, index, processedTokens, taggedTokens);
+      m_cache.put(text, offset, length, new CachedToken(taggedTokens, start));
+    }
+  }
 
-          if (pretag) {
-            processedTokens.add((T) new TaggedWord(reducedToken, "UH"));
-          } else {
-            processedTokens.add((T) reducedToken);
-          }
-          return preprocessAccumulator(tokens, pretag, processedTokens);
+  /**
+   * Dictionary lookups work on the char range of the token, Strings are only
+   * created for the processed tokens.
+   */
+  private void processToken(TokenSpans tokens, int index,
+      List<String> processedTokens, List<TaggedWord> taggedTokens) {
+    char[] text = tokens.getText();
+    int offset = tokens.getOffset(index);
+    int length = tokens.getLength(index);
+
+    // identify token
+    int tokenClass = TokenClass.classify(text, offset, length);
+    boolean tokenContainsPunctuation = TokenClass.is(tokenClass,
+        TokenClass.PUNCTUATIONS);
+    boolean tokenIsEmoticon = TokenClass.is(tokenClass, TokenClass.EMOTICON);
+    boolean tokenIsURL = TokenClass.is(tokenClass, TokenClass.URL);
+    boolean tokenIsNumeric = TokenClass.is(tokenClass, TokenClass.NUMERIC);
+
+    // Step 1) Unify Emoticons remove repeating chars
+    if ((tokenIsEmoticon) && (!tokenIsURL) && (!tokenIsNumeric)) {
+      String token = tokens.getToken(index);
+      Matcher m = RegexUtils.TWO_OR_MORE_REPEATING_CHARS_PATTERN.matcher(token);
+      if (m.find()) {
+        boolean isSpecialEmoticon = m.group(1).equals("^");
+        String reducedToken = m.replaceAll("$1");
+        if (isSpecialEmoticon) { // keep ^^
+          reducedToken += "^";
         }
-      } else if (tokenContainsPunctuation) {
-        // If token is no Emoticon then there is no further
-        // preprocessing for punctuations
-        if (pretag) {
-          processedTokens.add((T) new TaggedWord(token));
-        } else {
-          processedTokens.add((T) token);
+        // else {
+        // TODO
+        // Preprocess token again if there are recursive patterns in it
+        // e.g., :):):) -> :):) -> :) Not possible because of Tokenizer
+        // tokens.add(0, reducedToken);
+        // }
+        if (LOGGING) {
+          LOG.info("Unify Emoticon from '" + token + "' to '" + reducedToken
+              + "'");
         }
-        return preprocessAccumulator(tokens, pretag, processedTokens);
+
+        addToken(reducedToken, "UH", processedTokens, taggedTokens);
+        return;
       }
+    } else if (tokenContainsPunctuation) {
+      // If token is no Emoticon then there is no further
+      // preprocessing for punctuations
+      addToken(tokens.getToken(index), null, processedTokens, taggedTokens);
+      return;
+    }
 
-      // identify token
-      boolean tokenIsUser = StringUtils.isUser(token);
-      boolean tokenIsHashTag = StringUtils.isHashTag(token);
-      boolean tokenIsSlang = StringUtils.isSlang(token);
-      boolean tokenIsEmail = StringUtils.isEmail(token);
-      boolean tokenIsPhone = StringUtils.isPhone(token);
-      boolean tokenIsSpecialNumeric = StringUtils.isSpecialNumeric(token);
-      boolean tokenIsSeparatedNumeric = StringUtils.isSeparatedNumeric(token);
-
-      // Step 2) Slang Correction
-      // TODO prevent slang correction if all UPPERCASE
-      // 'FC' to [fruit, cake]
-      // 'Ajax' to [Asynchronous, Javascript, and, XML]
-      // 'TL' to [dr too, long, didn't, read]
-      // S.O.L - SOL - [s**t, outta, luck]
-      // 'AC/DC' to 'AC' and 'DC' - 'DC' to [don't, care]
-      // TODO update dictionary O/U O/A
-      if ((!tokenIsEmoticon) && (!tokenIsUser) && (!tokenIsHashTag)
-          && (!tokenIsURL) && (!tokenIsNumeric) && (!tokenIsSpecialNumeric)
-          && (!tokenIsSeparatedNumeric) && (!tokenIsEmail) && (!tokenIsPhone)) {
-        String[] slangCorrection = m_slangCorrection.getCorrection(token
-            .toLowerCase());
-        if (slangCorrection != null) {
-          for (int i = 0; i < slangCorrection.length; i++) {
-            if (pretag) {
-              // PreTagging for POS Tagger
-              TaggedWord preTaggedToken = pretagToken(slangCorrection[i],
-                  tokenIsHashTag, tokenIsUser, tokenIsURL);
-              processedTokens.add((T) preTaggedToken);
-            } else {
-              processedTokens.add((T) slangCorrection[i]);
-            }
-          }
+    // identify token
+    boolean tokenIsUser = TokenClass.is(tokenClass, TokenClass.USER);
+    boolean tokenIsHashTag = TokenClass.is(tokenClass, TokenClass.HASH_TAG);
+    boolean tokenIsSlang = TokenClass.is(tokenClass, TokenClass.SLANG);
+    boolean tokenIsSpecialToken = TokenClass.is(tokenClass,
+        TokenClass.SPECIAL_TOKEN);
+
+    // Step 2) Slang Correction
+    // TODO prevent slang correction if all UPPERCASE
+    // 'FC' to [fruit, cake]
+    // 'Ajax' to [Asynchronous, Javascript, and, XML]
+    // 'TL' to [dr too, long, didn't, read]
+    // S.O.L - SOL - [s**t, outta, luck]
+    // 'AC/DC' to 'AC' and 'DC' - 'DC' to [don't, care]
+    // TODO update dictionary O/U O/A
+    if (!tokenIsSpecialToken) {
+      String[] slangCorrection = m_slangCorrection.getCorrectionLowerCase(
+          text, offset, length);
+      if (slangCorrection != null) {
+        for (int i = 0; i < slangCorrection.length; i++) {
+          addPretaggedToken(slangCorrection[i], tokenClass, processedTokens,
+              taggedTokens);
+        }
+        if (LOGGING) {
+          LOG.info("Slang Correction from '" + tokens.getToken(index)
+              + "' to " + Arrays.toString(slangCorrection));
+        }
+        return;
+      } else if (tokenIsSlang) {
+        if (tokens.startsWith(index, "w/")) {
+          String word = new String(text, offset + 2, length - 2);
+          addToken("with", null, processedTokens, taggedTokens);
+          addPretaggedToken(word, tokenClass, processedTokens, taggedTokens);
           if (LOGGING) {
-            LOG.info("Slang Correction from '" + token + "' to "
-                + Arrays.toString(slangCorrection));
+            LOG.info("Slang Correction from '" + tokens.getToken(index)
+                + "' to " + "[with, " + word + "]");
           }
-          return preprocessAccumulator(tokens, pretag, processedTokens);
-        } else if (tokenIsSlang) {
-          if (token.startsWith("w/")) {
-            if (pretag) {
-              processedTokens.add((T) new TaggedWord("with"));
-              // PreTagging for POS Tagger
-              TaggedWord preTaggedToken = pretagToken(token.substring(2),
-                  tokenIsHashTag, tokenIsUser, tokenIsURL);
-              processedTokens.add((T) preTaggedToken);
-            } else {
-              processedTokens.add((T) "with");
-              processedTokens.add((T) token.substring(2));
-            }
-            if (LOGGING) {
-              LOG.info("Slang Correction from '" + token + "' to " + "[with, "
-                  + token.substring(2) + "]");
-            }
-            return preprocessAccumulator(tokens, pretag, processedTokens);
-          } else {
-            if (LOGGING) {
-              LOG.info("Slang Correction might be missing for '" + token + "'");
-            }
+          return;
+        } else {
+          if (LOGGING) {
+            LOG.info("Slang Correction might be missing for '"
+                + tokens.getToken(index) + "'");
           }
         }
       }
+    }
 
-      // Step 3) Check if there are punctuations between words
-      // e.g., L.O.V.E
-      if ((!tokenIsEmoticon) && (!tokenIsUser) && (!tokenIsHashTag)
-          && (!tokenIsURL) && (!tokenIsNumeric) && (!tokenIsSpecialNumeric)
-          && (!tokenIsSeparatedNumeric) && (!tokenIsEmail) && (!tokenIsPhone)) {
-        // remove alternating letter dot pattern e.g., L.O.V.E
-        Matcher m = RegexUtils.ALTERNATING_LETTER_DOT_PATTERN.matcher(token);
-        if (m.matches()) {
-          String newToken = token.replaceAll("\\.", "");
-          if (m_wordnet.contains(newToken)) {
-            if (LOGGING) {
-              LOG.info("Remove punctuations in word from '" + token + "' to '"
-                  + newToken + "'");
-            }
-            token = newToken;
-            if (pretag) {
-              // PreTagging for POS Tagger
-              TaggedWord preTaggedToken = pretagToken(token, tokenIsHashTag,
-                  tokenIsUser, tokenIsURL);
-              processedTokens.add((T) preTaggedToken);
-            } else {
-              processedTokens.add((T) token);
-            }
-            return preprocessAccumulator(tokens, pretag, processedTokens);
+    // Step 3) Check if there are punctuations between words
+    // e.g., L.O.V.E
+    if (!tokenIsSpecialToken) {
+      // remove alternating letter dot pattern e.g., L.O.V.E
+      if (TokenClass.is(tokenClass, TokenClass.ALTERNATING_LETTER_DOT)) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = offset; i < offset + length; i++) {
+          if (text[i] != '.') {
+            sb.append(text[i]);
           }
         }
-      }
-
-      // Step 4) Add missing g in gerund forms e.g., goin
-      if ((!tokenIsUser) && (!tokenIsHashTag) && (!tokenIsURL)
-          && (token.endsWith("in")) && (!m_firstNames.isFirstName(token))
-          && (!m_wordnet.contains(token.toLowerCase()))) {
-        // append "g" if a word ends with "in" and is not in the vocabulary
-        if (LOGGING) {
-          LOG.info("Add missing \"g\" from '" + token + "' to '" + token + "g'");
-        }
-        token = token + "g";
-        if (pretag) {
-          // PreTagging for POS Tagger, because it could be a interjection
-          TaggedWord preTaggedToken = pretagToken(token, tokenIsHashTag,
-              tokenIsUser, tokenIsURL);
-          processedTokens.add((T) preTaggedToken);
-        } else {
-          processedTokens.add((T) token);
+        String newToken = sb.toString();
+        if (m_wordnet.contains(newToken)) {
+          if (LOGGING) {
+            LOG.info("Remove punctuations in word from '"
+                + tokens.getToken(index) + "' to '" + newToken + "'");
+          }
+          addPretaggedToken(newToken, tokenClass, processedTokens,
+              taggedTokens);
+          return;
         }
-        return preprocessAccumulator(tokens, pretag, processedTokens);
       }
+    }
+
+    String token = tokens.getToken(index);
 
-      // Step 5) Remove elongations of characters (suuuper)
-      // 'lollll' to 'loll' because 'loll' is found in dict
-      // TODO 'AHHHHH' to 'AH'
-      if ((!tokenIsEmoticon) && (!tokenIsUser) && (!tokenIsHashTag)
-          && (!tokenIsURL) && (!tokenIsNumeric) && (!tokenIsSpecialNumeric)
-          && (!tokenIsSeparatedNumeric) && (!tokenIsEmail) && (!tokenIsPhone)) {
+    // Step 4) Add missing g in gerund forms e.g., goin
+    if ((!tokenIsUser) && (!tokenIsHashTag) && (!tokenIsURL)
+        && (tokens.endsWith(index, "in"))
+        && (!m_firstNames.isFirstName(text, offset, length))
+        && (!m_wordnet.contains(token.toLowerCase()))) {
+      // append "g" if a word ends with "in" and is not in the vocabulary
+      if (LOGGING) {
+        LOG.info("Add missing \"g\" from '" + token + "' to '" + token + "g'");
+      }
+      token = token + "g";
+      // PreTagging for POS Tagger, because it could be a interjection
+      addPretaggedToken(token, tokenClass, processedTokens, taggedTokens);
+      return;
+    }
 
-        // remove repeating chars
-        token = removeRepeatingChars(token);
+    // Step 5) Remove elongations of characters (suuuper)
+    // 'lollll' to 'loll' because 'loll' is found in dict
+    // TODO 'AHHHHH' to 'AH'
+    if ((!tokenIsSpecialToken)
+        && (containsRepeatingChars(text, offset, length))) {
+
+      // remove repeating chars
+      String reducedToken = m_elongationNormalizer.normalize(token);
+      if ((LOGGING) && (!reducedToken.equals(token))) {
+        LOG.info("Remove elongations from '" + token + "' to '"
+            + reducedToken + "'");
+      }
 
-        // Step 5b) Try Slang Correction again
+      // Step 5b) Try Slang Correction again
+      // (an unchanged token has already been checked in step 2)
+      if (!reducedToken.equals(token)) {
+        token = reducedToken;
         String[] slangCorrection = m_slangCorrection.getCorrection(token
             .toLowerCase());
         if (slangCorrection != null) {
           for (int i = 0; i < slangCorrection.length; i++) {
-            if (pretag) {
-              // PreTagging for POS Tagger
-              TaggedWord preTaggedToken = pretagToken(slangCorrection[i],
-                  tokenIsHashTag, tokenIsUser, tokenIsURL);
-              processedTokens.add((T) preTaggedToken);
-            } else {
-              processedTokens.add((T) slangCorrection[i]);
-            }
+            addPretaggedToken(slangCorrection[i], tokenClass,
+                processedTokens, taggedTokens);
           }
           if (LOGGING) {
             LOG.info("Slang Correction from '" + token + "' to "
                 + Arrays.toString(slangCorrection));
           }
-          return preprocessAccumulator(tokens, pretag, processedTokens);
+          return;
         }
       }
+    }
 
-      // add token to processed list
-      if (pretag) {
-        // PreTagging for POS Tagger
-        TaggedWord preTaggedToken = pretagToken(token, tokenIsHashTag,
-            tokenIsUser, tokenIsURL);
-        processedTokens.add((T) preTaggedToken);
-      } else {
-        processedTokens.add((T) token);
+    // add token to processed list
+    addPretaggedToken(token, tokenClass, processedTokens, taggedTokens);
+  }
+
+  private static void addToken(String token, String tag,
+      List<String> processedTokens, List<TaggedWord> taggedTokens) {
+    if (processedTokens != null) {
+      processedTokens.add(token);
+    } else {
+      taggedTokens.add(new TaggedWord(token, tag));
+    }
+  }
+
+  private void addPretaggedToken(String token, int tokenClass,
+      List<String> processedTokens, List<TaggedWord> taggedTokens) {
+    if (processedTokens != null) {
+      processedTokens.add(token);
+    } else {
+      // PreTagging for POS Tagger
+      taggedTokens.add(pretagToken(token, tokenClass));
+    }
+  }
+
+  /**
+   * Returns false if the token contains no three repeating chars and
+   * the ElongationNormalizer would return it unchanged.
+   */
+  private static boolean containsRepeatingChars(char[] text, int offset,
+      int length) {
+    int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      char c = text[i];
+      if (Character.isSurrogate(c)) {
+        // repeating supplementary code points
+        return true;
+      }
+      if ((i + 2 < end) && (text[i + 1] == c) && (text[i + 2] == c)
+          && (!isLineTerminator(c))) {
+        return true;
       }
-      return preprocessAccumulator(tokens, pretag, processedTokens);
     }
+    return false;
+  }
+
+  private static boolean isLineTerminator(char c) {
+    // chars not matched by the regex dot
+    return (c == '\n') || (c == '\r') || (c == '\u0085') || (c == '\u2028')
+        || (c == '\u2029');
   }
 
-  private TaggedWord pretagToken(String token, boolean tokenIsHashTag,
-      boolean tokenIsUser, boolean tokenIsURL) {
+  private TaggedWord pretagToken(String token, int tokenClass) {
     TaggedWord preTaggedToken = new TaggedWord(token);
-    if (tokenIsHashTag) {
+    if (TokenClass.is(tokenClass, TokenClass.HASH_TAG)) {
       preTaggedToken.setTag("HT");
-    } else if (tokenIsUser) {
+    } else if (TokenClass.is(tokenClass, TokenClass.USER)) {
       preTaggedToken.setTag("USR");
-    } else if (tokenIsURL) {
+    } else if (TokenClass.is(tokenClass, TokenClass.URL)) {
       preTaggedToken.setTag("URL");
     } else if (StringUtils.isRetweet(token)) {
       preTaggedToken.setTag("RT");
@@ -308,7 +414,7 @@ public class Preprocessor {
       }
       preTaggedToken.setTag("NNP");
     } else if ((m_interjections.isInterjection(token))
-        || (StringUtils.isEmoticon(token))) {
+        || (TokenClass.is(TokenClass.classify(token), TokenClass.EMOTICON))) {
       if (LOGGING) {
         LOG.info("Interjection or Emoticon labelled for " + token);
       }
@@ -317,78 +423,41 @@ public class Preprocessor {
     return preTaggedToken;
   }
 
-  private String removeRepeatingChars(String value) {
-    // if there are three repeating equal chars
-    // then remove one char until the word is found in the vocabulary
-    // else if the word is not found reduce the repeating chars to one
-
-    // collect matches for sub-token search
-    List<int[]> matches = new ArrayList<int[]>();
-
-    Matcher m = RegexUtils.THREE_OR_MORE_REPEATING_CHARS_PATTERN.matcher(value);
-    while (m.find()) {
-      int start = m.start();
-      int end = m.end();
-      // String c = m.group(1);
-      // LOG.info("token: '" + value + "' match at start: " + start + " end: "
-      // + end);
-
-      // check if token is not in the vocabulary
-      if (!m_wordnet.contains(value)) {
-        // collect matches for subtoken check
-        matches.add(new int[] { start, end });
-
-        StringBuilder sb = new StringBuilder(value);
-        for (int i = 0; i < end - start - 1; i++) {
-          sb.deleteCharAt(start); // delete repeating char
-
-          // LOG.info("check token: '" + sb.toString() + "'");
-          // check if token is in the vocabulary
-          if (m_wordnet.contains(sb.toString())) {
-            if (LOGGING) {
-              LOG.info("removeRepeatingChars from token '" + value + "' to '"
-                  + sb + "'");
-            }
-            return sb.toString();
-          }
+  /**
+   * Preprocessed words of a token and their pretags, tags are null if the
+   * token has only been preprocessed without tagging.
+   */
+  private static final class CachedToken {
+    final String[] words;
+    final String[] tags;
+
+    CachedToken(List<String> words) {
+      this.words = words.toArray(new String[words.size()]);
+      this.tags = null;
+    }
 
-          // if the token is not in the vocabulary check all combinations
-          // of prior matches
-          // TODO really necessary?
-          for (int j = 0; j < matches.size(); j++) {
-            int startSub = matches.get(j)[0];
-            int endSub = matches.get(j)[1];
-            if (startSub != start) {
-              StringBuilder subSb = new StringBuilder(sb);
-              for (int k = 0; k < endSub - startSub - 1; k++) {
-                subSb.deleteCharAt(startSub);
-
-                // LOG.info("check subtoken: '" + subSb.toString() + "'");
-                if (m_wordnet.contains(subSb.toString())) {
-                  if (LOGGING) {
-                    LOG.info("removeRepeatingChars from '" + value + "' to '"
-                        + subSb + "'");
-                  }
-                  return subSb.toString();
-                }
-              }
-            }
-          }
-        }
+    CachedToken(List<TaggedWord> taggedWords, int start) {
+      int size = taggedWords.size() - start;
+      this.words = new String[size];
+      this.tags = new String[size];
+      for (int i = 0; i < size; i++) {
+        TaggedWord taggedWord = taggedWords.get(start + i);
+        this.words[i] = taggedWord.word();
+        this.tags[i] = taggedWord.tag();
       }
     }
 
-    // no match have been found
-    // reduce all repeating chars
-    if (!matches.isEmpty()) {
-      String reducedToken = m.replaceAll("$1");
-      if (LOGGING) {
-        LOG.info("removeRepeatingChars(not found in dict) from '" + value
-            + "' to '" + reducedToken + "'");
+    void addTo(List<String> processedTokens, List<TaggedWord> taggedTokens) {
+      if (processedTokens != null) {
+        for (int i = 0; i < words.length; i++) {
+          processedTokens.add(words[i]);
+        }
+      } else {
+        for (int i = 0; i < words.length; i++) {
+          taggedTokens.add(new TaggedWord(words[i], tags[i]));
+        }
       }
-      value = reducedToken;
     }
-    return value;
   }
 
   public List<List<String>> preprocessTweets(List<List<String>> tweets) {
@@ -407,6 +476,34 @@ public class Preprocessor {
     return preprocessedTweets;
   }
 
+  /**
+   * Preprocesses the tweets in parallel, the order of the tweets is preserved.
+   */
+  public List<List<String>> preprocessTweetsParallel(List<List<String>> tweets) {
+    return ParallelUtils.map(tweets,
+        new ParallelUtils.Task<List<String>, List<String>>() {
+          @Override
+          public List<String> apply(List<String> tweet) {
+            return preprocess(tweet);
+          }
+        });
+  }
+
+  /**
+   * Preprocesses and pretags the tweets in parallel, the order of the tweets
+   * is preserved.
+   */
+  public List<List<TaggedWord>> preprocessAndTagTweetsParallel(
+      List<List<String>> tweets) {
+    return ParallelUtils.map(tweets,
+        new ParallelUtils.Task<List<String>, List<TaggedWord>>() {
+          @Override
+          public List<TaggedWord> apply(List<String> tweet) {
+            return preprocessAndTag(tweet);
+          }
+        });
+  }
+
   public static void main(String[] args) {
     Preprocessor preprocessor = Preprocessor.getInstance();
     List<Tweet> tweets = null;
@@ -474,6 +571,55 @@ public class Preprocessor {
     LOG.info("PreprocessAndTag finished after "
         + (System.currentTimeMillis() - startTime) + " ms");
 
+    // Tokenize and preprocess token spans
+    startTime = System.currentTimeMillis();
+    TokenSpans tokenSpans = new TokenSpans();
+    List<String> preprocessedSpans = new ArrayList<String>();
+    List<TaggedWord> preprocessedTaggedSpans = new ArrayList<TaggedWord>();
+    int differences = 0;
+    for (int i = 0; i < tweets.size(); i++) {
+      Tokenizer.tokenize(tweets.get(i).getText(), tokenSpans);
+      preprocessedSpans.clear();
+      preprocessor.preprocess(tokenSpans, preprocessedSpans);
+      if (!preprocessedSpans.equals(preprocessedTweets.get(i))) {
+        differences++;
+        LOG.error("Preprocessed: '" + preprocessedTweets.get(i)
+            + "' TokenSpans: '" + preprocessedSpans + "'");
+      }
+      preprocessedTaggedSpans.clear();
+      preprocessor.preprocessAndTag(tokenSpans, preprocessedTaggedSpans);
+      if (!preprocessedTaggedSpans.toString().equals(
+          preprocessedTaggedTweets.get(i).toString())) {
+        differences++;
+        LOG.error("PreprocessedTagged: '" + preprocessedTaggedTweets.get(i)
+            + "' TokenSpans: '" + preprocessedTaggedSpans + "'");
+      }
+    }
+    LOG.info("Tokenize and preprocess token spans finished after "
+        + (System.currentTimeMillis() - startTime) + " ms, " + differences
+        + " differences");
+
+    // Preprocess in parallel
+    startTime = System.currentTimeMillis();
+    List<List<String>> parallelPreprocessedTweets = preprocessor
+        .preprocessTweetsParallel(tokenizedTweets);
+    List<List<TaggedWord>> parallelPreprocessedTaggedTweets = preprocessor
+        .preprocessAndTagTweetsParallel(tokenizedTweets);
+    boolean equalResults = preprocessedTweets
+        .equals(parallelPreprocessedTweets)
+        && preprocessedTaggedTweets.toString().equals(
+            parallelPreprocessedTaggedTweets.toString());
+    LOG.info("Parallel preprocess and preprocessAndTag finished after "
+        + (System.currentTimeMillis() - startTime) + " ms, equal results: "
+        + equalResults);
+
+    TokenCache<?> cache = preprocessor.getCache();
+    if (cache != null) {
+      LOG.info("Token cache size: " + cache.size() + " hits: "
+          + cache.getHitCount() + " misses: " + cache.getMissCount()
+          + " evictions: " + cache.getEvictionCount());
+    }
+
     if (debugOutput) {
       for (int i = 0; i < tweets.size(); i++) {
         LOG.info("Tweet: '" + tweets.get(i).getText() + "'");
@@ -0,0 +1,333 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.preprocessor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import at.illecker.storm.commons.metric.CacheStatistics;
+
+/**
+ * Bounded, thread-safe cache with a segmented LRU policy.
+ *
+ * The keys are partitioned into independently locked segments. Each segment
+ * admits new entries into a probationary LRU and promotes them into a
+ * protected LRU on the second hit, so frequent tokens are not flushed by a
+ * burst of rare ones. Keys can be looked up by a char range, a String is
+ * only created when a new entry is put.
+ */
+public class TokenCache<V> implements CacheStatistics {
+  private static final int SEGMENTS = 16;
+  private static final double PROTECTED_RATIO = 0.8;
+
+  private final Segment<V>[] m_segments;
+  private final int m_capacity;
+
+  public TokenCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: "
+          + capacity);
+    }
+    m_capacity = capacity;
+    int segments = (capacity < SEGMENTS * 16) ? 1 : SEGMENTS;
+    m_segments = newSegments(segments);
+    for (int i = 0; i < segments; i++) {
+      int segmentCapacity = capacity / segments
+          + ((i < capacity % segments) ? 1 : 0);
+      m_segments[i] = new Segment<V>(segmentCapacity);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> Segment<V>[] newSegments(int length) {
+    // arrays of a generic type cannot be created
+    return (Segment<V>[]) new Segment<?>[length];
+  }
+
+  private Segment<V> segment(int hash) {
+    int h = hash ^ (hash >>> 16);
+    return m_segments[(h & 0x7fffffff) % m_segments.length];
+  }
+
+  /**
+   * Returns the String hash of the char range.
+   */
+  private static int hash(char[] text, int offset, int length) {
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + text[i];
+    }
+    return hash;
+  }
+
+  public V get(String key) {
+    int hash = key.hashCode();
+    return segment(hash).get(key, hash);
+  }
+
+  /**
+   * Returns the value of the key in the char range, the lookup does not
+   * allocate.
+   */
+  public V get(char[] text, int offset, int length) {
+    int hash = hash(text, offset, length);
+    return segment(hash).get(text, offset, length, hash);
+  }
+
+  public void put(String key, V value) {
+    segment(key.hashCode()).put(key, value);
+  }
+
+  public void put(char[] text, int offset, int length, V value) {
+    put(new String(text, offset, length), value);
+  }
+
+  public int getCapacity() {
+    return m_capacity;
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Segment<V> segment : m_segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  @Override
+  public long getHitCount() {
+    long hits = 0;
+    for (Segment<V> segment : m_segments) {
+      hits += segment.getHitCount();
+    }
+    return hits;
+  }
+
+  @Override
+  public long getMissCount() {
+    long misses = 0;
+    for (Segment<V> segment : m_segments) {
+      misses += segment.getMissCount();
+    }
+    return misses;
+  }
+
+  @Override
+  public long getEvictionCount() {
+    long evictions = 0;
+    for (Segment<V> segment : m_segments) {
+      evictions += segment.getEvictionCount();
+    }
+    return evictions;
+  }
+
+  public void clear() {
+    for (Segment<V> segment : m_segments) {
+      segment.clear();
+    }
+  }
+
+  /**
+   * Key of an entry or of a lookup, a String or a char range with the hash
+   * of the equal String.
+   */
+  private static final class Key {
+    private String m_string;
+    private char[] m_text;
+    private int m_offset;
+    private int m_length;
+    private int m_hash;
+
+    Key set(String string, int hash) {
+      m_string = string;
+      m_text = null;
+      m_offset = 0;
+      m_length = string.length();
+      m_hash = hash;
+      return this;
+    }
+
+    Key set(char[] text, int offset, int length, int hash) {
+      m_string = null;
+      m_text = text;
+      m_offset = offset;
+      m_length = length;
+      m_hash = hash;
+      return this;
+    }
+
+    void clear() {
+      m_string = null;
+      m_text = null;
+    }
+
+    private char charAt(int index) {
+      return (m_text != null) ? m_text[m_offset + index] : m_string
+          .charAt(index);
+    }
+
+    @Override
+    public int hashCode() {
+      return m_hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      if ((m_hash != other.m_hash) || (m_length != other.m_length)) {
+        return false;
+      }
+      if ((m_string != null) && (other.m_string != null)) {
+        return m_string.equals(other.m_string);
+      }
+      for (int i = 0; i < m_length; i++) {
+        if (charAt(i) != other.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Entry of a segment, it keeps the stored key for moves between the LRUs.
+   */
+  private static final class Node<V> {
+    final Key key;
+    V value;
+
+    Node(Key key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private static final class Segment<V> {
+    private final LinkedHashMap<Key, Node<V>> m_probation;
+    private final LinkedHashMap<Key, Node<V>> m_protected;
+    private final int m_probationCapacity;
+    private final int m_protectedCapacity;
+    // reused key of the lookups, only used while holding the lock
+    private final Key m_probe = new Key();
+    private long m_hits = 0;
+    private long m_misses = 0;
+    private long m_evictions = 0;
+
+    Segment(int capacity) {
+      m_protectedCapacity = (int) (capacity * PROTECTED_RATIO);
+      m_probationCapacity = Math.max(1, capacity - m_protectedCapacity);
+      m_probation = new LinkedHashMap<Key, Node<V>>(16, 0.75f, true);
+      m_protected = new LinkedHashMap<Key, Node<V>>(16, 0.75f, true);
+    }
+
+    synchronized V get(String key, int hash) {
+      try {
+        return get(m_probe.set(key, hash));
+      } finally {
+        m_probe.clear();
+      }
+    }
+
+    synchronized V get(char[] text, int offset, int length, int hash) {
+      try {
+        return get(m_probe.set(text, offset, length, hash));
+      } finally {
+        m_probe.clear();
+      }
+    }
+
+    private V get(Key key) {
+      Node<V> node = m_protected.get(key);
+      if (node != null) {
+        m_hits++;
+        return node.value;
+      }
+      node = m_probation.remove(key);
+      if (node == null) {
+        m_misses++;
+        return null;
+      }
+      m_hits++;
+      // promote on the second hit
+      if (m_protectedCapacity > 0) {
+        m_protected.put(node.key, node);
+        if (m_protected.size() > m_protectedCapacity) {
+          // demote the least recently used protected entry
+          Node<V> eldest = removeEldest(m_protected);
+          m_probation.put(eldest.key, eldest);
+          evict();
+        }
+      } else {
+        m_probation.put(node.key, node);
+      }
+      return node.value;
+    }
+
+    synchronized void put(String key, V value) {
+      Key storedKey = new Key().set(key, key.hashCode());
+      Node<V> node = m_protected.get(storedKey);
+      if (node != null) {
+        node.value = value;
+        return;
+      }
+      m_probation.put(storedKey, new Node<V>(storedKey, value));
+      evict();
+    }
+
+    private void evict() {
+      while (m_probation.size() > m_probationCapacity) {
+        removeEldest(m_probation);
+        m_evictions++;
+      }
+    }
+
+    private static <V> Node<V> removeEldest(LinkedHashMap<Key, Node<V>> map) {
+      Iterator<Node<V>> it = map.values().iterator();
+      Node<V> eldest = it.next();
+      it.remove();
+      return eldest;
+    }
+
+    synchronized int size() {
+      return m_probation.size() + m_protected.size();
+    }
+
+    synchronized long getHitCount() {
+      return m_hits;
+    }
+
+    synchronized long getMissCount() {
+      return m_misses;
+    }
+
+    synchronized long getEvictionCount() {
+      return m_evictions;
+    }
+
+    synchronized void clear() {
+      m_probation.clear();
+      m_protected.clear();
+    }
+  }
+}
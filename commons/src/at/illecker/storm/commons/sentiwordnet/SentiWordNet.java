@@ -17,9 +17,11 @@
 package at.illecker.storm.commons.sentiwordnet;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,6 +30,7 @@ import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
 import at.illecker.storm.commons.util.io.IOUtils;
+import at.illecker.storm.commons.util.io.MappedDictionary;
 import at.illecker.storm.commons.wordnet.POSTag;
 import at.illecker.storm.commons.wordnet.WordNet;
 import edu.mit.jwi.item.POS;
@@ -35,16 +38,32 @@ import edu.mit.jwi.item.POS;
 public class SentiWordNet {
   private static final Logger LOG = LoggerFactory.getLogger(SentiWordNet.class);
   private static final SentiWordNet INSTANCE = new SentiWordNet();
+  private static final int SYN_TERMS = 0;
 
   private WordNet m_wordnet;
-  private Map<String, HashMap<Integer, SentiValue>> m_dict;
-  private Map<String, Double> m_dictWeighted;
+  // value: avgScore, count and (position, posScore, negScore) per synset
+  private MappedDictionary m_dict;
 
   private SentiWordNet() {
     m_wordnet = WordNet.getInstance();
 
-    m_dict = loadSentiWordNetDict();
-    m_dictWeighted = calcAvgWeightScores();
+    String sentiWordNetDict = Configuration.getSentiWordNetDict();
+    long fingerprint = MappedDictionary.fingerprint(sentiWordNetDict,
+        Collections.singletonList(sentiWordNetDict));
+    File file = Configuration.getMappedDictionary("sentiwordnet", fingerprint);
+
+    try {
+      m_dict = MappedDictionary.read(file, fingerprint);
+      if (m_dict == null) {
+        writeSentiWordNetDict(file, fingerprint);
+        m_dict = MappedDictionary.read(file);
+      }
+      LOG.info("Mapped SentiWordNet " + file + " with "
+          + m_dict.size(SYN_TERMS) + " terms");
+    } catch (IOException e) {
+      throw new RuntimeException("SentiWordNet " + file
+          + " could not be loaded", e);
+    }
   }
 
   public static SentiWordNet getInstance() {
@@ -123,10 +142,35 @@ public class SentiWordNet {
     return null;
   }
 
-  public Map<String, Double> calcAvgWeightScores() {
+  private void writeSentiWordNetDict(File file, long fingerprint)
+      throws IOException {
+    Map<String, HashMap<Integer, SentiValue>> dict = loadSentiWordNetDict();
+    if (dict == null) {
+      throw new IOException("SentiWordNet could not be read");
+    }
+    Map<String, Double> dictWeighted = calcAvgWeightScores(dict);
+
+    MappedDictionary.Writer writer = new MappedDictionary.Writer(1);
+    for (Map.Entry<String, HashMap<Integer, SentiValue>> entry : dict
+        .entrySet()) {
+      writer.put(SYN_TERMS, entry.getKey());
+      writer.writeDouble(dictWeighted.get(entry.getKey()));
+      writer.writeInt(entry.getValue().size());
+      for (Map.Entry<Integer, SentiValue> synset : entry.getValue()
+          .entrySet()) {
+        writer.writeInt(synset.getKey());
+        writer.writeDouble(synset.getValue().getPosScore());
+        writer.writeDouble(synset.getValue().getNegScore());
+      }
+    }
+    writer.write(file, fingerprint);
+  }
+
+  private static Map<String, Double> calcAvgWeightScores(
+      Map<String, HashMap<Integer, SentiValue>> dict) {
     Map<String, Double> dictWeighted = new HashMap<String, Double>();
 
-    for (Map.Entry<String, HashMap<Integer, SentiValue>> entry : m_dict
+    for (Map.Entry<String, HashMap<Integer, SentiValue>> entry : dict
         .entrySet()) {
       String synTerm = entry.getKey();
       Map<Integer, SentiValue> synSetScoreMap = entry.getValue();
@@ -153,7 +197,23 @@ public class SentiWordNet {
   }
 
   public Map<Integer, SentiValue> getSentiValues(String word, char posTag) {
-    return m_dict.get(word + "#" + posTag);
+    int entry = m_dict.find(SYN_TERMS, word + "#" + posTag);
+    if (entry < 0) {
+      return null;
+    }
+    int count = m_dict.getInt(entry + 8);
+    Map<Integer, SentiValue> values = new HashMap<Integer, SentiValue>(
+        count * 2);
+    for (int i = 0; i < count; i++) {
+      int synset = entry + 12 + i * 20;
+      values.put(m_dict.getInt(synset), getSentiValue(synset));
+    }
+    return values;
+  }
+
+  private SentiValue getSentiValue(int synset) {
+    return new SentiValue(m_dict.getDouble(synset + 4),
+        m_dict.getDouble(synset + 12));
   }
 
   public Map<Integer, SentiValue> getSentiValues(String word, POS posTag) {
@@ -161,9 +221,18 @@ public class SentiWordNet {
   }
 
   public SentiValue getSentiValue(String word, char posTag, int position) {
-    HashMap<Integer, SentiValue> values = m_dict.get(word + "#" + posTag);
-    if ((values != null) && (values.size() > position)) {
-      return values.get(position);
+    int entry = m_dict.find(SYN_TERMS, word + "#" + posTag);
+    if (entry < 0) {
+      return null;
+    }
+    int count = m_dict.getInt(entry + 8);
+    if (count > position) {
+      for (int i = 0; i < count; i++) {
+        int synset = entry + 12 + i * 20;
+        if (m_dict.getInt(synset) == position) {
+          return getSentiValue(synset);
+        }
+      }
     }
     return null;
   }
@@ -193,7 +262,11 @@ public class SentiWordNet {
   }
 
   public Double getAvgScore(String word, char posTag) {
-    return m_dictWeighted.get(word + "#" + posTag);
+    int entry = m_dict.find(SYN_TERMS, word + "#" + posTag);
+    if (entry < 0) {
+      return null;
+    }
+    return m_dict.getDouble(entry);
   }
 
   public Double getAvgScore(String word, POS posTag) {
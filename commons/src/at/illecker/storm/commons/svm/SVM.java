@@ -489,7 +489,7 @@ public class SVM {
       // Tokenize
       LOG.info("Tokenize train tweets...");
       List<List<String>> tokenizedTweets = Tokenizer
-          .tokenizeTweets(trainTweets);
+          .tokenizeTweetsParallel(trainTweets);
 
       preprocessor = Preprocessor.getInstance();
 
@@ -497,13 +497,13 @@ public class SVM {
         // Preprocess only
         LOG.info("Preprocess train tweets...");
         List<List<String>> preprocessedTweets = preprocessor
-            .preprocessTweets(tokenizedTweets);
+            .preprocessTweetsParallel(tokenizedTweets);
 
         // Ark POS Tagging
         arkPOSTagger = ArkPOSTagger.getInstance();
         LOG.info("Ark POS Tagging of train tweets...");
         List<List<TaggedToken>> taggedTweets = arkPOSTagger
-            .tagTweets(preprocessedTweets);
+            .tagTweetsParallel(preprocessedTweets);
 
         // Create Feature Vector Generator
         if (featureVectorGenerator
@@ -532,27 +532,27 @@ public class SVM {
 
         // Feature Vector Generation
         LOG.info("Generate Feature Vectors for train tweets...");
+        List<Map<Integer, Double>> featureVectors = fvg
+            .generateFeatureVectorsFromTaggedTokensParallel(taggedTweets);
         featuredTrainTweets = new ArrayList<FeaturedTweet>();
         for (int i = 0; i < taggedTweets.size(); i++) {
-          List<TaggedToken> taggedTweet = taggedTweets.get(i);
-          Map<Integer, Double> featureVector = fvg
-              .generateFeatureVectorFromTaggedTokens(taggedTweet);
           featuredTrainTweets.add(FeaturedTweet.createFromTaggedTokens(
               trainTweets.get(i), tokenizedTweets.get(i),
-              preprocessedTweets.get(i), taggedTweet, featureVector));
+              preprocessedTweets.get(i), taggedTweets.get(i),
+              featureVectors.get(i)));
         }
 
       } else {
         // Preprocess and tag
         LOG.info("Preprocess train tweets...");
         List<List<TaggedWord>> preprocessedTweets = preprocessor
-            .preprocessAndTagTweets(tokenizedTweets);
+            .preprocessAndTagTweetsParallel(tokenizedTweets);
 
         // Gate POS Tagging
         gatePOSTagger = GatePOSTagger.getInstance();
         LOG.info("GATE POS Tagging of train tweets...");
         List<List<TaggedWord>> taggedTweets = gatePOSTagger
-            .tagTweets(preprocessedTweets);
+            .tagTweetsParallel(preprocessedTweets);
 
         // Create Feature Vector Generator
         if (featureVectorGenerator
@@ -581,14 +581,14 @@ public class SVM {
 
         // Feature Vector Generation
         LOG.info("Generate Feature Vectors for train tweets...");
+        List<Map<Integer, Double>> featureVectors = fvg
+            .generateFeatureVectorsFromTaggedWordsParallel(taggedTweets);
         featuredTrainTweets = new ArrayList<FeaturedTweet>();
         for (int i = 0; i < taggedTweets.size(); i++) {
-          List<TaggedWord> taggedTweet = taggedTweets.get(i);
-          Map<Integer, Double> featureVector = fvg
-              .generateFeatureVectorFromTaggedWords(taggedTweet);
           featuredTrainTweets.add(FeaturedTweet.createFromTaggedWords(
               trainTweets.get(i), tokenizedTweets.get(i),
-              preprocessedTweets.get(i), taggedTweet, featureVector));
+              preprocessedTweets.get(i), taggedTweets.get(i),
+              featureVectors.get(i)));
         }
       }
 
@@ -620,52 +620,53 @@ public class SVM {
 
       // Tokenize
       LOG.info("Tokenize test tweets...");
-      List<List<String>> tokenizedTweets = Tokenizer.tokenizeTweets(testTweets);
+      List<List<String>> tokenizedTweets = Tokenizer
+          .tokenizeTweetsParallel(testTweets);
 
       if (useArkPOSTagger) {
         // Preprocess only
         LOG.info("Preprocess test tweets...");
         List<List<String>> preprocessedTweets = preprocessor
-            .preprocessTweets(tokenizedTweets);
+            .preprocessTweetsParallel(tokenizedTweets);
 
         // Ark POS Tagging
         LOG.info("Ark POS Tagging of test tweets...");
         List<List<TaggedToken>> taggedTweets = arkPOSTagger
-            .tagTweets(preprocessedTweets);
+            .tagTweetsParallel(preprocessedTweets);
 
         // Feature Vector Generation
         LOG.info("Generate Feature Vectors for test tweets...");
+        List<Map<Integer, Double>> featureVectors = fvg
+            .generateFeatureVectorsFromTaggedTokensParallel(taggedTweets);
         featuredTestTweets = new ArrayList<FeaturedTweet>();
         for (int i = 0; i < taggedTweets.size(); i++) {
-          List<TaggedToken> taggedTweet = taggedTweets.get(i);
-          Map<Integer, Double> featureVector = fvg
-              .generateFeatureVectorFromTaggedTokens(taggedTweet);
           featuredTestTweets.add(FeaturedTweet.createFromTaggedTokens(
               testTweets.get(i), tokenizedTweets.get(i),
-              preprocessedTweets.get(i), taggedTweet, featureVector));
+              preprocessedTweets.get(i), taggedTweets.get(i),
+              featureVectors.get(i)));
         }
 
       } else {
         // Preprocess and tag
         LOG.info("Preprocess test tweets...");
         List<List<TaggedWord>> preprocessedTweets = preprocessor
-            .preprocessAndTagTweets(tokenizedTweets);
+            .preprocessAndTagTweetsParallel(tokenizedTweets);
 
         // Gate POS Tagging
         LOG.info("GATE POS Tagging of test tweets...");
         List<List<TaggedWord>> taggedTweets = gatePOSTagger
-            .tagTweets(preprocessedTweets);
+            .tagTweetsParallel(preprocessedTweets);
 
         // Feature Vector Generation
         LOG.info("Generate Feature Vectors for test tweets...");
+        List<Map<Integer, Double>> featureVectors = fvg
+            .generateFeatureVectorsFromTaggedWordsParallel(taggedTweets);
         featuredTestTweets = new ArrayList<FeaturedTweet>();
         for (int i = 0; i < taggedTweets.size(); i++) {
-          List<TaggedWord> taggedTweet = taggedTweets.get(i);
-          Map<Integer, Double> featureVector = fvg
-              .generateFeatureVectorFromTaggedWords(taggedTweet);
           featuredTestTweets.add(FeaturedTweet.createFromTaggedWords(
               testTweets.get(i), tokenizedTweets.get(i),
-              preprocessedTweets.get(i), taggedTweet, featureVector));
+              preprocessedTweets.get(i), taggedTweets.get(i),
+              featureVectors.get(i)));
         }
       }
 
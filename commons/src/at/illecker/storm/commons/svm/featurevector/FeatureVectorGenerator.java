@@ -23,6 +23,7 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.illecker.storm.commons.util.ParallelUtils;
 import cmu.arktweetnlp.Tagger.TaggedToken;
 import edu.stanford.nlp.ling.TaggedWord;
 
@@ -76,4 +77,34 @@ public abstract class FeatureVectorGenerator {
     return featuredVectors;
   }
 
+  /**
+   * Generates the feature vectors in parallel, the order of the tweets is
+   * preserved. The generator must not be modified concurrently.
+   */
+  public List<Map<Integer, Double>> generateFeatureVectorsFromTaggedWordsParallel(
+      List<List<TaggedWord>> taggedTweets) {
+    return ParallelUtils.map(taggedTweets,
+        new ParallelUtils.Task<List<TaggedWord>, Map<Integer, Double>>() {
+          @Override
+          public Map<Integer, Double> apply(List<TaggedWord> tweet) {
+            return generateFeatureVectorFromTaggedWords(tweet);
+          }
+        });
+  }
+
+  /**
+   * Generates the feature vectors in parallel, the order of the tweets is
+   * preserved. The generator must not be modified concurrently.
+   */
+  public List<Map<Integer, Double>> generateFeatureVectorsFromTaggedTokensParallel(
+      List<List<TaggedToken>> taggedTweets) {
+    return ParallelUtils.map(taggedTweets,
+        new ParallelUtils.Task<List<TaggedToken>, Map<Integer, Double>>() {
+          @Override
+          public Map<Integer, Double> apply(List<TaggedToken> tweet) {
+            return generateFeatureVectorFromTaggedTokens(tweet);
+          }
+        });
+  }
+
 }
@@ -24,8 +24,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.dict.SentimentAccumulator;
 import at.illecker.storm.commons.dict.SentimentDictionary;
-import at.illecker.storm.commons.dict.SentimentResult;
 import at.illecker.storm.commons.postagger.ArkPOSTagger;
 import at.illecker.storm.commons.postagger.GatePOSTagger;
 import at.illecker.storm.commons.preprocessor.Preprocessor;
@@ -39,9 +39,15 @@ public class SentimentFeatureVectorGenerator extends FeatureVectorGenerator {
       .getLogger(SentimentFeatureVectorGenerator.class);
   private static final boolean LOGGING = Configuration.get(
       "commons.featurevectorgenerator.sentiment.logging", false);
-  private static final int VECTOR_SIZE = 7;
+  private static final int VECTOR_SIZE = SentimentAccumulator.STATS;
   private SentimentDictionary m_sentimentDict;
   private int m_vectorStartId = 1;
+  private final ThreadLocal<SentimentAccumulator> m_sentimentAccumulators = new ThreadLocal<SentimentAccumulator>() {
+    @Override
+    protected SentimentAccumulator initialValue() {
+      return m_sentimentDict.createAccumulator();
+    }
+  };
 
   public SentimentFeatureVectorGenerator() {
     this.m_sentimentDict = SentimentDictionary.getInstance();
@@ -68,8 +74,9 @@ public class SentimentFeatureVectorGenerator extends FeatureVectorGenerator {
   public Map<Integer, Double> generateFeatureVectorFromTaggedWords(
       List<TaggedWord> taggedWords) {
 
-    Map<Integer, SentimentResult> tweetSentiments = m_sentimentDict
-        .getSentenceSentimentFromTaggedWord(taggedWords);
+    SentimentAccumulator tweetSentiments = m_sentimentAccumulators.get();
+    m_sentimentDict.getSentenceSentimentFromTaggedWord(taggedWords,
+        tweetSentiments);
 
     return generateFeatureVector(tweetSentiments);
   }
@@ -78,59 +85,37 @@ public class SentimentFeatureVectorGenerator extends FeatureVectorGenerator {
   public Map<Integer, Double> generateFeatureVectorFromTaggedTokens(
       List<TaggedToken> taggedTokens) {
 
-    Map<Integer, SentimentResult> tweetSentiments = m_sentimentDict
-        .getSentenceSentimentFromTaggedToken(taggedTokens);
+    SentimentAccumulator tweetSentiments = m_sentimentAccumulators.get();
+    m_sentimentDict.getSentenceSentimentFromTaggedToken(taggedTokens,
+        tweetSentiments);
 
     return generateFeatureVector(tweetSentiments);
   }
 
   private Map<Integer, Double> generateFeatureVector(
-      Map<Integer, SentimentResult> tweetSentiments) {
+      SentimentAccumulator tweetSentiments) {
     Map<Integer, Double> featureVector = new TreeMap<Integer, Double>();
 
-    if (tweetSentiments != null) {
-      for (Map.Entry<Integer, SentimentResult> tweetSentiment : tweetSentiments
-          .entrySet()) {
-
-        int key = tweetSentiment.getKey();
-        SentimentResult sentimentResult = tweetSentiment.getValue();
-        // LOG.info("TweetSentiment: " + sentimentResult);
-
-        if (sentimentResult.getPosCount() != 0) {
-          featureVector.put(m_vectorStartId + (key * VECTOR_SIZE),
-              (double) sentimentResult.getPosCount());
-        }
-        if (sentimentResult.getNeutralCount() != 0) {
-          featureVector.put(m_vectorStartId + (key * VECTOR_SIZE) + 1,
-              (double) sentimentResult.getNeutralCount());
-        }
-        if (sentimentResult.getNegCount() != 0) {
-          featureVector.put(m_vectorStartId + (key * VECTOR_SIZE) + 2,
-              (double) sentimentResult.getNegCount());
-        }
-        if (sentimentResult.getSum() != 0) {
-          featureVector.put(m_vectorStartId + (key * VECTOR_SIZE) + 3,
-              sentimentResult.getSum());
-        }
-        if (sentimentResult.getCount() != 0) {
-          featureVector.put(m_vectorStartId + (key * VECTOR_SIZE) + 4,
-              (double) sentimentResult.getCount());
-        }
-        if (sentimentResult.getMaxPos() != null) {
-          featureVector.put(m_vectorStartId + (key * VECTOR_SIZE) + 5,
-              sentimentResult.getMaxPos());
-        }
-        if (sentimentResult.getMaxNeg() != null) {
-          featureVector.put(m_vectorStartId + (key * VECTOR_SIZE) + 6,
-              sentimentResult.getMaxNeg());
-        }
-
-        if (LOGGING) {
-          LOG.info("TweetSentiment: " + sentimentResult);
+    // the stats of a word list are in the order of the feature vector
+    int mask = tweetSentiments.getMask();
+    while (mask != 0) {
+      int key = Integer.numberOfTrailingZeros(mask);
+      mask &= mask - 1;
+      for (int stat = 0; stat < VECTOR_SIZE; stat++) {
+        // zero counts and sums and missing max values (NaN) are omitted
+        double value = tweetSentiments.get(key, stat);
+        if ((stat >= SentimentAccumulator.MAX_POS) ? (!Double.isNaN(value))
+            : (value != 0)) {
+          featureVector.put(m_vectorStartId + (key * VECTOR_SIZE) + stat,
+              value);
         }
       }
     }
 
+    if (LOGGING) {
+      LOG.info("TweetSentiment: " + tweetSentiments);
+    }
+
     return featureVector;
   }
 
@@ -0,0 +1,511 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.tokenizer;
+
+import static at.illecker.storm.commons.tokenizer.TokenScanner.EMOTICON_EYES;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.EMOTICON_MOUTH;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.EMOTICON_NOSE;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.EMOTICON_PREFIX;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.EMOTICON_REVERSE_SUFFIX;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.SEPARATED_NUMBER_INNER_SUFFIXES;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.SEPARATED_NUMBER_SUFFIXES;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.SPECIAL_NUMBER_SUFFIXES;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.contains;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.digits;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isAlphaNumeric;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isDigit;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isEmailDomainChar;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isEmailLocalChar;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isLetter;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isNumberSeparator;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isPhoneSeparator;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isSpecialNumberSeparator;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isURLChar;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isWhitespace;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.isWordChar;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.optional;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.regionMatches;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.regionMatchesIgnoreCase;
+import static at.illecker.storm.commons.tokenizer.TokenScanner.skipDigits;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.Dataset;
+import at.illecker.storm.commons.tweet.Tweet;
+import at.illecker.storm.commons.util.RegexUtils;
+import at.illecker.storm.commons.util.StringUtils;
+
+/**
+ * Classifies a token in one pass and returns a bitmask of its properties.
+ *
+ * Each bit is equivalent to a full match of the corresponding pattern in
+ * {@link RegexUtils} as used by {@link StringUtils}.
+ */
+public class TokenClass {
+  private static final Logger LOG = LoggerFactory.getLogger(TokenClass.class);
+
+  // StringUtils.isEmoticon
+  public static final int EMOTICON = 1;
+  // StringUtils.isURL
+  public static final int URL = 1 << 1;
+  // StringUtils.isEmail
+  public static final int EMAIL = 1 << 2;
+  // StringUtils.isPhone
+  public static final int PHONE = 1 << 3;
+  // StringUtils.isUser
+  public static final int USER = 1 << 4;
+  // StringUtils.isHashTag
+  public static final int HASH_TAG = 1 << 5;
+  // StringUtils.isSlang
+  public static final int SLANG = 1 << 6;
+  // StringUtils.isNumeric
+  public static final int NUMERIC = 1 << 7;
+  // StringUtils.isSpecialNumeric
+  public static final int SPECIAL_NUMERIC = 1 << 8;
+  // StringUtils.isSeparatedNumeric
+  public static final int SEPARATED_NUMERIC = 1 << 9;
+  // StringUtils.consitsOfPunctuations
+  public static final int PUNCTUATIONS = 1 << 10;
+  // StringUtils.consitsOfUnderscores
+  public static final int UNDERSCORES = 1 << 11;
+  // RegexUtils.ALTERNATING_LETTER_DOT_PATTERN
+  public static final int ALTERNATING_LETTER_DOT = 1 << 12;
+
+  // Tokens which are excluded from slang correction and elongation removal
+  public static final int SPECIAL_TOKEN = EMOTICON | USER | HASH_TAG | URL
+      | NUMERIC | SPECIAL_NUMERIC | SEPARATED_NUMERIC | EMAIL | PHONE;
+
+  public static int classify(String token) {
+    if (token == null) {
+      return 0;
+    }
+    return classify(token.toCharArray(), 0, token.length());
+  }
+
+  public static int classify(char[] t, int offset, int length) {
+    int end = offset + length;
+    if (length == 0) {
+      return 0;
+    }
+    int mask = 0;
+    char c = t[offset];
+
+    if (isEmoticon(t, offset, end)) {
+      mask |= EMOTICON;
+    }
+    if (((c == 'h') || (c == 'H') || (c == 'f') || (c == 'F'))
+        && (isURL(t, offset, end))) {
+      mask |= URL;
+    }
+    if ((isEmailLocalChar(c)) && (isEmail(t, offset, end))) {
+      mask |= EMAIL;
+    }
+    if (((c == '+') || (c == '(') || (isDigit(c)))
+        && (isPhone(t, offset, end))) {
+      mask |= PHONE;
+    }
+    if ((c == '@') && (isPrefixedWord(t, offset, end, '@', false))) {
+      mask |= USER;
+    }
+    if ((c == '#') && (isPrefixedWord(t, offset, end, '#', true))) {
+      mask |= HASH_TAG;
+    }
+    if (isSlang(t, offset, end)) {
+      mask |= SLANG;
+    }
+    if ((c == '+') || (c == '-') || (c == '$') || (isDigit(c))) {
+      if (isNumeric(t, offset, end)) {
+        mask |= NUMERIC;
+      }
+      if (isSpecialNumeric(t, offset, end)) {
+        mask |= SPECIAL_NUMERIC;
+      }
+      if ((isDigit(c)) && (isSeparatedNumeric(t, offset, end))) {
+        mask |= SEPARATED_NUMERIC;
+      }
+    }
+    if ((isLetter(c)) && (isAlternatingLetterDot(t, offset, end))) {
+      mask |= ALTERNATING_LETTER_DOT;
+    }
+
+    boolean punctuations = true;
+    boolean underscores = true;
+    for (int i = offset; i < end; i++) {
+      char ch = t[i];
+      punctuations &= (isPunct(ch)) || (isWhitespace(ch));
+      underscores &= (ch == '_');
+    }
+    if (punctuations) {
+      mask |= PUNCTUATIONS;
+    }
+    if (underscores) {
+      mask |= UNDERSCORES;
+    }
+    return mask;
+  }
+
+  public static boolean is(int mask, int tokenClass) {
+    return (mask & tokenClass) != 0;
+  }
+
+  private static boolean isEmoticon(char[] t, int offset, int end) {
+    // [<>oO0}3|]?[:;=8xX*<>=^|#%][']?[-_co^./]?[\\]?[0]?([mouth])\1*
+    for (int a = optional(t, end, offset, EMOTICON_PREFIX); a >= 0; a--) {
+      int p1 = offset + a;
+      if ((p1 >= end) || (!contains(EMOTICON_EYES, t[p1]))) {
+        continue;
+      }
+      p1++;
+      for (int b = optional(t, end, p1, "'"); b >= 0; b--) {
+        int p2 = p1 + b;
+        for (int c = optional(t, end, p2, EMOTICON_NOSE); c >= 0; c--) {
+          int p3 = p2 + c;
+          for (int d = optional(t, end, p3, "\\"); d >= 0; d--) {
+            int p4 = p3 + d;
+            for (int e = optional(t, end, p4, "0"); e >= 0; e--) {
+              int p = p4 + e;
+              if ((p < end) && (contains(EMOTICON_MOUTH, t[p]))) {
+                int i = p + 1;
+                while ((i < end) && (t[i] == t[p])) {
+                  i++;
+                }
+                if (i == end) {
+                  return true;
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+
+    // reverse [0]?([mouth])[:;=8xX*<>=^|#%][<>]?
+    for (int a = optional(t, end, offset, "0"); a >= 0; a--) {
+      int p = offset + a;
+      if ((p + 1 < end) && (contains(EMOTICON_MOUTH, t[p]))
+          && (contains(EMOTICON_EYES, t[p + 1]))) {
+        int rest = end - (p + 2);
+        if ((rest == 0)
+            || ((rest == 1) && (contains(EMOTICON_REVERSE_SUFFIX, t[p + 2])))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isURL(char[] t, int offset, int end) {
+    // (?i)(https?|ftp)://(-\.)?([^\s/?\.#-]+\.?)*(/[^\s\.]*)?
+    int p;
+    if (regionMatchesIgnoreCase(t, end, offset, "https://")) {
+      p = offset + 8;
+    } else if ((regionMatchesIgnoreCase(t, end, offset, "http://"))
+        || (regionMatchesIgnoreCase(t, end, offset, "ftp://"))) {
+      p = offset + ((t[offset] == 'f') || (t[offset] == 'F') ? 6 : 7);
+    } else {
+      return false;
+    }
+    if (regionMatches(t, end, p, "-.")) {
+      p += 2;
+    }
+    // host part must not start with a dot and must not contain two dots
+    boolean previousDot = true;
+    for (; (p < end) && (t[p] != '/'); p++) {
+      if (t[p] == '.') {
+        if (previousDot) {
+          return false;
+        }
+        previousDot = true;
+      } else if (isURLChar(t[p])) {
+        previousDot = false;
+      } else {
+        return false;
+      }
+    }
+    // path part
+    for (p++; p < end; p++) {
+      if ((isWhitespace(t[p])) || (t[p] == '.')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isEmail(char[] t, int offset, int end) {
+    // [a-zA-Z0-9\+\.\_\%\-\+]{1,256}\@[a-zA-Z0-9][a-zA-Z0-9\-]{0,64}
+    // (\.[a-zA-Z0-9][a-zA-Z0-9\-]{0,25})+
+    int p = offset;
+    while ((p < end) && (isEmailLocalChar(t[p]))) {
+      p++;
+    }
+    if ((p - offset > 256) || (p >= end) || (t[p] != '@')) {
+      return false;
+    }
+    int labels = 0;
+    int maxLabelLength = 65;
+    do {
+      p++;
+      int labelStart = p;
+      if ((p >= end) || (!isAlphaNumeric(t[p]))) {
+        return false;
+      }
+      while ((p < end) && (isEmailDomainChar(t[p]))) {
+        p++;
+      }
+      if (p - labelStart > maxLabelLength) {
+        return false;
+      }
+      maxLabelLength = 26;
+      labels++;
+    } while ((p < end) && (t[p] == '.'));
+    return (p == end) && (labels > 1);
+  }
+
+  private static boolean isPhone(char[] t, int offset, int end) {
+    // (?:\+?[01][\-\s.]*)?(?:[\(]?\d{3}[\-\s.\)]*)?\d{3}[\-\s.]*\d{4}
+    int countryEnd = -1;
+    int p = offset;
+    if ((p < end) && (t[p] == '+')) {
+      p++;
+    }
+    if ((p < end) && ((t[p] == '0') || (t[p] == '1'))) {
+      p++;
+      while ((p < end) && (isPhoneSeparator(t[p]))) {
+        p++;
+      }
+      countryEnd = p;
+    }
+
+    for (int withCountry = (countryEnd >= 0) ? 1 : 0; withCountry >= 0; withCountry--) {
+      int start = (withCountry == 1) ? countryEnd : offset;
+      int areaEnd = -1;
+      p = start;
+      if ((p < end) && (t[p] == '(')) {
+        p++;
+      }
+      if (digits(t, end, p, 3)) {
+        p += 3;
+        while ((p < end) && ((isPhoneSeparator(t[p])) || (t[p] == ')'))) {
+          p++;
+        }
+        areaEnd = p;
+      }
+
+      for (int withArea = (areaEnd >= 0) ? 1 : 0; withArea >= 0; withArea--) {
+        p = (withArea == 1) ? areaEnd : start;
+        if (!digits(t, end, p, 3)) {
+          continue;
+        }
+        p += 3;
+        while ((p < end) && (isPhoneSeparator(t[p]))) {
+          p++;
+        }
+        if ((p + 4 == end) && (digits(t, end, p, 4))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isPrefixedWord(char[] t, int offset, int end,
+      char prefix, boolean hashTag) {
+    // \@+([A-Za-z]+[A-Za-z0-9_]+)
+    // \#+([A-Za-z]+[A-Za-z0-9_\'\-]*[A-Za-z0-9_]+)
+    int p = offset;
+    while ((p < end) && (t[p] == prefix)) {
+      p++;
+    }
+    if ((end - p < 2) || (!isLetter(t[p])) || (!isWordChar(t[end - 1]))) {
+      return false;
+    }
+    for (p++; p < end; p++) {
+      if ((!isWordChar(t[p]))
+          && ((!hashTag) || ((t[p] != '\'') && (t[p] != '-')))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSlang(char[] t, int offset, int end) {
+    // [a-zA-Z]\/[a-zA-z]*|\\m\/
+    if ((end - offset == 3) && (regionMatches(t, end, offset, "\\m/"))) {
+      return true;
+    }
+    if ((end - offset < 2) || (!isLetter(t[offset])) || (t[offset + 1] != '/')) {
+      return false;
+    }
+    for (int p = offset + 2; p < end; p++) {
+      if ((t[p] < 'A') || (t[p] > 'z')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isNumeric(char[] t, int offset, int end) {
+    // [+\-]?\d+(\,\d+)?(\.\d+)?
+    int p = offset;
+    if ((t[p] == '+') || (t[p] == '-')) {
+      p++;
+    }
+    if ((p >= end) || (!isDigit(t[p]))) {
+      return false;
+    }
+    p = skipDigits(t, end, p);
+    if ((p + 1 < end) && (t[p] == ',') && (isDigit(t[p + 1]))) {
+      p = skipDigits(t, end, p + 1);
+    }
+    if ((p + 1 < end) && (t[p] == '.') && (isDigit(t[p + 1]))) {
+      p = skipDigits(t, end, p + 1);
+    }
+    return p == end;
+  }
+
+  private static boolean isSpecialNumeric(char[] t, int offset, int end) {
+    // \$?[+\-]?\d+([\.|\,|\:|\-]\d+)*
+    // (?:(?i)(%|fm|am|pm|p|lb)|(c|p|st|nd|rd|th))?
+    int p = offset;
+    if (t[p] == '$') {
+      p++;
+    }
+    if ((p < end) && ((t[p] == '+') || (t[p] == '-'))) {
+      p++;
+    }
+    if ((p >= end) || (!isDigit(t[p]))) {
+      return false;
+    }
+    p = skipDigits(t, end, p);
+    while ((p + 1 < end) && (isSpecialNumberSeparator(t[p]))
+        && (isDigit(t[p + 1]))) {
+      p = skipDigits(t, end, p + 1);
+    }
+    return isSuffix(t, p, end, SPECIAL_NUMBER_SUFFIXES);
+  }
+
+  private static boolean isSeparatedNumeric(char[] t, int offset, int end) {
+    // \d+(?:(?i)(am|pm)|(c|st|nd|rd|th))?[\/|\,|\-]+\d+([\/|\,|\-]\d+)*
+    // (?:(?i)(%|fm|am|pm|lb)|(c|p|st|nd|rd|th))?
+    int p = skipDigits(t, end, offset);
+    for (String suffix : SEPARATED_NUMBER_INNER_SUFFIXES) {
+      if (regionMatchesIgnoreCase(t, end, p, suffix)) {
+        p += suffix.length();
+        break;
+      }
+    }
+    if ((p >= end) || (!isNumberSeparator(t[p]))) {
+      return false;
+    }
+    while ((p < end) && (isNumberSeparator(t[p]))) {
+      p++;
+    }
+    if ((p >= end) || (!isDigit(t[p]))) {
+      return false;
+    }
+    p = skipDigits(t, end, p);
+    while ((p + 1 < end) && (isNumberSeparator(t[p])) && (isDigit(t[p + 1]))) {
+      p = skipDigits(t, end, p + 1);
+    }
+    return isSuffix(t, p, end, SEPARATED_NUMBER_SUFFIXES);
+  }
+
+  private static boolean isAlternatingLetterDot(char[] t, int offset, int end) {
+    // [a-zA-Z]\.(?:[a-zA-Z](\.)?)+
+    if ((end - offset < 3) || (t[offset + 1] != '.')) {
+      return false;
+    }
+    boolean previousDot = true;
+    for (int p = offset + 2; p < end; p++) {
+      if (t[p] == '.') {
+        if (previousDot) {
+          return false;
+        }
+        previousDot = true;
+      } else if (isLetter(t[p])) {
+        previousDot = false;
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSuffix(char[] t, int pos, int end, String[] suffixes) {
+    if (pos == end) {
+      return true;
+    }
+    for (String suffix : suffixes) {
+      if ((pos + suffix.length() == end)
+          && (regionMatchesIgnoreCase(t, end, pos, suffix))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isPunct(char c) {
+    // \p{Punct} !"#$%&'()*+,-./:;<=>?@[\]^_`{|}~
+    return ((c >= '!') && (c <= '/')) || ((c >= ':') && (c <= '@'))
+        || ((c >= '[') && (c <= '`')) || ((c >= '{') && (c <= '~'));
+  }
+
+  public static void main(String[] args) {
+    // Differential test against StringUtils and RegexUtils
+    Dataset dataset = Configuration.getDataSetSemEval2013();
+    List<Tweet> tweets = dataset.getTrainTweets(true);
+    tweets.addAll(dataset.getTestTweets());
+
+    long tokenCount = 0;
+    int differences = 0;
+    for (Tweet tweet : tweets) {
+      for (String token : Tokenizer.tokenize(tweet.getText())) {
+        tokenCount++;
+        int mask = classify(token);
+        int expected = 0;
+        expected |= StringUtils.isEmoticon(token) ? EMOTICON : 0;
+        expected |= StringUtils.isURL(token) ? URL : 0;
+        expected |= StringUtils.isEmail(token) ? EMAIL : 0;
+        expected |= StringUtils.isPhone(token) ? PHONE : 0;
+        expected |= StringUtils.isUser(token) ? USER : 0;
+        expected |= StringUtils.isHashTag(token) ? HASH_TAG : 0;
+        expected |= StringUtils.isSlang(token) ? SLANG : 0;
+        expected |= StringUtils.isNumeric(token) ? NUMERIC : 0;
+        expected |= StringUtils.isSpecialNumeric(token) ? SPECIAL_NUMERIC : 0;
+        expected |= StringUtils.isSeparatedNumeric(token) ? SEPARATED_NUMERIC
+            : 0;
+        expected |= StringUtils.consitsOfPunctuations(token) ? PUNCTUATIONS
+            : 0;
+        expected |= StringUtils.consitsOfUnderscores(token) ? UNDERSCORES : 0;
+        expected |= RegexUtils.ALTERNATING_LETTER_DOT_PATTERN.matcher(token)
+            .matches() ? ALTERNATING_LETTER_DOT : 0;
+        if (mask != expected) {
+          differences++;
+          LOG.error("Token: '" + token + "' TokenClass: "
+              + Integer.toBinaryString(mask) + " Regex: "
+              + Integer.toBinaryString(expected));
+        }
+      }
+    }
+    LOG.info("Compared " + tokenCount + " tokens, " + differences
+        + " differences");
+  }
+}
@@ -0,0 +1,714 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.tokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.Dataset;
+import at.illecker.storm.commons.tweet.Tweet;
+import at.illecker.storm.commons.util.RegexUtils;
+
+/**
+ * Single-pass scanner which produces exactly the same tokens as
+ * {@link RegexUtils#TOKENIZER_PATTERN}.
+ *
+ * Each alternative of the tokenizer pattern is matched by a hand-written
+ * method, which replays the backtracking order of the corresponding regex.
+ * The alternatives are tried in the same order as in the pattern.
+ */
+public class TokenScanner {
+  private static final Logger LOG = LoggerFactory.getLogger(TokenScanner.class);
+
+  static final String EMOTICON_PREFIX = "<>oO0}3|";
+  static final String EMOTICON_EYES = ":;=8xX*<>^|#%";
+  static final String EMOTICON_NOSE = "-_co^./";
+  static final String EMOTICON_MOUTH = "()[]/\\}{*.^<>=@|,bdDpPLScoO$X#J3&";
+  static final String EMOTICON_REVERSE_SUFFIX = "<>";
+
+  // number suffixes (?i)(%|fm|am|pm|p|lb) and (c|p|st|nd|rd|th)
+  static final String[] SPECIAL_NUMBER_SUFFIXES = new String[] { "%",
+      "fm", "am", "pm", "p", "lb", "c", "p", "st", "nd", "rd", "th" };
+  // number suffixes (?i)(am|pm) and (c|st|nd|rd|th)
+  static final String[] SEPARATED_NUMBER_INNER_SUFFIXES = new String[] {
+      "am", "pm", "c", "st", "nd", "rd", "th" };
+  // number suffixes (?i)(%|fm|am|pm|lb) and (c|p|st|nd|rd|th)
+  static final String[] SEPARATED_NUMBER_SUFFIXES = new String[] {
+      "%", "fm", "am", "pm", "lb", "c", "p", "st", "nd", "rd", "th" };
+
+  public static List<String> tokenize(String str) {
+    List<String> tokens = new ArrayList<String>();
+    tokenize(str, tokens);
+    return tokens;
+  }
+
+  public static void tokenize(String str, List<String> tokens) {
+    char[] text = str.toCharArray();
+    int len = text.length;
+    int pos = 0;
+    while (pos < len) {
+      int end = matchToken(text, len, pos);
+      if (end < 0) {
+        pos++;
+      } else {
+        tokens.add(new String(text, pos, end - pos));
+        pos = end;
+      }
+    }
+  }
+
+  /**
+   * Tokenizes str into spans over the text buffer of spans without creating
+   * token Strings.
+   */
+  public static void tokenize(String str, TokenSpans spans) {
+    spans.reset(str);
+    char[] text = spans.getText();
+    int len = spans.getTextLength();
+    int pos = 0;
+    while (pos < len) {
+      int end = matchToken(text, len, pos);
+      if (end < 0) {
+        pos++;
+      } else {
+        spans.add(pos, end - pos);
+        pos = end;
+      }
+    }
+  }
+
+  /**
+   * Returns the end index of the token starting at pos or -1 if no token
+   * starts at pos (whitespace).
+   */
+  static int matchToken(char[] t, int len, int pos) {
+    char c = t[pos];
+    if (isWhitespace(c)) {
+      return -1;
+    }
+    int end;
+    // Emoticon
+    if ((isEmoticonStart(c)) && (isDelimiterBefore(t, pos))
+        && ((end = matchEmoticon(t, len, pos)) > 0)) {
+      return end;
+    }
+    // URL
+    if (((c == 'h') || (c == 'H') || (c == 'f') || (c == 'F'))
+        && ((end = matchURL(t, len, pos)) > 0)) {
+      return end;
+    }
+    // Phone
+    if (((c == '+') || (c == '(') || (isDigit(c)))
+        && ((end = matchPhone(t, len, pos)) > 0)) {
+      return end;
+    }
+    // Email
+    if ((isEmailLocalChar(c)) && ((end = matchEmail(t, len, pos)) > 0)) {
+      return end;
+    }
+    // User name
+    if ((c == '@') && ((end = matchUserName(t, len, pos)) > 0)) {
+      return end;
+    }
+    // Hashtag
+    if ((c == '#') && ((end = matchHashTag(t, len, pos)) > 0)) {
+      return end;
+    }
+    // Slang w/ and \m/
+    if ((isLetter(c)) && (isDelimiterBefore(t, pos))
+        && ((end = matchSlang(t, len, pos)) > 0)) {
+      return end;
+    }
+    if ((c == '\\') && (pos + 2 < len) && (t[pos + 1] == 'm')
+        && (t[pos + 2] == '/') && (isDelimiterAfter(t, len, pos + 3))) {
+      return pos + 3;
+    }
+    if (isLetter(c)) {
+      // Alternating letter dot e.g., L.O.V.E
+      if ((end = matchAlternatingLetterDot(t, len, pos)) > 0) {
+        return end;
+      }
+      // Words with apostrophes or dashes
+      if ((end = matchWordWithApostrophesDashes(t, len, pos)) > 0) {
+        return end;
+      }
+    }
+    if (isDigit(c)) {
+      // Separated number
+      if ((end = matchSeparatedNumber(t, len, pos)) > 0) {
+        return end;
+      }
+    }
+    // Special number
+    if (((c == '$') || (c == '+') || (c == '-') || (isDigit(c)))
+        && ((end = matchSpecialNumber(t, len, pos)) > 0)) {
+      return end;
+    }
+    // Words without apostrophes or dashes
+    if (isWordChar(c)) {
+      end = pos + 1;
+      while ((end < len) && (isWordChar(t[end]))) {
+        end++;
+      }
+      return end;
+    }
+    // Ellipsis dots
+    if ((c == '.') && ((end = matchEllipsisDots(t, len, pos)) > 0)) {
+      return end;
+    }
+    // Non-whitespace char
+    return pos + Character.charCount(Character.codePointAt(t, pos, len));
+  }
+
+  private static int matchEmoticon(char[] t, int len, int pos) {
+    // [<>oO0}3|]?[:;=8xX*<>=^|#%][']?[-_co^./]?[\\]?[0]?([mouth])\1*
+    for (int a = optional(t, len, pos, EMOTICON_PREFIX); a >= 0; a--) {
+      int p1 = pos + a;
+      if ((p1 >= len) || (!contains(EMOTICON_EYES, t[p1]))) {
+        continue;
+      }
+      p1++;
+      for (int b = optional(t, len, p1, "'"); b >= 0; b--) {
+        int p2 = p1 + b;
+        for (int c = optional(t, len, p2, EMOTICON_NOSE); c >= 0; c--) {
+          int p3 = p2 + c;
+          for (int d = optional(t, len, p3, "\\"); d >= 0; d--) {
+            int p4 = p3 + d;
+            for (int e = optional(t, len, p4, "0"); e >= 0; e--) {
+              int end = matchEmoticonMouth(t, len, p4 + e);
+              if (end > 0) {
+                return end;
+              }
+            }
+          }
+        }
+      }
+    }
+
+    // reverse [0]?([mouth])\1*[:;=8xX*<>=^|#%][<>]?
+    // \1 refers to the mouth group of the first alternative which is unset
+    // here, therefore the mouth is never repeated
+    for (int a = optional(t, len, pos, "0"); a >= 0; a--) {
+      int p1 = pos + a;
+      if ((p1 + 1 >= len) || (!contains(EMOTICON_MOUTH, t[p1]))
+          || (!contains(EMOTICON_EYES, t[p1 + 1]))) {
+        continue;
+      }
+      int p2 = p1 + 2;
+      for (int b = optional(t, len, p2, EMOTICON_REVERSE_SUFFIX); b >= 0; b--) {
+        if (isDelimiterAfter(t, len, p2 + b)) {
+          return p2 + b;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static int matchEmoticonMouth(char[] t, int len, int pos) {
+    if ((pos >= len) || (!contains(EMOTICON_MOUTH, t[pos]))) {
+      return -1;
+    }
+    char mouth = t[pos];
+    int repeats = 0;
+    while ((pos + 1 + repeats < len) && (t[pos + 1 + repeats] == mouth)) {
+      repeats++;
+    }
+    for (int end = pos + 1 + repeats; end > pos; end--) {
+      if (isDelimiterAfter(t, len, end)) {
+        return end;
+      }
+    }
+    return -1;
+  }
+
+  private static int matchURL(char[] t, int len, int pos) {
+    // (?i)(https?|ftp)://(-\.)?([^\s/?\.#-]+\.?)*(/[^\s\.]*)?
+    int p;
+    if (regionMatchesIgnoreCase(t, len, pos, "http")) {
+      p = pos + 4;
+      if ((p < len) && ((t[p] == 's') || (t[p] == 'S'))
+          && (regionMatches(t, len, p + 1, "://"))) {
+        p += 4;
+      } else if (regionMatches(t, len, p, "://")) {
+        p += 3;
+      } else {
+        return -1;
+      }
+    } else if ((regionMatchesIgnoreCase(t, len, pos, "ftp"))
+        && (regionMatches(t, len, pos + 3, "://"))) {
+      p = pos + 6;
+    } else {
+      return -1;
+    }
+    if (regionMatches(t, len, p, "-.")) {
+      p += 2;
+    }
+    while ((p < len) && (isURLChar(t[p]))) {
+      while ((p < len) && (isURLChar(t[p]))) {
+        p++;
+      }
+      if ((p < len) && (t[p] == '.')) {
+        p++;
+      }
+    }
+    if ((p < len) && (t[p] == '/')) {
+      p++;
+      while ((p < len) && (!isWhitespace(t[p])) && (t[p] != '.')) {
+        p++;
+      }
+    }
+    return p;
+  }
+
+  private static int matchPhone(char[] t, int len, int pos) {
+    // (?:\+?[01][\-\s.]*)?(?:[\(]?\d{3}[\-\s.\)]*)?\d{3}[\-\s.]*\d{4}
+    int countryEnd = -1;
+    int p = pos;
+    if ((p < len) && (t[p] == '+')) {
+      p++;
+    }
+    if ((p < len) && ((t[p] == '0') || (t[p] == '1'))) {
+      p++;
+      while ((p < len) && (isPhoneSeparator(t[p]))) {
+        p++;
+      }
+      countryEnd = p;
+    }
+
+    for (int withCountry = (countryEnd >= 0) ? 1 : 0; withCountry >= 0; withCountry--) {
+      int start = (withCountry == 1) ? countryEnd : pos;
+      // area code
+      int areaEnd = -1;
+      p = start;
+      if ((p < len) && (t[p] == '(')) {
+        p++;
+      }
+      if (digits(t, len, p, 3)) {
+        p += 3;
+        while ((p < len) && ((isPhoneSeparator(t[p])) || (t[p] == ')'))) {
+          p++;
+        }
+        areaEnd = p;
+      }
+
+      for (int withArea = (areaEnd >= 0) ? 1 : 0; withArea >= 0; withArea--) {
+        p = (withArea == 1) ? areaEnd : start;
+        if (!digits(t, len, p, 3)) {
+          continue;
+        }
+        p += 3;
+        while ((p < len) && (isPhoneSeparator(t[p]))) {
+          p++;
+        }
+        if (digits(t, len, p, 4)) {
+          return p + 4;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static int matchEmail(char[] t, int len, int pos) {
+    // [a-zA-Z0-9\+\.\_\%\-\+]{1,256}\@[a-zA-Z0-9][a-zA-Z0-9\-]{0,64}
+    // (\.[a-zA-Z0-9][a-zA-Z0-9\-]{0,25})+
+    int p = pos;
+    while ((p < len) && (isEmailLocalChar(t[p]))) {
+      p++;
+    }
+    if ((p - pos > 256) || (p >= len) || (t[p] != '@')) {
+      return -1;
+    }
+    p++;
+    if ((p >= len) || (!isAlphaNumeric(t[p]))) {
+      return -1;
+    }
+    int labelStart = ++p;
+    while ((p < len) && (isEmailDomainChar(t[p]))) {
+      p++;
+    }
+    if (p - labelStart > 64) {
+      return -1;
+    }
+    int labels = 0;
+    while ((p + 1 < len) && (t[p] == '.') && (isAlphaNumeric(t[p + 1]))) {
+      p += 2;
+      labelStart = p;
+      while ((p < len) && (p - labelStart < 25) && (isEmailDomainChar(t[p]))) {
+        p++;
+      }
+      labels++;
+    }
+    return (labels > 0) ? p : -1;
+  }
+
+  private static int matchUserName(char[] t, int len, int pos) {
+    // \@+([A-Za-z]+[A-Za-z0-9_]+)
+    int p = pos;
+    while ((p < len) && (t[p] == '@')) {
+      p++;
+    }
+    if ((p >= len) || (!isLetter(t[p]))) {
+      return -1;
+    }
+    int nameStart = p;
+    while ((p < len) && (isWordChar(t[p]))) {
+      p++;
+    }
+    return (p - nameStart >= 2) ? p : -1;
+  }
+
+  private static int matchHashTag(char[] t, int len, int pos) {
+    // \#+([A-Za-z]+[A-Za-z0-9_\'\-]*[A-Za-z0-9_]+)
+    int p = pos;
+    while ((p < len) && (t[p] == '#')) {
+      p++;
+    }
+    if ((p >= len) || (!isLetter(t[p]))) {
+      return -1;
+    }
+    int tagStart = p;
+    int lastWordChar = -1;
+    while ((p < len)
+        && ((isWordChar(t[p])) || (t[p] == '\'') || (t[p] == '-'))) {
+      if (isWordChar(t[p])) {
+        lastWordChar = p;
+      }
+      p++;
+    }
+    return (lastWordChar > tagStart) ? lastWordChar + 1 : -1;
+  }
+
+  private static int matchSlang(char[] t, int len, int pos) {
+    // [a-zA-Z]\/[a-zA-z]*
+    if ((pos + 1 >= len) || (t[pos + 1] != '/')) {
+      return -1;
+    }
+    int p = pos + 2;
+    while ((p < len) && (t[p] >= 'A') && (t[p] <= 'z')) {
+      p++;
+    }
+    return p;
+  }
+
+  private static int matchAlternatingLetterDot(char[] t, int len, int pos) {
+    // [a-zA-Z]\.(?:[a-zA-Z](\.)?)+
+    if ((pos + 2 >= len) || (t[pos + 1] != '.') || (!isLetter(t[pos + 2]))) {
+      return -1;
+    }
+    int p = pos + 2;
+    while ((p < len) && (isLetter(t[p]))) {
+      p++;
+      if ((p < len) && (t[p] == '.')) {
+        p++;
+      }
+    }
+    return p;
+  }
+
+  private static int matchWordWithApostrophesDashes(char[] t, int len, int pos) {
+    // [a-zA-Z][a-zA-Z\'\-\_]+[a-zA-Z]
+    int lastLetter = -1;
+    int p = pos + 1;
+    while ((p < len)
+        && ((isLetter(t[p])) || (t[p] == '\'') || (t[p] == '-') || (t[p] == '_'))) {
+      if (isLetter(t[p])) {
+        lastLetter = p;
+      }
+      p++;
+    }
+    return (lastLetter >= pos + 2) ? lastLetter + 1 : -1;
+  }
+
+  private static int matchSeparatedNumber(char[] t, int len, int pos) {
+    // \d+(?:(?i)(am|pm)|(c|st|nd|rd|th))?[\/|\,|\-]+\d+([\/|\,|\-]\d+)*
+    // (?:(?i)(%|fm|am|pm|lb)|(c|p|st|nd|rd|th))?
+    int p = skipDigits(t, len, pos);
+    int suffix = matchSuffix(t, len, p, SEPARATED_NUMBER_INNER_SUFFIXES);
+    if ((suffix > 0) && (p + suffix < len)
+        && (isNumberSeparator(t[p + suffix]))) {
+      p += suffix;
+    }
+    if ((p >= len) || (!isNumberSeparator(t[p]))) {
+      return -1;
+    }
+    while ((p < len) && (isNumberSeparator(t[p]))) {
+      p++;
+    }
+    if ((p >= len) || (!isDigit(t[p]))) {
+      return -1;
+    }
+    p = skipDigits(t, len, p);
+    while ((p + 1 < len) && (isNumberSeparator(t[p])) && (isDigit(t[p + 1]))) {
+      p = skipDigits(t, len, p + 1);
+    }
+    return p + matchSuffix(t, len, p, SEPARATED_NUMBER_SUFFIXES);
+  }
+
+  private static int matchSpecialNumber(char[] t, int len, int pos) {
+    // \$?[+\-]?\d+([\.|\,|\:|\-]\d+)*
+    // (?:(?i)(%|fm|am|pm|p|lb)|(c|p|st|nd|rd|th))?
+    int p = pos;
+    if (t[p] == '$') {
+      p++;
+    }
+    if ((p < len) && ((t[p] == '+') || (t[p] == '-'))) {
+      p++;
+    }
+    if ((p >= len) || (!isDigit(t[p]))) {
+      return -1;
+    }
+    p = skipDigits(t, len, p);
+    while ((p + 1 < len) && (isSpecialNumberSeparator(t[p]))
+        && (isDigit(t[p + 1]))) {
+      p = skipDigits(t, len, p + 1);
+    }
+    return p + matchSuffix(t, len, p, SPECIAL_NUMBER_SUFFIXES);
+  }
+
+  private static int matchEllipsisDots(char[] t, int len, int pos) {
+    // \.(?:\s*\.){1,}
+    int end = -1;
+    int p = pos + 1;
+    while (true) {
+      while ((p < len) && (isWhitespace(t[p]))) {
+        p++;
+      }
+      if ((p < len) && (t[p] == '.')) {
+        end = ++p;
+      } else {
+        return end;
+      }
+    }
+  }
+
+  static int matchSuffix(char[] t, int len, int pos, String[] suffixes) {
+    for (String suffix : suffixes) {
+      if (regionMatchesIgnoreCase(t, len, pos, suffix)) {
+        return suffix.length();
+      }
+    }
+    return 0;
+  }
+
+  static int optional(char[] t, int len, int pos, String chars) {
+    return ((pos < len) && (contains(chars, t[pos]))) ? 1 : 0;
+  }
+
+  static boolean contains(String chars, char c) {
+    return chars.indexOf(c) >= 0;
+  }
+
+  static boolean regionMatches(char[] t, int len, int pos, String str) {
+    if (pos + str.length() > len) {
+      return false;
+    }
+    for (int i = 0; i < str.length(); i++) {
+      if (t[pos + i] != str.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean regionMatchesIgnoreCase(char[] t, int len, int pos,
+      String lowerCaseStr) {
+    if (pos + lowerCaseStr.length() > len) {
+      return false;
+    }
+    for (int i = 0; i < lowerCaseStr.length(); i++) {
+      // ASCII-only case folding like Pattern.CASE_INSENSITIVE
+      char c = t[pos + i];
+      if ((c >= 'A') && (c <= 'Z')) {
+        c = (char) (c + ('a' - 'A'));
+      }
+      if (c != lowerCaseStr.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean digits(char[] t, int len, int pos, int count) {
+    if (pos + count > len) {
+      return false;
+    }
+    for (int i = pos; i < pos + count; i++) {
+      if (!isDigit(t[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static int skipDigits(char[] t, int len, int pos) {
+    while ((pos < len) && (isDigit(t[pos]))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  static boolean isDelimiterBefore(char[] t, int pos) {
+    // (?<=^|[SPACE]|[PUNCTUATION])
+    return (pos == 0) || (isDelimiter(t[pos - 1]));
+  }
+
+  static boolean isDelimiterAfter(char[] t, int len, int pos) {
+    // (?=$|[SPACE]|[PUNCTUATION])
+    return (pos >= len) || (isDelimiter(Character.codePointAt(t, pos, len)));
+  }
+
+  /**
+   * Equivalent to the character classes RegexUtils.SPACE_REGEX and
+   * RegexUtils.PUNCTUATION_REGEX
+   */
+  static boolean isDelimiter(int codePoint) {
+    switch (Character.getType(codePoint)) {
+    // \p{Z}
+      case Character.SPACE_SEPARATOR:
+      case Character.LINE_SEPARATOR:
+      case Character.PARAGRAPH_SEPARATOR:
+        // \p{C} without \p{Cs}
+      case Character.CONTROL:
+      case Character.FORMAT:
+      case Character.PRIVATE_USE:
+      case Character.UNASSIGNED:
+        // \p{P}
+      case Character.CONNECTOR_PUNCTUATION:
+      case Character.DASH_PUNCTUATION:
+      case Character.START_PUNCTUATION:
+      case Character.END_PUNCTUATION:
+      case Character.INITIAL_QUOTE_PUNCTUATION:
+      case Character.FINAL_QUOTE_PUNCTUATION:
+      case Character.OTHER_PUNCTUATION:
+        // \p{M}
+      case Character.NON_SPACING_MARK:
+      case Character.ENCLOSING_MARK:
+      case Character.COMBINING_SPACING_MARK:
+        // \p{S}
+      case Character.MATH_SYMBOL:
+      case Character.CURRENCY_SYMBOL:
+      case Character.MODIFIER_SYMBOL:
+      case Character.OTHER_SYMBOL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  static boolean isEmoticonStart(char c) {
+    return (contains(EMOTICON_PREFIX, c)) || (contains(EMOTICON_EYES, c))
+        || (contains(EMOTICON_MOUTH, c));
+  }
+
+  static boolean isWhitespace(char c) {
+    // \s
+    return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\u000B')
+        || (c == '\f') || (c == '\r');
+  }
+
+  static boolean isDigit(char c) {
+    return (c >= '0') && (c <= '9');
+  }
+
+  static boolean isLetter(char c) {
+    return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'));
+  }
+
+  static boolean isAlphaNumeric(char c) {
+    return (isLetter(c)) || (isDigit(c));
+  }
+
+  static boolean isWordChar(char c) {
+    return (isAlphaNumeric(c)) || (c == '_');
+  }
+
+  static boolean isURLChar(char c) {
+    return (!isWhitespace(c)) && (c != '/') && (c != '?') && (c != '.')
+        && (c != '#') && (c != '-');
+  }
+
+  static boolean isPhoneSeparator(char c) {
+    return (c == '-') || (c == '.') || (isWhitespace(c));
+  }
+
+  static boolean isEmailLocalChar(char c) {
+    return (isAlphaNumeric(c)) || (c == '+') || (c == '.') || (c == '_')
+        || (c == '%') || (c == '-');
+  }
+
+  static boolean isEmailDomainChar(char c) {
+    return (isAlphaNumeric(c)) || (c == '-');
+  }
+
+  static boolean isNumberSeparator(char c) {
+    return (c == '/') || (c == '|') || (c == ',') || (c == '-');
+  }
+
+  static boolean isSpecialNumberSeparator(char c) {
+    return (c == '.') || (c == '|') || (c == ',') || (c == ':') || (c == '-');
+  }
+
+  public static void main(String[] args) {
+    // Differential test against RegexUtils.TOKENIZER_PATTERN
+    Dataset dataset = Configuration.getDataSetSemEval2013();
+    List<Tweet> tweets = new ArrayList<Tweet>();
+    tweets.addAll(dataset.getTrainTweets(true));
+    tweets.addAll(dataset.getTestTweets());
+
+    // check the raw text and the text after unicode and html replacement
+    List<String> texts = new ArrayList<String>();
+    for (Tweet tweet : tweets) {
+      texts.add(tweet.getText());
+    }
+    for (Tweet tweet : tweets) {
+      texts.add(Tokenizer.normalize(tweet.getText()));
+    }
+
+    long regexTime = 0;
+    long scannerTime = 0;
+    int differences = 0;
+    for (String text : texts) {
+      long startTime = System.nanoTime();
+      List<String> regexTokens = new ArrayList<String>();
+      Matcher m = RegexUtils.TOKENIZER_PATTERN.matcher(text);
+      while (m.find()) {
+        regexTokens.add(m.group());
+      }
+      regexTime += System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      List<String> scannerTokens = tokenize(text);
+      scannerTime += System.nanoTime() - startTime;
+
+      if (!regexTokens.equals(scannerTokens)) {
+        differences++;
+        LOG.error("Text: '" + text + "'");
+        LOG.error("Regex: " + regexTokens);
+        LOG.error("Scanner: " + scannerTokens);
+      }
+    }
+    LOG.info("Compared " + texts.size() + " texts, " + differences
+        + " differences");
+    LOG.info("Regex tokenizer: " + (regexTime / 1000000) + " ms");
+    LOG.info("Scanner tokenizer: " + (scannerTime / 1000000) + " ms");
+  }
+}
@@ -0,0 +1,188 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tokens of a text as offsets and lengths over its char array.
+ *
+ * Token Strings are only created on {@link #getToken(int)}. The buffers are
+ * reused by {@link #reset(String)}, an instance is not thread-safe.
+ */
+public class TokenSpans {
+  private char[] m_text;
+  private int m_textLength = 0;
+  private int[] m_offsets;
+  private int[] m_lengths;
+  private String[] m_tokens;
+  private int m_size = 0;
+
+  public TokenSpans() {
+    this(256, 32);
+  }
+
+  public TokenSpans(int textCapacity, int tokenCapacity) {
+    m_text = new char[textCapacity];
+    m_offsets = new int[tokenCapacity];
+    m_lengths = new int[tokenCapacity];
+    m_tokens = new String[tokenCapacity];
+  }
+
+  public TokenSpans(List<String> tokens) {
+    this(256, tokens.size());
+    reset(tokens);
+  }
+
+  /**
+   * Clears all spans and copies the chars of text into the buffer.
+   */
+  public void reset(String text) {
+    clear();
+    m_textLength = text.length();
+    if (m_text.length < m_textLength) {
+      m_text = new char[Math.max(m_textLength, m_text.length * 2)];
+    }
+    text.getChars(0, m_textLength, m_text, 0);
+  }
+
+  /**
+   * Clears all spans and concatenates the given tokens into the buffer. The
+   * token Strings are kept and returned by {@link #getToken(int)}.
+   */
+  public void reset(List<String> tokens) {
+    clear();
+    int textLength = 0;
+    for (String token : tokens) {
+      textLength += token.length();
+    }
+    if (m_text.length < textLength) {
+      m_text = new char[Math.max(textLength, m_text.length * 2)];
+    }
+    for (String token : tokens) {
+      int length = token.length();
+      token.getChars(0, length, m_text, m_textLength);
+      add(m_textLength, length);
+      m_tokens[m_size - 1] = token;
+      m_textLength += length;
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(m_tokens, 0, m_size, null);
+    m_size = 0;
+    m_textLength = 0;
+  }
+
+  public void add(int offset, int length) {
+    if (m_size == m_offsets.length) {
+      int capacity = Math.max(16, m_size * 2);
+      m_offsets = Arrays.copyOf(m_offsets, capacity);
+      m_lengths = Arrays.copyOf(m_lengths, capacity);
+      m_tokens = Arrays.copyOf(m_tokens, capacity);
+    }
+    m_offsets[m_size] = offset;
+    m_lengths[m_size] = length;
+    m_size++;
+  }
+
+  public int size() {
+    return m_size;
+  }
+
+  public boolean isEmpty() {
+    return m_size == 0;
+  }
+
+  /**
+   * Returns the shared text buffer, valid up to {@link #getTextLength()}.
+   */
+  public char[] getText() {
+    return m_text;
+  }
+
+  public int getTextLength() {
+    return m_textLength;
+  }
+
+  public int getOffset(int index) {
+    return m_offsets[index];
+  }
+
+  public int getLength(int index) {
+    return m_lengths[index];
+  }
+
+  public char charAt(int index, int pos) {
+    return m_text[m_offsets[index] + pos];
+  }
+
+  public boolean startsWith(int index, String prefix) {
+    int length = prefix.length();
+    if (m_lengths[index] < length) {
+      return false;
+    }
+    int offset = m_offsets[index];
+    for (int i = 0; i < length; i++) {
+      if (m_text[offset + i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean endsWith(int index, String suffix) {
+    int length = suffix.length();
+    if (m_lengths[index] < length) {
+      return false;
+    }
+    int offset = m_offsets[index] + m_lengths[index] - length;
+    for (int i = 0; i < length; i++) {
+      if (m_text[offset + i] != suffix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the token at index, the String is created on the first call.
+   */
+  public String getToken(int index) {
+    String token = m_tokens[index];
+    if (token == null) {
+      token = new String(m_text, m_offsets[index], m_lengths[index]);
+      m_tokens[index] = token;
+    }
+    return token;
+  }
+
+  public List<String> toList() {
+    List<String> tokens = new ArrayList<String>(m_size);
+    for (int i = 0; i < m_size; i++) {
+      tokens.add(getToken(i));
+    }
+    return tokens;
+  }
+
+  @Override
+  public String toString() {
+    return toList().toString();
+  }
+}
@@ -28,7 +28,9 @@ import at.illecker.storm.commons.Configuration;
 import at.illecker.storm.commons.Dataset;
 import at.illecker.storm.commons.tweet.Tweet;
 import at.illecker.storm.commons.util.HtmlUtils;
+import at.illecker.storm.commons.util.ParallelUtils;
 import at.illecker.storm.commons.util.RegexUtils;
+import at.illecker.storm.commons.util.TextNormalizer;
 import at.illecker.storm.commons.util.UnicodeUtils;
 import cmu.arktweetnlp.Twokenize;
 import edu.stanford.nlp.ling.HasWord;
@@ -41,9 +43,15 @@ public class Tokenizer {
   private static final Logger LOG = LoggerFactory.getLogger(Tokenizer.class);
   private static final boolean LOGGING = Configuration.get(
       "commons.tokenizer.logging", false);
+  private static final ThreadLocal<TextNormalizer> NORMALIZER = new ThreadLocal<TextNormalizer>() {
+    @Override
+    protected TextNormalizer initialValue() {
+      return new TextNormalizer();
+    }
+  };
 
   public static enum Type {
-    REGEX_TOKENIZER, ARK_TOKENIZER, STANFORD_TOKENIZER
+    REGEX_TOKENIZER, SCANNER_TOKENIZER, ARK_TOKENIZER, STANFORD_TOKENIZER
   }
 
   public static List<List<String>> tokenizeTweets(List<Tweet> tweets) {
@@ -58,35 +66,31 @@ public class Tokenizer {
     return tokenizedTweets;
   }
 
+  public static List<List<String>> tokenizeTweetsParallel(List<Tweet> tweets) {
+    return tokenizeTweetsParallel(tweets, Type.REGEX_TOKENIZER);
+  }
+
+  /**
+   * Tokenizes the tweets in parallel, the order of the tweets is preserved.
+   */
+  public static List<List<String>> tokenizeTweetsParallel(List<Tweet> tweets,
+      final Type type) {
+    return ParallelUtils.map(tweets,
+        new ParallelUtils.Task<Tweet, List<String>>() {
+          @Override
+          public List<String> apply(Tweet tweet) {
+            return tokenize(tweet.getText(), type);
+          }
+        });
+  }
+
   public static List<String> tokenize(String str) {
     return tokenize(str, Type.REGEX_TOKENIZER);
   }
 
   public static List<String> tokenize(String str, Type type) {
-    // Step 1) Trim text
-    str = str.trim();
-
-    // Step 2) Replace Unicode symbols \u0000
-    if (UnicodeUtils.containsUnicode(str)) {
-      String replacedText = UnicodeUtils.replaceUnicodeSymbols(str);
-      // LOG.info("Replaced Unicode symbols from '" + str + "' to '"
-      // + replacedText + "'");
-      if ((LOGGING) && (replacedText.equals(str))) {
-        LOG.warn("Unicode symbols could not be replaced: '" + str + "'");
-      }
-      str = replacedText;
-    }
-
-    // Step 3) Replace HTML symbols &#[0-9];
-    if (HtmlUtils.containsHtml(str)) {
-      String replacedText = HtmlUtils.replaceHtmlSymbols(str);
-      // LOG.info("Replaced HTML symbols from '" + text + "' to '"
-      // + replacedText + "'");
-      if ((LOGGING) && (replacedText.equals(str))) {
-        LOG.warn("HTML symbols could not be replaced: '" + str + "'");
-      }
-      str = replacedText;
-    }
+    // Step 1-3) Trim text and replace Unicode and HTML symbols
+    str = normalize(str);
 
     // Step 4) Tokenize
     List<String> tokenizedTokens = null;
@@ -100,6 +104,10 @@ public class Tokenizer {
         }
         break;
 
+      case SCANNER_TOKENIZER:
+        tokenizedTokens = TokenScanner.tokenize(str);
+        break;
+
       case ARK_TOKENIZER:
         tokenizedTokens = Twokenize.tokenize(str);
         break;
@@ -126,6 +134,31 @@ public class Tokenizer {
     return tokenizedTokens;
   }
 
+  /**
+   * Tokenizes str with the SCANNER_TOKENIZER into spans, token Strings are
+   * only created on demand.
+   */
+  public static void tokenize(String str, TokenSpans spans) {
+    // Step 1-3) Trim text and replace Unicode and HTML symbols
+    str = normalize(str);
+
+    // Step 4) Tokenize
+    TokenScanner.tokenize(str, spans);
+  }
+
+  public static String normalize(String str) {
+    // Step 1) Trim text
+    // Step 2) Replace Unicode symbols \u0000
+    // Step 3) Replace HTML symbols &#[0-9];
+    String normalizedText = NORMALIZER.get().normalize(str);
+    if ((LOGGING) && (normalizedText.equals(str.trim()))
+        && ((UnicodeUtils.containsUnicode(normalizedText)) || (HtmlUtils
+            .containsHtml(normalizedText)))) {
+      LOG.warn("Unicode or HTML symbols could not be replaced: '" + str + "'");
+    }
+    return normalizedText;
+  }
+
   public static void main(String[] args) {
     boolean extendedTest = true;
     List<Tweet> tweets = null;
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.util;
+
+/**
+ * Bloom filter of Strings, a negative answer is exact and a positive one may
+ * be a false positive.
+ */
+public class BloomFilter {
+  private final long[] m_bits;
+  private final int m_numBits;
+  private final int m_numHashes;
+
+  /**
+   * Creates a filter for expectedSize elements, bitsPerElement bits per
+   * element give a false positive rate of about 0.6185^bitsPerElement.
+   */
+  public BloomFilter(int expectedSize, int bitsPerElement) {
+    long numBits = Math.max(64L, (long) expectedSize * bitsPerElement);
+    m_numBits = (int) Math.min(numBits, Integer.MAX_VALUE - 63);
+    m_bits = new long[(m_numBits + 63) >>> 6];
+    m_numHashes = Math.max(1, (int) Math.round(bitsPerElement * Math.log(2)));
+  }
+
+  public void add(String value) {
+    int h1 = value.hashCode();
+    int h2 = hash2(value);
+    for (int i = 0; i < m_numHashes; i++) {
+      int bit = ((h1 + i * h2) & 0x7fffffff) % m_numBits;
+      m_bits[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  public boolean mightContain(String value) {
+    int h1 = value.hashCode();
+    int h2 = hash2(value);
+    for (int i = 0; i < m_numHashes; i++) {
+      int bit = ((h1 + i * h2) & 0x7fffffff) % m_numBits;
+      if ((m_bits[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hash2(String value) {
+    // FNV-1a, independent of String.hashCode
+    int h = 0x811c9dc5;
+    for (int i = 0; i < value.length(); i++) {
+      h ^= value.charAt(i);
+      h *= 0x01000193;
+    }
+    return h | 1;
+  }
+}
@@ -17,6 +17,7 @@
 package at.illecker.storm.commons.util;
 
 public class HtmlUtils {
+  private static final SymbolTable ENTITIES = createEntityTable();
 
   public static boolean containsHtml(String str) {
     if (str == null) {
@@ -26,88 +27,129 @@ public class HtmlUtils {
   }
 
   public static String replaceHtmlSymbols(String str) {
-    String result = str;
-    result = result.replaceAll("<p>|</p>", "");
+    return ENTITIES.replace(str).trim();
+  }
+
+  public static SymbolTable createEntityTable() {
+    SymbolTable table = new SymbolTable();
+    table.put("<p>", "");
+    table.put("</p>", "");
 
     // http://www.ascii.cl/htmlcodes.htm
     // space
-    result = result.replaceAll("&#32;|&#032;", " ");
+    table.put("&#32;", " ");
+    table.put("&#032;", " ");
     // exclamation point
-    result = result.replaceAll("&#33;|&#033;", "!");
+    table.put("&#33;", "!");
+    table.put("&#033;", "!");
     // double quotes
-    result = result.replaceAll("&quot;|&#34;|&#034;", "\"");
+    table.put("&quot;", "\"");
+    table.put("&#34;", "\"");
+    table.put("&#034;", "\"");
     // number sign
-    result = result.replaceAll("&#35;|&#035;", "#");
+    table.put("&#35;", "#");
+    table.put("&#035;", "#");
     // dollar sign
-    result = result.replaceAll("&#36;|&#036;", "$");
+    table.put("&#36;", "$");
+    table.put("&#036;", "$");
     // percent sign
-    result = result.replaceAll("&#37;|&#037;", "%");
+    table.put("&#37;", "%");
+    table.put("&#037;", "%");
     // ampersand
-    result = result.replaceAll("&amp;|&#38;|&#038;", "&");
+    table.put("&amp;", "&");
+    table.put("&#38;", "&");
+    table.put("&#038;", "&");
     // single quote
-    result = result.replaceAll("&#39;|&#039;", "'");
+    table.put("&#39;", "'");
+    table.put("&#039;", "'");
     // opening parenthesis
-    result = result.replaceAll("&#40;|&#040;", "(");
+    table.put("&#40;", "(");
+    table.put("&#040;", "(");
     // closing parenthesis
-    result = result.replaceAll("&#41;|&#041;", ")");
+    table.put("&#41;", ")");
+    table.put("&#041;", ")");
     // asterisk
-    result = result.replaceAll("&#42;|&#042;", "*");
+    table.put("&#42;", "*");
+    table.put("&#042;", "*");
     // plus sign
-    result = result.replaceAll("&#43;|&#043;", "+");
+    table.put("&#43;", "+");
+    table.put("&#043;", "+");
     // comma
-    result = result.replaceAll("&#44;|&#044;", ",");
+    table.put("&#44;", ",");
+    table.put("&#044;", ",");
     // minus sign - hyphen
-    result = result.replaceAll("&#45;|&#045;", "-");
+    table.put("&#45;", "-");
+    table.put("&#045;", "-");
     // period
-    result = result.replaceAll("&#46;|&#046;", ".");
+    table.put("&#46;", ".");
+    table.put("&#046;", ".");
     // slash
-    result = result.replaceAll("&#47;|&#047;", "/");
+    table.put("&#47;", "/");
+    table.put("&#047;", "/");
     // colon
-    result = result.replaceAll("&#58;|&#058;", ":");
+    table.put("&#58;", ":");
+    table.put("&#058;", ":");
     // semicolon
-    result = result.replaceAll("&#59;|&#059;", ";");
+    table.put("&#59;", ";");
+    table.put("&#059;", ";");
     // less than sign
-    result = result.replaceAll("&lt;|&#60;|&#060;", "<");
+    table.put("&lt;", "<");
+    table.put("&#60;", "<");
+    table.put("&#060;", "<");
     // equal sign
-    result = result.replaceAll("&#61;|&#061;", "=");
+    table.put("&#61;", "=");
+    table.put("&#061;", "=");
     // greater than sign
-    result = result.replaceAll("&gt;|&#62;|&#062;", ">");
+    table.put("&gt;", ">");
+    table.put("&#62;", ">");
+    table.put("&#062;", ">");
     // question mark
-    result = result.replaceAll("&#63;|&#063;", "?");
+    table.put("&#63;", "?");
+    table.put("&#063;", "?");
     // at symbol
-    result = result.replaceAll("&#64;|&#064;", "@");
+    table.put("&#64;", "@");
+    table.put("&#064;", "@");
     // opening bracket
-    result = result.replaceAll("&#91;|&#091;", "[");
+    table.put("&#91;", "[");
+    table.put("&#091;", "[");
     // backslash
-    result = result.replaceAll("&#92;|&#092;", "\\");
+    table.put("&#92;", "\\");
+    table.put("&#092;", "\\");
     // closing bracket
-    result = result.replaceAll("&#93;|&#093;", "]");
+    table.put("&#93;", "]");
+    table.put("&#093;", "]");
     // caret - circumflex
-    result = result.replaceAll("&#94;|&#094;", "^");
+    table.put("&#94;", "^");
+    table.put("&#094;", "^");
     // underscore
-    result = result.replaceAll("&#95;|&#095;", "_");
+    table.put("&#95;", "_");
+    table.put("&#095;", "_");
     // opening brace
-    result = result.replaceAll("&#123;", "{");
+    table.put("&#123;", "{");
     // vertical bar
-    result = result.replaceAll("&#124;", "|");
+    table.put("&#124;", "|");
     // closing brace
-    result = result.replaceAll("&#125;", "}");
+    table.put("&#125;", "}");
     // equivalency sign - tilde
-    result = result.replaceAll("&#126;", "~");
+    table.put("&#126;", "~");
 
     // non-breaking space
-    result = result.replaceAll("&nbsp;|&#160;", " ");
+    table.put("&nbsp;", " ");
+    table.put("&#160;", " ");
 
     // en dash & em dash
-    result = result.replaceAll("&#8211;|&#8212;", "-");
+    table.put("&#8211;", "-");
+    table.put("&#8212;", "-");
     // left & right single quotation mark
-    result = result.replaceAll("&#8216;|&#8217;", "'");
+    table.put("&#8216;", "'");
+    table.put("&#8217;", "'");
     // single low-9 quotation mark
-    result = result.replaceAll("&#8218;", ",");
+    table.put("&#8218;", ",");
     // left & right double quotation mark
-    result = result.replaceAll("&#8220;|&#8221;", "\"");
+    table.put("&#8220;", "\"");
+    table.put("&#8221;", "\"");
 
-    return result.trim();
+    return table;
   }
 
   public static void main(String[] args) {
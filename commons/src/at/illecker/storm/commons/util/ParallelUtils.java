@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.illecker.storm.commons.Configuration;
+
+/**
+ * Order-preserving parallel batch operations on a shared ForkJoinPool.
+ *
+ * The pool size is read from commons.parallelism and defaults to the number
+ * of available processors. Tasks must be thread-safe.
+ */
+public class ParallelUtils {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(ParallelUtils.class);
+  public static final int PARALLELISM = Configuration.get(
+      "commons.parallelism", Runtime.getRuntime().availableProcessors());
+  // min number of elements processed sequentially by one fork-join task
+  private static final int MIN_SPLIT_SIZE = 16;
+  private static volatile ForkJoinPool POOL;
+
+  public interface Task<I, O> {
+    public O apply(I input);
+  }
+
+  private ParallelUtils() {
+  }
+
+  public static ForkJoinPool getPool() {
+    ForkJoinPool pool = POOL;
+    if (pool == null) {
+      synchronized (ParallelUtils.class) {
+        pool = POOL;
+        if (pool == null) {
+          pool = new ForkJoinPool(Math.max(1, PARALLELISM));
+          LOG.info("ForkJoinPool parallelism: " + pool.getParallelism());
+          POOL = pool;
+        }
+      }
+    }
+    return pool;
+  }
+
+  /**
+   * Applies task to every input in parallel and returns the results in the
+   * order of the inputs.
+   */
+  public static <I, O> List<O> map(List<I> inputs, Task<I, O> task) {
+    // random access copy of the inputs, the tasks only set their results
+    List<I> in = new ArrayList<I>(inputs);
+    List<O> out = new ArrayList<O>(Collections.<O> nCopies(in.size(), null));
+    if (!in.isEmpty()) {
+      int threshold = Math.max(MIN_SPLIT_SIZE, in.size()
+          / (getPool().getParallelism() * 8));
+      getPool().invoke(new MapAction<I, O>(in, out, 0, in.size(), threshold,
+          task));
+    }
+    return out;
+  }
+
+  private static class MapAction<I, O> extends RecursiveAction {
+    private static final long serialVersionUID = 4413458347429735962L;
+    private final List<I> m_inputs;
+    private final List<O> m_outputs;
+    private final int m_start;
+    private final int m_end;
+    private final int m_threshold;
+    private final Task<I, O> m_task;
+
+    public MapAction(List<I> inputs, List<O> outputs, int start, int end,
+        int threshold, Task<I, O> task) {
+      m_inputs = inputs;
+      m_outputs = outputs;
+      m_start = start;
+      m_end = end;
+      m_threshold = threshold;
+      m_task = task;
+    }
+
+    @Override
+    protected void compute() {
+      if (m_end - m_start <= m_threshold) {
+        for (int i = m_start; i < m_end; i++) {
+          m_outputs.set(i, m_task.apply(m_inputs.get(i)));
+        }
+      } else {
+        int mid = (m_start + m_end) >>> 1;
+        invokeAll(new MapAction<I, O>(m_inputs, m_outputs, m_start, mid,
+            m_threshold, m_task), new MapAction<I, O>(m_inputs, m_outputs,
+            mid, m_end, m_threshold, m_task));
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    List<Integer> inputs = new ArrayList<Integer>();
+    for (int i = 0; i < 100000; i++) {
+      inputs.add(i);
+    }
+    Task<Integer, String> task = new Task<Integer, String>() {
+      @Override
+      public String apply(Integer input) {
+        return Integer.toHexString(input * 31);
+      }
+    };
+    List<String> expected = new ArrayList<String>();
+    for (Integer input : inputs) {
+      expected.add(task.apply(input));
+    }
+    List<String> results = map(inputs, task);
+    LOG.info("Parallel map equals sequential map: " + expected.equals(results)
+        + " (" + getPool().getParallelism() + " threads)");
+  }
+}
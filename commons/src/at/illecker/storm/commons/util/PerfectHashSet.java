@@ -0,0 +1,329 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable String set based on a minimal perfect hash function, which can be
+ * queried by char sequences and char ranges without creating a String.
+ *
+ * The keys are hashed into buckets of about four keys. Each bucket stores a
+ * seed which maps its keys to distinct slots of a table with exactly one
+ * slot per key (hash and displace), buckets of a single key store their slot
+ * directly. A slot stores a 32-bit fingerprint of its key, which rejects
+ * almost all other strings before the chars are compared. The keys are
+ * stored in one char array.
+ *
+ * containsLowerCase(str) returns the same as
+ * contains(str.toString().toLowerCase()). ASCII chars are lowercased while
+ * hashing, strings containing other chars fall back to String.toLowerCase.
+ */
+public class PerfectHashSet {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(PerfectHashSet.class);
+  private static final int BUCKET_SIZE = 4;
+  private static final int MAX_SEED = 1 << 24;
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  // String.toLowerCase of ASCII chars depends on the default locale
+  private static final boolean ASCII_LOWER_CASE = !Arrays.asList("tr",
+      "az").contains(Locale.getDefault().getLanguage());
+
+  private final int m_size;
+  // seed of a bucket or -(slot + 1) for buckets of a single key
+  private final int[] m_seeds;
+  private final int[] m_fingerprints;
+  // key of slot i is m_chars[m_offsets[i]] to m_chars[m_offsets[i + 1]]
+  private final int[] m_offsets;
+  private final char[] m_chars;
+
+  public PerfectHashSet(Collection<String> values) {
+    String[] keys = new LinkedHashSet<String>(values).toArray(new String[0]);
+    m_size = keys.length;
+    m_seeds = new int[Math.max(1, m_size / BUCKET_SIZE)];
+    m_fingerprints = new int[m_size];
+    m_offsets = new int[m_size + 1];
+
+    // group the keys by bucket
+    long[] hashes = new long[m_size];
+    int[] bucketStarts = new int[m_seeds.length + 1];
+    for (int i = 0; i < m_size; i++) {
+      hashes[i] = hash(keys[i]);
+      bucketStarts[bucket(hashes[i]) + 1]++;
+    }
+    for (int i = 0; i < m_seeds.length; i++) {
+      bucketStarts[i + 1] += bucketStarts[i];
+    }
+    int[] bucketKeys = new int[m_size];
+    int[] positions = Arrays.copyOf(bucketStarts, m_seeds.length);
+    for (int i = 0; i < m_size; i++) {
+      bucketKeys[positions[bucket(hashes[i])]++] = i;
+    }
+
+    // place the largest buckets first
+    long[] buckets = new long[m_seeds.length];
+    for (int i = 0; i < m_seeds.length; i++) {
+      long bucketSize = bucketStarts[i + 1] - bucketStarts[i];
+      buckets[i] = (bucketSize << 32) | i;
+    }
+    Arrays.sort(buckets);
+
+    int[] slotKeys = new int[m_size];
+    Arrays.fill(slotKeys, -1);
+    int[] slots = new int[BUCKET_SIZE];
+    int freeSlot = 0;
+    for (int i = buckets.length - 1; i >= 0; i--) {
+      int bucket = (int) buckets[i];
+      int start = bucketStarts[bucket];
+      int bucketSize = bucketStarts[bucket + 1] - start;
+      if (bucketSize == 0) {
+        break;
+      } else if (bucketSize == 1) {
+        while (slotKeys[freeSlot] >= 0) {
+          freeSlot++;
+        }
+        slotKeys[freeSlot] = bucketKeys[start];
+        m_seeds[bucket] = -(freeSlot + 1);
+        continue;
+      }
+      if (slots.length < bucketSize) {
+        slots = new int[bucketSize];
+      }
+      for (int seed = 0;; seed++) {
+        if (seed == MAX_SEED) {
+          throw new IllegalArgumentException("Keys could not be placed, "
+              + "hash collision in bucket " + bucket);
+        }
+        int placed = 0;
+        while (placed < bucketSize) {
+          int slot = slot(hashes[bucketKeys[start + placed]], seed);
+          if (slotKeys[slot] >= 0) {
+            break;
+          }
+          // reserve the slot, released again if the seed fails
+          slotKeys[slot] = bucketKeys[start + placed];
+          slots[placed++] = slot;
+        }
+        if (placed == bucketSize) {
+          m_seeds[bucket] = seed;
+          break;
+        }
+        for (int j = 0; j < placed; j++) {
+          slotKeys[slots[j]] = -1;
+        }
+      }
+    }
+
+    int length = 0;
+    for (String key : keys) {
+      length += key.length();
+    }
+    m_chars = new char[length];
+    for (int i = 0; i < m_size; i++) {
+      String key = keys[slotKeys[i]];
+      key.getChars(0, key.length(), m_chars, m_offsets[i]);
+      m_offsets[i + 1] = m_offsets[i] + key.length();
+      m_fingerprints[i] = (int) hashes[slotKeys[i]];
+    }
+  }
+
+  public int size() {
+    return m_size;
+  }
+
+  /**
+   * Returns the approximate heap size of the set in bytes.
+   */
+  public long getBytes() {
+    return 4L * (m_seeds.length + m_fingerprints.length + m_offsets.length)
+        + 2L * m_chars.length;
+  }
+
+  public boolean contains(CharSequence str) {
+    int length = str.length();
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < length; i++) {
+      hash = (hash ^ str.charAt(i)) * FNV_PRIME;
+    }
+    int slot = find(hash, length);
+    if (slot < 0) {
+      return false;
+    }
+    int offset = m_offsets[slot];
+    for (int i = 0; i < length; i++) {
+      if (m_chars[offset + i] != str.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Same as contains(str.toString().toLowerCase())
+   */
+  public boolean containsLowerCase(CharSequence str) {
+    int length = str.length();
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < length; i++) {
+      char c = str.charAt(i);
+      if ((c >= 0x80) || (!ASCII_LOWER_CASE)) {
+        return contains(str.toString().toLowerCase());
+      }
+      hash = (hash ^ toLowerCase(c)) * FNV_PRIME;
+    }
+    int slot = find(hash, length);
+    if (slot < 0) {
+      return false;
+    }
+    int offset = m_offsets[slot];
+    for (int i = 0; i < length; i++) {
+      if (m_chars[offset + i] != toLowerCase(str.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Same as contains(new String(text, offset, length).toLowerCase())
+   */
+  public boolean containsLowerCase(char[] text, int offset, int length) {
+    int end = offset + length;
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = offset; i < end; i++) {
+      char c = text[i];
+      if ((c >= 0x80) || (!ASCII_LOWER_CASE)) {
+        return contains(new String(text, offset, length).toLowerCase());
+      }
+      hash = (hash ^ toLowerCase(c)) * FNV_PRIME;
+    }
+    int slot = find(hash, length);
+    if (slot < 0) {
+      return false;
+    }
+    int keyOffset = m_offsets[slot] - offset;
+    for (int i = offset; i < end; i++) {
+      if (m_chars[keyOffset + i] != toLowerCase(text[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the slot of the FNV hash if its fingerprint and length match or
+   * -1.
+   */
+  private int find(long fnvHash, int length) {
+    if (m_size == 0) {
+      return -1;
+    }
+    long hash = mix(fnvHash);
+    int seed = m_seeds[bucket(hash)];
+    int slot = (seed < 0) ? -(seed + 1) : slot(hash, seed);
+    if ((m_fingerprints[slot] != (int) hash)
+        || (m_offsets[slot + 1] - m_offsets[slot] != length)) {
+      return -1;
+    }
+    return slot;
+  }
+
+  private static long hash(String key) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < key.length(); i++) {
+      hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+    }
+    return mix(hash);
+  }
+
+  private int bucket(long hash) {
+    return (int) (((hash >>> 32) * m_seeds.length) >>> 32);
+  }
+
+  private int slot(long hash, int seed) {
+    long slotHash = mix(hash ^ (seed * 0x9e3779b97f4a7c15L));
+    return (int) (((slotHash >>> 32) * m_size) >>> 32);
+  }
+
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  private static char toLowerCase(char c) {
+    return ((c >= 'A') && (c <= 'Z')) ? (char) (c + 32) : c;
+  }
+
+  public static void main(String[] args) {
+    // Differential test against a HashSet
+    String alphabet = "abcdeABCDE'-äÄİ";
+    Random random = new Random(1);
+    for (int size : new int[] { 0, 1, 2, 5, 100, 10000, 1000000 }) {
+      Set<String> expected = new HashSet<String>();
+      while (expected.size() < size) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(12);
+        for (int j = 0; j < length; j++) {
+          sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        expected.add(sb.toString());
+      }
+      long startTime = System.currentTimeMillis();
+      PerfectHashSet set = new PerfectHashSet(expected);
+      long buildTime = System.currentTimeMillis() - startTime;
+
+      List<String> queries = new ArrayList<String>(expected);
+      for (int i = 0; i < 1000000; i++) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(12);
+        for (int j = 0; j < length; j++) {
+          sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        queries.add(sb.toString());
+      }
+      int differences = 0;
+      for (String query : queries) {
+        String lowerCase = query.toLowerCase();
+        char[] text = ("x" + query + "y").toCharArray();
+        if ((set.contains(query) != expected.contains(query))
+            || (set.containsLowerCase(query) != expected.contains(lowerCase))
+            || (set.containsLowerCase(text, 1, query.length()) != expected
+                .contains(lowerCase))) {
+          differences++;
+          LOG.error("'" + query + "' expected: " + expected.contains(query));
+        }
+      }
+      LOG.info(size + " keys: " + differences + " differences, "
+          + set.getBytes() + " bytes, built in " + buildTime + " ms");
+    }
+  }
+}
@@ -0,0 +1,1047 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Set of regex patterns and literals combined into one automaton.
+ *
+ * accepts(str) returns true if str equals one of the literals or one of the
+ * patterns matches str, like a loop over Pattern.matcher(str).matches()
+ * (Mode.MATCHES) or Pattern.matcher(str).find() (Mode.FIND) would do.
+ *
+ * All patterns are compiled into one Thompson NFA, which is run as a lazily
+ * built DFA in a single pass over the code points of str. Patterns using
+ * constructs which are not supported by the automaton (e.g., back
+ * references, lookarounds, flags or possessive quantifiers) are kept as
+ * java.util.regex.Pattern and are only checked if the automaton does not
+ * accept.
+ *
+ * The automaton must be built before it is used, accepts is thread-safe.
+ */
+public class RegexAutomaton {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(RegexAutomaton.class);
+  private static final int MAX_DFA_STATES = 10000;
+  private static final int MAX_REPETITIONS = 100;
+  // String.toLowerCase of ASCII chars depends on the default locale
+  private static final boolean ASCII_LOWER_CASE = !Arrays.asList("tr",
+      "az").contains(Locale.getDefault().getLanguage());
+
+  // NFA node types
+  private static final int EPSILON = 0;
+  private static final int CHARS = 1;
+  private static final int BEGIN = 2;
+  private static final int END = 3;
+  private static final int ACCEPT = 4;
+  private static final int ACCEPT_LITERAL = 5;
+
+  private static final int[] DOT = { 0, 0x09, 0x0B, 0x0C, 0x0E, 0x84, 0x86,
+      0x2027, 0x202A, Character.MAX_CODE_POINT };
+  private static final int[] DIGIT = { '0', '9' };
+  private static final int[] SPACE = { 0x09, 0x0D, ' ', ' ' };
+  private static final int[] WORD = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+
+  public static enum Mode {
+    MATCHES, FIND
+  }
+
+  private final Mode m_mode;
+
+  // NFA
+  private int m_nodeCount = 0;
+  private int[] m_types = new int[64];
+  private int[][] m_outs = new int[64][];
+  private int[][] m_ranges = new int[64][];
+  private final int m_start;
+  private final int m_literalRoot;
+  private final int m_patternStart;
+  private final Map<Long, Integer> m_literalTrie =
+      new HashMap<Long, Integer>();
+
+  private final Set<String> m_literals = new HashSet<String>();
+  private final List<Pattern> m_patterns = new ArrayList<Pattern>();
+  private final List<Pattern> m_fallbackPatterns = new ArrayList<Pattern>();
+
+  // DFA
+  private final ConcurrentHashMap<NodeSet, DState> m_states =
+      new ConcurrentHashMap<NodeSet, DState>();
+  private boolean m_injectionDead;
+  private volatile DState m_initial;
+
+  public RegexAutomaton(Mode mode) {
+    m_mode = mode;
+    m_start = addNode(EPSILON, new int[0], null);
+    m_literalRoot = addNode(EPSILON, new int[0], null);
+    m_patternStart = addNode(EPSILON, new int[0], null);
+    addOut(m_start, m_literalRoot);
+    addOut(m_start, m_patternStart);
+  }
+
+  public Mode getMode() {
+    return m_mode;
+  }
+
+  public int getLiteralCount() {
+    return m_literals.size();
+  }
+
+  public int getPatternCount() {
+    return m_patterns.size();
+  }
+
+  public int getFallbackPatternCount() {
+    return m_fallbackPatterns.size();
+  }
+
+  /**
+   * Adds a literal, which is accepted if it equals the whole input.
+   */
+  public void addLiteral(String literal) {
+    if (!m_literals.add(literal)) {
+      return;
+    }
+    int node = m_literalRoot;
+    for (int i = 0; i < literal.length();) {
+      int cp = literal.codePointAt(i);
+      i += Character.charCount(cp);
+      Long key = ((long) node << 32) | cp;
+      Integer next = m_literalTrie.get(key);
+      if (next == null) {
+        next = addNode(EPSILON, new int[0], null);
+        addOut(node, addNode(CHARS, new int[] { next }, new int[] { cp, cp }));
+        m_literalTrie.put(key, next);
+      }
+      node = next;
+    }
+    addOut(node, addNode(ACCEPT_LITERAL, new int[0], null));
+    clearStates();
+  }
+
+  /**
+   * Adds a regex pattern. Throws a PatternSyntaxException like
+   * Pattern.compile if the regex is invalid.
+   */
+  public void addPattern(String regex) {
+    Pattern pattern = Pattern.compile(regex);
+    m_patterns.add(pattern);
+    Node ast = new Parser(regex).parse();
+    if (ast == null) {
+      m_fallbackPatterns.add(pattern);
+      return;
+    }
+    int accept = addNode(ACCEPT, new int[0], null);
+    addOut(m_patternStart, compile(ast, accept));
+    clearStates();
+  }
+
+  /**
+   * Same as accepts(str.toLowerCase()) without creating a lowercased copy of
+   * ASCII strings.
+   */
+  public boolean acceptsLowerCase(String str) {
+    if (ASCII_LOWER_CASE) {
+      int len = str.length();
+      int i = 0;
+      while ((i < len) && (str.charAt(i) < 0x80)) {
+        i++;
+      }
+      if (i == len) {
+        return accepts(str, true);
+      }
+    }
+    return accepts(str.toLowerCase(), false);
+  }
+
+  public boolean accepts(String str) {
+    return accepts(str, false);
+  }
+
+  private boolean accepts(String str, boolean toLowerCase) {
+    if ((m_mode == Mode.FIND) && (containsSurrogate(str))) {
+      // Matcher.find may start a match at a low surrogate,
+      // use the patterns for such texts
+      String text = (toLowerCase) ? str.toLowerCase() : str;
+      if (m_literals.contains(text)) {
+        return true;
+      }
+      for (Pattern pattern : m_patterns) {
+        if (pattern.matcher(text).find()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    if (run(str, toLowerCase)) {
+      return true;
+    }
+
+    if (!m_fallbackPatterns.isEmpty()) {
+      String text = (toLowerCase) ? str.toLowerCase() : str;
+      for (Pattern pattern : m_fallbackPatterns) {
+        if ((m_mode == Mode.MATCHES) ? pattern.matcher(text).matches()
+            : pattern.matcher(text).find()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean run(String str, boolean toLowerCase) {
+    int len = str.length();
+    DState state = initialState();
+    int pos = 0;
+    while (true) {
+      // resolve $ at the end or before a final line terminator
+      if ((state.hasEnd) && (isDollar(str, pos, len))) {
+        state = endVariant(state, pos == 0);
+      }
+      if ((m_mode == Mode.FIND) && (state.accept)) {
+        return true;
+      }
+      if (pos == len) {
+        return (state.accept) || (state.acceptLiteral);
+      }
+      if (state.dead) {
+        return false;
+      }
+      int cp = str.codePointAt(pos);
+      pos += Character.charCount(cp);
+      if ((toLowerCase) && (cp >= 'A') && (cp <= 'Z')) {
+        cp += 32;
+      }
+      state = next(state, cp);
+    }
+  }
+
+  private static boolean containsSurrogate(String str) {
+    for (int i = 0; i < str.length(); i++) {
+      if (Character.isSurrogate(str.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Same as the non-multiline $ of java.util.regex.
+   */
+  private static boolean isDollar(String str, int pos, int len) {
+    if (pos == len) {
+      return true;
+    }
+    char c = str.charAt(pos);
+    if (pos == len - 1) {
+      if (c == '\n') {
+        return (pos == 0) || (str.charAt(pos - 1) != '\r');
+      }
+      return (c == '\r') || (c == 0x85) || (c == 0x2028) || (c == 0x2029);
+    }
+    return (pos == len - 2) && (c == '\r') && (str.charAt(pos + 1) == '\n');
+  }
+
+  /*
+   * NFA construction
+   */
+
+  private int addNode(int type, int[] outs, int[] ranges) {
+    if (m_nodeCount == m_types.length) {
+      int capacity = m_nodeCount * 2;
+      m_types = Arrays.copyOf(m_types, capacity);
+      m_outs = Arrays.copyOf(m_outs, capacity);
+      m_ranges = Arrays.copyOf(m_ranges, capacity);
+    }
+    m_types[m_nodeCount] = type;
+    m_outs[m_nodeCount] = outs;
+    m_ranges[m_nodeCount] = ranges;
+    return m_nodeCount++;
+  }
+
+  private void addOut(int node, int out) {
+    int[] outs = Arrays.copyOf(m_outs[node], m_outs[node].length + 1);
+    outs[outs.length - 1] = out;
+    m_outs[node] = outs;
+  }
+
+  /**
+   * Compiles the AST into NFA nodes leading to next and returns the start
+   * node.
+   */
+  private int compile(Node node, int next) {
+    switch (node.type) {
+      case Node.CHARS:
+        return addNode(CHARS, new int[] { next }, node.ranges);
+      case Node.BEGIN:
+        return addNode(BEGIN, new int[] { next }, null);
+      case Node.END:
+        return addNode(END, new int[] { next }, null);
+      case Node.CONCAT:
+        for (int i = node.children.size() - 1; i >= 0; i--) {
+          next = compile(node.children.get(i), next);
+        }
+        return next;
+      case Node.ALTERNATION:
+        int[] starts = new int[node.children.size()];
+        for (int i = 0; i < starts.length; i++) {
+          starts[i] = compile(node.children.get(i), next);
+        }
+        return addNode(EPSILON, starts, null);
+      case Node.REPEAT:
+        Node child = node.children.get(0);
+        int start = next;
+        if (node.max < 0) {
+          int loop = addNode(EPSILON, new int[0], null);
+          addOut(loop, compile(child, loop));
+          addOut(loop, next);
+          start = loop;
+        } else {
+          for (int i = node.min; i < node.max; i++) {
+            start = addNode(EPSILON, new int[] { compile(child, start), next },
+                null);
+          }
+        }
+        for (int i = 0; i < node.min; i++) {
+          start = compile(child, start);
+        }
+        return start;
+      default:
+        throw new IllegalStateException("Unknown node type " + node.type);
+    }
+  }
+
+  /*
+   * Lazy DFA
+   */
+
+  private static final class NodeSet {
+    final int[] nodes;
+    final int hash;
+
+    NodeSet(int[] nodes) {
+      this.nodes = nodes;
+      this.hash = Arrays.hashCode(nodes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return (obj instanceof NodeSet)
+          && (Arrays.equals(nodes, ((NodeSet) obj).nodes));
+    }
+  }
+
+  private static final class DState {
+    final int[] nodes;
+    final boolean accept;
+    final boolean acceptLiteral;
+    final boolean hasEnd;
+    final boolean dead;
+    final boolean cached;
+    final DState[] asciiNext = new DState[128];
+    Map<Integer, DState> next;
+    volatile DState endVariant;
+
+    DState(int[] nodes, int[] types, boolean injectionDead, boolean cached) {
+      this.nodes = nodes;
+      boolean accept = false;
+      boolean acceptLiteral = false;
+      boolean hasEnd = false;
+      boolean hasChars = false;
+      for (int node : nodes) {
+        switch (types[node]) {
+          case ACCEPT:
+            accept = true;
+            break;
+          case ACCEPT_LITERAL:
+            acceptLiteral = true;
+            break;
+          case END:
+            hasEnd = true;
+            break;
+          case CHARS:
+            hasChars = true;
+            break;
+          default:
+            break;
+        }
+      }
+      this.accept = accept;
+      this.acceptLiteral = acceptLiteral;
+      this.hasEnd = hasEnd;
+      // no further input can be consumed
+      this.dead = (!hasChars) && (injectionDead);
+      this.cached = cached;
+    }
+  }
+
+  private void clearStates() {
+    m_states.clear();
+    m_initial = null;
+  }
+
+  private DState initialState() {
+    DState initial = m_initial;
+    if (initial == null) {
+      if (m_mode == Mode.FIND) {
+        // matches can start at every position, the run is only finished if
+        // the injected pattern start can not consume input or match at $
+        m_injectionDead = true;
+        for (int node : closure(new int[] { m_patternStart }, false, false)) {
+          if ((m_types[node] == CHARS) || (m_types[node] == END)) {
+            m_injectionDead = false;
+          }
+        }
+      } else {
+        m_injectionDead = true;
+      }
+      initial = state(closure(new int[] { m_start }, true, false));
+      m_initial = initial;
+    }
+    return initial;
+  }
+
+  private DState state(int[] nodes) {
+    NodeSet key = new NodeSet(nodes);
+    DState state = m_states.get(key);
+    if (state == null) {
+      if (m_states.size() < MAX_DFA_STATES) {
+        state = new DState(nodes, m_types, m_injectionDead, true);
+        DState existing = m_states.putIfAbsent(key, state);
+        if (existing != null) {
+          state = existing;
+        }
+      } else {
+        // too many states, do not cache transitions to this state
+        state = new DState(nodes, m_types, m_injectionDead, false);
+      }
+    }
+    return state;
+  }
+
+  private DState next(DState state, int cp) {
+    if (cp < 128) {
+      DState next = state.asciiNext[cp];
+      if (next == null) {
+        next = computeNext(state, cp);
+        if (next.cached) {
+          state.asciiNext[cp] = next;
+        }
+      }
+      return next;
+    }
+    synchronized (state) {
+      DState next = (state.next != null) ? state.next.get(cp) : null;
+      if (next == null) {
+        next = computeNext(state, cp);
+        if (next.cached) {
+          if (state.next == null) {
+            state.next = new HashMap<Integer, DState>();
+          }
+          state.next.put(cp, next);
+        }
+      }
+      return next;
+    }
+  }
+
+  private DState computeNext(DState state, int cp) {
+    int[] targets = new int[state.nodes.length + 1];
+    int count = 0;
+    for (int node : state.nodes) {
+      if ((m_types[node] == CHARS) && (contains(m_ranges[node], cp))) {
+        targets[count++] = m_outs[node][0];
+      }
+    }
+    if (m_mode == Mode.FIND) {
+      // a match can start at every position
+      targets[count++] = m_patternStart;
+    }
+    return state(closure(Arrays.copyOf(targets, count), false, false));
+  }
+
+  private DState endVariant(DState state, boolean begin) {
+    if (begin) {
+      // only at position 0
+      return state(closure(state.nodes, true, true));
+    }
+    DState endVariant = state.endVariant;
+    if (endVariant == null) {
+      endVariant = state(closure(state.nodes, false, true));
+      if (endVariant.cached) {
+        state.endVariant = endVariant;
+      }
+    }
+    return endVariant;
+  }
+
+  /**
+   * Returns the sorted set of nodes reachable by epsilon moves. ^ is only
+   * passed if begin and $ only if end is true, pending $ are kept in the set
+   * and ^ is dropped otherwise.
+   */
+  private int[] closure(int[] seeds, boolean begin, boolean end) {
+    boolean[] visited = new boolean[m_nodeCount];
+    int[] stack = new int[m_nodeCount];
+    int[] result = new int[m_nodeCount];
+    int size = 0;
+    int count = 0;
+    for (int seed : seeds) {
+      if (!visited[seed]) {
+        visited[seed] = true;
+        stack[size++] = seed;
+      }
+    }
+    while (size > 0) {
+      int node = stack[--size];
+      int type = m_types[node];
+      boolean follow = (type == EPSILON) || ((type == BEGIN) && (begin))
+          || ((type == END) && (end));
+      if (follow) {
+        for (int out : m_outs[node]) {
+          if (!visited[out]) {
+            visited[out] = true;
+            stack[size++] = out;
+          }
+        }
+      }
+      if ((type == CHARS) || (type == ACCEPT) || (type == ACCEPT_LITERAL)
+          || ((type == END) && (!end))) {
+        result[count++] = node;
+      }
+    }
+    int[] nodes = Arrays.copyOf(result, count);
+    Arrays.sort(nodes);
+    return nodes;
+  }
+
+  private static boolean contains(int[] ranges, int cp) {
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (cp < ranges[i]) {
+        return false;
+      }
+      if (cp <= ranges[i + 1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Regex parser
+   */
+
+  private static final class Node {
+    static final int CHARS = 0;
+    static final int BEGIN = 1;
+    static final int END = 2;
+    static final int CONCAT = 3;
+    static final int ALTERNATION = 4;
+    static final int REPEAT = 5;
+
+    final int type;
+    int[] ranges;
+    List<Node> children = new ArrayList<Node>();
+    int min;
+    int max;
+
+    Node(int type) {
+      this.type = type;
+    }
+
+    static Node chars(int[] ranges) {
+      Node node = new Node(CHARS);
+      node.ranges = ranges;
+      return node;
+    }
+  }
+
+  private static final class UnsupportedSyntaxException extends
+      RuntimeException {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Parses the supported subset of the java.util.regex syntax of an already
+   * validated pattern. Returns null if the pattern contains unsupported
+   * constructs.
+   */
+  private static final class Parser {
+    private final String m_regex;
+    private int m_pos = 0;
+
+    Parser(String regex) {
+      m_regex = regex;
+    }
+
+    Node parse() {
+      try {
+        Node node = parseAlternation();
+        if (m_pos != m_regex.length()) {
+          return null;
+        }
+        return node;
+      } catch (UnsupportedSyntaxException e) {
+        return null;
+      } catch (RuntimeException e) {
+        LOG.warn("Could not parse pattern '" + m_regex + "': " + e);
+        return null;
+      }
+    }
+
+    private boolean more() {
+      return m_pos < m_regex.length();
+    }
+
+    private char peek() {
+      return m_regex.charAt(m_pos);
+    }
+
+    private Node parseAlternation() {
+      Node alternation = new Node(Node.ALTERNATION);
+      alternation.children.add(parseConcat());
+      while ((more()) && (peek() == '|')) {
+        m_pos++;
+        alternation.children.add(parseConcat());
+      }
+      return (alternation.children.size() == 1) ? alternation.children.get(0)
+          : alternation;
+    }
+
+    private Node parseConcat() {
+      Node concat = new Node(Node.CONCAT);
+      while ((more()) && (peek() != '|') && (peek() != ')')) {
+        concat.children.add(parseQuantified(parseAtom()));
+      }
+      return concat;
+    }
+
+    private Node parseQuantified(Node atom) {
+      if (more()) {
+        char c = peek();
+        int min;
+        int max;
+        if (c == '?') {
+          min = 0;
+          max = 1;
+          m_pos++;
+        } else if (c == '*') {
+          min = 0;
+          max = -1;
+          m_pos++;
+        } else if (c == '+') {
+          min = 1;
+          max = -1;
+          m_pos++;
+        } else if (c == '{') {
+          m_pos++;
+          min = parseNumber();
+          max = min;
+          if (peek() == ',') {
+            m_pos++;
+            max = (peek() == '}') ? -1 : parseNumber();
+          }
+          if (peek() != '}') {
+            throw new UnsupportedSyntaxException();
+          }
+          m_pos++;
+        } else {
+          return atom;
+        }
+        if ((min > MAX_REPETITIONS) || (max > MAX_REPETITIONS)) {
+          throw new UnsupportedSyntaxException();
+        }
+        if (more()) {
+          if (peek() == '+') {
+            // possessive quantifier
+            throw new UnsupportedSyntaxException();
+          } else if (peek() == '?') {
+            // reluctant quantifier, same set of matches
+            m_pos++;
+          }
+        }
+        if ((more()) && ("?*+{".indexOf(peek()) >= 0)) {
+          // stacked quantifiers
+          throw new UnsupportedSyntaxException();
+        }
+        if ((max != 1) && (isNullable(atom))) {
+          // java.util.regex stops looping on empty iterations, which does
+          // not always match the regular language (e.g. (b*^|c){2})
+          throw new UnsupportedSyntaxException();
+        }
+        Node repeat = new Node(Node.REPEAT);
+        repeat.children.add(atom);
+        repeat.min = min;
+        repeat.max = max;
+        return repeat;
+      }
+      return atom;
+    }
+
+    private static boolean isNullable(Node node) {
+      switch (node.type) {
+        case Node.CHARS:
+          return false;
+        case Node.CONCAT:
+          for (Node child : node.children) {
+            if (!isNullable(child)) {
+              return false;
+            }
+          }
+          return true;
+        case Node.ALTERNATION:
+          for (Node child : node.children) {
+            if (isNullable(child)) {
+              return true;
+            }
+          }
+          return false;
+        case Node.REPEAT:
+          return (node.min == 0) || (isNullable(node.children.get(0)));
+        default: // BEGIN, END
+          return true;
+      }
+    }
+
+    private int parseNumber() {
+      int start = m_pos;
+      while ((more()) && (peek() >= '0') && (peek() <= '9')) {
+        m_pos++;
+      }
+      if ((m_pos == start) || (m_pos - start > 6)) {
+        throw new UnsupportedSyntaxException();
+      }
+      return Integer.parseInt(m_regex.substring(start, m_pos));
+    }
+
+    private Node parseAtom() {
+      char c = peek();
+      switch (c) {
+        case '(':
+          m_pos++;
+          if ((more()) && (peek() == '?')) {
+            if ((m_pos + 1 < m_regex.length())
+                && (m_regex.charAt(m_pos + 1) == ':')) {
+              m_pos += 2;
+            } else {
+              // flags, lookarounds, named and atomic groups
+              throw new UnsupportedSyntaxException();
+            }
+          }
+          Node group = parseAlternation();
+          if ((!more()) || (peek() != ')')) {
+            throw new UnsupportedSyntaxException();
+          }
+          m_pos++;
+          return group;
+        case '[':
+          m_pos++;
+          return Node.chars(parseClass());
+        case '.':
+          m_pos++;
+          return Node.chars(DOT);
+        case '^':
+          m_pos++;
+          return new Node(Node.BEGIN);
+        case '$':
+          m_pos++;
+          return new Node(Node.END);
+        case '\\':
+          m_pos++;
+          int[] ranges = parseEscape(false);
+          return Node.chars(ranges);
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw new UnsupportedSyntaxException();
+        default:
+          int cp = m_regex.codePointAt(m_pos);
+          if ((cp <= 0xFFFF) && (Character.isSurrogate((char) cp))) {
+            throw new UnsupportedSyntaxException();
+          }
+          m_pos += Character.charCount(cp);
+          return Node.chars(new int[] { cp, cp });
+      }
+    }
+
+    /**
+     * Parses an escape sequence after the backslash and returns its ranges.
+     */
+    private int[] parseEscape(boolean inClass) {
+      char c = m_regex.charAt(m_pos++);
+      switch (c) {
+        case 'd':
+          return DIGIT;
+        case 'D':
+          return complement(DIGIT);
+        case 's':
+          return SPACE;
+        case 'S':
+          return complement(SPACE);
+        case 'w':
+          return WORD;
+        case 'W':
+          return complement(WORD);
+        case 't':
+          return single('\t');
+        case 'n':
+          return single('\n');
+        case 'r':
+          return single('\r');
+        case 'f':
+          return single('\f');
+        case 'a':
+          return single('\u0007');
+        case 'e':
+          return single('\u001B');
+        case '0':
+          return single(parseOctal());
+        case 'x':
+          return single(parseHex());
+        case 'u':
+          int u = parseHexDigits(4);
+          if (Character.isSurrogate((char) u)) {
+            throw new UnsupportedSyntaxException();
+          }
+          return single(u);
+        case 'c':
+          return single(m_regex.charAt(m_pos++) ^ 64);
+        default:
+          if (((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))
+              || ((c >= '0') && (c <= '9'))) {
+            // boundaries, back references, properties, quotes...
+            throw new UnsupportedSyntaxException();
+          }
+          if (Character.isSurrogate(c)) {
+            throw new UnsupportedSyntaxException();
+          }
+          return single(c);
+      }
+    }
+
+    private int parseOctal() {
+      int n = digit(8);
+      if ((more()) && (Character.digit(peek(), 8) >= 0)) {
+        int m = digit(8);
+        if ((n <= 3) && (more()) && (Character.digit(peek(), 8) >= 0)) {
+          return n * 64 + m * 8 + digit(8);
+        }
+        return n * 8 + m;
+      }
+      return n;
+    }
+
+    private int parseHex() {
+      if (peek() == '{') {
+        m_pos++;
+        int start = m_pos;
+        while (peek() != '}') {
+          m_pos++;
+        }
+        int cp = Integer.parseInt(m_regex.substring(start, m_pos), 16);
+        m_pos++;
+        if ((cp <= 0xFFFF) && (Character.isSurrogate((char) cp))) {
+          throw new UnsupportedSyntaxException();
+        }
+        return cp;
+      }
+      return parseHexDigits(2);
+    }
+
+    private int parseHexDigits(int count) {
+      int value = 0;
+      for (int i = 0; i < count; i++) {
+        value = value * 16 + digit(16);
+      }
+      return value;
+    }
+
+    private int digit(int radix) {
+      int d = Character.digit(m_regex.charAt(m_pos++), radix);
+      if (d < 0) {
+        throw new UnsupportedSyntaxException();
+      }
+      return d;
+    }
+
+    private int[] parseClass() {
+      boolean negate = false;
+      if (peek() == '^') {
+        negate = true;
+        m_pos++;
+      }
+      if ((peek() == ']') || (peek() == '[')) {
+        throw new UnsupportedSyntaxException();
+      }
+      List<int[]> parts = new ArrayList<int[]>();
+      while (peek() != ']') {
+        char c = peek();
+        if ((c == '[') || ((c == '&') && (m_pos + 1 < m_regex.length())
+            && (m_regex.charAt(m_pos + 1) == '&'))) {
+          // unions and intersections
+          throw new UnsupportedSyntaxException();
+        }
+        int[] element = parseClassElement();
+        if ((peek() == '-') && (m_regex.charAt(m_pos + 1) != ']')) {
+          m_pos++;
+          int[] to = parseClassElement();
+          if ((!isSingle(element)) || (!isSingle(to))
+              || (element[0] > to[0])) {
+            throw new UnsupportedSyntaxException();
+          }
+          element = new int[] { element[0], to[0] };
+        }
+        parts.add(element);
+      }
+      m_pos++;
+      int[] ranges = union(parts);
+      return (negate) ? complement(ranges) : ranges;
+    }
+
+    private int[] parseClassElement() {
+      char c = peek();
+      if (c == '\\') {
+        m_pos++;
+        return parseEscape(true);
+      }
+      int cp = m_regex.codePointAt(m_pos);
+      if ((cp <= 0xFFFF) && (Character.isSurrogate((char) cp))) {
+        throw new UnsupportedSyntaxException();
+      }
+      m_pos += Character.charCount(cp);
+      return single(cp);
+    }
+  }
+
+  private static int[] single(int cp) {
+    return new int[] { cp, cp };
+  }
+
+  private static boolean isSingle(int[] ranges) {
+    return (ranges.length == 2) && (ranges[0] == ranges[1]);
+  }
+
+  private static int[] union(List<int[]> parts) {
+    List<int[]> intervals = new ArrayList<int[]>();
+    for (int[] part : parts) {
+      for (int i = 0; i < part.length; i += 2) {
+        intervals.add(new int[] { part[i], part[i + 1] });
+      }
+    }
+    int[][] sorted = intervals.toArray(new int[intervals.size()][]);
+    Arrays.sort(sorted, new java.util.Comparator<int[]>() {
+      @Override
+      public int compare(int[] a, int[] b) {
+        return (a[0] < b[0]) ? -1 : ((a[0] == b[0]) ? 0 : 1);
+      }
+    });
+    int[] result = new int[sorted.length * 2];
+    int count = 0;
+    for (int[] interval : sorted) {
+      if ((count > 0) && (interval[0] <= result[count - 1] + 1)) {
+        result[count - 1] = Math.max(result[count - 1], interval[1]);
+      } else {
+        result[count++] = interval[0];
+        result[count++] = interval[1];
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  private static int[] complement(int[] ranges) {
+    int[] result = new int[ranges.length + 2];
+    int count = 0;
+    int next = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (ranges[i] > next) {
+        result[count++] = next;
+        result[count++] = ranges[i] - 1;
+      }
+      next = ranges[i + 1] + 1;
+    }
+    if (next <= Character.MAX_CODE_POINT) {
+      result[count++] = next;
+      result[count++] = Character.MAX_CODE_POINT;
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  public static void main(String[] args) {
+    // Differential test against the pattern loop
+    String[] patterns = new String[] { "^[:;=]-?[)(dp]+$", "^<3+$",
+        "^(?:x|xd)+$", "^w+o+w+$", "^a+h+$|^h+a+$", "^(ha)+|lol$", "^o.m.g$",
+        "^[^a-z]{2,3}$", "^(a\\1)$", "^ye+s*$" };
+    String[] literals = new String[] { ":)", "xD", "yay", "" };
+    String alphabet = ":;=-()dpx<3wohaHAlmgyes \r\nä";
+    Random random = new Random(1);
+    for (Mode mode : Mode.values()) {
+      RegexAutomaton automaton = new RegexAutomaton(mode);
+      List<Pattern> compiled = new ArrayList<Pattern>();
+      for (String pattern : patterns) {
+        automaton.addPattern(pattern);
+        compiled.add(Pattern.compile(pattern));
+      }
+      for (String literal : literals) {
+        automaton.addLiteral(literal);
+      }
+      int differences = 0;
+      for (int i = 0; i < 1000000; i++) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(8);
+        for (int j = 0; j < length; j++) {
+          sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        String str = sb.toString();
+        String lowerCase = str.toLowerCase();
+        boolean expected = Arrays.asList(literals).contains(lowerCase);
+        for (Pattern pattern : compiled) {
+          if ((mode == Mode.MATCHES) ? pattern.matcher(lowerCase).matches()
+              : pattern.matcher(lowerCase).find()) {
+            expected = true;
+            break;
+          }
+        }
+        if (automaton.acceptsLowerCase(str) != expected) {
+          differences++;
+          LOG.error(mode + " '" + str + "' expected: " + expected);
+        }
+      }
+      LOG.info(mode + ": " + differences + " differences, "
+          + automaton.getFallbackPatternCount() + " fallback patterns");
+    }
+  }
+}
@@ -0,0 +1,289 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mapping table of literal symbols (code points, escaped code points, HTML
+ * entities or tags) to their replacements.
+ *
+ * The symbols are stored in a char trie, the first char of every symbol is
+ * additionally kept in a bit set, so chars which can not start a symbol are
+ * skipped with a single lookup.
+ *
+ * Consecutive symbols with the same replacement form one step, like the
+ * alternatives of one regex. A chain of steps in insertion order also
+ * replaces symbols which are formed by a single char replacement and the
+ * following text, e.g. "&amp;lt;" becomes "&lt;" and then "<". The
+ * single-pass replacement matches such chained symbols with
+ * {@link #matchChained}.
+ */
+public class SymbolTable {
+  private final BitSet m_firstChars = new BitSet();
+  private final Map<Character, Node> m_roots = new HashMap<Character, Node>();
+  private final List<String[]> m_entries = new ArrayList<String[]>();
+  private int m_steps = 0;
+
+  private static final class Node {
+    char[] keys = new char[0];
+    Node[] children = new Node[0];
+    String replacement;
+    // step of the symbol in insertion order
+    int order;
+
+    Node child(char c) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == c) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    Node addChild(char c) {
+      Node node = child(c);
+      if (node == null) {
+        int n = keys.length;
+        char[] newKeys = new char[n + 1];
+        Node[] newChildren = new Node[n + 1];
+        System.arraycopy(keys, 0, newKeys, 0, n);
+        System.arraycopy(children, 0, newChildren, 0, n);
+        node = new Node();
+        newKeys[n] = c;
+        newChildren[n] = node;
+        keys = newKeys;
+        children = newChildren;
+      }
+      return node;
+    }
+  }
+
+  /**
+   * Adds a symbol and its replacement. If the symbol already exists the first
+   * replacement is kept.
+   */
+  public SymbolTable put(String symbol, String replacement) {
+    if ((symbol == null) || (symbol.isEmpty()) || (replacement == null)) {
+      throw new IllegalArgumentException("Invalid symbol mapping: '" + symbol
+          + "' -> '" + replacement + "'");
+    }
+    char first = symbol.charAt(0);
+    Node node = m_roots.get(first);
+    if (node == null) {
+      node = new Node();
+      m_roots.put(first, node);
+      m_firstChars.set(first);
+    }
+    for (int i = 1; i < symbol.length(); i++) {
+      node = node.addChild(symbol.charAt(i));
+    }
+    if (node.replacement == null) {
+      if ((m_entries.isEmpty())
+          || (!m_entries.get(m_entries.size() - 1)[1].equals(replacement))) {
+        m_steps++;
+      }
+      node.replacement = replacement;
+      node.order = m_steps;
+      m_entries.add(new String[] { symbol, replacement });
+    }
+    return this;
+  }
+
+  /**
+   * Adds a Unicode code point and its replacement.
+   */
+  public SymbolTable put(int codePoint, String replacement) {
+    return put(new String(Character.toChars(codePoint)), replacement);
+  }
+
+  /**
+   * Adds all symbols of the given table.
+   */
+  public SymbolTable putAll(SymbolTable table) {
+    for (String[] entry : table.m_entries) {
+      put(entry[0], entry[1]);
+    }
+    return this;
+  }
+
+  public int size() {
+    return m_entries.size();
+  }
+
+  public boolean isCandidate(char c) {
+    return m_firstChars.get(c);
+  }
+
+  /**
+   * Returns the length of the longest symbol starting at pos or 0 if there is
+   * no symbol at pos. The replacement of the matched symbol is returned by
+   * {@link #replacement(CharSequence, int, int)}.
+   */
+  public int match(CharSequence text, int pos) {
+    Node node = (m_firstChars.get(text.charAt(pos))) ? m_roots.get(text
+        .charAt(pos)) : null;
+    int matchLength = 0;
+    int len = text.length();
+    for (int i = pos + 1; node != null; i++) {
+      if (node.replacement != null) {
+        matchLength = i - pos;
+      }
+      if (i >= len) {
+        break;
+      }
+      node = node.child(text.charAt(i));
+    }
+    return matchLength;
+  }
+
+  /**
+   * Returns the replacement of the symbol text[pos, pos + length) or null.
+   */
+  public String replacement(CharSequence text, int pos, int length) {
+    Node node = m_roots.get(text.charAt(pos));
+    for (int i = pos + 1; (node != null) && (i < pos + length); i++) {
+      node = node.child(text.charAt(i));
+    }
+    return (node != null) ? node.replacement : null;
+  }
+
+  /**
+   * Returns the length of the chained symbol starting with the symbol
+   * text[pos, pos + length), or length if the symbol does not form a later
+   * symbol with the following text. The replacement of the chained symbol is
+   * returned by {@link #replacementChained(CharSequence, int, int)}.
+   */
+  public int matchChained(CharSequence text, int pos, int length) {
+    return chain(text, pos, length, text.length(), null) - pos;
+  }
+
+  /**
+   * Returns the replacement of the chained symbol text[pos, pos + length)
+   * or null.
+   */
+  public String replacementChained(CharSequence text, int pos, int length) {
+    Node[] last = new Node[1];
+    int end = chain(text, pos, match(text, pos), pos + length, last);
+    return ((last[0] != null) && (end == pos + length)) ? last[0].replacement
+        : null;
+  }
+
+  /**
+   * Follows the chain of the symbol text[pos, pos + length) up to limit and
+   * returns the end of the chained symbol. A single char replacement and
+   * the following text form the next symbol of the chain, which is the
+   * first one in insertion order after the current symbol.
+   */
+  private int chain(CharSequence text, int pos, int length, int limit,
+      Node[] last) {
+    Node node = find(text, pos, pos + length);
+    int end = pos + length;
+    while ((node != null) && (node.replacement.length() == 1)) {
+      Node next = null;
+      int nextEnd = end;
+      Node child = m_roots.get(node.replacement.charAt(0));
+      for (int i = end; (child != null) && (i < limit); i++) {
+        child = child.child(text.charAt(i));
+        if ((child != null) && (child.replacement != null)
+            && (child.order > node.order)
+            && ((next == null) || (child.order < next.order))) {
+          next = child;
+          nextEnd = i + 1;
+        }
+      }
+      if (next == null) {
+        break;
+      }
+      node = next;
+      end = nextEnd;
+    }
+    if (last != null) {
+      last[0] = node;
+    }
+    return end;
+  }
+
+  private Node find(CharSequence text, int start, int end) {
+    Node node = m_roots.get(text.charAt(start));
+    for (int i = start + 1; (node != null) && (i < end); i++) {
+      node = node.child(text.charAt(i));
+    }
+    return ((node != null) && (node.replacement != null)) ? node : null;
+  }
+
+  /**
+   * Replaces all symbols of str in a single pass.
+   */
+  public String replace(String str) {
+    StringBuilder sb = new StringBuilder(str.length());
+    replace(str, sb);
+    return sb.toString();
+  }
+
+  /**
+   * Appends str to out, replacing all symbols in a single pass. Replacements
+   * are not scanned again.
+   */
+  public void replace(CharSequence str, StringBuilder out) {
+    int len = str.length();
+    int i = 0;
+    while (i < len) {
+      char c = str.charAt(i);
+      int matchLength = (m_firstChars.get(c)) ? match(str, i) : 0;
+      if (matchLength > 0) {
+        int chainedLength = matchChained(str, i, matchLength);
+        if (chainedLength > matchLength) {
+          out.append(replacementChained(str, i, chainedLength));
+        } else {
+          out.append(replacement(str, i, matchLength));
+        }
+        i += chainedLength;
+      } else {
+        out.append(c);
+        i++;
+      }
+    }
+  }
+
+  /**
+   * Reference implementation which applies every step after the other in
+   * insertion order, like a chain of String.replaceAll calls.
+   */
+  public String replaceSequentially(String str) {
+    String result = str;
+    int i = 0;
+    while (i < m_entries.size()) {
+      String replacement = m_entries.get(i)[1];
+      StringBuilder regex = new StringBuilder(Pattern.quote(m_entries.get(i)[0]));
+      for (i++; (i < m_entries.size())
+          && (m_entries.get(i)[1].equals(replacement)); i++) {
+        regex.append('|').append(Pattern.quote(m_entries.get(i)[0]));
+      }
+      result = Pattern.compile(regex.toString()).matcher(result)
+          .replaceAll(Matcher.quoteReplacement(replacement));
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.Dataset;
+import at.illecker.storm.commons.tweet.Tweet;
+
+/**
+ * Single-pass replacement of Unicode and HTML symbols.
+ *
+ * Trims the text and replaces the symbols of the Unicode table and, if the
+ * text contains HTML symbols, the symbols of the HTML table within one scan.
+ * The HTML table is applied followed by a final trim only if the text
+ * contains HTML symbols, like UnicodeUtils.replaceUnicodeSymbols and
+ * HtmlUtils.replaceHtmlSymbols did before. Replacements are not scanned
+ * again, except for double encoded symbols like "&amp;lt;" which are
+ * decoded like the ordered replacement did.
+ *
+ * An instance reuses its buffer and is not thread-safe.
+ */
+public class TextNormalizer {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(TextNormalizer.class);
+  private final SymbolTable m_unicodeSymbols;
+  private final SymbolTable m_htmlSymbols;
+  private final StringBuilder m_buffer = new StringBuilder(256);
+
+  public TextNormalizer() {
+    this(UnicodeUtils.createSymbolTable(), HtmlUtils.createEntityTable());
+  }
+
+  public TextNormalizer(SymbolTable unicodeSymbols, SymbolTable htmlSymbols) {
+    this.m_unicodeSymbols = unicodeSymbols;
+    this.m_htmlSymbols = htmlSymbols;
+  }
+
+  public SymbolTable getUnicodeSymbols() {
+    return m_unicodeSymbols;
+  }
+
+  public SymbolTable getHtmlSymbols() {
+    return m_htmlSymbols;
+  }
+
+  public String normalize(String str) {
+    // Trim text
+    int start = 0;
+    int end = str.length();
+    while ((start < end) && (str.charAt(start) <= ' ')) {
+      start++;
+    }
+    while ((start < end) && (str.charAt(end - 1) <= ' ')) {
+      end--;
+    }
+
+    boolean html = containsHtml(str, start, end);
+
+    // Skip the copy if there is nothing to replace
+    int pos = start;
+    while ((pos < end) && (!m_unicodeSymbols.isCandidate(str.charAt(pos)))
+        && ((!html) || (!m_htmlSymbols.isCandidate(str.charAt(pos))))) {
+      pos++;
+    }
+    if (pos == end) {
+      return str.substring(start, end);
+    }
+
+    StringBuilder sb = m_buffer;
+    sb.setLength(0);
+    sb.append(str, start, pos);
+    while (pos < end) {
+      char c = str.charAt(pos);
+      SymbolTable table = null;
+      int matchLength = 0;
+      if (m_unicodeSymbols.isCandidate(c)) {
+        table = m_unicodeSymbols;
+        matchLength = table.match(str, pos);
+      }
+      if ((matchLength == 0) && (html) && (m_htmlSymbols.isCandidate(c))) {
+        table = m_htmlSymbols;
+        matchLength = table.match(str, pos);
+      }
+      // symbols must not exceed the trimmed text
+      if ((matchLength > 0) && (pos + matchLength <= end)) {
+        // double encoded symbols like "&amp;lt;"
+        int chainedLength = table.matchChained(str, pos, matchLength);
+        if ((chainedLength > matchLength) && (pos + chainedLength <= end)) {
+          sb.append(table.replacementChained(str, pos, chainedLength));
+          matchLength = chainedLength;
+        } else {
+          sb.append(table.replacement(str, pos, matchLength));
+        }
+        pos += matchLength;
+      } else {
+        sb.append(c);
+        pos++;
+      }
+    }
+
+    if (html) {
+      // Trim replaced text
+      int newStart = 0;
+      int newEnd = sb.length();
+      while ((newStart < newEnd) && (sb.charAt(newStart) <= ' ')) {
+        newStart++;
+      }
+      while ((newStart < newEnd) && (sb.charAt(newEnd - 1) <= ' ')) {
+        newEnd--;
+      }
+      return sb.substring(newStart, newEnd);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Same as RegexUtils.CONTAINS_HTML_SYMBOLS_PATTERN find within
+   * str[start, end).
+   */
+  static boolean containsHtml(String str, int start, int end) {
+    int pos = str.indexOf('&', start);
+    while ((pos >= 0) && (pos < end)) {
+      int i = pos + 1;
+      int runStart = i;
+      int maxLength = 6;
+      if ((i < end) && (str.charAt(i) == '#')) {
+        // &#[0-9]{2,4};
+        runStart = ++i;
+        maxLength = 4;
+        while ((i < end) && (str.charAt(i) >= '0')
+            && (str.charAt(i) <= '9')) {
+          i++;
+        }
+      } else {
+        // &[a-zA-Z0-9]{2,6};
+        while ((i < end) && (isAsciiLetterOrDigit(str.charAt(i)))) {
+          i++;
+        }
+      }
+      int length = i - runStart;
+      if ((length >= 2) && (length <= maxLength) && (i < end)
+          && (str.charAt(i) == ';')) {
+        return true;
+      }
+      pos = str.indexOf('&', pos + 1);
+    }
+    return false;
+  }
+
+  private static boolean isAsciiLetterOrDigit(char c) {
+    return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))
+        || ((c >= '0') && (c <= '9'));
+  }
+
+  public static void main(String[] args) {
+    // Differential test against the sequential replacement of the tables
+    Dataset dataset = Configuration.getDataSetSemEval2013();
+    List<Tweet> tweets = new ArrayList<Tweet>();
+    tweets.addAll(dataset.getTrainTweets(true));
+    tweets.addAll(dataset.getTestTweets());
+    // double encoded entities
+    String[] doubleEncoded = new String[] { "I &amp;lt;3 you &amp;gt;&lt;",
+        "&amp;amp;lt;", "&#38;#60;3", "&amp;#038;gt;", "&amp;quot;x&amp;#39;",
+        "a &amp;nbsp; b", "&amp;", "&amp;lt", " &amp;gt; " };
+    for (String text : doubleEncoded) {
+      tweets.add(new Tweet(0L, text, 0.0));
+    }
+
+    TextNormalizer normalizer = new TextNormalizer();
+    SymbolTable unicodeSymbols = UnicodeUtils.createSymbolTable();
+    SymbolTable htmlSymbols = HtmlUtils.createEntityTable();
+
+    long sequentialTime = 0;
+    long singlePassTime = 0;
+    int differences = 0;
+    for (Tweet tweet : tweets) {
+      String text = tweet.getText();
+
+      long startTime = System.nanoTime();
+      String expected = text.trim();
+      if (UnicodeUtils.containsUnicode(expected)) {
+        expected = unicodeSymbols.replaceSequentially(expected);
+      }
+      if (HtmlUtils.containsHtml(expected)) {
+        expected = htmlSymbols.replaceSequentially(expected).trim();
+      }
+      sequentialTime += System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      String actual = normalizer.normalize(text);
+      singlePassTime += System.nanoTime() - startTime;
+
+      if (!expected.equals(actual)) {
+        differences++;
+        LOG.error("Text: '" + text + "'");
+        LOG.error("Sequential: '" + expected + "'");
+        LOG.error("SinglePass: '" + actual + "'");
+      }
+    }
+    LOG.info("Compared " + tweets.size() + " texts, " + differences
+        + " differences");
+    LOG.info("Sequential replacement: " + (sequentialTime / 1000000) + " ms");
+    LOG.info("Single-pass replacement: " + (singlePassTime / 1000000) + " ms");
+  }
+}
@@ -312,6 +312,7 @@ public class FileUtils {
         }
         wordListMap.put(key, value);
       }
+      wordListMap.build();
       LOG.info("Loaded " + wordListMap.size() + " items [minValue: "
           + actualMinValue + ", maxValue: " + actualMaxValue + "]");
 
@@ -35,7 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class IOUtils {
-  private static final int EXTRACT_BUFFER_SIZE = 2048;
+  private static final int EXTRACT_BUFFER_SIZE = 64 * 1024;
   private static final int GZIP_FILE_BUFFER_SIZE = 65536;
   private static final Logger LOG = LoggerFactory.getLogger(IOUtils.class);
 
@@ -0,0 +1,599 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.util.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only memory-mapped dictionary file. All worker JVMs of a host map the
+ * same file, the OS page cache holds a single copy of the data.
+ *
+ * A file consists of one or more open addressing hash tables with UTF-8 keys.
+ * A lookup returns the position of the value in the file or -1, the values
+ * are primitives read with the absolute get methods. Lookups do not allocate
+ * and can be called concurrently.
+ *
+ * File format: header (magic, version, fingerprint, table count), table
+ * directory (capacity, size, slots position, key lengths), slots (key hash,
+ * entry position) and entries (u16 key length, UTF-8 key, value).
+ */
+public class MappedDictionary {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(MappedDictionary.class);
+  private static final int MAGIC = 0x4C455831; // "LEX1"
+  private static final int FORMAT_VERSION = 1;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int HEADER_BYTES = 20;
+  private static final int TABLE_BYTES = 20;
+  private static final int SLOT_BYTES = 8;
+  private static final int RESOURCE_BUFFER_SIZE = 64 * 1024;
+
+  private final ByteBuffer m_buffer;
+  private final long m_fingerprint;
+  private final int[] m_capacities;
+  private final int[] m_sizes;
+  private final int[] m_slotPositions;
+  // bit i is set if a key has i chars, bit 63 for all longer keys
+  private final long[] m_keyLengths;
+
+  private MappedDictionary(ByteBuffer buffer, File file) throws IOException {
+    m_buffer = buffer;
+    if ((buffer.limit() < HEADER_BYTES) || (buffer.getInt(0) != MAGIC)
+        || (buffer.getInt(4) != FORMAT_VERSION)) {
+      throw new IOException("Unknown dictionary format: " + file);
+    }
+    m_fingerprint = buffer.getLong(8);
+    int tableCount = buffer.getInt(16);
+    m_capacities = new int[tableCount];
+    m_sizes = new int[tableCount];
+    m_slotPositions = new int[tableCount];
+    m_keyLengths = new long[tableCount];
+    for (int i = 0; i < tableCount; i++) {
+      int position = HEADER_BYTES + i * TABLE_BYTES;
+      m_capacities[i] = buffer.getInt(position);
+      m_sizes[i] = buffer.getInt(position + 4);
+      m_slotPositions[i] = buffer.getInt(position + 8);
+      m_keyLengths[i] = buffer.getLong(position + 12);
+    }
+  }
+
+  public static MappedDictionary read(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      return new MappedDictionary(raf.getChannel().map(
+          FileChannel.MapMode.READ_ONLY, 0, raf.length()), file);
+    } finally {
+      // the mapping stays valid after the channel is closed
+      raf.close();
+    }
+  }
+
+  /**
+   * Maps the file if it exists and was written with the fingerprint, returns
+   * null otherwise.
+   */
+  public static MappedDictionary read(File file, long fingerprint) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      MappedDictionary dictionary = read(file);
+      if (dictionary.getFingerprint() == fingerprint) {
+        return dictionary;
+      }
+      LOG.info("Dictionary " + file + " is outdated");
+    } catch (IOException e) {
+      LOG.error("IOException: " + e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Returns a fingerprint of the config and the source files, a file has to
+   * be rebuilt if it changes. The source files are looked up like
+   * IOUtils.getInputStream, the content of a classpath resource is hashed
+   * and a file of the file system contributes its size and modification
+   * time.
+   */
+  public static long fingerprint(Object config, List<String> files) {
+    return fingerprint(config, files, MappedDictionary.class.getClassLoader());
+  }
+
+  /**
+   * Returns the fingerprint of the config and the source files, classpath
+   * resources are looked up with the classLoader.
+   */
+  public static long fingerprint(Object config, List<String> files,
+      ClassLoader classLoader) {
+    // 64-bit FNV-1a
+    long hash = hash(0xcbf29ce484222325L, FORMAT_VERSION + "|" + config);
+    for (String path : files) {
+      hash = hash(hash, "|" + path);
+      URL resource = getResource(classLoader, path);
+      if (resource != null) {
+        // the modification time of a jar entry is not reliable
+        try {
+          InputStream in = resource.openStream();
+          try {
+            byte[] buffer = new byte[RESOURCE_BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+              for (int i = 0; i < count; i++) {
+                hash ^= buffer[i] & 0xff;
+                hash *= 0x100000001b3L;
+              }
+            }
+          } finally {
+            in.close();
+          }
+        } catch (IOException e) {
+          LOG.error("IOException: " + e.getMessage());
+          hash = hash(hash, ":unreadable");
+        }
+      } else {
+        File file = new File(path);
+        if (file.isFile()) {
+          hash = hash(hash, ":" + file.length() + ":" + file.lastModified());
+        }
+      }
+    }
+    return hash;
+  }
+
+  private static URL getResource(ClassLoader classLoader, String path) {
+    if (classLoader == null) {
+      return null;
+    }
+    // the resources of a class loader are never absolute
+    String name = path.startsWith("/") ? path.substring(1) : path;
+    URL resource = classLoader.getResource(name);
+    // windows File.separator is \, but getting resources only works with /
+    if (resource == null) {
+      resource = classLoader.getResource(name.replaceAll("\\\\", "/"));
+    }
+    return resource;
+  }
+
+  private static long hash(long hash, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  public long getFingerprint() {
+    return m_fingerprint;
+  }
+
+  public int getTableCount() {
+    return m_capacities.length;
+  }
+
+  public int size(int table) {
+    return m_sizes[table];
+  }
+
+  /**
+   * Returns the position of the value of the key or -1.
+   */
+  public int find(int table, CharSequence key) {
+    return find(table, key, key.length(), key.toString().hashCode());
+  }
+
+  private int find(int table, CharSequence key, int length, int hash) {
+    int mask = m_capacities[table] - 1;
+    int slots = m_slotPositions[table];
+    for (int i = mix(hash) & mask;; i = (i + 1) & mask) {
+      int slot = slots + i * SLOT_BYTES;
+      int entry = m_buffer.getInt(slot + 4);
+      if (entry == 0) {
+        return -1;
+      }
+      if ((m_buffer.getInt(slot) == hash) && (equals(entry, key, length))) {
+        return entry + 2 + (m_buffer.getShort(entry) & 0xffff);
+      }
+    }
+  }
+
+  /**
+   * Same as find(table, new String(text, offset, length).toLowerCase())
+   */
+  public int findLowerCase(int table, char[] text, int offset, int length) {
+    int end = offset + length;
+    int hash = 0;
+    for (int i = offset; i < end; i++) {
+      char c = text[i];
+      if (c >= 0x80) {
+        return find(table, new String(text, offset, length).toLowerCase());
+      }
+      hash = 31 * hash + toLowerCase(c);
+    }
+    int mask = m_capacities[table] - 1;
+    int slots = m_slotPositions[table];
+    for (int i = mix(hash) & mask;; i = (i + 1) & mask) {
+      int slot = slots + i * SLOT_BYTES;
+      int entry = m_buffer.getInt(slot + 4);
+      if (entry == 0) {
+        return -1;
+      }
+      // ASCII keys have one byte per char
+      if ((m_buffer.getInt(slot) == hash)
+          && ((m_buffer.getShort(entry) & 0xffff) == length)) {
+        boolean equals = true;
+        for (int j = 0; (equals) && (j < length); j++) {
+          equals = m_buffer.get(entry + 2 + j) == toLowerCase(text[offset + j]);
+        }
+        if (equals) {
+          return entry + 2 + length;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the position of the value of the longest key which is a prefix
+   * of the given key or -1.
+   */
+  public int findLongestPrefix(int table, CharSequence key) {
+    long keyLengths = m_keyLengths[table];
+    int result = ((keyLengths & 1) != 0) ? find(table, key, 0, 0) : -1;
+    int hash = 0;
+    for (int i = 0; i < key.length(); i++) {
+      hash = 31 * hash + key.charAt(i);
+      if ((keyLengths & (1L << Math.min(i + 1, 63))) != 0) {
+        int position = find(table, key, i + 1, hash);
+        if (position >= 0) {
+          result = position;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Compares the UTF-8 key of an entry with the first length chars of key.
+   */
+  private boolean equals(int entry, CharSequence key, int length) {
+    int position = entry + 2;
+    int end = position + (m_buffer.getShort(entry) & 0xffff);
+    for (int i = 0; i < length; i++) {
+      int c = key.charAt(i);
+      if ((Character.isHighSurrogate((char) c)) && (i + 1 < length)
+          && (Character.isLowSurrogate(key.charAt(i + 1)))) {
+        c = Character.toCodePoint((char) c, key.charAt(++i));
+      } else if (Character.isSurrogate((char) c)) {
+        // unpaired surrogates are encoded as '?'
+        c = '?';
+      }
+      if (c < 0x80) {
+        if ((position >= end) || (m_buffer.get(position++) != c)) {
+          return false;
+        }
+      } else {
+        int bytes = (c < 0x800) ? 2 : (c < 0x10000) ? 3 : 4;
+        if (position + bytes > end) {
+          return false;
+        }
+        int first = (bytes == 2) ? 0xc0 : (bytes == 3) ? 0xe0 : 0xf0;
+        int expected = first | (c >> (6 * (bytes - 1)));
+        for (int shift = 6 * (bytes - 2); shift >= -6; shift -= 6) {
+          if ((m_buffer.get(position++) & 0xff) != expected) {
+            return false;
+          }
+          // next continuation byte
+          expected = (shift >= 0) ? 0x80 | ((c >> shift) & 0x3f) : 0;
+        }
+      }
+    }
+    return position == end;
+  }
+
+  public int getInt(int position) {
+    return m_buffer.getInt(position);
+  }
+
+  public double getDouble(int position) {
+    return m_buffer.getDouble(position);
+  }
+
+  /**
+   * Returns the UTF-8 string of a Writer.writeString value.
+   */
+  public String getString(int position) {
+    int length = m_buffer.getShort(position) & 0xffff;
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = m_buffer.get(position + 2 + i);
+    }
+    return new String(bytes, UTF8);
+  }
+
+  /**
+   * Returns all keys of a table, e.g., for tests.
+   */
+  public List<String> getKeys(int table) {
+    List<String> keys = new ArrayList<String>(m_sizes[table]);
+    int slots = m_slotPositions[table];
+    for (int i = 0; i < m_capacities[table]; i++) {
+      int entry = m_buffer.getInt(slots + i * SLOT_BYTES + 4);
+      if (entry != 0) {
+        keys.add(getString(entry));
+      }
+    }
+    return keys;
+  }
+
+  private static int mix(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    return hash ^ (hash >>> 13);
+  }
+
+  private static char toLowerCase(char c) {
+    return ((c >= 'A') && (c <= 'Z')) ? (char) (c + 32) : c;
+  }
+
+  /**
+   * Collects the entries of all tables and writes the dictionary file. A
+   * value is written with the write methods after put.
+   */
+  public static class Writer {
+    private final List<Map<String, byte[]>> m_tables;
+    private ValueBuffer m_value = null;
+
+    public Writer(int tableCount) {
+      m_tables = new ArrayList<Map<String, byte[]>>(tableCount);
+      for (int i = 0; i < tableCount; i++) {
+        m_tables.add(new LinkedHashMap<String, byte[]>());
+      }
+    }
+
+    /**
+     * Starts the value of a new entry, an existing entry is replaced.
+     */
+    public Writer put(int table, String key) {
+      finish();
+      if (key.getBytes(UTF8).length > 0xffff) {
+        throw new IllegalArgumentException("Key too long: " + key);
+      }
+      m_value = new ValueBuffer(m_tables.get(table), key);
+      return this;
+    }
+
+    public Writer writeInt(int value) {
+      m_value.writeInt(value);
+      return this;
+    }
+
+    public Writer writeDouble(double value) {
+      m_value.writeLong(Double.doubleToRawLongBits(value));
+      return this;
+    }
+
+    public Writer writeString(String value) {
+      byte[] bytes = value.getBytes(UTF8);
+      if (bytes.length > 0xffff) {
+        throw new IllegalArgumentException("Value too long: " + value);
+      }
+      m_value.writeShort(bytes.length);
+      m_value.write(bytes);
+      return this;
+    }
+
+    private void finish() {
+      if (m_value != null) {
+        m_value.finish();
+        m_value = null;
+      }
+    }
+
+    /**
+     * Writes the file to a temporary file first and then renames it,
+     * concurrent readers never see a partial file.
+     */
+    public void write(File file, long fingerprint) throws IOException {
+      finish();
+      int tableCount = m_tables.size();
+      int[] capacities = new int[tableCount];
+      int position = HEADER_BYTES + tableCount * TABLE_BYTES;
+      int[] slotPositions = new int[tableCount];
+      for (int i = 0; i < tableCount; i++) {
+        int capacity = 2;
+        while (capacity < m_tables.get(i).size() * 2) {
+          capacity <<= 1;
+        }
+        capacities[i] = capacity;
+        slotPositions[i] = position;
+        position += capacity * SLOT_BYTES;
+      }
+
+      // entries follow the slots
+      long[] keyLengths = new long[tableCount];
+      int[][] slots = new int[tableCount][];
+      List<byte[]> entries = new ArrayList<byte[]>();
+      for (int i = 0; i < tableCount; i++) {
+        int mask = capacities[i] - 1;
+        slots[i] = new int[capacities[i] * 2];
+        for (Map.Entry<String, byte[]> entry : m_tables.get(i).entrySet()) {
+          String key = entry.getKey();
+          int hash = key.hashCode();
+          int slot = mix(hash) & mask;
+          while (slots[i][slot * 2 + 1] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          slots[i][slot * 2] = hash;
+          slots[i][slot * 2 + 1] = position;
+          keyLengths[i] |= 1L << Math.min(key.length(), 63);
+
+          byte[] keyBytes = key.getBytes(UTF8);
+          byte[] value = entry.getValue();
+          byte[] bytes = new byte[2 + keyBytes.length + value.length];
+          bytes[0] = (byte) (keyBytes.length >>> 8);
+          bytes[1] = (byte) keyBytes.length;
+          System.arraycopy(keyBytes, 0, bytes, 2, keyBytes.length);
+          System.arraycopy(value, 0, bytes, 2 + keyBytes.length, value.length);
+          entries.add(bytes);
+          position += bytes.length;
+          if (position < 0) {
+            throw new IOException("Dictionary exceeds 2 GB: " + file);
+          }
+        }
+      }
+
+      File tmpFile = File.createTempFile(file.getName(), ".tmp", file
+          .getAbsoluteFile().getParentFile());
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(tmpFile), 1 << 16));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(fingerprint);
+        out.writeInt(tableCount);
+        for (int i = 0; i < tableCount; i++) {
+          out.writeInt(capacities[i]);
+          out.writeInt(m_tables.get(i).size());
+          out.writeInt(slotPositions[i]);
+          out.writeLong(keyLengths[i]);
+        }
+        for (int i = 0; i < tableCount; i++) {
+          for (int slot : slots[i]) {
+            out.writeInt(slot);
+          }
+        }
+        for (byte[] entry : entries) {
+          out.write(entry);
+        }
+      } finally {
+        out.close();
+      }
+      if (!tmpFile.renameTo(file)) {
+        tmpFile.delete();
+        throw new IOException("Could not rename " + tmpFile + " to " + file);
+      }
+      LOG.info("Wrote dictionary " + file + " (" + file.length() + " bytes)");
+    }
+  }
+
+  /**
+   * Value bytes of an entry, stored in the table when finished.
+   */
+  private static class ValueBuffer extends ByteArrayOutputStream {
+    private final Map<String, byte[]> m_table;
+    private final String m_key;
+
+    ValueBuffer(Map<String, byte[]> table, String key) {
+      super(16);
+      m_table = table;
+      m_key = key;
+    }
+
+    void writeShort(int value) {
+      write(value >>> 8);
+      write(value);
+    }
+
+    void writeInt(int value) {
+      writeShort(value >>> 16);
+      writeShort(value);
+    }
+
+    void writeLong(long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    @Override
+    public void write(byte[] bytes) {
+      write(bytes, 0, bytes.length);
+    }
+
+    void finish() {
+      m_table.put(m_key, toByteArray());
+    }
+  }
+
+  /**
+   * Rewrites a classpath resource with the same size and modification time
+   * and checks that the dictionary built from it has to be rebuilt.
+   */
+  private static void testResourceFingerprint() throws IOException {
+    File dir = Files.createTempDirectory("dictionary-test").toFile();
+    URLClassLoader classLoader = new URLClassLoader(new URL[] { dir.toURI()
+        .toURL() }, null);
+    try {
+      String path = "resources/dictionaries/test.txt";
+      File resource = new File(dir, path);
+      resource.getParentFile().mkdirs();
+      writeFile(resource, "good\t1\n");
+      List<String> files = Collections.singletonList(path);
+      long fingerprint = fingerprint("test", files, classLoader);
+      File file = new File(dir, "test.dict");
+      new Writer(1).put(0, "good").writeInt(1).write(file, fingerprint);
+
+      long lastModified = resource.lastModified();
+      writeFile(resource, "good\t2\n");
+      resource.setLastModified(lastModified);
+      long changedFingerprint = fingerprint("test", files, classLoader);
+
+      if ((changedFingerprint == fingerprint)
+          || (read(file, changedFingerprint) != null)
+          || (read(file, fingerprint) == null)) {
+        throw new IllegalStateException(
+            "Changed resource does not rebuild the dictionary");
+      }
+      LOG.info("Resource fingerprint test passed");
+    } finally {
+      classLoader.close();
+      IOUtils.delete(dir);
+    }
+  }
+
+  private static void writeFile(File file, String content) throws IOException {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content.getBytes(UTF8));
+    } finally {
+      out.close();
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    testResourceFingerprint();
+  }
+}
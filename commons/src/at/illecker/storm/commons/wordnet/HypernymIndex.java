@@ -0,0 +1,278 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.wordnet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.mit.jwi.IDictionary;
+import edu.mit.jwi.item.ISynset;
+import edu.mit.jwi.item.ISynsetID;
+import edu.mit.jwi.item.POS;
+import edu.mit.jwi.item.Pointer;
+import edu.mit.jwi.item.SynsetID;
+
+/**
+ * Index of the hypernym hierarchy of WordNet. It stores the max depth of each
+ * synset and its ancestors (including itself) with their shortest hypernym
+ * distance, so that depth, closest common parent and path distance queries
+ * need no recursion. The index is immutable after construction.
+ */
+public class HypernymIndex {
+  private static final POS[] POS_VALUES = POS.values();
+
+  // sorted synset offsets per POS, the id of a synset is its position plus
+  // the base of its POS
+  private final int[][] m_offsets;
+  private final int[] m_base;
+  private final byte[] m_maxDepth;
+  // sorted ancestor ids of each synset and the distance to each ancestor
+  private final int[][] m_ancestors;
+  private final byte[][] m_distances;
+
+  public HypernymIndex(IDictionary dict) {
+    // collect the hypernyms of all synsets
+    List<ISynsetID[]> hypernyms = new ArrayList<ISynsetID[]>();
+    m_offsets = new int[POS_VALUES.length][];
+    m_base = new int[POS_VALUES.length];
+    for (POS pos : POS_VALUES) {
+      Map<Integer, ISynsetID[]> synsets = new TreeMap<Integer, ISynsetID[]>();
+      for (Iterator<ISynset> i = dict.getSynsetIterator(pos); i.hasNext();) {
+        ISynset synset = i.next();
+        List<ISynsetID> ancestors = new ArrayList<ISynsetID>();
+        ancestors.addAll(synset.getRelatedSynsets(Pointer.HYPERNYM));
+        ancestors.addAll(synset.getRelatedSynsets(Pointer.HYPERNYM_INSTANCE));
+        synsets.put(synset.getOffset(),
+            ancestors.toArray(new ISynsetID[ancestors.size()]));
+      }
+      int[] offsets = new int[synsets.size()];
+      int j = 0;
+      for (Map.Entry<Integer, ISynsetID[]> entry : synsets.entrySet()) {
+        offsets[j++] = entry.getKey();
+        hypernyms.add(entry.getValue());
+      }
+      m_offsets[pos.ordinal()] = offsets;
+      m_base[pos.ordinal()] = hypernyms.size() - offsets.length;
+    }
+
+    int size = hypernyms.size();
+    int[][] parents = new int[size][];
+    for (int id = 0; id < size; id++) {
+      ISynsetID[] ids = hypernyms.get(id);
+      int[] parentIds = new int[ids.length];
+      int count = 0;
+      for (ISynsetID parent : ids) {
+        int parentId = getId(parent);
+        if (parentId >= 0) {
+          parentIds[count++] = parentId;
+        }
+      }
+      parents[id] = (count == ids.length) ? parentIds : Arrays.copyOf(
+          parentIds, count);
+    }
+
+    m_maxDepth = new byte[size];
+    m_ancestors = new int[size][];
+    m_distances = new byte[size][];
+    build(parents);
+  }
+
+  /**
+   * Computes depths and ancestors of all synsets in topological order by a
+   * depth-first search with an explicit stack. A hypernym which is already on
+   * the stack would close a cycle and is ignored.
+   */
+  private void build(int[][] parents) {
+    byte[] state = new byte[parents.length]; // 0 new, 1 on stack, 2 done
+    int[] stack = new int[parents.length];
+    int[] next = new int[parents.length]; // next parent to visit
+    for (int root = 0; root < parents.length; root++) {
+      if (state[root] != 0) {
+        continue;
+      }
+      int top = 0;
+      stack[top++] = root;
+      state[root] = 1;
+      while (top > 0) {
+        int id = stack[top - 1];
+        if (next[id] < parents[id].length) {
+          int parent = parents[id][next[id]++];
+          if (state[parent] == 0) {
+            state[parent] = 1;
+            stack[top++] = parent;
+          }
+        } else {
+          top--;
+          state[id] = 2;
+          computeAncestors(id, parents[id], state);
+        }
+      }
+    }
+  }
+
+  private void computeAncestors(int id, int[] parents, byte[] state) {
+    int depth = -1;
+    int count = 1;
+    for (int parent : parents) {
+      if (state[parent] == 2) {
+        depth = Math.max(depth, m_maxDepth[parent]);
+        count += m_ancestors[parent].length;
+      }
+    }
+    m_maxDepth[id] = (byte) (depth + 1);
+
+    // (ancestor id, distance) pairs sorted by id and distance
+    long[] pairs = new long[count];
+    pairs[0] = ((long) id) << 8;
+    int n = 1;
+    for (int parent : parents) {
+      if (state[parent] == 2) {
+        int[] ancestors = m_ancestors[parent];
+        byte[] distances = m_distances[parent];
+        for (int i = 0; i < ancestors.length; i++) {
+          pairs[n++] = (((long) ancestors[i]) << 8) | (distances[i] + 1);
+        }
+      }
+    }
+    Arrays.sort(pairs, 0, n);
+
+    // keep the shortest distance of each ancestor
+    int[] ancestors = new int[n];
+    byte[] distances = new byte[n];
+    int unique = 0;
+    for (int i = 0; i < n; i++) {
+      int ancestor = (int) (pairs[i] >>> 8);
+      if ((unique == 0) || (ancestors[unique - 1] != ancestor)) {
+        ancestors[unique] = ancestor;
+        distances[unique] = (byte) (pairs[i] & 0xFF);
+        unique++;
+      }
+    }
+    m_ancestors[id] = (unique == n) ? ancestors : Arrays.copyOf(ancestors,
+        unique);
+    m_distances[id] = (unique == n) ? distances : Arrays.copyOf(distances,
+        unique);
+  }
+
+  private int getId(ISynsetID synsetID) {
+    int p = synsetID.getPOS().ordinal();
+    int i = Arrays.binarySearch(m_offsets[p], synsetID.getOffset());
+    return (i >= 0) ? m_base[p] + i : -1;
+  }
+
+  private ISynsetID getSynsetID(int id) {
+    int p = POS_VALUES.length - 1;
+    while (m_base[p] > id) {
+      p--;
+    }
+    return new SynsetID(m_offsets[p][id - m_base[p]], POS_VALUES[p]);
+  }
+
+  public int size() {
+    return m_maxDepth.length;
+  }
+
+  /**
+   * Returns the length of the longest hypernym path from the synset to a root
+   * or 0 if the synset is unknown.
+   */
+  public int maxDepth(ISynsetID synsetID) {
+    int id = getId(synsetID);
+    return (id >= 0) ? m_maxDepth[id] : 0;
+  }
+
+  /**
+   * Returns the common ancestor with the greatest max depth, ties are broken
+   * by the shorter path through the ancestor. Returns null if both synsets
+   * have no common ancestor.
+   */
+  public ISynsetID findClosestCommonParent(ISynsetID synsetID1,
+      ISynsetID synsetID2) {
+    int id1 = getId(synsetID1);
+    int id2 = getId(synsetID2);
+    if ((id1 < 0) || (id2 < 0)) {
+      return null;
+    }
+    int[] ancestors1 = m_ancestors[id1];
+    int[] ancestors2 = m_ancestors[id2];
+    byte[] distances1 = m_distances[id1];
+    byte[] distances2 = m_distances[id2];
+    int result = -1;
+    int resultDepth = -1;
+    int resultDistance = Integer.MAX_VALUE;
+    int i = 0;
+    int j = 0;
+    while ((i < ancestors1.length) && (j < ancestors2.length)) {
+      if (ancestors1[i] < ancestors2[j]) {
+        i++;
+      } else if (ancestors1[i] > ancestors2[j]) {
+        j++;
+      } else {
+        int ancestor = ancestors1[i];
+        int distance = distances1[i] + distances2[j];
+        if ((m_maxDepth[ancestor] > resultDepth)
+            || ((m_maxDepth[ancestor] == resultDepth) && (distance < resultDistance))) {
+          result = ancestor;
+          resultDepth = m_maxDepth[ancestor];
+          resultDistance = distance;
+        }
+        i++;
+        j++;
+      }
+    }
+    return (result >= 0) ? getSynsetID(result) : null;
+  }
+
+  /**
+   * Returns the number of edges of the shortest path connecting both synsets
+   * through a common ancestor or -1 if no such path exists.
+   */
+  public int shortestPathDistance(ISynsetID synsetID1, ISynsetID synsetID2) {
+    int id1 = getId(synsetID1);
+    int id2 = getId(synsetID2);
+    if ((id1 < 0) || (id2 < 0)) {
+      return -1;
+    }
+    int[] ancestors1 = m_ancestors[id1];
+    int[] ancestors2 = m_ancestors[id2];
+    byte[] distances1 = m_distances[id1];
+    byte[] distances2 = m_distances[id2];
+    int result = -1;
+    int i = 0;
+    int j = 0;
+    while ((i < ancestors1.length) && (j < ancestors2.length)) {
+      if (ancestors1[i] < ancestors2[j]) {
+        i++;
+      } else if (ancestors1[i] > ancestors2[j]) {
+        j++;
+      } else {
+        int distance = distances1[i] + distances2[j];
+        if ((result < 0) || (distance < result)) {
+          result = distance;
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+}
@@ -18,20 +18,34 @@ package at.illecker.storm.commons.wordnet;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.preprocessor.TokenCache;
+import at.illecker.storm.commons.util.BloomFilter;
 import at.illecker.storm.commons.util.io.IOUtils;
-import edu.mit.jwi.IRAMDictionary;
-import edu.mit.jwi.RAMDictionary;
-import edu.mit.jwi.data.ILoadPolicy;
+import edu.mit.jwi.IDictionary;
+import edu.mit.jwi.item.IExceptionEntry;
 import edu.mit.jwi.item.IIndexWord;
 import edu.mit.jwi.item.ISenseEntry;
 import edu.mit.jwi.item.ISynset;
@@ -40,50 +54,110 @@ import edu.mit.jwi.item.IWord;
 import edu.mit.jwi.item.IWordID;
 import edu.mit.jwi.item.POS;
 import edu.mit.jwi.item.Pointer;
+import edu.mit.jwi.morph.SimpleStemmer;
+import edu.mit.jwi.morph.StemmingRule;
 import edu.mit.jwi.morph.WordnetStemmer;
 import edu.stanford.nlp.ling.TaggedWord;
 
+/**
+ * WordNet access layer. The dictionary, the stemmer and the precomputed
+ * tables are only read after construction, all methods can be called
+ * concurrently without a lock.
+ */
 public class WordNet {
   public static final int MAX_DEPTH_OF_HIERARCHY = 16;
   private static final Logger LOG = LoggerFactory.getLogger(WordNet.class);
   private static final WordNet INSTANCE = new WordNet();
 
-  private IRAMDictionary m_dict;
+  private IDictionary m_dict;
   private File m_wordNetDir;
   private WordnetStemmer m_wordnetStemmer;
+  // stems of words per POS ordinal, the last cache is used for a null POS
+  private TokenCache<List<String>>[] m_stemCaches;
+  // normalized surface forms for which contains is true
+  private Set<String> m_surfaceForms;
+  private BloomFilter m_surfaceFormFilter;
+  // most likely POS of the surface forms, surface forms without are missing
+  private Map<String, POS> m_surfaceFormPOS;
+  private HypernymIndex m_hypernymIndex;
 
   private WordNet() {
     try {
-      String wordNetDictPath = Configuration.getWordNetDict();
-      LOG.info("WordNet Dictionary: " + wordNetDictPath);
-      m_wordNetDir = new File(Configuration.TEMP_DIR_PATH + File.separator
-          + "dict");
-      LOG.info("WordNet Extract Location: " + m_wordNetDir.getAbsolutePath());
-
-      // check if extract location does exist
-      if (m_wordNetDir.exists()) {
-        IOUtils.delete(m_wordNetDir);
+      String wordNetDict = Configuration.getWordNetDict();
+      m_dict = openSnapshot(wordNetDict);
+      if (m_dict == null) {
+        m_wordNetDir = WordNetSnapshot.createExtractDir();
+        m_dict = WordNetSnapshot.loadDictionary(wordNetDict, m_wordNetDir);
       }
 
-      // extract tar.gz file
-      IOUtils.extractTarGz(wordNetDictPath, m_wordNetDir.getParent());
+      m_wordnetStemmer = new WordnetStemmer(m_dict);
 
-      m_dict = new RAMDictionary(m_wordNetDir, ILoadPolicy.NO_LOAD);
-      m_dict.open();
+      int stemCacheSize = Configuration.get("commons.wordnet.stemcache.size",
+          100000);
+      if (stemCacheSize > 0) {
+        m_stemCaches = createStemCaches(stemCacheSize);
+      }
 
-      // load into memory
+      // precompute surface forms
       long t = System.currentTimeMillis();
-      m_dict.load(true);
-      LOG.info("Loaded Wordnet into memory in "
-          + (System.currentTimeMillis() - t) + " msec");
-
-      m_wordnetStemmer = new WordnetStemmer(m_dict);
+      loadSurfaceForms();
+      LOG.info("Precomputed " + m_surfaceForms.size()
+          + " WordNet surface forms in " + (System.currentTimeMillis() - t)
+          + " msec");
+
+      // precompute hypernym depths and ancestors
+      t = System.currentTimeMillis();
+      m_hypernymIndex = new HypernymIndex(m_dict);
+      LOG.info("Indexed hypernyms of " + m_hypernymIndex.size()
+          + " WordNet synsets in " + (System.currentTimeMillis() - t)
+          + " msec");
 
     } catch (IOException e) {
-      LOG.error("IOException: " + e.getMessage());
+      throw new RuntimeException("WordNet could not be loaded", e);
     } catch (InterruptedException e) {
-      LOG.error("InterruptedException: " + e.getMessage());
+      throw new RuntimeException("WordNet could not be loaded", e);
+    }
+  }
+
+  /**
+   * Maps the snapshot of the dictionary archive. A missing, stale or
+   * unreadable snapshot is rebuilt once, returns null if the snapshot
+   * could not be built.
+   */
+  private static WordNetSnapshot openSnapshot(String wordNetDict)
+      throws InterruptedException {
+    long fingerprint = WordNetSnapshot.fingerprint(wordNetDict);
+    return openSnapshot(wordNetDict, fingerprint,
+        Configuration.getWordNetSnapshot(fingerprint));
+  }
+
+  private static WordNetSnapshot openSnapshot(String wordNetDict,
+      long fingerprint, File snapshotFile) throws InterruptedException {
+    for (int attempt = 0; attempt < 2; attempt++) {
+      if ((attempt > 0) || (!snapshotFile.isFile())) {
+        // one-time build step, later starts only map the snapshot
+        try {
+          WordNetSnapshot.build(wordNetDict, snapshotFile, fingerprint);
+        } catch (IOException e) {
+          LOG.error("WordNet snapshot could not be built: " + e.getMessage());
+          return null;
+        }
+      }
+      WordNetSnapshot snapshot = new WordNetSnapshot(snapshotFile);
+      try {
+        snapshot.open();
+        if (snapshot.getFingerprint() == fingerprint) {
+          return snapshot;
+        }
+        snapshot.close();
+        LOG.info("WordNet snapshot " + snapshotFile
+            + " is stale and will be rebuilt");
+      } catch (IOException e) {
+        LOG.error("WordNet snapshot " + snapshotFile + " is unreadable: "
+            + e.getMessage());
+      }
     }
+    return null;
   }
 
   public static WordNet getInstance() {
@@ -94,14 +168,56 @@ public class WordNet {
     if (m_dict != null) {
       m_dict.close();
     }
-    try {
-      IOUtils.delete(m_wordNetDir);
-    } catch (IOException e) {
-      LOG.error("IOException: " + e.getMessage());
+    if (m_wordNetDir != null) {
+      try {
+        IOUtils.delete(m_wordNetDir);
+      } catch (IOException e) {
+        LOG.error("IOException: " + e.getMessage());
+      }
     }
   }
 
+  /**
+   * Returns true if the word or one of its stems is a WordNet index word.
+   */
   public boolean contains(String word) {
+    if (m_surfaceForms == null) {
+      return containsStem(word);
+    }
+    String surfaceForm = normalizeSurfaceForm(word);
+    if (surfaceForm == null) {
+      // empty words and collocations
+      return containsStem(word);
+    }
+    return (m_surfaceFormFilter.mightContain(surfaceForm))
+        && (m_surfaceForms.contains(surfaceForm));
+  }
+
+  /**
+   * Returns the normalized surface forms for which contains is true, or null
+   * if they could not be precomputed. Collocations are not included.
+   */
+  public Set<String> getSurfaceForms() {
+    return (m_surfaceForms != null) ? Collections
+        .unmodifiableSet(m_surfaceForms) : null;
+  }
+
+  /**
+   * Returns the surface forms of the exception entries of all POS, e.g.,
+   * irregular inflections like "went".
+   */
+  public Set<String> getExceptionSurfaceForms() {
+    Set<String> surfaceForms = new HashSet<String>();
+    for (POS pos : POS.values()) {
+      for (Iterator<IExceptionEntry> i = m_dict.getExceptionEntryIterator(pos); i
+          .hasNext();) {
+        surfaceForms.add(i.next().getSurfaceForm());
+      }
+    }
+    return surfaceForms;
+  }
+
+  private boolean containsStem(String word) {
     for (POS pos : POS.values()) {
       for (String stem : m_wordnetStemmer.findStems(word, pos)) {
         IIndexWord indexWord = m_dict.getIndexWord(stem, pos);
@@ -112,6 +228,94 @@ public class WordNet {
     return false;
   }
 
+  /**
+   * Normalizes the word like the WordnetStemmer does. Returns null for empty
+   * words, collocations and words with control chars, which are not
+   * precomputed.
+   */
+  private static String normalizeSurfaceForm(String word) {
+    // fast path for lower case ASCII words
+    int length = word.length();
+    boolean isNormalized = length > 0;
+    for (int i = 0; (isNormalized) && (i < length); i++) {
+      char c = word.charAt(i);
+      isNormalized = (c > ' ') && (c < 0x80) && (c != '_')
+          && ((c < 'A') || (c > 'Z'));
+    }
+    if (isNormalized) {
+      return word;
+    }
+
+    word = word.toLowerCase().replace('_', ' ').trim();
+    if (word.length() == 0) {
+      return null;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      // whitespace becomes an underscore of a collocation and other control
+      // chars are trimmed off the stems by the index word lookup
+      if (word.charAt(i) <= ' ') {
+        return null;
+      }
+    }
+    return word;
+  }
+
+  /**
+   * Collects all surface forms that stem to an index word. A surface form
+   * has to be an index word, an exception entry or a stemming rule applied in
+   * reverse to an index word. Each candidate is verified with the stemmer,
+   * which makes contains exactly equal to the stemmer-based lookup.
+   */
+  private void loadSurfaceForms() {
+    Set<String> candidates = new HashSet<String>();
+    for (POS pos : POS.values()) {
+      List<StemmingRule> rules = SimpleStemmer.ruleMap.get(pos);
+      for (Iterator<IIndexWord> i = m_dict.getIndexWordIterator(pos); i
+          .hasNext();) {
+        String lemma = i.next().getLemma();
+        candidates.add(lemma);
+        for (StemmingRule rule : rules) {
+          String ending = rule.getEnding();
+          if (lemma.endsWith(ending)) {
+            candidates.add(lemma.substring(0, lemma.length() - ending.length())
+                + rule.getSuffix());
+          }
+          // nouns ending with "ful" are stemmed without the "ful"
+          if ((pos == POS.NOUN) && (lemma.endsWith(ending + "ful"))) {
+            candidates.add(lemma.substring(0,
+                lemma.length() - ending.length() - 3)
+                + rule.getSuffix() + "ful");
+          }
+        }
+      }
+      for (Iterator<IExceptionEntry> i = m_dict.getExceptionEntryIterator(pos); i
+          .hasNext();) {
+        candidates.add(i.next().getSurfaceForm());
+      }
+    }
+
+    Set<String> surfaceForms = new HashSet<String>();
+    for (String candidate : candidates) {
+      if ((candidate.equals(normalizeSurfaceForm(candidate)))
+          && (containsStem(candidate))) {
+        surfaceForms.add(candidate);
+      }
+    }
+
+    BloomFilter surfaceFormFilter = new BloomFilter(surfaceForms.size(), 10);
+    Map<String, POS> surfaceFormPOS = new HashMap<String, POS>();
+    for (String surfaceForm : surfaceForms) {
+      surfaceFormFilter.add(surfaceForm);
+      POS pos = findPOSWithStems(surfaceForm);
+      if (pos != null) {
+        surfaceFormPOS.put(surfaceForm, pos);
+      }
+    }
+    m_surfaceForms = surfaceForms;
+    m_surfaceFormFilter = surfaceFormFilter;
+    m_surfaceFormPOS = surfaceFormPOS;
+  }
+
   public boolean isNoun(String word) {
     return m_dict.getIndexWord(word, POS.NOUN) != null;
   }
@@ -128,24 +332,33 @@ public class WordNet {
     return m_dict.getIndexWord(word, POS.VERB) != null;
   }
 
-  public synchronized POS findPOS(String word) {
+  /**
+   * Returns the POS whose stems of word have the highest sense tag count, or
+   * null. Surface forms are looked up in a table precomputed at load time.
+   */
+  public POS findPOS(String word) {
+    // From JavaDoc: The surface form may or may not contain whitespace or
+    // underscores, and may be in mixed case.
+    word = removeSeparators(word);
+    if (m_surfaceFormPOS != null) {
+      String surfaceForm = normalizeSurfaceForm(word);
+      if (surfaceForm != null) {
+        // words which are no surface form have no index word stems
+        return m_surfaceFormPOS.get(surfaceForm);
+      }
+    }
+    return findPOSWithStems(word);
+  }
+
+  private POS findPOSWithStems(String word) {
     int maxCount = 0;
     POS mostLikelyPOS = null;
     for (POS pos : POS.values()) {
-      // From JavaDoc: The surface form may or may not contain whitespace or
-      // underscores, and may be in mixed case.
-      word = word.replaceAll("\\s", "").replaceAll("_", "");
-
       List<String> stems = m_wordnetStemmer.findStems(word, pos);
       for (String stem : stems) {
         IIndexWord indexWord = m_dict.getIndexWord(stem, pos);
         if (indexWord != null) {
-          int count = 0;
-          for (IWordID wordId : indexWord.getWordIDs()) {
-            IWord aWord = m_dict.getWord(wordId);
-            ISenseEntry senseEntry = m_dict.getSenseEntry(aWord.getSenseKey());
-            count += senseEntry.getTagCount();
-          }
+          int count = getTagCount(indexWord);
 
           if (count > maxCount) {
             maxCount = count;
@@ -158,8 +371,88 @@ public class WordNet {
     return mostLikelyPOS;
   }
 
+  /**
+   * Removes whitespace and underscores like replaceAll("\\s", "") and
+   * replaceAll("_", "").
+   */
+  private static String removeSeparators(String word) {
+    StringBuilder sb = null;
+    for (int i = 0; i < word.length(); i++) {
+      char c = word.charAt(i);
+      boolean isSeparator = false;
+      switch (c) {
+        case ' ':
+        case '\t':
+        case '\n':
+        case '\013':
+        case '\f':
+        case '\r':
+        case '_':
+          isSeparator = true;
+          break;
+      }
+      if ((isSeparator) && (sb == null)) {
+        sb = new StringBuilder(word.length());
+        sb.append(word, 0, i);
+      } else if ((!isSeparator) && (sb != null)) {
+        sb.append(c);
+      }
+    }
+    return (sb != null) ? sb.toString() : word;
+  }
+
+  /**
+   * Returns the sum of the sense tag counts of all words of the index word.
+   */
+  private int getTagCount(IIndexWord indexWord) {
+    if (m_dict instanceof WordNetSnapshot) {
+      // precomputed per index word by the snapshot
+      return ((WordNetSnapshot) m_dict).getTagCount(indexWord);
+    }
+    int count = 0;
+    for (IWordID wordId : indexWord.getWordIDs()) {
+      IWord aWord = m_dict.getWord(wordId);
+      ISenseEntry senseEntry = m_dict.getSenseEntry(aWord.getSenseKey());
+      count += senseEntry.getTagCount();
+    }
+    return count;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static TokenCache<List<String>>[] createStemCaches(int size) {
+    // one cache per POS avoids (word, pos) keys
+    TokenCache<List<String>>[] caches = new TokenCache[POS.values().length + 1];
+    for (int i = 0; i < caches.length; i++) {
+      caches[i] = new TokenCache<List<String>>(Math.max(1, size
+          / caches.length));
+    }
+    return caches;
+  }
+
+  /**
+   * Returns the stems of word, the returned list must not be modified. The
+   * stems of recent (word, pos) pairs are cached.
+   */
   public List<String> findStems(String word, POS pos) {
-    return m_wordnetStemmer.findStems(word, pos);
+    if (m_stemCaches == null) {
+      return m_wordnetStemmer.findStems(word, pos);
+    }
+    TokenCache<List<String>> cache = m_stemCaches[(pos != null) ? pos
+        .ordinal() : m_stemCaches.length - 1];
+    List<String> stems = cache.get(word);
+    if (stems == null) {
+      stems = Collections.unmodifiableList(m_wordnetStemmer.findStems(word,
+          pos));
+      cache.put(word, stems);
+    }
+    return stems;
+  }
+
+  /**
+   * Returns the stem caches or null if they are disabled.
+   */
+  public TokenCache<?>[] getStemCaches() {
+    return (m_stemCaches != null) ? m_stemCaches.clone() : null;
   }
 
   public IIndexWord getIndexWord(String word, POS pos) {
@@ -271,33 +564,6 @@ public class WordNet {
     return pathsToRoot;
   }
 
-  private ISynset findClosestCommonParent(List<ISynset> pathToRoot1,
-      List<ISynset> pathToRoot2) {
-    int i = 0;
-    int j = 0;
-
-    if (pathToRoot1.size() > pathToRoot2.size()) {
-      i = pathToRoot1.size() - pathToRoot2.size();
-      j = 0;
-
-    } else if (pathToRoot1.size() < pathToRoot2.size()) {
-      i = 0;
-      j = pathToRoot2.size() - pathToRoot1.size();
-    }
-
-    do {
-      ISynset synset1 = pathToRoot1.get(i++);
-      ISynset synset2 = pathToRoot2.get(j++);
-
-      if (synset1.equals(synset2)) {
-        return synset1;
-      }
-
-    } while (i < pathToRoot1.size());
-
-    return null;
-  }
-
   public ISynset findClosestCommonParent(ISynset synset1, ISynset synset2) {
     if ((synset1 == null) || (synset2 == null)) {
       return null;
@@ -306,25 +572,9 @@ public class WordNet {
       return synset1;
     }
 
-    List<List<ISynset>> pathsToRoot1 = getPathsToRoot(synset1);
-    List<List<ISynset>> pathsToRoot2 = getPathsToRoot(synset2);
-    ISynset resultSynset = null;
-    int i = 0;
-
-    for (List<ISynset> pathToRoot1 : pathsToRoot1) {
-      for (List<ISynset> pathToRoot2 : pathsToRoot2) {
-
-        ISynset synset = findClosestCommonParent(pathToRoot1, pathToRoot2);
-
-        int j = pathToRoot1.size() - (pathToRoot1.indexOf(synset) + 1);
-        if (j >= i) {
-          i = j;
-          resultSynset = synset;
-        }
-      }
-    }
-
-    return resultSynset;
+    ISynsetID ccp = m_hypernymIndex.findClosestCommonParent(synset1.getID(),
+        synset2.getID());
+    return (ccp != null) ? m_dict.getSynset(ccp) : null;
   }
 
   /**
@@ -338,20 +588,7 @@ public class WordNet {
     if (synset == null) {
       return 0;
     }
-
-    List<ISynsetID> ancestors = getAncestors(synset);
-    if (ancestors.isEmpty()) {
-      return 0;
-    }
-
-    int i = 0;
-    for (ISynsetID ancestor : ancestors) {
-      ISynset ancestorSynset = m_dict.getSynset(ancestor);
-      int j = maxDepth(ancestorSynset);
-      i = (i > j) ? i : j;
-    }
-
-    return i + 1;
+    return m_hypernymIndex.maxDepth(synset.getID());
   }
 
   /**
@@ -371,25 +608,12 @@ public class WordNet {
    *         or null if no path exists.
    */
   public Integer shortestPathDistance(ISynset synset1, ISynset synset2) {
-    Integer distance = null;
     if (synset1.equals(synset2)) {
       return 0;
     }
-
-    ISynset ccp = findClosestCommonParent(synset1, synset2);
-    if (ccp != null) {
-      distance = maxDepth(synset1) + maxDepth(synset2) - 2 * maxDepth(ccp);
-
-      // Debug
-      String w1 = synset1.getWords().get(0).getLemma();
-      String w2 = synset2.getWords().get(0).getLemma();
-      String w3 = ccp.getWords().get(0).getLemma();
-      System.out.println("maxDepth(" + w1 + "): " + maxDepth(synset1));
-      System.out.println("maxDepth(" + w2 + "): " + maxDepth(synset2));
-      System.out.println("maxDepth(" + w3 + "): " + maxDepth(ccp));
-      System.out.println("distance(" + w1 + "," + w2 + "): " + distance);
-    }
-    return distance;
+    int distance = m_hypernymIndex.shortestPathDistance(synset1.getID(),
+        synset2.getID());
+    return (distance >= 0) ? distance : null;
   }
 
   /**
@@ -421,15 +645,6 @@ public class WordNet {
         throw new IllegalArgumentException("Distance value is negative!");
       }
       pathSimilarity = 1 / ((double) distance + 1);
-
-      // Debug
-      String w1 = synset1.getWords().get(0).getLemma();
-      String w2 = synset2.getWords().get(0).getLemma();
-      System.out.println("maxDepth(" + w1 + "): " + maxDepth(synset1));
-      System.out.println("maxDepth(" + w2 + "): " + maxDepth(synset2));
-      System.out.println("distance: " + distance);
-      System.out.println("pathSimilarity(" + w1 + "," + w2 + "): "
-          + pathSimilarity);
     } else {
       // TODO simulate_root=True
     }
@@ -475,12 +690,6 @@ public class WordNet {
 
       lchSimilarity = Math.log((2 * MAX_DEPTH_OF_HIERARCHY)
           / ((double) distance));
-
-      // Debug
-      String w1 = synset1.getWords().get(0).getLemma();
-      String w2 = synset2.getWords().get(0).getLemma();
-      System.out.println("lchSimilarity(" + w1 + "," + w2 + "): "
-          + lchSimilarity);
     } else {
       // TODO simulate_root=True
     }
@@ -521,20 +730,34 @@ public class WordNet {
   public ISynset disambiguateWordSenses(List<TaggedWord> sentence, String word,
       POS pos) {
     IIndexWord indexWord = getIndexWord(word, pos);
+    if (indexWord == null) {
+      return null;
+    }
     Set<ISynset> synsets = getSynsets(indexWord);
 
+    // look up the senses of the sentence only once for all senses of word
+    List<Set<ISynset>> sentenceSynsets = new ArrayList<Set<ISynset>>(
+        sentence.size());
+    for (TaggedWord taggedWord : sentence) {
+      POS posLocal = POSTag.convertPTB(taggedWord.tag());
+      if (posLocal == null) {
+        continue;
+      }
+      IIndexWord indexWordLocal = getIndexWord(taggedWord.word(), posLocal);
+      if (indexWordLocal != null) {
+        sentenceSynsets.add(getSynsets(indexWordLocal));
+      }
+    }
+
     ISynset resultSynset = null;
     double bestScore = 0;
     for (ISynset synset : synsets) {
-      for (TaggedWord taggedWord : sentence) {
+      for (Set<ISynset> synsetsLocal : sentenceSynsets) {
         double score = 0;
-        IIndexWord indexWordLocal = getIndexWord(taggedWord.word(),
-            POSTag.convertPTB(taggedWord.tag()));
-        Set<ISynset> synsetsLocal = getSynsets(indexWordLocal);
         for (ISynset synsetLocal : synsetsLocal) {
-          double sim = shortestPathDistance(synsetLocal, synset);
-          if (sim > 0) {
-            score += sim;
+          Integer distance = shortestPathDistance(synsetLocal, synset);
+          if ((distance != null) && (distance > 0)) {
+            score += distance;
           }
         }
         if (score > bestScore) {
@@ -625,6 +848,30 @@ public class WordNet {
         getSynset("slap", POS.VERB));
     System.out.println("lchSimilarity: " + lchSimilarity);
 
+    // ************************************************************************
+    // Test hypernym index against the paths to root
+    // ************************************************************************
+    System.out.println("\nHypernym index test...");
+    long startTime = System.currentTimeMillis();
+    int synsetCount = 0;
+    int depthDiffs = 0;
+    for (POS pos : POS.values()) {
+      for (Iterator<ISynset> i = m_dict.getSynsetIterator(pos); i.hasNext();) {
+        ISynset synset = i.next();
+        int depth = 0;
+        for (List<ISynset> pathToRoot : getPathsToRoot(synset)) {
+          depth = Math.max(depth, pathToRoot.size() - 1);
+        }
+        if (depth != maxDepth(synset)) {
+          depthDiffs++;
+        }
+        synsetCount++;
+      }
+    }
+    System.out.println("Hypernym index test finished after "
+        + (System.currentTimeMillis() - startTime) + " ms, synsets: "
+        + synsetCount + " depth differences: " + depthDiffs);
+
     // ************************************************************************
     // Test stemming
     // ************************************************************************
@@ -651,6 +898,93 @@ public class WordNet {
       }
     }
 
+    // ************************************************************************
+    // Test contains
+    // ************************************************************************
+    System.out.println("\nContains test...");
+    String[] suffixes = { "", "s", "es", "ed", "ing", "er", "est", "ful", "x" };
+    int differences = 0;
+    long t = System.currentTimeMillis();
+    for (String surfaceForm : m_surfaceForms) {
+      for (String suffix : suffixes) {
+        String testWord = surfaceForm + suffix;
+        if (contains(testWord) != containsStem(testWord)) {
+          differences++;
+          System.err.println("Wrong contains result of \"" + testWord + "\"");
+        }
+      }
+    }
+    System.out.println("Contains test finished after "
+        + (System.currentTimeMillis() - t) + " msec, " + differences
+        + " differences");
+
+    // ************************************************************************
+    // Stress test findPOS
+    // ************************************************************************
+    System.out.println("\nfindPOS stress test...");
+    stressTestFindPOS();
+  }
+
+  /**
+   * Calls findPOS from an increasing number of threads and verifies the
+   * results against the stem-based lookup.
+   */
+  private void stressTestFindPOS() {
+    final List<String> words = new ArrayList<String>();
+    for (String surfaceForm : m_surfaceForms) {
+      words.add(surfaceForm);
+      words.add(surfaceForm.toUpperCase() + "_");
+      words.add(surfaceForm + "xyz");
+    }
+    final POS[] expected = new POS[words.size()];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = findPOSWithStems(words.get(i).replaceAll("\\s", "")
+          .replaceAll("_", ""));
+    }
+
+    final int rounds = 10;
+    int cores = Runtime.getRuntime().availableProcessors();
+    double singleThreadedRate = 0;
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      ExecutorService executorService = Executors.newFixedThreadPool(threads);
+      List<Callable<Integer>> callables = new ArrayList<Callable<Integer>>();
+      for (int i = 0; i < threads; i++) {
+        callables.add(new Callable<Integer>() {
+          @Override
+          public Integer call() {
+            int differences = 0;
+            for (int r = 0; r < rounds; r++) {
+              for (int j = 0; j < expected.length; j++) {
+                if (findPOS(words.get(j)) != expected[j]) {
+                  differences++;
+                }
+              }
+            }
+            return differences;
+          }
+        });
+      }
+      try {
+        long t = System.nanoTime();
+        int differences = 0;
+        for (Future<Integer> future : executorService.invokeAll(callables)) {
+          differences += future.get();
+        }
+        double seconds = (System.nanoTime() - t) / 1e9;
+        double rate = ((double) threads * rounds * expected.length) / seconds;
+        if (threads == 1) {
+          singleThreadedRate = rate;
+        }
+        System.out.printf("findPOS threads: %d lookups/sec: %.0f speedup: "
+            + "%.2f differences: %d\n", threads, rate, rate
+            / singleThreadedRate, differences);
+      } catch (InterruptedException e) {
+        LOG.error("InterruptedException: " + e.getMessage());
+      } catch (ExecutionException e) {
+        LOG.error("ExecutionException: " + e.getMessage());
+      }
+      executorService.shutdown();
+    }
   }
 
   /**
@@ -679,9 +1013,71 @@ public class WordNet {
     System.out.println("In my trek I saw " + seen + " words");
   }
 
-  public static void main(String[] args) {
+  /**
+   * Rewrites a copy of the dictionary archive on a classpath with the same
+   * size and modification time and checks that its snapshot is rebuilt.
+   */
+  private static void testSnapshotRebuild() throws IOException,
+      InterruptedException {
+    String wordNetDict = Configuration.getWordNetDict();
+    File dir = Files.createTempDirectory("wordnet-test").toFile();
+    URLClassLoader classLoader = new URLClassLoader(new URL[] { dir.toURI()
+        .toURL() }, null);
+    try {
+      File archive = new File(dir, wordNetDict);
+      archive.getParentFile().mkdirs();
+      InputStream in = IOUtils.getInputStream(wordNetDict);
+      try {
+        Files.copy(in, archive.toPath());
+      } finally {
+        in.close();
+      }
+      File snapshotFile = new File(dir, "wordnet.snapshot");
+      long fingerprint = WordNetSnapshot.fingerprint(wordNetDict, classLoader);
+      WordNetSnapshot snapshot = openSnapshot(wordNetDict, fingerprint,
+          snapshotFile);
+      if (snapshot == null) {
+        throw new IllegalStateException("WordNet snapshot could not be built");
+      }
+      snapshot.close();
+
+      // a redeployed archive, the snapshot must not be reused
+      long lastModified = archive.lastModified();
+      RandomAccessFile raf = new RandomAccessFile(archive, "rw");
+      try {
+        raf.seek(raf.length() - 1);
+        int last = raf.read();
+        raf.seek(raf.length() - 1);
+        raf.write(last ^ 0xff);
+      } finally {
+        raf.close();
+      }
+      archive.setLastModified(lastModified);
+      long changedFingerprint = WordNetSnapshot.fingerprint(wordNetDict,
+          classLoader);
+      snapshot = openSnapshot(wordNetDict, changedFingerprint, snapshotFile);
+      long snapshotFingerprint = (snapshot != null) ? snapshot
+          .getFingerprint() : fingerprint;
+      if (snapshot != null) {
+        snapshot.close();
+      }
+
+      if ((changedFingerprint == fingerprint)
+          || (snapshotFingerprint != changedFingerprint)) {
+        throw new IllegalStateException(
+            "Changed dictionary archive does not rebuild the snapshot");
+      }
+      LOG.info("Snapshot rebuild test passed");
+    } finally {
+      classLoader.close();
+      IOUtils.delete(dir);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
     WordNet wordNet = WordNet.getInstance();
     wordNet.testWordNet();
     wordNet.close();
+    testSnapshotRebuild();
   }
 }
@@ -0,0 +1,839 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package at.illecker.storm.commons.wordnet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.illecker.storm.commons.Configuration;
+import at.illecker.storm.commons.util.io.IOUtils;
+import at.illecker.storm.commons.util.io.MappedDictionary;
+import edu.mit.jwi.IDictionary;
+import edu.mit.jwi.IRAMDictionary;
+import edu.mit.jwi.RAMDictionary;
+import edu.mit.jwi.data.ILoadPolicy;
+import edu.mit.jwi.data.parse.SenseKeyParser;
+import edu.mit.jwi.item.AdjMarker;
+import edu.mit.jwi.item.ExceptionEntry;
+import edu.mit.jwi.item.ExceptionEntryID;
+import edu.mit.jwi.item.IExceptionEntry;
+import edu.mit.jwi.item.IExceptionEntryID;
+import edu.mit.jwi.item.IIndexWord;
+import edu.mit.jwi.item.IIndexWordID;
+import edu.mit.jwi.item.ILexFile;
+import edu.mit.jwi.item.IPointer;
+import edu.mit.jwi.item.ISenseEntry;
+import edu.mit.jwi.item.ISenseKey;
+import edu.mit.jwi.item.ISynset;
+import edu.mit.jwi.item.ISynsetID;
+import edu.mit.jwi.item.IVersion;
+import edu.mit.jwi.item.IWord;
+import edu.mit.jwi.item.IWordID;
+import edu.mit.jwi.item.IndexWord;
+import edu.mit.jwi.item.IndexWordID;
+import edu.mit.jwi.item.LexFile;
+import edu.mit.jwi.item.POS;
+import edu.mit.jwi.item.Pointer;
+import edu.mit.jwi.item.SenseEntry;
+import edu.mit.jwi.item.Synset;
+import edu.mit.jwi.item.Synset.IWordBuilder;
+import edu.mit.jwi.item.Synset.WordBuilder;
+import edu.mit.jwi.item.SynsetID;
+import edu.mit.jwi.item.UnknownLexFile;
+import edu.mit.jwi.item.Version;
+import edu.mit.jwi.item.WordID;
+
+/**
+ * Read-only WordNet dictionary over a memory-mapped binary snapshot.
+ *
+ * The snapshot contains the index words including their summed sense tag
+ * counts and pointer symbols, the exception entries, the sense entries and
+ * the synsets with their glosses, words and hypernym and hyponym pointers.
+ * Word pointers and verb frames are not included. The header stores the
+ * fingerprint of the dictionary archive the snapshot was built from. The
+ * file is mapped read-only, so the page cache is shared by all JVMs on a
+ * host. The lookups only use absolute reads and are thread-safe.
+ */
+public class WordNetSnapshot implements IDictionary {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(WordNetSnapshot.class);
+  private static final int MAGIC = 0x574E5331; // "WNS1"
+  private static final int FORMAT_VERSION = 2;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final POS[] POS_VALUES = POS.values();
+  public static final Pointer[] POINTERS = { Pointer.HYPERNYM,
+      Pointer.HYPERNYM_INSTANCE, Pointer.HYPONYM, Pointer.HYPONYM_INSTANCE };
+  private static final int FLAG_ADJ_SATELLITE = 1;
+  private static final int FLAG_ADJ_HEAD = 2;
+  private static final Comparator<byte[]> BYTES_COMPARATOR = new Comparator<byte[]>() {
+    @Override
+    public int compare(byte[] b1, byte[] b2) {
+      int length = Math.min(b1.length, b2.length);
+      for (int i = 0; i < length; i++) {
+        int c = (b1[i] & 0xff) - (b2[i] & 0xff);
+        if (c != 0) {
+          return c;
+        }
+      }
+      return b1.length - b2.length;
+    }
+  };
+
+  private final File m_file;
+  private volatile ByteBuffer m_buffer;
+  private long m_fingerprint;
+  private IVersion m_version;
+  // table positions and sizes per POS ordinal
+  private int[] m_indexTables;
+  private int[] m_indexCounts;
+  private int[] m_exceptionTables;
+  private int[] m_exceptionCounts;
+  private int[] m_synsetTables;
+  private int[] m_synsetCounts;
+  private int m_senseTable;
+  private int m_senseCount;
+
+  public WordNetSnapshot(File file) {
+    m_file = file;
+  }
+
+  @Override
+  public synchronized boolean open() throws IOException {
+    if (m_buffer != null) {
+      return true;
+    }
+    RandomAccessFile raf = new RandomAccessFile(m_file, "r");
+    try {
+      MappedByteBuffer buffer = raf.getChannel().map(
+          FileChannel.MapMode.READ_ONLY, 0, raf.length());
+      if ((buffer.getInt(0) != MAGIC) || (buffer.getInt(4) != FORMAT_VERSION)) {
+        throw new IOException("Unknown WordNet snapshot format: " + m_file);
+      }
+      m_fingerprint = buffer.getLong(8);
+      int pos = 16;
+      int major = buffer.getInt(pos);
+      if (major >= 0) {
+        m_version = new Version(major, buffer.getInt(pos + 4),
+            buffer.getInt(pos + 8));
+      }
+      pos += 12;
+      int posCount = POS_VALUES.length;
+      m_indexTables = new int[posCount];
+      m_indexCounts = new int[posCount];
+      m_exceptionTables = new int[posCount];
+      m_exceptionCounts = new int[posCount];
+      m_synsetTables = new int[posCount];
+      m_synsetCounts = new int[posCount];
+      for (int i = 0; i < posCount; i++) {
+        m_indexTables[i] = buffer.getInt(pos);
+        m_indexCounts[i] = buffer.getInt(pos + 4);
+        m_exceptionTables[i] = buffer.getInt(pos + 8);
+        m_exceptionCounts[i] = buffer.getInt(pos + 12);
+        m_synsetTables[i] = buffer.getInt(pos + 16);
+        m_synsetCounts[i] = buffer.getInt(pos + 20);
+        pos += 24;
+      }
+      m_senseTable = buffer.getInt(pos);
+      m_senseCount = buffer.getInt(pos + 4);
+      m_buffer = buffer;
+      LOG.info("Mapped WordNet snapshot " + m_file + " (" + raf.length()
+          + " bytes)");
+      return true;
+    } finally {
+      // the mapping stays valid after the channel is closed
+      raf.close();
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return m_buffer != null;
+  }
+
+  @Override
+  public void close() {
+    m_buffer = null;
+  }
+
+  @Override
+  public IVersion getVersion() {
+    return m_version;
+  }
+
+  public File getFile() {
+    return m_file;
+  }
+
+  /**
+   * Returns the fingerprint of the dictionary archive of the snapshot.
+   */
+  public long getFingerprint() {
+    buffer();
+    return m_fingerprint;
+  }
+
+  /**
+   * Returns the fingerprint of the dictionary archive file or resource.
+   */
+  public static long fingerprint(String wordNetDictPath) {
+    return fingerprint(wordNetDictPath, WordNetSnapshot.class.getClassLoader());
+  }
+
+  /**
+   * Returns the fingerprint of the dictionary archive, a resource archive is
+   * looked up with the classLoader.
+   */
+  public static long fingerprint(String wordNetDictPath,
+      ClassLoader classLoader) {
+    return MappedDictionary.fingerprint("WordNetSnapshot " + FORMAT_VERSION,
+        Collections.singletonList(wordNetDictPath), classLoader);
+  }
+
+  private ByteBuffer buffer() {
+    ByteBuffer buffer = m_buffer;
+    if (buffer == null) {
+      throw new IllegalStateException("WordNet snapshot is not open");
+    }
+    return buffer;
+  }
+
+  @Override
+  public IIndexWord getIndexWord(String lemma, POS pos) {
+    return getIndexWord(new IndexWordID(lemma, pos));
+  }
+
+  @Override
+  public IIndexWord getIndexWord(IIndexWordID id) {
+    int record = findIndexWord(id.getLemma(), id.getPOS());
+    return (record >= 0) ? readIndexWord(buffer(), record, id.getPOS()) : null;
+  }
+
+  /**
+   * Returns the sum of the sense tag counts of all words of the index word,
+   * or 0 if it is not found.
+   */
+  public int getTagCount(IIndexWord indexWord) {
+    int record = findIndexWord(indexWord.getLemma(), indexWord.getPOS());
+    if (record < 0) {
+      return 0;
+    }
+    ByteBuffer buffer = buffer();
+    return buffer.getInt(skipString(buffer, record) + 4);
+  }
+
+  private int findIndexWord(String lemma, POS pos) {
+    int p = pos.ordinal();
+    return find(buffer(), m_indexTables[p], m_indexCounts[p],
+        lemma.getBytes(UTF8));
+  }
+
+  @Override
+  public Iterator<IIndexWord> getIndexWordIterator(final POS pos) {
+    final ByteBuffer buffer = buffer();
+    final int p = pos.ordinal();
+    return new TableIterator<IIndexWord>(m_indexCounts[p]) {
+      @Override
+      protected IIndexWord read(int i) {
+        return readIndexWord(buffer, buffer.getInt(m_indexTables[p] + i * 4),
+            pos);
+      }
+    };
+  }
+
+  private IIndexWord readIndexWord(ByteBuffer buffer, int record, POS pos) {
+    String lemma = readString(buffer, record);
+    int p = skipString(buffer, record);
+    int tagSenseCount = buffer.getInt(p);
+    IPointer[] pointers = new IPointer[buffer.getInt(p + 8)];
+    p += 12;
+    for (int i = 0; i < pointers.length; i++) {
+      pointers[i] = Pointer.getPointerType(readString(buffer, p), pos);
+      p = skipString(buffer, p);
+    }
+    int wordCount = buffer.getInt(p);
+    p += 4;
+    IWordID[] wordIDs = new IWordID[wordCount];
+    for (int i = 0; i < wordCount; i++) {
+      ISynsetID synsetID = new SynsetID(buffer.getInt(p), pos);
+      int number = buffer.getInt(p + 4);
+      String wordLemma = readString(buffer, p + 8);
+      p = skipString(buffer, p + 8);
+      if (wordLemma == null) {
+        wordIDs[i] = new WordID(synsetID, number);
+      } else if (number > 0) {
+        wordIDs[i] = new WordID(synsetID, number, wordLemma);
+      } else {
+        wordIDs[i] = new WordID(synsetID, wordLemma);
+      }
+    }
+    return new IndexWord(lemma, pos, tagSenseCount, pointers, wordIDs);
+  }
+
+  @Override
+  public IExceptionEntry getExceptionEntry(String surfaceForm, POS pos) {
+    return getExceptionEntry(new ExceptionEntryID(surfaceForm, pos));
+  }
+
+  @Override
+  public IExceptionEntry getExceptionEntry(IExceptionEntryID id) {
+    ByteBuffer buffer = buffer();
+    int p = id.getPOS().ordinal();
+    int record = find(buffer, m_exceptionTables[p], m_exceptionCounts[p], id
+        .getSurfaceForm().getBytes(UTF8));
+    return (record >= 0) ? readExceptionEntry(buffer, record, id.getPOS())
+        : null;
+  }
+
+  @Override
+  public Iterator<IExceptionEntry> getExceptionEntryIterator(final POS pos) {
+    final ByteBuffer buffer = buffer();
+    final int p = pos.ordinal();
+    return new TableIterator<IExceptionEntry>(m_exceptionCounts[p]) {
+      @Override
+      protected IExceptionEntry read(int i) {
+        return readExceptionEntry(buffer,
+            buffer.getInt(m_exceptionTables[p] + i * 4), pos);
+      }
+    };
+  }
+
+  private IExceptionEntry readExceptionEntry(ByteBuffer buffer, int record,
+      POS pos) {
+    String surfaceForm = readString(buffer, record);
+    int p = skipString(buffer, record);
+    String[] rootForms = new String[buffer.getInt(p)];
+    p += 4;
+    for (int i = 0; i < rootForms.length; i++) {
+      rootForms[i] = readString(buffer, p);
+      p = skipString(buffer, p);
+    }
+    return new ExceptionEntry(surfaceForm, pos, rootForms);
+  }
+
+  @Override
+  public ISynset getSynset(ISynsetID id) {
+    ByteBuffer buffer = buffer();
+    int p = id.getPOS().ordinal();
+    int table = m_synsetTables[p];
+    int offset = id.getOffset();
+    int low = 0;
+    int high = m_synsetCounts[p] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int record = buffer.getInt(table + mid * 4);
+      int midOffset = buffer.getInt(record);
+      if (midOffset < offset) {
+        low = mid + 1;
+      } else if (midOffset > offset) {
+        high = mid - 1;
+      } else {
+        return readSynset(buffer, record, id.getPOS());
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Iterator<ISynset> getSynsetIterator(final POS pos) {
+    final ByteBuffer buffer = buffer();
+    final int p = pos.ordinal();
+    return new TableIterator<ISynset>(m_synsetCounts[p]) {
+      @Override
+      protected ISynset read(int i) {
+        return readSynset(buffer, buffer.getInt(m_synsetTables[p] + i * 4),
+            pos);
+      }
+    };
+  }
+
+  private ISynset readSynset(ByteBuffer buffer, int record, POS pos) {
+    ISynsetID id = new SynsetID(buffer.getInt(record), pos);
+    int lexFileNumber = buffer.getInt(record + 4);
+    ILexFile lexFile = LexFile.getLexicalFile(lexFileNumber);
+    if (lexFile == null) {
+      lexFile = UnknownLexFile.getUnknownLexicalFile(lexFileNumber);
+    }
+    int flags = buffer.get(record + 8);
+    int wordCount = buffer.getInt(record + 9);
+    int p = record + 13;
+    AdjMarker[] markers = AdjMarker.values();
+    List<IWordBuilder> words = new ArrayList<IWordBuilder>(wordCount);
+    for (int i = 0; i < wordCount; i++) {
+      int number = buffer.getInt(p);
+      String lemma = readString(buffer, p + 4);
+      p = skipString(buffer, p + 4);
+      int lexID = buffer.getInt(p);
+      int marker = buffer.get(p + 4);
+      p += 5;
+      words.add(new WordBuilder(number, lemma, lexID, (marker >= 0) ? markers[marker]
+          : null));
+    }
+    String gloss = readString(buffer, p);
+    p = skipString(buffer, p);
+    Map<IPointer, List<ISynsetID>> related = new HashMap<IPointer, List<ISynsetID>>();
+    for (Pointer pointer : POINTERS) {
+      int count = buffer.getInt(p);
+      p += 4;
+      if (count > 0) {
+        List<ISynsetID> ids = new ArrayList<ISynsetID>(count);
+        for (int i = 0; i < count; i++) {
+          ids.add(new SynsetID(buffer.getInt(p + 1), POS_VALUES[buffer.get(p)]));
+          p += 5;
+        }
+        related.put(pointer, ids);
+      }
+    }
+    return new Synset(id, lexFile, (flags & FLAG_ADJ_SATELLITE) != 0,
+        (flags & FLAG_ADJ_HEAD) != 0, gloss, words, related);
+  }
+
+  @Override
+  public IWord getWord(IWordID id) {
+    ISynset synset = getSynset(id.getSynsetID());
+    if (synset == null) {
+      return null;
+    }
+    if (id.getWordNumber() > 0) {
+      return synset.getWord(id.getWordNumber());
+    }
+    if (id.getLemma() != null) {
+      for (IWord word : synset.getWords()) {
+        if (word.getLemma().equalsIgnoreCase(id.getLemma())) {
+          return word;
+        }
+      }
+      return null;
+    }
+    throw new IllegalArgumentException("Not enough information in IWordID "
+        + id + " to retrieve word.");
+  }
+
+  @Override
+  public IWord getWord(ISenseKey key) {
+    ISenseEntry senseEntry = getSenseEntry(key);
+    if (senseEntry == null) {
+      return null;
+    }
+    ISynset synset = getSynset(new SynsetID(senseEntry.getOffset(),
+        senseEntry.getPOS()));
+    if (synset != null) {
+      for (IWord word : synset.getWords()) {
+        if ((word.getLexicalID() == key.getLexicalID())
+            && (word.getLemma().equalsIgnoreCase(key.getLemma()))) {
+          return word;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public ISenseEntry getSenseEntry(ISenseKey key) {
+    ByteBuffer buffer = buffer();
+    int record = find(buffer, m_senseTable, m_senseCount, key.toString()
+        .toLowerCase().getBytes(UTF8));
+    return (record >= 0) ? readSenseEntry(buffer, record, key) : null;
+  }
+
+  @Override
+  public Iterator<ISenseEntry> getSenseEntryIterator() {
+    final ByteBuffer buffer = buffer();
+    return new TableIterator<ISenseEntry>(m_senseCount) {
+      @Override
+      protected ISenseEntry read(int i) {
+        int record = buffer.getInt(m_senseTable + i * 4);
+        return readSenseEntry(buffer, record, SenseKeyParser.getInstance()
+            .parseLine(readString(buffer, record)));
+      }
+    };
+  }
+
+  private ISenseEntry readSenseEntry(ByteBuffer buffer, int record,
+      ISenseKey key) {
+    int p = skipString(buffer, record);
+    return new SenseEntry(key, buffer.getInt(p), buffer.getInt(p + 4),
+        buffer.getInt(p + 8));
+  }
+
+  /**
+   * Binary search of key in a table of record positions sorted by the
+   * leading string of the records.
+   */
+  private static int find(ByteBuffer buffer, int table, int count, byte[] key) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int record = buffer.getInt(table + mid * 4);
+      int c = compare(buffer, record, key);
+      if (c < 0) {
+        low = mid + 1;
+      } else if (c > 0) {
+        high = mid - 1;
+      } else {
+        return record;
+      }
+    }
+    return -1;
+  }
+
+  private static int compare(ByteBuffer buffer, int pos, byte[] key) {
+    int length = buffer.getShort(pos);
+    int n = Math.min(length, key.length);
+    for (int i = 0; i < n; i++) {
+      int c = (buffer.get(pos + 2 + i) & 0xff) - (key[i] & 0xff);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return length - key.length;
+  }
+
+  private static String readString(ByteBuffer buffer, int pos) {
+    int length = buffer.getShort(pos);
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(pos + 2 + i);
+    }
+    return new String(bytes, UTF8);
+  }
+
+  private static int skipString(ByteBuffer buffer, int pos) {
+    return pos + 2 + Math.max(0, buffer.getShort(pos));
+  }
+
+  private static abstract class TableIterator<T> implements Iterator<T> {
+    private final int m_count;
+    private int m_next = 0;
+
+    public TableIterator(int count) {
+      m_count = count;
+    }
+
+    protected abstract T read(int i);
+
+    @Override
+    public boolean hasNext() {
+      return m_next < m_count;
+    }
+
+    @Override
+    public T next() {
+      if (m_next >= m_count) {
+        throw new NoSuchElementException();
+      }
+      return read(m_next++);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Writes the snapshot of an open dictionary to file. The file is written
+   * to a temporary file first and then renamed, concurrent readers never
+   * see a partial snapshot.
+   */
+  public static void write(IDictionary dict, File file, long fingerprint)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 24);
+    DataOutputStream out = new DataOutputStream(bytes);
+    int posCount = POS_VALUES.length;
+
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeLong(fingerprint);
+    IVersion version = dict.getVersion();
+    out.writeInt((version != null) ? version.getMajorVersion() : -1);
+    out.writeInt((version != null) ? version.getMinorVersion() : -1);
+    out.writeInt((version != null) ? version.getBugfixVersion() : -1);
+    int tablesPos = out.size();
+    // table positions and sizes are patched at the end
+    for (int i = 0; i < posCount * 6 + 2; i++) {
+      out.writeInt(0);
+    }
+    int[] tables = new int[posCount * 6 + 2];
+
+    for (POS pos : POS_VALUES) {
+      int p = pos.ordinal() * 6;
+
+      // index words sorted by lemma
+      List<Record> records = new ArrayList<Record>();
+      for (Iterator<IIndexWord> i = dict.getIndexWordIterator(pos); i
+          .hasNext();) {
+        IIndexWord indexWord = i.next();
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        byte[] key = writeString(record, indexWord.getLemma());
+        record.writeInt(indexWord.getTagSenseCount());
+        int tagCount = 0;
+        for (IWordID wordID : indexWord.getWordIDs()) {
+          ISenseEntry senseEntry = dict.getSenseEntry(dict.getWord(wordID)
+              .getSenseKey());
+          if (senseEntry != null) {
+            tagCount += senseEntry.getTagCount();
+          }
+        }
+        record.writeInt(tagCount);
+        record.writeInt(indexWord.getPointers().size());
+        for (IPointer pointer : indexWord.getPointers()) {
+          writeString(record, pointer.getSymbol());
+        }
+        record.writeInt(indexWord.getWordIDs().size());
+        for (IWordID wordID : indexWord.getWordIDs()) {
+          record.writeInt(wordID.getSynsetID().getOffset());
+          record.writeInt(wordID.getWordNumber());
+          writeString(record, wordID.getLemma());
+        }
+        records.add(new Record(key, recordBytes.toByteArray()));
+      }
+      tables[p] = writeTable(out, records);
+      tables[p + 1] = records.size();
+
+      // exception entries sorted by surface form
+      records.clear();
+      for (Iterator<IExceptionEntry> i = dict.getExceptionEntryIterator(pos); i
+          .hasNext();) {
+        IExceptionEntry entry = i.next();
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        byte[] key = writeString(record, entry.getSurfaceForm());
+        record.writeInt(entry.getRootForms().size());
+        for (String rootForm : entry.getRootForms()) {
+          writeString(record, rootForm);
+        }
+        records.add(new Record(key, recordBytes.toByteArray()));
+      }
+      tables[p + 2] = writeTable(out, records);
+      tables[p + 3] = records.size();
+
+      // synsets sorted by offset
+      records.clear();
+      for (Iterator<ISynset> i = dict.getSynsetIterator(pos); i.hasNext();) {
+        ISynset synset = i.next();
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        record.writeInt(synset.getOffset());
+        record.writeInt(synset.getLexicalFile().getNumber());
+        record.writeByte((synset.isAdjectiveSatellite() ? FLAG_ADJ_SATELLITE
+            : 0) | (synset.isAdjectiveHead() ? FLAG_ADJ_HEAD : 0));
+        record.writeInt(synset.getWords().size());
+        for (IWord word : synset.getWords()) {
+          record.writeInt(word.getID().getWordNumber());
+          writeString(record, word.getLemma());
+          record.writeInt(word.getLexicalID());
+          AdjMarker marker = word.getAdjectiveMarker();
+          record.writeByte((marker != null) ? marker.ordinal() : -1);
+        }
+        writeString(record, synset.getGloss());
+        for (Pointer pointer : POINTERS) {
+          List<ISynsetID> ids = synset.getRelatedSynsets(pointer);
+          record.writeInt(ids.size());
+          for (ISynsetID id : ids) {
+            record.writeByte(id.getPOS().ordinal());
+            record.writeInt(id.getOffset());
+          }
+        }
+        records.add(new Record(synset.getOffset(), recordBytes.toByteArray()));
+      }
+      tables[p + 4] = writeTable(out, records);
+      tables[p + 5] = records.size();
+    }
+
+    // sense entries sorted by sense key
+    List<Record> records = new ArrayList<Record>();
+    for (Iterator<ISenseEntry> i = dict.getSenseEntryIterator(); i.hasNext();) {
+      ISenseEntry entry = i.next();
+      ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+      DataOutputStream record = new DataOutputStream(recordBytes);
+      byte[] key = writeString(record, entry.getSenseKey().toString()
+          .toLowerCase());
+      record.writeInt(entry.getOffset());
+      record.writeInt(entry.getSenseNumber());
+      record.writeInt(entry.getTagCount());
+      records.add(new Record(key, recordBytes.toByteArray()));
+    }
+    tables[posCount * 6] = writeTable(out, records);
+    tables[posCount * 6 + 1] = records.size();
+    out.close();
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    for (int i = 0; i < tables.length; i++) {
+      buffer.putInt(tablesPos + i * 4, tables[i]);
+    }
+
+    File tmpFile = File.createTempFile(file.getName(), ".tmp",
+        file.getAbsoluteFile().getParentFile());
+    FileOutputStream fos = new FileOutputStream(tmpFile);
+    try {
+      fos.write(buffer.array());
+    } finally {
+      fos.close();
+    }
+    if (!tmpFile.renameTo(file)) {
+      tmpFile.delete();
+      throw new IOException("Could not rename " + tmpFile + " to " + file);
+    }
+    LOG.info("Wrote WordNet snapshot " + file + " (" + buffer.capacity()
+        + " bytes)");
+  }
+
+  /**
+   * Creates a new extract location, every JVM uses its own directory.
+   */
+  public static File createExtractDir() throws IOException {
+    return Files.createTempDirectory(
+        new File(Configuration.TEMP_DIR_PATH).toPath(), "wordnet").toFile();
+  }
+
+  /**
+   * Extracts the WordNet dictionary archive into extractDir and loads it
+   * into memory.
+   */
+  public static IRAMDictionary loadDictionary(String wordNetDictPath,
+      File extractDir) throws IOException, InterruptedException {
+    LOG.info("WordNet Dictionary: " + wordNetDictPath);
+    LOG.info("WordNet Extract Location: " + extractDir.getAbsolutePath());
+
+    // extract tar.gz file
+    IOUtils.extractTarGz(wordNetDictPath, extractDir.getAbsolutePath());
+
+    IRAMDictionary dict = new RAMDictionary(new File(extractDir, "dict"),
+        ILoadPolicy.NO_LOAD);
+    dict.open();
+
+    // load into memory
+    long t = System.currentTimeMillis();
+    dict.load(true);
+    LOG.info("Loaded Wordnet into memory in "
+        + (System.currentTimeMillis() - t) + " msec");
+    return dict;
+  }
+
+  /**
+   * Builds the snapshot of the WordNet dictionary archive.
+   */
+  public static void build(String wordNetDictPath, File file,
+      long fingerprint) throws IOException, InterruptedException {
+    File extractDir = createExtractDir();
+    try {
+      IRAMDictionary dict = loadDictionary(wordNetDictPath, extractDir);
+      try {
+        write(dict, file, fingerprint);
+      } finally {
+        dict.close();
+      }
+    } finally {
+      IOUtils.delete(extractDir);
+    }
+  }
+
+  /**
+   * Writes the records followed by their sorted position table and returns
+   * the position of the table.
+   */
+  private static int writeTable(DataOutputStream out, List<Record> records)
+      throws IOException {
+    Collections.sort(records);
+    int[] positions = new int[records.size()];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = out.size();
+      out.write(records.get(i).m_bytes);
+    }
+    int table = out.size();
+    for (int position : positions) {
+      out.writeInt(position);
+    }
+    return table;
+  }
+
+  private static byte[] writeString(DataOutputStream out, String str)
+      throws IOException {
+    if (str == null) {
+      out.writeShort(-1);
+      return null;
+    }
+    byte[] bytes = str.getBytes(UTF8);
+    if (bytes.length > Short.MAX_VALUE) {
+      throw new IOException("String is too long for a WordNet snapshot: "
+          + str);
+    }
+    out.writeShort(bytes.length);
+    out.write(bytes);
+    return bytes;
+  }
+
+  private static class Record implements Comparable<Record> {
+    private final byte[] m_key;
+    private final int m_offset;
+    private final byte[] m_bytes;
+
+    public Record(byte[] key, byte[] bytes) {
+      m_key = key;
+      m_offset = 0;
+      m_bytes = bytes;
+    }
+
+    public Record(int offset, byte[] bytes) {
+      m_key = null;
+      m_offset = offset;
+      m_bytes = bytes;
+    }
+
+    @Override
+    public int compareTo(Record other) {
+      if (m_key != null) {
+        return BYTES_COMPARATOR.compare(m_key, other.m_key);
+      }
+      return (m_offset < other.m_offset) ? -1
+          : ((m_offset == other.m_offset) ? 0 : 1);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    String wordNetDictPath = Configuration.getWordNetDict();
+    long fingerprint = fingerprint(wordNetDictPath);
+    File file = (args.length > 0) ? new File(args[0]) : Configuration
+        .getWordNetSnapshot(fingerprint);
+    build(wordNetDictPath, file, fingerprint);
+  }
+}
@@ -157,12 +157,18 @@ public class POSTaggerTopology {
 
     conf.put(TokenizerBolt.CONF_LOGGING,
         Configuration.get("apps.postagger.bolt.tokenizer.logging", false));
+    conf.put(TokenizerBolt.CONF_TYPE, Configuration.get(
+        "apps.postagger.bolt.tokenizer.type", "SCANNER_TOKENIZER"));
     conf.put(PreprocessorBolt.CONF_LOGGING,
         Configuration.get("apps.postagger.bolt.preprocessor.logging", false));
     conf.put(POSTaggerBolt.CONF_LOGGING,
         Configuration.get("apps.postagger.bolt.postagger.logging", false));
     conf.put(POSTaggerBolt.CONF_MODEL,
         Configuration.get("apps.postagger.bolt.postagger.model"));
+    conf.put(POSTaggerBolt.CONF_SEQUENCE_CACHE_ENABLED, Configuration.get(
+        "apps.postagger.bolt.postagger.sequencecache.enabled", false));
+    conf.put(POSTaggerBolt.CONF_SEQUENCE_CACHE_SIZE_MB, Configuration.get(
+        "apps.postagger.bolt.postagger.sequencecache.size.mb", 64));
 
     conf.put(Config.TOPOLOGY_FALL_BACK_ON_JAVA_SERIALIZATION, false);
     conf.registerSerialization(TaggedToken.class, TaggedTokenSerializer.class);
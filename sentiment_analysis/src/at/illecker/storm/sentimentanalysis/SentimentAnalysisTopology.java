@@ -163,12 +163,18 @@ public class SentimentAnalysisTopology {
 
     conf.put(TokenizerBolt.CONF_LOGGING, Configuration.get(
         "apps.sentiment.analysis.bolt.tokenizer.logging", false));
+    conf.put(TokenizerBolt.CONF_TYPE, Configuration.get(
+        "apps.sentiment.analysis.bolt.tokenizer.type", "SCANNER_TOKENIZER"));
     conf.put(PreprocessorBolt.CONF_LOGGING, Configuration.get(
         "apps.sentiment.analysis.bolt.preprocessor.logging", false));
     conf.put(POSTaggerBolt.CONF_LOGGING, Configuration.get(
         "apps.sentiment.analysis.bolt.postagger.logging", false));
     conf.put(POSTaggerBolt.CONF_MODEL,
         Configuration.get("apps.sentiment.analysis.bolt.postagger.model"));
+    conf.put(POSTaggerBolt.CONF_SEQUENCE_CACHE_ENABLED, Configuration.get(
+        "apps.sentiment.analysis.bolt.postagger.sequencecache.enabled", false));
+    conf.put(POSTaggerBolt.CONF_SEQUENCE_CACHE_SIZE_MB, Configuration.get(
+        "apps.sentiment.analysis.bolt.postagger.sequencecache.size.mb", 64));
     conf.put(SentimentDetectionBolt.CONF_LOGGING, Configuration.get(
         "apps.sentiment.analysis.bolt.sentimentdetection.logging", false));
 
@@ -180,12 +180,18 @@ public class SentimentAnalysisSVMTopology {
 
     conf.put(TokenizerBolt.CONF_LOGGING, Configuration.get(
         "apps.sentiment.analysis.svm.bolt.tokenizer.logging", false));
+    conf.put(TokenizerBolt.CONF_TYPE, Configuration.get(
+        "apps.sentiment.analysis.svm.bolt.tokenizer.type", "SCANNER_TOKENIZER"));
     conf.put(PreprocessorBolt.CONF_LOGGING, Configuration.get(
         "apps.sentiment.analysis.svm.bolt.preprocessor.logging", false));
     conf.put(POSTaggerBolt.CONF_LOGGING, Configuration.get(
         "apps.sentiment.analysis.svm.bolt.postagger.logging", false));
     conf.put(POSTaggerBolt.CONF_MODEL,
         Configuration.get("apps.sentiment.analysis.svm.bolt.postagger.model"));
+    conf.put(POSTaggerBolt.CONF_SEQUENCE_CACHE_ENABLED, Configuration.get(
+        "apps.sentiment.analysis.svm.bolt.postagger.sequencecache.enabled", false));
+    conf.put(POSTaggerBolt.CONF_SEQUENCE_CACHE_SIZE_MB, Configuration.get(
+        "apps.sentiment.analysis.svm.bolt.postagger.sequencecache.size.mb", 64));
     conf.put(FeatureGenerationBolt.CONF_LOGGING, Configuration.get(
         "apps.sentiment.analysis.svm.bolt.featuregeneration.logging", false));
     conf.put(SVMBolt.CONF_LOGGING, Configuration.get(
@@ -200,7 +206,8 @@ public class SentimentAnalysisSVMTopology {
     // conf.put(Config.TOPOLOGY_EXECUTOR_RECEIVE_BUFFER_SIZE, 16384);
     // conf.put(Config.TOPOLOGY_EXECUTOR_SEND_BUFFER_SIZE, 16384);
 
-    // LoggingMetricsConsumer of SVMBolt
+    // LoggingMetricsConsumer of SVMBolt, PreprocessorBolt, POSTaggerBolt and
+    // FeatureGenerationBolt
     if ((Configuration
         .get("apps.sentiment.analysis.svm.metrics.logging.consumer.parallelism") != null)
         && (Configuration
@@ -213,6 +220,18 @@ public class SentimentAnalysisSVMTopology {
           SVMBolt.CONF_METRIC_LOGGING_INTERVALL,
           (Integer) Configuration
               .get("apps.sentiment.analysis.svm.metrics.logging.consumer.intervall.sec"));
+      conf.put(
+          PreprocessorBolt.CONF_METRIC_LOGGING_INTERVALL,
+          (Integer) Configuration
+              .get("apps.sentiment.analysis.svm.metrics.logging.consumer.intervall.sec"));
+      conf.put(
+          FeatureGenerationBolt.CONF_METRIC_LOGGING_INTERVALL,
+          (Integer) Configuration
+              .get("apps.sentiment.analysis.svm.metrics.logging.consumer.intervall.sec"));
+      conf.put(
+          POSTaggerBolt.CONF_METRIC_LOGGING_INTERVALL,
+          (Integer) Configuration
+              .get("apps.sentiment.analysis.svm.metrics.logging.consumer.intervall.sec"));
     }
 
     StormSubmitter